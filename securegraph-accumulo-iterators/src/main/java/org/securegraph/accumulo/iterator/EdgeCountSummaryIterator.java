@@ -0,0 +1,186 @@
+package org.securegraph.accumulo.iterator;
+
+import org.apache.accumulo.core.data.*;
+import org.apache.accumulo.core.iterators.IteratorEnvironment;
+import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
+import org.apache.hadoop.io.Text;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Replaces the edge reference columns of a vertex row with one count per edge label. In edges are summarized under
+ * {@link #CF_IN_EDGE_COUNT} and out edges under {@link #CF_OUT_EDGE_COUNT}, the column qualifier is the edge label
+ * and the value is the count as a decimal string. The summary columns sort directly after the columns they replace.
+ * Only the edge references visible to the scan's authorizations are counted.
+ */
+public class EdgeCountSummaryIterator implements SortedKeyValueIterator<Key, Value> {
+    public static final String OPT_SUMMARIZE_IN_EDGES = "summarizeInEdges";
+    public static final String OPT_SUMMARIZE_OUT_EDGES = "summarizeOutEdges";
+    public static final Text CF_IN_EDGE_COUNT = new Text("EINC");
+    public static final Text CF_OUT_EDGE_COUNT = new Text("EOUTC");
+
+    // must match org.securegraph.accumulo.AccumuloVertex.CF_OUT_EDGE and CF_IN_EDGE
+    private static final Text CF_OUT_EDGE = new Text("EOUT");
+    private static final Text CF_IN_EDGE = new Text("EIN");
+
+    private static final Text EMPTY_TEXT = new Text("");
+
+    private SortedKeyValueIterator<Key, Value> source;
+    private Map<String, String> options;
+    private boolean summarizeInEdges;
+    private boolean summarizeOutEdges;
+    private final LinkedList<Map.Entry<Key, Value>> summaries = new LinkedList<Map.Entry<Key, Value>>();
+    private Key skipThroughKey;
+    private boolean skipThroughKeyInclusive;
+    private Key topKey;
+    private Value topValue;
+
+    @Override
+    public void init(SortedKeyValueIterator<Key, Value> source, Map<String, String> options, IteratorEnvironment env) throws IOException {
+        this.source = source;
+        this.options = options;
+        this.summarizeInEdges = Boolean.parseBoolean(options.get(OPT_SUMMARIZE_IN_EDGES));
+        this.summarizeOutEdges = Boolean.parseBoolean(options.get(OPT_SUMMARIZE_OUT_EDGES));
+        if (!this.summarizeInEdges && !this.summarizeOutEdges) {
+            throw new IllegalArgumentException(OPT_SUMMARIZE_IN_EDGES + " and/or " + OPT_SUMMARIZE_OUT_EDGES + " must be set to true.");
+        }
+    }
+
+    @Override
+    public void seek(Range range, Collection<ByteSequence> columnFamilies, boolean inclusive) throws IOException {
+        this.summaries.clear();
+        this.skipThroughKey = null;
+        this.topKey = null;
+        this.topValue = null;
+
+        Range sourceRange = range;
+        Key startKey = range.getStartKey();
+        if (startKey != null && (startKey.getColumnFamilyData().length() != 0 || startKey.getColumnQualifierData().length() != 0)) {
+            // the summaries of a row can only be recomputed from the start of the row, skip what was already returned
+            this.skipThroughKey = startKey;
+            this.skipThroughKeyInclusive = !range.isStartKeyInclusive();
+            sourceRange = new Range(new Key(startKey.getRow()), true, range.getEndKey(), range.isEndKeyInclusive());
+        }
+
+        source.seek(sourceRange, columnFamilies, inclusive);
+        findTop();
+    }
+
+    @Override
+    public void next() throws IOException {
+        if (summaries.size() > 0) {
+            summaries.removeFirst();
+        } else {
+            source.next();
+        }
+        findTop();
+    }
+
+    private void findTop() throws IOException {
+        while (true) {
+            if (summaries.size() == 0 && source.hasTop()) {
+                Text countColumnFamily = getCountColumnFamily(source.getTopKey());
+                if (countColumnFamily != null) {
+                    summarize(countColumnFamily);
+                }
+            }
+
+            if (summaries.size() > 0) {
+                topKey = summaries.getFirst().getKey();
+                topValue = summaries.getFirst().getValue();
+            } else if (source.hasTop()) {
+                topKey = source.getTopKey();
+                topValue = source.getTopValue();
+            } else {
+                topKey = null;
+                topValue = null;
+                return;
+            }
+
+            if (skipThroughKey != null) {
+                int compare = topKey.compareTo(skipThroughKey);
+                if (compare < 0 || (compare == 0 && skipThroughKeyInclusive)) {
+                    if (summaries.size() > 0) {
+                        summaries.removeFirst();
+                    } else {
+                        source.next();
+                    }
+                    continue;
+                }
+                skipThroughKey = null;
+            }
+            return;
+        }
+    }
+
+    private Text getCountColumnFamily(Key key) {
+        if (summarizeInEdges && key.compareColumnFamily(CF_IN_EDGE) == 0) {
+            return CF_IN_EDGE_COUNT;
+        }
+        if (summarizeOutEdges && key.compareColumnFamily(CF_OUT_EDGE) == 0) {
+            return CF_OUT_EDGE_COUNT;
+        }
+        return null;
+    }
+
+    /**
+     * Consumes all the edge reference columns of the current row and column family and queues one count per label.
+     */
+    private void summarize(Text countColumnFamily) throws IOException {
+        Key firstKey = new Key(source.getTopKey());
+        Text row = firstKey.getRow();
+        Text columnFamily = firstKey.getColumnFamily();
+        SortedMap<ByteSequence, Integer> counts = new TreeMap<ByteSequence, Integer>();
+        ByteSequence lastEdgeId = null;
+        while (source.hasTop() && source.getTopKey().compareRow(row) == 0 && source.getTopKey().compareColumnFamily(columnFamily) == 0) {
+            ByteSequence edgeId = source.getTopKey().getColumnQualifierData();
+            // the same edge can appear more than once with different visibilities but should only be counted once
+            if (lastEdgeId == null || !lastEdgeId.equals(edgeId)) {
+                ByteSequence label = EdgeInfoBytes.getLabel(source.getTopValue().get());
+                if (label != null) {
+                    Integer count = counts.get(label);
+                    if (count == null) {
+                        // the label bytes belong to the source's value which may be reused
+                        counts.put(new ArrayByteSequence(label.toArray()), 1);
+                    } else {
+                        counts.put(label, count + 1);
+                    }
+                }
+                lastEdgeId = new ArrayByteSequence(edgeId.toArray());
+            }
+            source.next();
+        }
+
+        for (Map.Entry<ByteSequence, Integer> count : counts.entrySet()) {
+            Key key = new Key(row, countColumnFamily, new Text(count.getKey().toArray()), EMPTY_TEXT, firstKey.getTimestamp());
+            summaries.add(new AbstractMap.SimpleImmutableEntry<Key, Value>(key, new Value(Integer.toString(count.getValue()).getBytes())));
+        }
+    }
+
+    @Override
+    public boolean hasTop() {
+        return topKey != null;
+    }
+
+    @Override
+    public Key getTopKey() {
+        return topKey;
+    }
+
+    @Override
+    public Value getTopValue() {
+        return topValue;
+    }
+
+    @Override
+    public SortedKeyValueIterator<Key, Value> deepCopy(IteratorEnvironment env) {
+        EdgeCountSummaryIterator copy = new EdgeCountSummaryIterator();
+        try {
+            copy.init(source.deepCopy(env), options, env);
+        } catch (IOException ex) {
+            throw new RuntimeException("Could not copy iterator", ex);
+        }
+        return copy;
+    }
+}
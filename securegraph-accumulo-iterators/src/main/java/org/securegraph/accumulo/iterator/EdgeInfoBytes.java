@@ -0,0 +1,78 @@
+package org.securegraph.accumulo.iterator;
+
+import org.apache.accumulo.core.data.ArrayByteSequence;
+import org.apache.accumulo.core.data.ByteSequence;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Reads the parts of an encoded edge reference value without decoding them into strings. Both the original
+ * encoding and the versioned compact encoding are read so tables do not need to be rewritten.
+ */
+class EdgeInfoBytes {
+    // must match org.securegraph.accumulo.EdgeInfo.VERSION_1
+    private static final byte VERSION_1 = 0x01;
+
+    static ByteSequence getLabel(byte[] edgeInfo) {
+        if (isVersion1(edgeInfo)) {
+            int labelLength = readVarInt(edgeInfo, 1) - 1;
+            if (labelLength < 0) {
+                return null;
+            }
+            return new ArrayByteSequence(edgeInfo, 1 + varIntLength(labelLength + 1), labelLength);
+        }
+        int labelLength = ByteBuffer.wrap(edgeInfo).getInt();
+        if (labelLength < 0) {
+            return null;
+        }
+        return new ArrayByteSequence(edgeInfo, 4, labelLength);
+    }
+
+    static ByteSequence getVertexId(byte[] edgeInfo) {
+        if (isVersion1(edgeInfo)) {
+            int labelLength = readVarInt(edgeInfo, 1) - 1;
+            int offset = 1 + varIntLength(labelLength + 1) + Math.max(0, labelLength);
+            int vertexIdLength = readVarInt(edgeInfo, offset) - 1;
+            if (vertexIdLength < 0) {
+                return null;
+            }
+            return new ArrayByteSequence(edgeInfo, offset + varIntLength(vertexIdLength + 1), vertexIdLength);
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(edgeInfo);
+        int labelLength = buffer.getInt();
+        int offset = 4 + Math.max(0, labelLength);
+        int vertexIdLength = buffer.getInt(offset);
+        if (vertexIdLength < 0) {
+            return null;
+        }
+        return new ArrayByteSequence(edgeInfo, offset + 4, vertexIdLength);
+    }
+
+    // the original encoding starts with a 4 byte length so its first byte is 0x00, or 0xff for a null label
+    private static boolean isVersion1(byte[] edgeInfo) {
+        return edgeInfo.length > 0 && edgeInfo[0] == VERSION_1;
+    }
+
+    // must match the varint encoding in org.securegraph.accumulo.EdgeInfo
+    private static int readVarInt(byte[] bytes, int offset) {
+        int value = 0;
+        int shift = 0;
+        while (true) {
+            byte b = bytes[offset++];
+            value |= (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+            shift += 7;
+        }
+    }
+
+    private static int varIntLength(int value) {
+        int length = 1;
+        while ((value & ~0x7f) != 0) {
+            value >>>= 7;
+            length++;
+        }
+        return length;
+    }
+}
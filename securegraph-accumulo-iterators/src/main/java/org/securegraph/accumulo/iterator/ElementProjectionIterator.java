@@ -0,0 +1,300 @@
+package org.securegraph.accumulo.iterator;
+
+import org.apache.accumulo.core.data.*;
+import org.apache.accumulo.core.iterators.IteratorEnvironment;
+import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
+import org.apache.accumulo.core.iterators.user.WholeRowIterator;
+import org.apache.hadoop.io.Text;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Streams each visible element row back in bounded chunks, keeping only the requested properties and edge labels.
+ * For vertices the edge labels limit the edge references returned, for edges they limit the edges returned.
+ * <p/>
+ * Each chunk is encoded with {@link WholeRowIterator#encodeRow(java.util.List, java.util.List)} and returned under
+ * the element's row with a column family of {@link #CHUNK_COLUMN_FAMILY}, or {@link #LAST_CHUNK_COLUMN_FAMILY} for
+ * the final chunk of the row. The column qualifier is the zero padded chunk number. Every visible row ends with a last
+ * chunk, even if it is empty, so the client knows when the row is complete.
+ */
+public class ElementProjectionIterator implements SortedKeyValueIterator<Key, Value> {
+    public static final String OPT_ELEMENT_TYPE = "elementType";
+    public static final String OPT_FILTER_ROW_VISIBILITY = "filterRowVisibility";
+    public static final String OPT_PROPERTY_NAMES = "propertyNames";
+    public static final String OPT_EDGE_LABELS = "edgeLabels";
+    public static final String OPT_MAX_CELLS_PER_CHUNK = "maxCellsPerChunk";
+    public static final String OPT_MAX_BYTES_PER_CHUNK = "maxBytesPerChunk";
+    public static final String ELEMENT_TYPE_VERTEX = "vertex";
+    public static final String ELEMENT_TYPE_EDGE = "edge";
+    public static final String LIST_SEPARATOR = "\u001f";
+    public static final Text CHUNK_COLUMN_FAMILY = new Text("C");
+    public static final Text LAST_CHUNK_COLUMN_FAMILY = new Text("L");
+    public static final int DEFAULT_MAX_CELLS_PER_CHUNK = 1000;
+    public static final int DEFAULT_MAX_BYTES_PER_CHUNK = 1024 * 1024;
+
+    // must match org.securegraph.accumulo.AccumuloVertex.CF_SIGNAL
+    private static final Text VERTEX_CF_SIGNAL = new Text("V");
+
+    // must match org.securegraph.accumulo.AccumuloEdge.CF_SIGNAL
+    private static final Text EDGE_CF_SIGNAL = new Text("E");
+
+    // must match org.securegraph.accumulo.AccumuloElement.CF_PROPERTY and CF_PROPERTY_METADATA
+    private static final Text CF_PROPERTY = new Text("PROP");
+    private static final Text CF_PROPERTY_METADATA = new Text("PROPMETA");
+
+    // must match org.securegraph.accumulo.AccumuloVertex.CF_OUT_EDGE and CF_IN_EDGE
+    private static final Text CF_OUT_EDGE = new Text("EOUT");
+    private static final Text CF_IN_EDGE = new Text("EIN");
+
+    // must match org.securegraph.accumulo.ElementMutationBuilder.VALUE_SEPARATOR
+    private static final byte VALUE_SEPARATOR = 0x1f;
+
+    private SortedKeyValueIterator<Key, Value> source;
+    private SortedKeyValueIterator<Key, Value> rowChecker;
+    private Map<String, String> options;
+    private boolean vertexElementType;
+    private Text signalColumnFamily;
+    private boolean filterRowVisibility;
+    private Set<ByteSequence> propertyNames;
+    private Set<ByteSequence> edgeLabels;
+    private int maxCellsPerChunk;
+    private int maxBytesPerChunk;
+
+    private Range range;
+    private Collection<ByteSequence> columnFamilies;
+    private boolean inclusive;
+    private Text currentRow;
+    private int currentChunk;
+    private int skipThroughChunk;
+    private Key topKey;
+    private Value topValue;
+
+    @Override
+    public void init(SortedKeyValueIterator<Key, Value> source, Map<String, String> options, IteratorEnvironment env) throws IOException {
+        this.source = source;
+        this.options = options;
+        String elementType = options.get(OPT_ELEMENT_TYPE);
+        if (ELEMENT_TYPE_VERTEX.equals(elementType)) {
+            this.vertexElementType = true;
+            this.signalColumnFamily = VERTEX_CF_SIGNAL;
+        } else if (ELEMENT_TYPE_EDGE.equals(elementType)) {
+            this.vertexElementType = false;
+            this.signalColumnFamily = EDGE_CF_SIGNAL;
+        } else {
+            throw new IllegalArgumentException(OPT_ELEMENT_TYPE + " must be set to " + ELEMENT_TYPE_VERTEX + " or " + ELEMENT_TYPE_EDGE);
+        }
+        this.filterRowVisibility = Boolean.parseBoolean(options.get(OPT_FILTER_ROW_VISIBILITY));
+        this.propertyNames = parseList(options.get(OPT_PROPERTY_NAMES));
+        this.edgeLabels = parseList(options.get(OPT_EDGE_LABELS));
+        this.maxCellsPerChunk = parseInt(options.get(OPT_MAX_CELLS_PER_CHUNK), DEFAULT_MAX_CELLS_PER_CHUNK);
+        this.maxBytesPerChunk = parseInt(options.get(OPT_MAX_BYTES_PER_CHUNK), DEFAULT_MAX_BYTES_PER_CHUNK);
+        if (this.filterRowVisibility || (!this.vertexElementType && this.edgeLabels != null)) {
+            this.rowChecker = source.deepCopy(env);
+        }
+    }
+
+    private static Set<ByteSequence> parseList(String option) {
+        if (option == null) {
+            return null;
+        }
+        Set<ByteSequence> results = new HashSet<ByteSequence>();
+        for (String item : option.split(LIST_SEPARATOR, -1)) {
+            results.add(new ArrayByteSequence(new Text(item).copyBytes()));
+        }
+        return results;
+    }
+
+    private static int parseInt(String option, int defaultValue) {
+        if (option == null) {
+            return defaultValue;
+        }
+        return Integer.parseInt(option);
+    }
+
+    public static String toListOption(Iterable<String> items) {
+        StringBuilder result = new StringBuilder();
+        boolean first = true;
+        for (String item : items) {
+            if (!first) {
+                result.append(LIST_SEPARATOR);
+            }
+            result.append(item);
+            first = false;
+        }
+        return result.toString();
+    }
+
+    @Override
+    public void seek(Range range, Collection<ByteSequence> columnFamilies, boolean inclusive) throws IOException {
+        this.range = range;
+        this.columnFamilies = columnFamilies;
+        this.inclusive = inclusive;
+        this.currentRow = null;
+        this.skipThroughChunk = -1;
+        this.topKey = null;
+        this.topValue = null;
+
+        Range sourceRange = range;
+        Key startKey = range.getStartKey();
+        if (startKey != null && (startKey.getColumnFamilyData().length() != 0 || startKey.getColumnQualifierData().length() != 0)) {
+            // we are being re-seeked part way through a row that we already returned some chunks of
+            Key rowStartKey;
+            if (startKey.compareColumnFamily(CHUNK_COLUMN_FAMILY) == 0) {
+                int chunk = Integer.parseInt(startKey.getColumnQualifier().toString());
+                this.skipThroughChunk = range.isStartKeyInclusive() ? chunk - 1 : chunk;
+                rowStartKey = new Key(startKey.getRow());
+            } else {
+                rowStartKey = startKey.followingKey(PartialKey.ROW);
+            }
+            if (range.afterEndKey(rowStartKey)) {
+                return;
+            }
+            sourceRange = new Range(rowStartKey, true, range.getEndKey(), range.isEndKeyInclusive());
+        }
+
+        source.seek(sourceRange, columnFamilies, inclusive);
+        findTop();
+    }
+
+    @Override
+    public void next() throws IOException {
+        findTop();
+    }
+
+    private void findTop() throws IOException {
+        this.topKey = null;
+        this.topValue = null;
+        while (this.topKey == null && (this.currentRow != null || source.hasTop())) {
+            if (this.currentRow == null) {
+                Text row = source.getTopKey().getRow();
+                if (!isRowIncluded(row)) {
+                    skipRow(row);
+                    continue;
+                }
+                this.currentRow = row;
+                this.currentChunk = 0;
+            }
+
+            List<Key> keys = new ArrayList<Key>();
+            List<Value> values = new ArrayList<Value>();
+            int bytes = 0;
+            boolean rowEnded = false;
+            while (true) {
+                if (!source.hasTop() || source.getTopKey().compareRow(this.currentRow) != 0) {
+                    rowEnded = true;
+                    break;
+                }
+                Key key = source.getTopKey();
+                Value value = source.getTopValue();
+                if (isIncluded(key, value)) {
+                    keys.add(new Key(key));
+                    values.add(new Value(value.get(), true));
+                    bytes += key.getSize() + value.getSize();
+                }
+                source.next();
+                if (keys.size() >= maxCellsPerChunk || bytes >= maxBytesPerChunk) {
+                    break;
+                }
+            }
+
+            int chunk = this.currentChunk++;
+            Text row = this.currentRow;
+            Text columnFamily;
+            if (rowEnded) {
+                columnFamily = LAST_CHUNK_COLUMN_FAMILY;
+                this.currentRow = null;
+                this.skipThroughChunk = -1;
+            } else {
+                if (chunk <= this.skipThroughChunk) {
+                    continue;
+                }
+                columnFamily = CHUNK_COLUMN_FAMILY;
+            }
+            this.topKey = new Key(row, columnFamily, new Text(String.format("%08d", chunk)));
+            this.topValue = WholeRowIterator.encodeRow(keys, values);
+        }
+    }
+
+    private boolean isRowIncluded(Text row) throws IOException {
+        if (rowChecker == null) {
+            return true;
+        }
+        rowChecker.seek(new Range(row), Collections.<ByteSequence>singleton(new ArrayByteSequence(signalColumnFamily.copyBytes())), true);
+        if (!rowChecker.hasTop()) {
+            return !filterRowVisibility;
+        }
+        if (!vertexElementType && edgeLabels != null) {
+            // the edge signal column qualifier is the edge label
+            return edgeLabels.contains(rowChecker.getTopKey().getColumnQualifierData());
+        }
+        return true;
+    }
+
+    private void skipRow(Text row) throws IOException {
+        Key followingRowKey = new Key(row).followingKey(PartialKey.ROW);
+        if (range.afterEndKey(followingRowKey)) {
+            while (source.hasTop()) {
+                source.next();
+            }
+            return;
+        }
+        source.seek(new Range(followingRowKey, true, range.getEndKey(), range.isEndKeyInclusive()), columnFamilies, inclusive);
+    }
+
+    private boolean isIncluded(Key key, Value value) {
+        if (propertyNames != null
+                && (key.compareColumnFamily(CF_PROPERTY) == 0 || key.compareColumnFamily(CF_PROPERTY_METADATA) == 0)) {
+            ByteSequence columnQualifier = key.getColumnQualifierData();
+            int separatorIndex = indexOf(columnQualifier, VALUE_SEPARATOR);
+            if (separatorIndex < 0) {
+                return true;
+            }
+            return propertyNames.contains(columnQualifier.subSequence(0, separatorIndex));
+        }
+
+        if (edgeLabels != null
+                && vertexElementType
+                && (key.compareColumnFamily(CF_OUT_EDGE) == 0 || key.compareColumnFamily(CF_IN_EDGE) == 0)) {
+            ByteSequence label = EdgeInfoBytes.getLabel(value.get());
+            return label != null && edgeLabels.contains(label);
+        }
+
+        return true;
+    }
+
+    private static int indexOf(ByteSequence bytes, byte b) {
+        for (int i = 0; i < bytes.length(); i++) {
+            if (bytes.byteAt(i) == b) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public boolean hasTop() {
+        return topKey != null;
+    }
+
+    @Override
+    public Key getTopKey() {
+        return topKey;
+    }
+
+    @Override
+    public Value getTopValue() {
+        return topValue;
+    }
+
+    @Override
+    public SortedKeyValueIterator<Key, Value> deepCopy(IteratorEnvironment env) {
+        ElementProjectionIterator copy = new ElementProjectionIterator();
+        try {
+            copy.init(source.deepCopy(env), options, env);
+        } catch (IOException ex) {
+            throw new RuntimeException("Could not copy iterator", ex);
+        }
+        return copy;
+    }
+}
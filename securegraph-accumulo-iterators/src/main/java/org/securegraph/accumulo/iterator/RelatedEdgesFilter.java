@@ -0,0 +1,70 @@
+package org.securegraph.accumulo.iterator;
+
+import org.apache.accumulo.core.data.ArrayByteSequence;
+import org.apache.accumulo.core.data.ByteSequence;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.Filter;
+import org.apache.accumulo.core.iterators.IteratorEnvironment;
+import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
+import org.apache.hadoop.io.Text;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Keeps only the out edge references of a vertex row whose other vertex is in the {@link #OPT_VERTEX_IDS} set.
+ */
+public class RelatedEdgesFilter extends Filter {
+    public static final String OPT_VERTEX_IDS = "vertexIds";
+    public static final String VERTEX_IDS_SEPARATOR = "\u001f";
+
+    // must match org.securegraph.accumulo.AccumuloVertex.CF_OUT_EDGE
+    private static final Text CF_OUT_EDGE = new Text("EOUT");
+
+    private Set<ByteSequence> vertexIds;
+
+    @Override
+    public void init(SortedKeyValueIterator<Key, Value> source, Map<String, String> options, IteratorEnvironment env) throws IOException {
+        super.init(source, options, env);
+        String vertexIdsOption = options.get(OPT_VERTEX_IDS);
+        if (vertexIdsOption == null) {
+            throw new IllegalArgumentException(OPT_VERTEX_IDS + " must be set");
+        }
+        this.vertexIds = new HashSet<ByteSequence>();
+        for (String vertexId : vertexIdsOption.split(VERTEX_IDS_SEPARATOR, -1)) {
+            this.vertexIds.add(new ArrayByteSequence(new Text(vertexId).copyBytes()));
+        }
+    }
+
+    @Override
+    public boolean accept(Key k, Value v) {
+        if (k.compareColumnFamily(CF_OUT_EDGE) != 0) {
+            return false;
+        }
+        ByteSequence vertexId = EdgeInfoBytes.getVertexId(v.get());
+        return vertexId != null && vertexIds.contains(vertexId);
+    }
+
+    @Override
+    public SortedKeyValueIterator<Key, Value> deepCopy(IteratorEnvironment env) {
+        RelatedEdgesFilter copy = (RelatedEdgesFilter) super.deepCopy(env);
+        copy.vertexIds = vertexIds;
+        return copy;
+    }
+
+    public static String toVertexIdsOption(Iterable<String> vertexIds) {
+        StringBuilder result = new StringBuilder();
+        boolean first = true;
+        for (String vertexId : vertexIds) {
+            if (!first) {
+                result.append(VERTEX_IDS_SEPARATOR);
+            }
+            result.append(vertexId);
+            first = false;
+        }
+        return result.toString();
+    }
+}
@@ -0,0 +1,155 @@
+package org.securegraph.accumulo;
+
+import org.apache.accumulo.core.conf.AccumuloConfiguration;
+import org.apache.accumulo.core.data.ColumnUpdate;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Mutation;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.file.FileOperations;
+import org.apache.accumulo.core.file.FileSKVWriter;
+import org.apache.accumulo.core.file.rfile.RFile;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.securegraph.SecureGraphException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+
+/**
+ * Converts elements into the same keys {@link ElementMutationBuilder} writes, sorts them locally in bounded chunks,
+ * writes each chunk as an RFile and bulk imports the files into the graph tables.
+ */
+class AccumuloBulkLoader {
+    private static final Logger LOGGER = LoggerFactory.getLogger(AccumuloBulkLoader.class);
+    private final AccumuloGraph graph;
+    private final FileSystem fileSystem;
+    private final Path workDir;
+    private final int maxKeysInMemory;
+    private final long timestamp;
+    private final TableFiles verticesTable;
+    private final TableFiles edgesTable;
+    private final TableFiles dataTable;
+    private final ElementMutationBuilder elementMutationBuilder;
+
+    AccumuloBulkLoader(AccumuloGraph graph, int maxKeysInMemory) {
+        this.graph = graph;
+        this.fileSystem = graph.getFileSystem();
+        this.workDir = new Path(graph.getDataDir(), "bulk/" + UUID.randomUUID().toString());
+        this.maxKeysInMemory = maxKeysInMemory;
+        this.timestamp = System.currentTimeMillis();
+        this.verticesTable = new TableFiles(graph.getVerticesTableName());
+        this.edgesTable = new TableFiles(graph.getEdgesTableName());
+        this.dataTable = new TableFiles(graph.getDataTableName());
+        long maxStreamingPropertyValueTableDataSize = graph.getConfiguration().getMaxStreamingPropertyValueTableDataSize();
+        this.elementMutationBuilder = new ElementMutationBuilder(fileSystem, graph.getValueSerializer(), maxStreamingPropertyValueTableDataSize, graph.getDataDir()) {
+            @Override
+            protected void saveVertexMutation(Mutation m) {
+                verticesTable.add(m);
+            }
+
+            @Override
+            protected void saveEdgeMutation(Mutation m) {
+                edgesTable.add(m);
+            }
+
+            @Override
+            protected void saveDataMutation(Mutation dataMutation) {
+                dataTable.add(dataMutation);
+            }
+        };
+    }
+
+    public void addVertex(AccumuloVertex vertex) {
+        elementMutationBuilder.saveVertex(vertex);
+    }
+
+    public void addEdge(AccumuloEdge edge) {
+        elementMutationBuilder.saveEdge(edge);
+    }
+
+    public void importFiles() {
+        dataTable.importFiles();
+        verticesTable.importFiles();
+        edgesTable.importFiles();
+    }
+
+    public void cleanup() {
+        try {
+            fileSystem.delete(workDir, true);
+        } catch (IOException ex) {
+            LOGGER.warn("Could not delete bulk load directory: " + workDir, ex);
+        }
+    }
+
+    private class TableFiles {
+        private final String tableName;
+        private final Path filesDir;
+        private final Path failuresDir;
+        private final TreeMap<Key, Value> keys = new TreeMap<Key, Value>();
+        private int fileCount;
+
+        public TableFiles(String tableName) {
+            this.tableName = tableName;
+            this.filesDir = new Path(workDir, tableName + "/files");
+            this.failuresDir = new Path(workDir, tableName + "/failures");
+        }
+
+        public void add(Mutation m) {
+            byte[] row = m.getRow();
+            for (ColumnUpdate columnUpdate : m.getUpdates()) {
+                long ts = columnUpdate.hasTimestamp() ? columnUpdate.getTimestamp() : timestamp;
+                Key key = new Key(row, columnUpdate.getColumnFamily(), columnUpdate.getColumnQualifier(), columnUpdate.getColumnVisibility(), ts, columnUpdate.isDeleted());
+                keys.put(key, new Value(columnUpdate.getValue()));
+            }
+            if (keys.size() >= maxKeysInMemory) {
+                writeFile();
+            }
+        }
+
+        private void writeFile() {
+            if (keys.size() == 0) {
+                return;
+            }
+            String fileName = new Path(filesDir, String.format("part-%05d.%s", fileCount++, RFile.EXTENSION)).toString();
+            try {
+                FileSKVWriter writer = FileOperations.getInstance().openWriter(fileName, fileSystem, fileSystem.getConf(), AccumuloConfiguration.getDefaultConfiguration());
+                try {
+                    writer.startDefaultLocalityGroup();
+                    for (Map.Entry<Key, Value> entry : keys.entrySet()) {
+                        writer.append(entry.getKey(), entry.getValue());
+                    }
+                } finally {
+                    writer.close();
+                }
+            } catch (IOException ex) {
+                throw new SecureGraphException("Could not write bulk load file " + fileName, ex);
+            }
+            LOGGER.debug(String.format("wrote %d keys to \"%s\"", keys.size(), fileName));
+            keys.clear();
+        }
+
+        public void importFiles() {
+            writeFile();
+            if (fileCount == 0) {
+                return;
+            }
+            try {
+                fileSystem.mkdirs(failuresDir);
+                graph.getConnector().tableOperations().importDirectory(tableName, filesDir.toString(), failuresDir.toString(), false);
+                FileStatus[] failures = fileSystem.listStatus(failuresDir);
+                if (failures != null && failures.length > 0) {
+                    throw new SecureGraphException(String.format("%d files failed to import into table %s, see %s", failures.length, tableName, failuresDir));
+                }
+            } catch (SecureGraphException ex) {
+                throw ex;
+            } catch (Exception ex) {
+                throw new SecureGraphException("Could not import bulk load files into table " + tableName, ex);
+            }
+        }
+    }
+}
@@ -52,5 +52,7 @@ public abstract class AccumuloElement<T extends Element> extends ElementBase<T>
         if (mutation.getNewElementVisibility() != null) {
             getGraph().alterElementVisibility((AccumuloElement) mutation.getElement(), mutation.getNewElementVisibility());
         }
+
+        indexExistingElementMutation(getGraph().getSearchIndex(), mutation, properties, authorizations);
     }
 }
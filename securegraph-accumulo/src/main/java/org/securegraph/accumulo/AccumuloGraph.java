@@ -2,17 +2,22 @@ package org.securegraph.accumulo;
 
 import org.apache.accumulo.core.client.*;
 import org.apache.accumulo.core.client.Scanner;
+import org.apache.accumulo.core.data.ByteSequence;
 import org.apache.accumulo.core.data.Key;
 import org.apache.accumulo.core.data.Mutation;
 import org.apache.accumulo.core.data.Range;
 import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
 import org.apache.accumulo.core.iterators.user.RowDeletingIterator;
 import org.apache.accumulo.core.iterators.user.WholeRowIterator;
 import org.apache.accumulo.core.security.ColumnVisibility;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.io.Text;
 import org.securegraph.*;
+import org.securegraph.accumulo.iterator.EdgeCountSummaryIterator;
+import org.securegraph.accumulo.iterator.ElementProjectionIterator;
 import org.securegraph.accumulo.iterator.ElementVisibilityRowFilter;
+import org.securegraph.accumulo.iterator.RelatedEdgesFilter;
 import org.securegraph.accumulo.serializer.ValueSerializer;
 import org.securegraph.id.IdGenerator;
 import org.securegraph.mutation.AlterPropertyMetadata;
@@ -23,6 +28,8 @@ import org.securegraph.search.SearchIndex;
 import org.securegraph.util.CloseableIterable;
 import org.securegraph.util.EmptyClosableIterable;
 import org.securegraph.util.LookAheadIterable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.net.URISyntaxException;
@@ -32,6 +39,7 @@ import static org.securegraph.util.IterableUtils.toSet;
 import static org.securegraph.util.Preconditions.checkNotNull;
 
 public class AccumuloGraph extends GraphBaseWithSearchIndex {
+    private static final Logger LOGGER = LoggerFactory.getLogger(AccumuloGraph.class);
     private static final String ROW_DELETING_ITERATOR_NAME = RowDeletingIterator.class.getSimpleName();
     private static final int ROW_DELETING_ITERATOR_PRIORITY = 7;
     public static final Text DELETE_ROW_COLUMN_FAMILY = new Text("");
@@ -43,10 +51,16 @@ public class AccumuloGraph extends GraphBaseWithSearchIndex {
     private final ValueSerializer valueSerializer;
     private final FileSystem fileSystem;
     private final String dataDir;
-    private BatchWriter verticesWriter;
-    private BatchWriter edgesWriter;
-    private BatchWriter dataWriter;
-    private final Object writerLock = new Object();
+    private volatile BatchWriter verticesWriter;
+    private volatile BatchWriter edgesWriter;
+    private volatile BatchWriter dataWriter;
+    private volatile MultiTableBatchWriter multiTableBatchWriter;
+    private final QueuedMutationWriter mutationWriter;
+    private final ByteSequenceCache<Visibility> visibilityCache;
+    private final ByteSequenceCache<String> stringCache;
+    private final RangePlanner rangePlanner;
+    private final BatchScannerPool batchScannerPool;
+    private final boolean relatedEdgesFilterAvailable;
     private ElementMutationBuilder elementMutationBuilder;
 
     protected AccumuloGraph(AccumuloGraphConfiguration config, IdGenerator idGenerator, SearchIndex searchIndex, Connector connector, FileSystem fileSystem, ValueSerializer valueSerializer) {
@@ -55,6 +69,23 @@ public class AccumuloGraph extends GraphBaseWithSearchIndex {
         this.valueSerializer = valueSerializer;
         this.fileSystem = fileSystem;
         this.dataDir = config.getDataDir();
+        this.mutationWriter = new QueuedMutationWriter(config.getMutationQueueSize());
+        this.rangePlanner = new RangePlanner(connector, config.getBatchScannerMaxQueryThreads(), config.getTableSplitsCacheMillis());
+        this.batchScannerPool = new BatchScannerPool(connector, config.getBatchScannerPoolMaxIdle());
+        this.relatedEdgesFilterAvailable = config.isUseServerSideRelatedEdgesFilter()
+                && isIteratorAvailable(connector, getVerticesTableName(), RelatedEdgesFilter.class.getName());
+        this.visibilityCache = new ByteSequenceCache<Visibility>(config.getKeyDecodeCacheSize()) {
+            @Override
+            protected Visibility create(ByteSequence bytes) {
+                return new Visibility(ElementMaker.bytesToString(bytes));
+            }
+        };
+        this.stringCache = new ByteSequenceCache<String>(config.getKeyDecodeCacheSize()) {
+            @Override
+            protected String create(ByteSequence bytes) {
+                return ElementMaker.bytesToString(bytes);
+            }
+        };
         long maxStreamingPropertyValueTableDataSize = config.getMaxStreamingPropertyValueTableDataSize();
         this.elementMutationBuilder = new ElementMutationBuilder(fileSystem, valueSerializer, maxStreamingPropertyValueTableDataSize, dataDir) {
             @Override
@@ -122,6 +153,25 @@ public class AccumuloGraph extends GraphBaseWithSearchIndex {
         }
     }
 
+    /**
+     * Checks that the tablet servers can load the given iterator class for the table.
+     */
+    static boolean isIteratorAvailable(Connector connector, String tableName, String iteratorClassName) {
+        try {
+            boolean available = connector.tableOperations().testClassLoad(tableName, iteratorClassName, SortedKeyValueIterator.class.getName());
+            if (!available) {
+                LOGGER.warn("Could not load " + iteratorClassName + " on the tablet servers for table " + tableName + ", is it installed?");
+            }
+            return available;
+        } catch (Exception e) {
+            throw new SecureGraphException("Could not check if " + iteratorClassName + " is available for table " + tableName, e);
+        }
+    }
+
+    boolean isRelatedEdgesFilterAvailable() {
+        return relatedEdgesFilterAvailable;
+    }
+
     public static AccumuloGraph create(Map config) throws AccumuloSecurityException, AccumuloException, SecureGraphException, InterruptedException, IOException, URISyntaxException {
         return create(new AccumuloGraphConfiguration(config));
     }
@@ -137,18 +187,28 @@ public class AccumuloGraph extends GraphBaseWithSearchIndex {
             vertexId = getIdGenerator().nextId();
         }
 
-        return new VertexBuilder(vertexId, visibility) {
-            @Override
-            public Vertex save(Authorizations authorizations) {
-                AccumuloVertex vertex = new AccumuloVertex(AccumuloGraph.this, getVertexId(), getVisibility(), getProperties(), authorizations);
+        return new AccumuloVertexBuilder(vertexId, visibility);
+    }
 
-                elementMutationBuilder.saveVertex(vertex);
+    class AccumuloVertexBuilder extends VertexBuilder {
+        AccumuloVertexBuilder(String vertexId, Visibility visibility) {
+            super(vertexId, visibility);
+        }
 
-                getSearchIndex().addElement(AccumuloGraph.this, vertex, authorizations);
+        AccumuloVertex createVertex(Authorizations authorizations) {
+            return new AccumuloVertex(AccumuloGraph.this, getVertexId(), getVisibility(), getProperties(), authorizations);
+        }
 
-                return vertex;
-            }
-        };
+        @Override
+        public Vertex save(Authorizations authorizations) {
+            AccumuloVertex vertex = createVertex(authorizations);
+
+            elementMutationBuilder.saveVertex(vertex);
+
+            getSearchIndex().addElement(AccumuloGraph.this, vertex, authorizations);
+
+            return vertex;
+        }
     }
 
     void saveProperties(AccumuloElement element, Iterable<Property> properties, Authorizations authorizations) {
@@ -164,7 +224,6 @@ public class AccumuloGraph extends GraphBaseWithSearchIndex {
         if (hasProperty) {
             addMutations(getWriterFromElementType(element), m);
         }
-        getSearchIndex().addElement(this, element, authorizations);
     }
 
     void removeProperty(AccumuloElement element, Property property, Authorizations authorizations) {
@@ -188,46 +247,58 @@ public class AccumuloGraph extends GraphBaseWithSearchIndex {
     }
 
     private void addMutations(BatchWriter writer, Mutation... mutations) {
-        try {
-            synchronized (this.writerLock) {
-                for (Mutation m : mutations) {
-                    writer.addMutation(m);
-                }
-                if (getConfiguration().isAutoFlush()) {
-                    flush();
-                }
-            }
-        } catch (MutationsRejectedException ex) {
-            throw new RuntimeException("Could not add mutation", ex);
+        mutationWriter.add(writer, mutations);
+        if (getConfiguration().isAutoFlush()) {
+            flush();
         }
     }
 
-    protected synchronized BatchWriter getVerticesWriter() {
-        try {
-            if (this.verticesWriter != null) {
-                return this.verticesWriter;
+    protected BatchWriter getVerticesWriter() {
+        BatchWriter writer = this.verticesWriter;
+        if (writer != null) {
+            return writer;
+        }
+        synchronized (this) {
+            if (this.verticesWriter == null) {
+                this.verticesWriter = createBatchWriter(getVerticesTableName());
             }
-            BatchWriterConfig writerConfig = new BatchWriterConfig();
-            this.verticesWriter = this.connector.createBatchWriter(getVerticesTableName(), writerConfig);
             return this.verticesWriter;
-        } catch (TableNotFoundException ex) {
-            throw new RuntimeException("Could not create batch writer", ex);
         }
     }
 
-    protected synchronized BatchWriter getEdgesWriter() {
-        try {
-            if (this.edgesWriter != null) {
-                return this.edgesWriter;
+    protected BatchWriter getEdgesWriter() {
+        BatchWriter writer = this.edgesWriter;
+        if (writer != null) {
+            return writer;
+        }
+        synchronized (this) {
+            if (this.edgesWriter == null) {
+                this.edgesWriter = createBatchWriter(getEdgesTableName());
             }
-            BatchWriterConfig writerConfig = new BatchWriterConfig();
-            this.edgesWriter = this.connector.createBatchWriter(getEdgesTableName(), writerConfig);
             return this.edgesWriter;
-        } catch (TableNotFoundException ex) {
+        }
+    }
+
+    private BatchWriter createBatchWriter(String tableName) {
+        try {
+            if (getConfiguration().isUseMultiTableBatchWriter()) {
+                return getMultiTableBatchWriter().getBatchWriter(tableName);
+            }
+            BatchWriterConfig writerConfig = getConfiguration().createBatchWriterConfig();
+            return this.connector.createBatchWriter(tableName, writerConfig);
+        } catch (Exception ex) {
             throw new RuntimeException("Could not create batch writer", ex);
         }
     }
 
+    private synchronized MultiTableBatchWriter getMultiTableBatchWriter() {
+        if (this.multiTableBatchWriter == null) {
+            BatchWriterConfig writerConfig = getConfiguration().createBatchWriterConfig();
+            this.multiTableBatchWriter = this.connector.createMultiTableBatchWriter(writerConfig);
+        }
+        return this.multiTableBatchWriter;
+    }
+
     protected BatchWriter getWriterFromElementType(Element element) {
         if (element instanceof Vertex) {
             return getVerticesWriter();
@@ -238,19 +309,41 @@ public class AccumuloGraph extends GraphBaseWithSearchIndex {
         }
     }
 
-    protected synchronized BatchWriter getDataWriter() {
-        try {
-            if (this.dataWriter != null) {
-                return this.dataWriter;
+    protected BatchWriter getDataWriter() {
+        BatchWriter writer = this.dataWriter;
+        if (writer != null) {
+            return writer;
+        }
+        synchronized (this) {
+            if (this.dataWriter == null) {
+                this.dataWriter = createBatchWriter(getDataTableName());
             }
-            BatchWriterConfig writerConfig = new BatchWriterConfig();
-            this.dataWriter = this.connector.createBatchWriter(getDataTableName(), writerConfig);
             return this.dataWriter;
-        } catch (TableNotFoundException ex) {
-            throw new RuntimeException("Could not create batch writer", ex);
         }
     }
 
+    public QueuedMutationWriter getMutationWriter() {
+        return mutationWriter;
+    }
+
+    BatchScannerPool getBatchScannerPool() {
+        return batchScannerPool;
+    }
+
+    /**
+     * Visibilities decoded from column visibility bytes, shared by every element read from this graph.
+     */
+    ByteSequenceCache<Visibility> getVisibilityCache() {
+        return visibilityCache;
+    }
+
+    /**
+     * Property names and edge labels decoded from column qualifier bytes.
+     */
+    ByteSequenceCache<String> getStringCache() {
+        return stringCache;
+    }
+
     @Override
     public Iterable<Vertex> getVertices(EnumSet<FetchHint> fetchHints, Authorizations authorizations) throws SecureGraphException {
         return getVerticesInRange(null, null, fetchHints, authorizations);
@@ -284,23 +377,63 @@ public class AccumuloGraph extends GraphBaseWithSearchIndex {
             edgeId = getIdGenerator().nextId();
         }
 
-        return new EdgeBuilder(edgeId, outVertex, inVertex, label, visibility) {
-            @Override
-            public Edge save(Authorizations authorizations) {
-                AccumuloEdge edge = new AccumuloEdge(AccumuloGraph.this, getEdgeId(), getOutVertex().getId(), getInVertex().getId(), getLabel(), getVisibility(), getProperties(), authorizations);
-                elementMutationBuilder.saveEdge(edge);
+        return new AccumuloEdgeBuilder(edgeId, outVertex, inVertex, label, visibility);
+    }
 
-                if (getOutVertex() instanceof AccumuloVertex) {
-                    ((AccumuloVertex) getOutVertex()).addOutEdge(edge);
-                }
-                if (getInVertex() instanceof AccumuloVertex) {
-                    ((AccumuloVertex) getInVertex()).addInEdge(edge);
-                }
+    class AccumuloEdgeBuilder extends EdgeBuilder {
+        AccumuloEdgeBuilder(String edgeId, Vertex outVertex, Vertex inVertex, String label, Visibility visibility) {
+            super(edgeId, outVertex, inVertex, label, visibility);
+        }
+
+        AccumuloEdge createEdge(Authorizations authorizations) {
+            return new AccumuloEdge(AccumuloGraph.this, getEdgeId(), getOutVertex().getId(), getInVertex().getId(), getLabel(), getVisibility(), getProperties(), authorizations);
+        }
+
+        @Override
+        public Edge save(Authorizations authorizations) {
+            AccumuloEdge edge = createEdge(authorizations);
+            elementMutationBuilder.saveEdge(edge);
 
-                getSearchIndex().addElement(AccumuloGraph.this, edge, authorizations);
-                return edge;
+            if (getOutVertex() instanceof AccumuloVertex) {
+                ((AccumuloVertex) getOutVertex()).addOutEdge(edge);
             }
-        };
+            if (getInVertex() instanceof AccumuloVertex) {
+                ((AccumuloVertex) getInVertex()).addInEdge(edge);
+            }
+
+            getSearchIndex().addElement(AccumuloGraph.this, edge, authorizations);
+            return edge;
+        }
+    }
+
+    /**
+     * Loads elements by writing sorted RFiles and importing them into the vertex, edge and data tables, bypassing
+     * the batch writers. The builders must come from {@link #prepareVertex(String, Visibility)} or
+     * {@link #prepareEdge(String, Vertex, Vertex, String, Visibility)} on this graph and must not be saved.
+     * The loaded elements are not added to the search index, call {@link #reindex(Authorizations)} afterwards if needed.
+     *
+     * @param elementBuilders The vertices and edges to load.
+     * @param authorizations  The authorizations used to create the elements.
+     */
+    public void bulkLoad(Iterable<? extends ElementBuilder<?>> elementBuilders, Authorizations authorizations) {
+        AccumuloBulkLoader bulkLoader = new AccumuloBulkLoader(this, getConfiguration().getBulkLoadMaxKeysInMemory());
+        for (ElementBuilder<?> elementBuilder : elementBuilders) {
+            if (elementBuilder instanceof AccumuloVertexBuilder) {
+                bulkLoader.addVertex(((AccumuloVertexBuilder) elementBuilder).createVertex(authorizations));
+            } else if (elementBuilder instanceof AccumuloEdgeBuilder) {
+                bulkLoader.addEdge(((AccumuloEdgeBuilder) elementBuilder).createEdge(authorizations));
+            } else {
+                throw new SecureGraphException("Unexpected element builder type: " + elementBuilder.getClass().getName());
+            }
+        }
+        // failed imports leave their files behind so they can be inspected
+        bulkLoader.importFiles();
+        bulkLoader.cleanup();
+    }
+
+    @Override
+    public void reindex(Authorizations authorizations) {
+        new AccumuloReindexer(this, getConfiguration().getReindexThreadCount()).reindex(EnumSet.allOf(ElementType.class), authorizations);
     }
 
     @Override
@@ -342,12 +475,25 @@ public class AccumuloGraph extends GraphBaseWithSearchIndex {
 
     @Override
     public void flush() {
-        flushWriter(this.dataWriter);
-        flushWriter(this.verticesWriter);
-        flushWriter(this.edgesWriter);
+        mutationWriter.flush();
+        if (this.multiTableBatchWriter != null) {
+            flushMultiTableBatchWriter(this.multiTableBatchWriter);
+        } else {
+            flushWriter(this.dataWriter);
+            flushWriter(this.verticesWriter);
+            flushWriter(this.edgesWriter);
+        }
         super.flush();
     }
 
+    private static void flushMultiTableBatchWriter(MultiTableBatchWriter writer) {
+        try {
+            writer.flush();
+        } catch (MutationsRejectedException e) {
+            throw new SecureGraphException("Could not flush", e);
+        }
+    }
+
     private static void flushWriter(BatchWriter writer) {
         if (writer != null) {
             try {
@@ -362,6 +508,16 @@ public class AccumuloGraph extends GraphBaseWithSearchIndex {
     public void shutdown() {
         try {
             flush();
+            mutationWriter.shutdown();
+            batchScannerPool.close();
+            if (this.multiTableBatchWriter != null) {
+                // the table writers belong to the multi table batch writer and can not be closed individually
+                this.multiTableBatchWriter.close();
+                this.multiTableBatchWriter = null;
+                this.dataWriter = null;
+                this.verticesWriter = null;
+                this.edgesWriter = null;
+            }
             if (this.dataWriter != null) {
                 this.dataWriter.close();
                 this.dataWriter = null;
@@ -405,48 +561,49 @@ public class AccumuloGraph extends GraphBaseWithSearchIndex {
     }
 
     @Override
-    public CloseableIterable<Vertex> getVertices(Iterable<String> ids, final EnumSet<FetchHint> fetchHints, final Authorizations authorizations) {
+    public CloseableIterable<Vertex> getVertices(Iterable<String> ids, EnumSet<FetchHint> fetchHints, Authorizations authorizations) {
+        return getVertices(ids, fetchHints, FetchFilter.ALL, authorizations);
+    }
+
+    @Override
+    public CloseableIterable<Vertex> getVertices(Iterable<String> ids, final EnumSet<FetchHint> fetchHints, final FetchFilter fetchFilter, final Authorizations authorizations) {
         final AccumuloGraph graph = this;
 
-        final List<Range> ranges = new ArrayList<Range>();
-        for (String id : ids) {
-            Text rowKey = new Text(AccumuloConstants.VERTEX_ROW_KEY_PREFIX + id);
-            ranges.add(new Range(rowKey));
-        }
+        final List<Range> ranges = rangePlanner.planRanges(AccumuloConstants.VERTEX_ROW_KEY_PREFIX, ids);
         if (ranges.size() == 0) {
             return new EmptyClosableIterable<Vertex>();
         }
 
-        return new LookAheadIterable<Map.Entry<Key, Value>, Vertex>() {
+        return new LookAheadIterable<Iterator<Map.Entry<Key, Value>>, Vertex>() {
             public BatchScanner batchScanner;
+            public ProjectedRowIterator rows;
 
             @Override
-            protected boolean isIncluded(Map.Entry<Key, Value> src, Vertex dest) {
+            protected boolean isIncluded(Iterator<Map.Entry<Key, Value>> src, Vertex dest) {
                 return dest != null;
             }
 
             @Override
-            protected Vertex convert(Map.Entry<Key, Value> wholeRow) {
-                try {
-                    SortedMap<Key, Value> row = WholeRowIterator.decodeRow(wholeRow.getKey(), wholeRow.getValue());
-                    VertexMaker maker = new VertexMaker(graph, row.entrySet().iterator(), authorizations);
-                    return maker.make();
-                } catch (IOException ex) {
-                    throw new SecureGraphException("Could not recreate row", ex);
-                }
+            protected Vertex convert(Iterator<Map.Entry<Key, Value>> row) {
+                VertexMaker maker = new VertexMaker(graph, row, authorizations);
+                return maker.make();
             }
 
             @Override
-            protected Iterator<Map.Entry<Key, Value>> createIterator() {
-                batchScanner = createVertexBatchScanner(fetchHints, authorizations, Math.min(Math.max(1, ranges.size() / 10), 10));
+            protected Iterator<Iterator<Map.Entry<Key, Value>>> createIterator() {
+                batchScanner = createVertexBatchScanner(fetchHints, fetchFilter, authorizations, rangePlanner.getQueryThreadCount(getVerticesTableName(), ranges));
                 batchScanner.setRanges(ranges);
-                return batchScanner.iterator();
+                rows = new ProjectedRowIterator(batchScanner.iterator(), !getConfiguration().isUseServerSideElementVisibilityRowFilter());
+                return rows;
             }
 
             @Override
             public void close() {
                 super.close();
-                batchScanner.close();
+                if (batchScanner != null) {
+                    releaseBatchScanner(batchScanner, rows != null && rows.isScanComplete());
+                    batchScanner = null;
+                }
             }
         };
     }
@@ -470,7 +627,7 @@ public class AccumuloGraph extends GraphBaseWithSearchIndex {
         return getVerticesInRange(range, fetchHints, authorizations);
     }
 
-    private CloseableIterable<Vertex> getVerticesInRange(final Range range, final EnumSet<FetchHint> fetchHints, final Authorizations authorizations) {
+    CloseableIterable<Vertex> getVerticesInRange(final Range range, final EnumSet<FetchHint> fetchHints, final Authorizations authorizations) {
         return new LookAheadIterable<Iterator<Map.Entry<Key, Value>>, Vertex>() {
             public Scanner scanner;
 
@@ -529,48 +686,58 @@ public class AccumuloGraph extends GraphBaseWithSearchIndex {
         }
     }
 
-    private BatchScanner createVertexBatchScanner(EnumSet<FetchHint> fetchHints, Authorizations authorizations, int numQueryThreads) throws SecureGraphException {
-        return createElementVisibilityWholeRowBatchScanner(fetchHints, authorizations, ElementType.VERTEX, numQueryThreads);
-    }
-
-    private BatchScanner createEdgeBatchScanner(EnumSet<FetchHint> fetchHints, Authorizations authorizations, int numQueryThreads) throws SecureGraphException {
-        return createElementVisibilityWholeRowBatchScanner(fetchHints, authorizations, ElementType.EDGE, numQueryThreads);
+    private BatchScanner createVertexBatchScanner(EnumSet<FetchHint> fetchHints, FetchFilter fetchFilter, Authorizations authorizations, int numQueryThreads) throws SecureGraphException {
+        return createElementProjectionBatchScanner(fetchHints, fetchFilter, authorizations, ElementType.VERTEX, numQueryThreads);
     }
 
-    private BatchScanner createElementVisibilityWholeRowBatchScanner(EnumSet<FetchHint> fetchHints, Authorizations authorizations, ElementType elementType, int numQueryThreads) throws SecureGraphException {
-        BatchScanner scanner = createElementVisibilityBatchScanner(fetchHints, authorizations, elementType, numQueryThreads);
-        IteratorSetting iteratorSetting;
-
-        iteratorSetting = new IteratorSetting(
-                101,
-                WholeRowIterator.class.getSimpleName(),
-                WholeRowIterator.class
-        );
-        scanner.addScanIterator(iteratorSetting);
-
-        return scanner;
+    private BatchScanner createEdgeBatchScanner(EnumSet<FetchHint> fetchHints, FetchFilter fetchFilter, Authorizations authorizations, int numQueryThreads) throws SecureGraphException {
+        return createElementProjectionBatchScanner(fetchHints, fetchFilter, authorizations, ElementType.EDGE, numQueryThreads);
     }
 
-    private BatchScanner createElementVisibilityBatchScanner(EnumSet<FetchHint> fetchHints, Authorizations authorizations, ElementType elementType, int numQueryThreads) {
+    /**
+     * The projection iterator checks row visibility, drops unwanted properties and edges and returns each row in
+     * bounded chunks which {@link ProjectedRowIterator} puts back together.
+     * <p/>
+     * If the server side iterators are not in use the rows are returned whole by {@link WholeRowIterator} instead,
+     * stray rows are dropped by {@link ElementMaker}, edges are filtered by label on the client and the rest of the
+     * fetch filter is not applied.
+     */
+    private BatchScanner createElementProjectionBatchScanner(EnumSet<FetchHint> fetchHints, FetchFilter fetchFilter, Authorizations authorizations, ElementType elementType, int numQueryThreads) {
         BatchScanner scanner = createElementBatchScanner(fetchHints, authorizations, elementType, numQueryThreads);
         IteratorSetting iteratorSetting;
-        if (getConfiguration().isUseServerSideElementVisibilityRowFilter()) {
+        if (!getConfiguration().isUseServerSideElementVisibilityRowFilter()) {
             iteratorSetting = new IteratorSetting(
-                    100,
-                    ElementVisibilityRowFilter.class.getSimpleName(),
-                    ElementVisibilityRowFilter.class
+                    101,
+                    WholeRowIterator.class.getSimpleName(),
+                    WholeRowIterator.class
             );
-            String elementMode = getElementModeFromElementType(elementType);
-            iteratorSetting.addOption(elementMode, Boolean.TRUE.toString());
             scanner.addScanIterator(iteratorSetting);
+            return scanner;
         }
+
+        iteratorSetting = new IteratorSetting(
+                100,
+                ElementProjectionIterator.class.getSimpleName(),
+                ElementProjectionIterator.class
+        );
+        iteratorSetting.addOption(ElementProjectionIterator.OPT_ELEMENT_TYPE, getProjectionElementTypeFromElementType(elementType));
+        iteratorSetting.addOption(ElementProjectionIterator.OPT_FILTER_ROW_VISIBILITY, Boolean.TRUE.toString());
+        iteratorSetting.addOption(ElementProjectionIterator.OPT_MAX_CELLS_PER_CHUNK, Integer.toString(getConfiguration().getProjectionMaxCellsPerChunk()));
+        iteratorSetting.addOption(ElementProjectionIterator.OPT_MAX_BYTES_PER_CHUNK, Integer.toString(getConfiguration().getProjectionMaxBytesPerChunk()));
+        if (fetchFilter.getPropertyNames() != null) {
+            iteratorSetting.addOption(ElementProjectionIterator.OPT_PROPERTY_NAMES, ElementProjectionIterator.toListOption(fetchFilter.getPropertyNames()));
+        }
+        if (fetchFilter.getEdgeLabels() != null) {
+            iteratorSetting.addOption(ElementProjectionIterator.OPT_EDGE_LABELS, ElementProjectionIterator.toListOption(fetchFilter.getEdgeLabels()));
+        }
+        scanner.addScanIterator(iteratorSetting);
         return scanner;
     }
 
     private BatchScanner createElementBatchScanner(EnumSet<FetchHint> fetchHints, Authorizations authorizations, ElementType elementType, int numQueryThreads) {
         try {
             String tableName = getTableNameFromElementType(elementType);
-            BatchScanner scanner = connector.createBatchScanner(tableName, toAccumuloAuthorizations(authorizations), numQueryThreads);
+            BatchScanner scanner = batchScannerPool.borrow(tableName, toAccumuloAuthorizations(authorizations), numQueryThreads);
             applyFetchHints(scanner, fetchHints, elementType);
             return scanner;
         } catch (TableNotFoundException e) {
@@ -578,6 +745,10 @@ public class AccumuloGraph extends GraphBaseWithSearchIndex {
         }
     }
 
+    private void releaseBatchScanner(BatchScanner batchScanner, boolean scanComplete) {
+        batchScannerPool.release(batchScanner, scanComplete);
+    }
+
     private void applyFetchHints(ScannerBase scanner, EnumSet<FetchHint> fetchHints, ElementType elementType) {
         scanner.clearColumns();
         if (fetchHints.equals(FetchHint.ALL)) {
@@ -606,6 +777,34 @@ public class AccumuloGraph extends GraphBaseWithSearchIndex {
         if (fetchHints.contains(FetchHint.PROPERTY_METADATA)) {
             scanner.fetchColumnFamily(AccumuloElement.CF_PROPERTY_METADATA);
         }
+        if (elementType == ElementType.VERTEX && fetchHints.contains(FetchHint.EDGE_COUNTS)) {
+            applyEdgeCountSummary(scanner, fetchHints);
+        }
+    }
+
+    /**
+     * Counts the edge references the caller did not ask for on the tablet servers so only the counts are returned.
+     */
+    private void applyEdgeCountSummary(ScannerBase scanner, EnumSet<FetchHint> fetchHints) {
+        boolean summarizeInEdges = !fetchHints.contains(FetchHint.IN_EDGE_REFS);
+        boolean summarizeOutEdges = !fetchHints.contains(FetchHint.OUT_EDGE_REFS);
+        if (!summarizeInEdges && !summarizeOutEdges) {
+            return;
+        }
+        IteratorSetting iteratorSetting = new IteratorSetting(
+                90,
+                EdgeCountSummaryIterator.class.getSimpleName(),
+                EdgeCountSummaryIterator.class
+        );
+        if (summarizeInEdges) {
+            iteratorSetting.addOption(EdgeCountSummaryIterator.OPT_SUMMARIZE_IN_EDGES, Boolean.TRUE.toString());
+            scanner.fetchColumnFamily(AccumuloVertex.CF_IN_EDGE);
+        }
+        if (summarizeOutEdges) {
+            iteratorSetting.addOption(EdgeCountSummaryIterator.OPT_SUMMARIZE_OUT_EDGES, Boolean.TRUE.toString());
+            scanner.fetchColumnFamily(AccumuloVertex.CF_OUT_EDGE);
+        }
+        scanner.addScanIterator(iteratorSetting);
     }
 
     private String getTableNameFromElementType(ElementType elementType) {
@@ -638,6 +837,17 @@ public class AccumuloGraph extends GraphBaseWithSearchIndex {
         return elementMode;
     }
 
+    private String getProjectionElementTypeFromElementType(ElementType elementType) {
+        switch (elementType) {
+            case VERTEX:
+                return ElementProjectionIterator.ELEMENT_TYPE_VERTEX;
+            case EDGE:
+                return ElementProjectionIterator.ELEMENT_TYPE_EDGE;
+            default:
+                throw new SecureGraphException("Unexpected element type: " + elementType);
+        }
+    }
+
     private org.apache.accumulo.core.security.Authorizations toAccumuloAuthorizations(Authorizations authorizations) {
         if (authorizations == null) {
             throw new NullPointerException("authorizations is required");
@@ -655,55 +865,55 @@ public class AccumuloGraph extends GraphBaseWithSearchIndex {
     }
 
     @Override
-    public CloseableIterable<Edge> getEdges(Iterable<String> ids, final EnumSet<FetchHint> fetchHints, final Authorizations authorizations) {
+    public CloseableIterable<Edge> getEdges(Iterable<String> ids, EnumSet<FetchHint> fetchHints, Authorizations authorizations) {
+        return getEdges(ids, fetchHints, FetchFilter.ALL, authorizations);
+    }
+
+    @Override
+    public CloseableIterable<Edge> getEdges(Iterable<String> ids, final EnumSet<FetchHint> fetchHints, final FetchFilter fetchFilter, final Authorizations authorizations) {
         final AccumuloGraph graph = this;
 
-        final List<Range> ranges = new ArrayList<Range>();
-        for (String id : ids) {
-            Text rowKey = new Text(AccumuloConstants.EDGE_ROW_KEY_PREFIX + id);
-            ranges.add(new Range(rowKey));
-        }
+        final List<Range> ranges = rangePlanner.planRanges(AccumuloConstants.EDGE_ROW_KEY_PREFIX, ids);
         if (ranges.size() == 0) {
             return new EmptyClosableIterable<Edge>();
         }
 
-        return new LookAheadIterable<Map.Entry<Key, Value>, Edge>() {
+        return new LookAheadIterable<Iterator<Map.Entry<Key, Value>>, Edge>() {
             public BatchScanner batchScanner;
+            public ProjectedRowIterator rows;
 
             @Override
-            protected boolean isIncluded(Map.Entry<Key, Value> src, Edge dest) {
-                return dest != null;
+            protected boolean isIncluded(Iterator<Map.Entry<Key, Value>> src, Edge dest) {
+                // the labels are only filtered on the server by the projection iterator
+                return dest != null && fetchFilter.isEdgeLabelIncluded(dest.getLabel());
             }
 
             @Override
-            protected Edge convert(Map.Entry<Key, Value> wholeRow) {
-                try {
-                    SortedMap<Key, Value> row = WholeRowIterator.decodeRow(wholeRow.getKey(), wholeRow.getValue());
-                    EdgeMaker maker = new EdgeMaker(graph, row.entrySet().iterator(), authorizations);
-                    return maker.make();
-                } catch (IOException ex) {
-                    throw new SecureGraphException("Could not recreate row", ex);
-                }
+            protected Edge convert(Iterator<Map.Entry<Key, Value>> row) {
+                EdgeMaker maker = new EdgeMaker(graph, row, authorizations);
+                return maker.make();
             }
 
             @Override
-            protected Iterator<Map.Entry<Key, Value>> createIterator() {
-                batchScanner = createEdgeBatchScanner(fetchHints, authorizations, Math.min(Math.max(1, ranges.size() / 10), 10));
+            protected Iterator<Iterator<Map.Entry<Key, Value>>> createIterator() {
+                batchScanner = createEdgeBatchScanner(fetchHints, fetchFilter, authorizations, rangePlanner.getQueryThreadCount(getEdgesTableName(), ranges));
                 batchScanner.setRanges(ranges);
-                return batchScanner.iterator();
+                rows = new ProjectedRowIterator(batchScanner.iterator(), !getConfiguration().isUseServerSideElementVisibilityRowFilter());
+                return rows;
             }
 
             @Override
             public void close() {
                 super.close();
-                batchScanner.close();
+                if (batchScanner != null) {
+                    releaseBatchScanner(batchScanner, rows != null && rows.isScanComplete());
+                    batchScanner = null;
+                }
             }
         };
     }
 
     private CloseableIterable<Edge> getEdgesInRange(String startId, String endId, final EnumSet<FetchHint> fetchHints, final Authorizations authorizations) throws SecureGraphException {
-        final AccumuloGraph graph = this;
-
         final Key startKey;
         if (startId == null) {
             startKey = new Key(AccumuloConstants.EDGE_ROW_KEY_PREFIX);
@@ -718,6 +928,12 @@ public class AccumuloGraph extends GraphBaseWithSearchIndex {
             endKey = new Key(AccumuloConstants.EDGE_ROW_KEY_PREFIX + endId + "~");
         }
 
+        return getEdgesInRange(new Range(startKey, endKey), fetchHints, authorizations);
+    }
+
+    CloseableIterable<Edge> getEdgesInRange(final Range range, final EnumSet<FetchHint> fetchHints, final Authorizations authorizations) {
+        final AccumuloGraph graph = this;
+
         return new LookAheadIterable<Iterator<Map.Entry<Key, Value>>, Edge>() {
             public Scanner scanner;
 
@@ -735,7 +951,7 @@ public class AccumuloGraph extends GraphBaseWithSearchIndex {
             @Override
             protected Iterator<Iterator<Map.Entry<Key, Value>>> createIterator() {
                 scanner = createEdgeScanner(fetchHints, authorizations);
-                scanner.setRange(new Range(startKey, endKey));
+                scanner.setRange(range);
                 return new RowIterator(scanner.iterator());
             }
 
@@ -816,6 +1032,19 @@ public class AccumuloGraph extends GraphBaseWithSearchIndex {
         return tableNamePrefix + "_d";
     }
 
+    /**
+     * @return the sorted split points of the table
+     */
+    List<Text> getTableSplits(String tableName) {
+        try {
+            List<Text> splits = new ArrayList<Text>(connector.tableOperations().listSplits(tableName));
+            Collections.sort(splits);
+            return splits;
+        } catch (Exception ex) {
+            throw new SecureGraphException("Could not list splits for table " + tableName, ex);
+        }
+    }
+
     public String getVerticesTableName() {
         return getVerticesTableName(getConfiguration().getTableNamePrefix());
     }
@@ -944,18 +1173,30 @@ public class AccumuloGraph extends GraphBaseWithSearchIndex {
     public Iterable<String> findRelatedEdges(Iterable<String> vertexIds, Authorizations authorizations) {
         Set<String> vertexIdsSet = toSet(vertexIds);
 
-        List<Range> ranges = new ArrayList<Range>();
-        for (String vertexId : vertexIdsSet) {
-            Text rowKey = new Text(AccumuloConstants.VERTEX_ROW_KEY_PREFIX + vertexId);
-            Range range = new Range(rowKey);
-            ranges.add(range);
+        List<Range> ranges = rangePlanner.planRanges(AccumuloConstants.VERTEX_ROW_KEY_PREFIX, vertexIdsSet);
+        if (ranges.size() == 0) {
+            return new HashSet<String>();
         }
 
-        int numQueryThreads = Math.min(Math.max(1, ranges.size() / 10), 10);
+        return findRelatedEdges(vertexIdsSet, ranges, relatedEdgesFilterAvailable, authorizations);
+    }
+
+    private Set<String> findRelatedEdges(Set<String> vertexIdsSet, List<Range> ranges, boolean useServerSideFilter, Authorizations authorizations) {
+        int numQueryThreads = rangePlanner.getQueryThreadCount(getVerticesTableName(), ranges);
         // only fetch one size of the edge since we are scanning all vertices the edge will appear on the out on one of the vertices
         BatchScanner batchScanner = createElementBatchScanner(EnumSet.of(FetchHint.OUT_EDGE_REFS), authorizations, ElementType.VERTEX, numQueryThreads);
+        boolean scanComplete = false;
         try {
             batchScanner.setRanges(ranges);
+            if (useServerSideFilter) {
+                IteratorSetting iteratorSetting = new IteratorSetting(
+                        100,
+                        RelatedEdgesFilter.class.getSimpleName(),
+                        RelatedEdgesFilter.class
+                );
+                iteratorSetting.addOption(RelatedEdgesFilter.OPT_VERTEX_IDS, RelatedEdgesFilter.toVertexIdsOption(vertexIdsSet));
+                batchScanner.addScanIterator(iteratorSetting);
+            }
 
             Iterator<Map.Entry<Key, Value>> it = batchScanner.iterator();
             Set<String> edgeIds = new HashSet<String>();
@@ -964,15 +1205,19 @@ public class AccumuloGraph extends GraphBaseWithSearchIndex {
                 if (!c.getKey().getColumnFamily().equals(AccumuloVertex.CF_OUT_EDGE)) {
                     continue;
                 }
-                EdgeInfo edgeInfo = EdgeInfo.parse(c.getValue());
-                if (vertexIdsSet.contains(edgeInfo.getVertexId())) {
-                    String edgeId = c.getKey().getColumnQualifier().toString();
-                    edgeIds.add(edgeId);
+                if (!useServerSideFilter) {
+                    EdgeInfo edgeInfo = EdgeInfo.parse(c.getValue());
+                    if (!vertexIdsSet.contains(edgeInfo.getVertexId())) {
+                        continue;
+                    }
                 }
+                String edgeId = c.getKey().getColumnQualifier().toString();
+                edgeIds.add(edgeId);
             }
+            scanComplete = true;
             return edgeIds;
         } finally {
-            batchScanner.close();
+            releaseBatchScanner(batchScanner, scanComplete);
         }
     }
 }
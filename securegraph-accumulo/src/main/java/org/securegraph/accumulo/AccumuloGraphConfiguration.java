@@ -2,12 +2,14 @@ package org.securegraph.accumulo;
 
 import org.securegraph.GraphConfiguration;
 import org.securegraph.SecureGraphException;
+import org.securegraph.accumulo.iterator.ElementProjectionIterator;
 import org.securegraph.accumulo.serializer.JavaValueSerializer;
 import org.securegraph.accumulo.serializer.ValueSerializer;
 import org.securegraph.util.ConfigurationUtils;
 import org.securegraph.util.MapUtils;
 import org.apache.accumulo.core.client.AccumuloException;
 import org.apache.accumulo.core.client.AccumuloSecurityException;
+import org.apache.accumulo.core.client.BatchWriterConfig;
 import org.apache.accumulo.core.client.Connector;
 import org.apache.accumulo.core.client.ZooKeeperInstance;
 import org.apache.accumulo.core.client.security.tokens.AuthenticationToken;
@@ -22,11 +24,13 @@ import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 public class AccumuloGraphConfiguration extends GraphConfiguration {
     private static final Logger LOGGER = LoggerFactory.getLogger(AccumuloGraphConfiguration.class);
 
     public static final String HDFS_CONFIG_PREFIX = "hdfs";
+    public static final String BATCHWRITER_CONFIG_PREFIX = "batchwriter";
 
     public static final String ACCUMULO_INSTANCE_NAME = "accumuloInstanceName";
     public static final String ACCUMULO_USERNAME = "username";
@@ -39,6 +43,22 @@ public class AccumuloGraphConfiguration extends GraphConfiguration {
     public static final String HDFS_ROOT_DIR = HDFS_CONFIG_PREFIX + ".rootDir";
     public static final String DATA_DIR = HDFS_CONFIG_PREFIX + ".dataDir";
     public static final String USE_SERVER_SIDE_ELEMENT_VISIBILITY_ROW_FILTER = "useServerSideElementVisibilityRowFilter";
+    public static final String MUTATION_QUEUE_SIZE = "mutationQueueSize";
+    public static final String BATCHWRITER_MAX_MEMORY = BATCHWRITER_CONFIG_PREFIX + ".maxMemory";
+    public static final String BATCHWRITER_MAX_LATENCY = BATCHWRITER_CONFIG_PREFIX + ".maxLatency";
+    public static final String BATCHWRITER_MAX_WRITE_THREADS = BATCHWRITER_CONFIG_PREFIX + ".maxWriteThreads";
+    public static final String BATCHWRITER_TIMEOUT = BATCHWRITER_CONFIG_PREFIX + ".timeout";
+    public static final String BATCHWRITER_USE_MULTI_TABLE_BATCH_WRITER = BATCHWRITER_CONFIG_PREFIX + ".useMultiTableBatchWriter";
+    public static final String BULK_LOAD_MAX_KEYS_IN_MEMORY = "bulkLoadMaxKeysInMemory";
+    public static final String KEY_DECODE_CACHE_SIZE = "keyDecodeCacheSize";
+    public static final String PROJECTION_MAX_CELLS_PER_CHUNK = "projectionMaxCellsPerChunk";
+    public static final String PROJECTION_MAX_BYTES_PER_CHUNK = "projectionMaxBytesPerChunk";
+    public static final String BATCHSCANNER_CONFIG_PREFIX = "batchscanner";
+    public static final String BATCHSCANNER_MAX_QUERY_THREADS = BATCHSCANNER_CONFIG_PREFIX + ".maxQueryThreads";
+    public static final String BATCHSCANNER_POOL_MAX_IDLE = BATCHSCANNER_CONFIG_PREFIX + ".poolMaxIdle";
+    public static final String TABLE_SPLITS_CACHE_MILLIS = "tableSplitsCacheMillis";
+    public static final String USE_SERVER_SIDE_RELATED_EDGES_FILTER = "useServerSideRelatedEdgesFilter";
+    public static final String REINDEX_THREAD_COUNT = "reindexThreadCount";
 
     public static final String DEFAULT_ACCUMULO_PASSWORD = "password";
     public static final String DEFAULT_VALUE_SERIALIZER = JavaValueSerializer.class.getName();
@@ -51,6 +71,21 @@ public class AccumuloGraphConfiguration extends GraphConfiguration {
     public static final String DEFAULT_HDFS_ROOT_DIR = "";
     public static final String DEFAULT_DATA_DIR = "/accumuloGraph";
     public static final boolean DEFAULT_USE_SERVER_SIDE_ELEMENT_VISIBILITY_ROW_FILTER = true;
+    public static final int DEFAULT_MUTATION_QUEUE_SIZE = 10000;
+    public static final long DEFAULT_BATCHWRITER_MAX_MEMORY = 50 * 1024 * 1024;
+    public static final long DEFAULT_BATCHWRITER_MAX_LATENCY = 2 * 60 * 1000;
+    public static final int DEFAULT_BATCHWRITER_MAX_WRITE_THREADS = 3;
+    public static final long DEFAULT_BATCHWRITER_TIMEOUT = Long.MAX_VALUE;
+    public static final boolean DEFAULT_BATCHWRITER_USE_MULTI_TABLE_BATCH_WRITER = false;
+    public static final int DEFAULT_BULK_LOAD_MAX_KEYS_IN_MEMORY = 500000;
+    public static final int DEFAULT_KEY_DECODE_CACHE_SIZE = 10000;
+    public static final int DEFAULT_PROJECTION_MAX_CELLS_PER_CHUNK = ElementProjectionIterator.DEFAULT_MAX_CELLS_PER_CHUNK;
+    public static final int DEFAULT_PROJECTION_MAX_BYTES_PER_CHUNK = ElementProjectionIterator.DEFAULT_MAX_BYTES_PER_CHUNK;
+    public static final int DEFAULT_BATCHSCANNER_MAX_QUERY_THREADS = 10;
+    public static final int DEFAULT_BATCHSCANNER_POOL_MAX_IDLE = 4;
+    public static final long DEFAULT_TABLE_SPLITS_CACHE_MILLIS = 60 * 1000;
+    public static final boolean DEFAULT_USE_SERVER_SIDE_RELATED_EDGES_FILTER = true;
+    public static final int DEFAULT_REINDEX_THREAD_COUNT = 1;
 
     public AccumuloGraphConfiguration(Map config) {
         super(config);
@@ -139,4 +174,64 @@ public class AccumuloGraphConfiguration extends GraphConfiguration {
     public boolean isUseServerSideElementVisibilityRowFilter() {
         return getConfigBoolean(USE_SERVER_SIDE_ELEMENT_VISIBILITY_ROW_FILTER, DEFAULT_USE_SERVER_SIDE_ELEMENT_VISIBILITY_ROW_FILTER);
     }
+
+    public int getMutationQueueSize() {
+        return (int) getConfigLong(MUTATION_QUEUE_SIZE, DEFAULT_MUTATION_QUEUE_SIZE);
+    }
+
+    /**
+     * Creates the configuration used for the vertex, edge and data table writers.
+     * Latency and timeout are in milliseconds.
+     */
+    public BatchWriterConfig createBatchWriterConfig() {
+        BatchWriterConfig writerConfig = new BatchWriterConfig();
+        writerConfig.setMaxMemory(getConfigLong(BATCHWRITER_MAX_MEMORY, DEFAULT_BATCHWRITER_MAX_MEMORY));
+        writerConfig.setMaxLatency(getConfigLong(BATCHWRITER_MAX_LATENCY, DEFAULT_BATCHWRITER_MAX_LATENCY), TimeUnit.MILLISECONDS);
+        writerConfig.setMaxWriteThreads((int) getConfigLong(BATCHWRITER_MAX_WRITE_THREADS, DEFAULT_BATCHWRITER_MAX_WRITE_THREADS));
+        writerConfig.setTimeout(getConfigLong(BATCHWRITER_TIMEOUT, DEFAULT_BATCHWRITER_TIMEOUT), TimeUnit.MILLISECONDS);
+        return writerConfig;
+    }
+
+    public boolean isUseMultiTableBatchWriter() {
+        return getConfigBoolean(BATCHWRITER_USE_MULTI_TABLE_BATCH_WRITER, DEFAULT_BATCHWRITER_USE_MULTI_TABLE_BATCH_WRITER);
+    }
+
+    public int getBulkLoadMaxKeysInMemory() {
+        return (int) getConfigLong(BULK_LOAD_MAX_KEYS_IN_MEMORY, DEFAULT_BULK_LOAD_MAX_KEYS_IN_MEMORY);
+    }
+
+    public int getKeyDecodeCacheSize() {
+        return (int) getConfigLong(KEY_DECODE_CACHE_SIZE, DEFAULT_KEY_DECODE_CACHE_SIZE);
+    }
+
+    public int getProjectionMaxCellsPerChunk() {
+        return (int) getConfigLong(PROJECTION_MAX_CELLS_PER_CHUNK, DEFAULT_PROJECTION_MAX_CELLS_PER_CHUNK);
+    }
+
+    public int getProjectionMaxBytesPerChunk() {
+        return (int) getConfigLong(PROJECTION_MAX_BYTES_PER_CHUNK, DEFAULT_PROJECTION_MAX_BYTES_PER_CHUNK);
+    }
+
+    public int getBatchScannerMaxQueryThreads() {
+        return (int) getConfigLong(BATCHSCANNER_MAX_QUERY_THREADS, DEFAULT_BATCHSCANNER_MAX_QUERY_THREADS);
+    }
+
+    /**
+     * The number of idle batch scanners kept per table, authorizations and thread count.
+     */
+    public int getBatchScannerPoolMaxIdle() {
+        return (int) getConfigLong(BATCHSCANNER_POOL_MAX_IDLE, DEFAULT_BATCHSCANNER_POOL_MAX_IDLE);
+    }
+
+    public long getTableSplitsCacheMillis() {
+        return getConfigLong(TABLE_SPLITS_CACHE_MILLIS, DEFAULT_TABLE_SPLITS_CACHE_MILLIS);
+    }
+
+    public int getReindexThreadCount() {
+        return (int) getConfigLong(REINDEX_THREAD_COUNT, DEFAULT_REINDEX_THREAD_COUNT);
+    }
+
+    public boolean isUseServerSideRelatedEdgesFilter() {
+        return getConfigBoolean(USE_SERVER_SIDE_RELATED_EDGES_FILTER, DEFAULT_USE_SERVER_SIDE_RELATED_EDGES_FILTER);
+    }
 }
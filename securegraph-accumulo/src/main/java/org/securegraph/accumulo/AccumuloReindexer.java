@@ -0,0 +1,354 @@
+package org.securegraph.accumulo;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.PartialKey;
+import org.apache.accumulo.core.data.Range;
+import org.apache.hadoop.io.Text;
+import org.securegraph.*;
+import org.securegraph.search.SearchIndexBase;
+import org.securegraph.util.CloseableIterable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Reindexes the vertex and edge tables split into one partition per tablet, with the partitions read in parallel.
+ * <p/>
+ * When given a checkpoint file the partitions and the id of the last element indexed in each are written to it every
+ * few seconds and when the reindex ends, so a failed or stopped reindex can be resumed about where each partition left
+ * off. Elements indexed after the last checkpoint are indexed again on resume.
+ */
+public class AccumuloReindexer {
+    private static final Logger LOGGER = LoggerFactory.getLogger(AccumuloReindexer.class);
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+    private static final long PROGRESS_INTERVAL_MILLIS = 10 * 1000;
+    private static final long CHECKPOINT_INTERVAL_MILLIS = 5 * 1000;
+    private final AccumuloGraph graph;
+    private final int threadCount;
+    private final File checkpointFile;
+    private final int batchSize;
+    private final AtomicLong elementCount = new AtomicLong();
+    private final ReentrantLock checkpointLock = new ReentrantLock();
+    private EnumSet<ElementType> elementTypes;
+    private List<Partition> partitions;
+    private long startTime;
+    private long lastProgressTime;
+    private long lastCheckpointTime;
+
+    public AccumuloReindexer(AccumuloGraph graph, int threadCount) {
+        this(graph, threadCount, null, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * @param checkpointFile null to not checkpoint
+     */
+    public AccumuloReindexer(AccumuloGraph graph, int threadCount, File checkpointFile, int batchSize) {
+        this.graph = graph;
+        this.threadCount = Math.max(1, threadCount);
+        this.checkpointFile = checkpointFile;
+        this.batchSize = batchSize;
+    }
+
+    public void reindex(EnumSet<ElementType> elementTypes, Authorizations authorizations) {
+        reindex(elementTypes, false, authorizations);
+    }
+
+    /**
+     * @param resume continue from the partitions in the checkpoint file instead of starting over, the checkpoint must
+     *               have been written reindexing the same element types
+     */
+    public void reindex(final EnumSet<ElementType> elementTypes, boolean resume, final Authorizations authorizations) {
+        this.elementTypes = elementTypes;
+        if (resume && checkpointFile != null && checkpointFile.exists()) {
+            partitions = loadCheckpoint(elementTypes);
+            LOGGER.info("Resuming reindex from " + checkpointFile + ", " + countComplete() + " of " + partitions.size() + " partitions complete");
+        } else {
+            partitions = createPartitions(elementTypes);
+            saveCheckpoint();
+        }
+        startTime = lastProgressTime = lastCheckpointTime = System.currentTimeMillis();
+        LOGGER.info("Reindexing " + partitions.size() + " partitions with " + threadCount + " threads");
+
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        try {
+            List<Future<?>> futures = new ArrayList<Future<?>>();
+            for (final Partition partition : partitions) {
+                if (partition.complete || !elementTypes.contains(partition.elementType)) {
+                    continue;
+                }
+                futures.add(executor.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        reindexPartition(partition, authorizations);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (ExecutionException ex) {
+            throw new SecureGraphException("Could not reindex" + (checkpointFile == null ? "" : ", resume from " + checkpointFile), ex);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new SecureGraphException("Reindex interrupted", ex);
+        } finally {
+            executor.shutdownNow();
+            try {
+                saveCheckpoint();
+            } catch (SecureGraphException ex) {
+                LOGGER.error("Could not save checkpoint", ex);
+            }
+        }
+        graph.flush();
+        LOGGER.info("Reindex complete, " + getProgress());
+    }
+
+    private void reindexPartition(Partition partition, Authorizations authorizations) {
+        CloseableIterable<? extends Element> elements;
+        if (partition.elementType == ElementType.VERTEX) {
+            // search indexes only need the edge counts of a vertex, not its edge references
+            elements = graph.getVerticesInRange(partition.getRemainingRange(), FetchHint.PROPERTIES_AND_EDGE_COUNTS, authorizations);
+        } else {
+            elements = graph.getEdgesInRange(partition.getRemainingRange(), FetchHint.ALL, authorizations);
+        }
+        try {
+            List<Element> batch = new ArrayList<Element>(batchSize);
+            for (Element element : elements) {
+                batch.add(element);
+                if (batch.size() >= batchSize) {
+                    addElements(partition, batch, authorizations);
+                    batch.clear();
+                }
+            }
+            addElements(partition, batch, authorizations);
+        } finally {
+            try {
+                elements.close();
+            } catch (IOException ex) {
+                LOGGER.warn("Could not close scanner", ex);
+            }
+        }
+        synchronized (this) {
+            partition.complete = true;
+        }
+        saveCheckpointIfDue();
+    }
+
+    private void addElements(Partition partition, List<Element> batch, Authorizations authorizations) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        if (elementTypes.contains(ElementType.VERTEX)) {
+            // the vertex partitions index every vertex with its edge counts, the edges need not update them
+            SearchIndexBase.reindexElements(graph.getSearchIndex(), graph, batch, authorizations);
+        } else {
+            graph.getSearchIndex().addElements(graph, batch, authorizations);
+        }
+        elementCount.addAndGet(batch.size());
+        synchronized (this) {
+            partition.lastId = batch.get(batch.size() - 1).getId();
+            long now = System.currentTimeMillis();
+            if (now - lastProgressTime >= PROGRESS_INTERVAL_MILLIS) {
+                lastProgressTime = now;
+                LOGGER.info("Reindexing, " + getProgress());
+            }
+        }
+        saveCheckpointIfDue();
+    }
+
+    public long getElementCount() {
+        return elementCount.get();
+    }
+
+    public synchronized String getProgress() {
+        long time = Math.max(1, System.currentTimeMillis() - startTime);
+        return String.format("%d elements (%.0f elements/sec), %d of %d partitions complete",
+                getElementCount(), getElementCount() * 1000.0 / time, countComplete(), partitions == null ? 0 : partitions.size());
+    }
+
+    private int countComplete() {
+        int count = 0;
+        for (Partition partition : partitions) {
+            if (partition.complete) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private List<Partition> createPartitions(EnumSet<ElementType> elementTypes) {
+        List<Partition> results = new ArrayList<Partition>();
+        if (elementTypes.contains(ElementType.VERTEX)) {
+            addPartitions(results, ElementType.VERTEX, graph.getVerticesTableName(), AccumuloConstants.VERTEX_ROW_KEY_PREFIX, AccumuloGraph.VERTEX_AFTER_ROW_KEY_PREFIX);
+        }
+        if (elementTypes.contains(ElementType.EDGE)) {
+            addPartitions(results, ElementType.EDGE, graph.getEdgesTableName(), AccumuloConstants.EDGE_ROW_KEY_PREFIX, AccumuloGraph.EDGE_AFTER_ROW_KEY_PREFIX);
+        }
+        return results;
+    }
+
+    /**
+     * Split points are the inclusive end rows of the tablets, so each partition ends before the row following a split.
+     */
+    private void addPartitions(List<Partition> results, ElementType elementType, String tableName, String rowKeyPrefix, String afterRowKeyPrefix) {
+        String startRow = rowKeyPrefix;
+        for (Text split : graph.getTableSplits(tableName)) {
+            String splitRow = split.toString();
+            if (splitRow.compareTo(startRow) < 0 || splitRow.compareTo(afterRowKeyPrefix) >= 0) {
+                continue;
+            }
+            String endRow = splitRow + '\0';
+            results.add(new Partition(elementType, startRow, endRow));
+            startRow = endRow;
+        }
+        results.add(new Partition(elementType, startRow, afterRowKeyPrefix));
+    }
+
+    /**
+     * Threads finding another thread writing the checkpoint carry on, their progress is in the next checkpoint.
+     */
+    private void saveCheckpointIfDue() {
+        if (checkpointFile == null || !checkpointLock.tryLock()) {
+            return;
+        }
+        try {
+            long now = System.currentTimeMillis();
+            if (now - lastCheckpointTime >= CHECKPOINT_INTERVAL_MILLIS) {
+                writeCheckpoint();
+                lastCheckpointTime = now;
+            }
+        } finally {
+            checkpointLock.unlock();
+        }
+    }
+
+    private void saveCheckpoint() {
+        if (checkpointFile == null) {
+            return;
+        }
+        checkpointLock.lock();
+        try {
+            writeCheckpoint();
+            lastCheckpointTime = System.currentTimeMillis();
+        } finally {
+            checkpointLock.unlock();
+        }
+    }
+
+    private void writeCheckpoint() {
+        Properties properties = new Properties();
+        synchronized (this) {
+            properties.setProperty("elementTypes", elementTypesToString(elementTypes));
+            properties.setProperty("partition.count", Integer.toString(partitions.size()));
+            for (int i = 0; i < partitions.size(); i++) {
+                partitions.get(i).save(properties, "partition." + i + ".");
+            }
+        }
+        File tempFile = new File(checkpointFile.getPath() + ".tmp");
+        try {
+            OutputStream out = new FileOutputStream(tempFile);
+            try {
+                properties.store(out, "securegraph reindex checkpoint");
+            } finally {
+                out.close();
+            }
+        } catch (IOException ex) {
+            throw new SecureGraphException("Could not write checkpoint " + tempFile, ex);
+        }
+        if (checkpointFile.exists() && !checkpointFile.delete() || !tempFile.renameTo(checkpointFile)) {
+            throw new SecureGraphException("Could not replace checkpoint " + checkpointFile);
+        }
+    }
+
+    private static String elementTypesToString(EnumSet<ElementType> elementTypes) {
+        StringBuilder result = new StringBuilder();
+        for (ElementType elementType : elementTypes) {
+            if (result.length() > 0) {
+                result.append(',');
+            }
+            result.append(elementType.name());
+        }
+        return result.toString();
+    }
+
+    private List<Partition> loadCheckpoint(EnumSet<ElementType> elementTypes) {
+        Properties properties = new Properties();
+        try {
+            InputStream in = new FileInputStream(checkpointFile);
+            try {
+                properties.load(in);
+            } finally {
+                in.close();
+            }
+        } catch (IOException ex) {
+            throw new SecureGraphException("Could not read checkpoint " + checkpointFile, ex);
+        }
+        String checkpointElementTypes = properties.getProperty("elementTypes");
+        if (!elementTypesToString(elementTypes).equals(checkpointElementTypes)) {
+            throw new SecureGraphException("Checkpoint " + checkpointFile + " was written reindexing " + checkpointElementTypes
+                    + ", not " + elementTypesToString(elementTypes) + ". Reindex the same element types or start over without resuming.");
+        }
+        List<Partition> results = new ArrayList<Partition>();
+        int count = Integer.parseInt(properties.getProperty("partition.count", "0"));
+        for (int i = 0; i < count; i++) {
+            results.add(Partition.load(properties, "partition." + i + "."));
+        }
+        return results;
+    }
+
+    private static class Partition {
+        private final ElementType elementType;
+        private final String startRow;
+        private final String endRow;
+        private String lastId;
+        private boolean complete;
+
+        private Partition(ElementType elementType, String startRow, String endRow) {
+            this.elementType = elementType;
+            this.startRow = startRow;
+            this.endRow = endRow;
+        }
+
+        /**
+         * The rows after the last indexed element, up to but not including the end row.
+         */
+        public Range getRemainingRange() {
+            Key startKey;
+            if (lastId == null) {
+                startKey = new Key(startRow);
+            } else {
+                String rowKeyPrefix = elementType == ElementType.VERTEX ? AccumuloConstants.VERTEX_ROW_KEY_PREFIX : AccumuloConstants.EDGE_ROW_KEY_PREFIX;
+                startKey = new Key(rowKeyPrefix + lastId).followingKey(PartialKey.ROW);
+            }
+            return new Range(startKey, true, new Key(endRow), false);
+        }
+
+        public void save(Properties properties, String prefix) {
+            properties.setProperty(prefix + "elementType", elementType.name());
+            properties.setProperty(prefix + "startRow", startRow);
+            properties.setProperty(prefix + "endRow", endRow);
+            if (lastId != null) {
+                properties.setProperty(prefix + "lastId", lastId);
+            }
+            properties.setProperty(prefix + "complete", Boolean.toString(complete));
+        }
+
+        public static Partition load(Properties properties, String prefix) {
+            Partition partition = new Partition(
+                    ElementType.valueOf(properties.getProperty(prefix + "elementType")),
+                    properties.getProperty(prefix + "startRow"),
+                    properties.getProperty(prefix + "endRow"));
+            partition.lastId = properties.getProperty(prefix + "lastId");
+            partition.complete = Boolean.parseBoolean(properties.getProperty(prefix + "complete"));
+            return partition;
+        }
+    }
+}
@@ -9,10 +9,7 @@ import org.securegraph.util.ConvertingIterable;
 import org.securegraph.util.JoinIterable;
 import org.securegraph.util.LookAheadIterable;
 
-import java.util.EnumSet;
-import java.util.HashMap;
-import java.util.Iterator;
-import java.util.Map;
+import java.util.*;
 
 import static org.securegraph.util.IterableUtils.count;
 import static org.securegraph.util.IterableUtils.toSet;
@@ -23,15 +20,20 @@ public class AccumuloVertex extends AccumuloElement<Vertex> implements Vertex {
     public static final Text CF_IN_EDGE = new Text("EIN");
     private final Map<String, EdgeInfo> inEdges;
     private final Map<String, EdgeInfo> outEdges;
+    // edge counts by label, only set when the edge references were summarized instead of fetched
+    private final Map<String, Integer> inEdgeCounts;
+    private final Map<String, Integer> outEdgeCounts;
 
     public AccumuloVertex(AccumuloGraph graph, String vertexId, Visibility vertexVisibility, Iterable<Property> properties, Authorizations authorizations) {
-        this(graph, vertexId, vertexVisibility, properties, new HashMap<String, EdgeInfo>(), new HashMap<String, EdgeInfo>(), authorizations);
+        this(graph, vertexId, vertexVisibility, properties, new HashMap<String, EdgeInfo>(), new HashMap<String, EdgeInfo>(), null, null, authorizations);
     }
 
-    AccumuloVertex(AccumuloGraph graph, String vertexId, Visibility vertexVisibility, Iterable<Property> properties, Map<String, EdgeInfo> inEdges, Map<String, EdgeInfo> outEdges, Authorizations authorizations) {
+    AccumuloVertex(AccumuloGraph graph, String vertexId, Visibility vertexVisibility, Iterable<Property> properties, Map<String, EdgeInfo> inEdges, Map<String, EdgeInfo> outEdges, Map<String, Integer> inEdgeCounts, Map<String, Integer> outEdgeCounts, Authorizations authorizations) {
         super(graph, vertexId, vertexVisibility, properties, authorizations);
         this.inEdges = inEdges;
         this.outEdges = outEdges;
+        this.inEdgeCounts = inEdgeCounts;
+        this.outEdgeCounts = outEdgeCounts;
     }
 
     @Override
@@ -126,11 +128,32 @@ public class AccumuloVertex extends AccumuloElement<Vertex> implements Vertex {
 
     @Override
     public int getEdgeCount(Direction direction, Authorizations authorizations) {
+        if (direction == Direction.BOTH) {
+            return getEdgeCount(Direction.IN, authorizations) + getEdgeCount(Direction.OUT, authorizations);
+        }
+        Map<String, Integer> edgeCounts = getEdgeCounts(direction);
+        if (edgeCounts != null) {
+            int count = 0;
+            for (Integer labelCount : edgeCounts.values()) {
+                count += labelCount;
+            }
+            return count;
+        }
         return count(getEdgeIds(direction, authorizations));
     }
 
     @Override
     public Iterable<String> getEdgeLabels(Direction direction, Authorizations authorizations) {
+        if (direction == Direction.BOTH && (this.inEdgeCounts != null || this.outEdgeCounts != null)) {
+            Set<String> labels = new HashSet<String>();
+            labels.addAll(toSet(getEdgeLabels(Direction.IN, authorizations)));
+            labels.addAll(toSet(getEdgeLabels(Direction.OUT, authorizations)));
+            return labels;
+        }
+        Map<String, Integer> edgeCounts = getEdgeCounts(direction);
+        if (edgeCounts != null) {
+            return new HashSet<String>(edgeCounts.keySet());
+        }
         return toSet(new ConvertingIterable<Map.Entry<String, EdgeInfo>, String>(getEdgeInfos(direction, authorizations)) {
             @Override
             protected String convert(Map.Entry<String, EdgeInfo> o) {
@@ -145,20 +168,22 @@ public class AccumuloVertex extends AccumuloElement<Vertex> implements Vertex {
     }
 
     public Iterable<String> getEdgeIdsWithOtherVertexId(final String otherVertexId, final Direction direction, final String[] labels, final Authorizations authorizations) {
+        final byte[] otherVertexIdBytes = EdgeInfo.toBytes(otherVertexId);
+        final byte[][] labelsBytes = toBytes(labels);
         return new LookAheadIterable<Map.Entry<String, EdgeInfo>, String>() {
             @Override
             protected boolean isIncluded(Map.Entry<String, EdgeInfo> edgeInfo, String edgeId) {
-                if (otherVertexId != null) {
-                    if (!otherVertexId.equals(edgeInfo.getValue().getVertexId())) {
+                if (otherVertexIdBytes != null) {
+                    if (!edgeInfo.getValue().vertexIdEquals(otherVertexIdBytes)) {
                         return false;
                     }
                 }
-                if (labels == null || labels.length == 0) {
+                if (labelsBytes == null) {
                     return true;
                 }
 
-                for (String label : labels) {
-                    if (label.equals(edgeInfo.getValue().getLabel())) {
+                for (byte[] labelBytes : labelsBytes) {
+                    if (edgeInfo.getValue().labelEquals(labelBytes)) {
                         return true;
                     }
                 }
@@ -177,6 +202,44 @@ public class AccumuloVertex extends AccumuloElement<Vertex> implements Vertex {
         };
     }
 
+    private Map<String, Integer> getEdgeCounts(Direction direction) {
+        switch (direction) {
+            case IN:
+                return this.inEdgeCounts;
+            case OUT:
+                return this.outEdgeCounts;
+            case BOTH:
+                // callers combine the IN and OUT counts themselves
+                return null;
+            default:
+                throw new SecureGraphException("Unexpected direction: " + direction);
+        }
+    }
+
+    static byte[][] toBytes(String[] strs) {
+        if (strs == null || strs.length == 0) {
+            return null;
+        }
+        byte[][] results = new byte[strs.length][];
+        for (int i = 0; i < strs.length; i++) {
+            results[i] = EdgeInfo.toBytes(strs[i]);
+        }
+        return results;
+    }
+
+    private static void adjustEdgeCount(Map<String, Integer> edgeCounts, String label, int delta) {
+        if (edgeCounts == null) {
+            return;
+        }
+        Integer count = edgeCounts.get(label);
+        int newCount = (count == null ? 0 : count) + delta;
+        if (newCount <= 0) {
+            edgeCounts.remove(label);
+        } else {
+            edgeCounts.put(label, newCount);
+        }
+    }
+
     private Iterable<Map.Entry<String, EdgeInfo>> getEdgeInfos(Direction direction, Authorizations authorizations) {
         switch (direction) {
             case IN:
@@ -251,18 +314,22 @@ public class AccumuloVertex extends AccumuloElement<Vertex> implements Vertex {
 
     void addOutEdge(Edge edge) {
         this.outEdges.put(edge.getId(), new EdgeInfo(edge.getLabel(), edge.getVertexId(Direction.IN)));
+        adjustEdgeCount(this.outEdgeCounts, edge.getLabel(), 1);
     }
 
     void removeOutEdge(Edge edge) {
         this.outEdges.remove(edge.getId());
+        adjustEdgeCount(this.outEdgeCounts, edge.getLabel(), -1);
     }
 
     void addInEdge(Edge edge) {
         this.inEdges.put(edge.getId(), new EdgeInfo(edge.getLabel(), edge.getVertexId(Direction.OUT)));
+        adjustEdgeCount(this.inEdgeCounts, edge.getLabel(), 1);
     }
 
     void removeInEdge(Edge edge) {
         this.inEdges.remove(edge.getId());
+        adjustEdgeCount(this.inEdgeCounts, edge.getLabel(), -1);
     }
 
     @Override
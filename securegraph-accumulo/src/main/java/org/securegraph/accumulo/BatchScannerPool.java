@@ -0,0 +1,133 @@
+package org.securegraph.accumulo;
+
+import org.apache.accumulo.core.client.BatchScanner;
+import org.apache.accumulo.core.client.Connector;
+import org.apache.accumulo.core.client.TableNotFoundException;
+import org.apache.accumulo.core.security.Authorizations;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps idle batch scanners, and the query thread pools they own, so batch gets do not create and tear down a
+ * scanner per call. Scanners are keyed by table, authorizations and thread count since none of those can be changed
+ * after a scanner is created. A scanner is only returned to the pool if its last scan was read to the end.
+ */
+class BatchScannerPool {
+    private final Connector connector;
+    private final int maxIdlePerKey;
+    private final Map<PoolKey, LinkedList<BatchScanner>> idleScanners = new HashMap<PoolKey, LinkedList<BatchScanner>>();
+    private final Map<BatchScanner, PoolKey> borrowedScanners = new IdentityHashMap<BatchScanner, PoolKey>();
+    private final AtomicLong createdCount = new AtomicLong();
+    private final AtomicLong reusedCount = new AtomicLong();
+    private boolean closed;
+
+    public BatchScannerPool(Connector connector, int maxIdlePerKey) {
+        this.connector = connector;
+        this.maxIdlePerKey = maxIdlePerKey;
+    }
+
+    public BatchScanner borrow(String tableName, Authorizations authorizations, int numQueryThreads) throws TableNotFoundException {
+        PoolKey key = new PoolKey(tableName, authorizations, numQueryThreads);
+        BatchScanner scanner = null;
+        synchronized (this) {
+            LinkedList<BatchScanner> idle = idleScanners.get(key);
+            if (idle != null && idle.size() > 0) {
+                scanner = idle.removeFirst();
+            }
+        }
+        if (scanner == null) {
+            scanner = connector.createBatchScanner(tableName, authorizations, numQueryThreads);
+            createdCount.incrementAndGet();
+        } else {
+            scanner.clearColumns();
+            scanner.clearScanIterators();
+            reusedCount.incrementAndGet();
+        }
+        synchronized (this) {
+            borrowedScanners.put(scanner, key);
+        }
+        return scanner;
+    }
+
+    /**
+     * @param scanComplete true if the scanner's iterator was read to the end, a partially read scanner may still
+     *                     have query threads fetching results and is closed instead of reused.
+     */
+    public void release(BatchScanner scanner, boolean scanComplete) {
+        synchronized (this) {
+            PoolKey key = borrowedScanners.remove(scanner);
+            if (key != null && scanComplete && !closed) {
+                LinkedList<BatchScanner> idle = idleScanners.get(key);
+                if (idle == null) {
+                    idle = new LinkedList<BatchScanner>();
+                    idleScanners.put(key, idle);
+                }
+                if (idle.size() < maxIdlePerKey) {
+                    idle.addFirst(scanner);
+                    return;
+                }
+            }
+        }
+        scanner.close();
+    }
+
+    public void close() {
+        List<BatchScanner> scanners = new ArrayList<BatchScanner>();
+        synchronized (this) {
+            closed = true;
+            for (LinkedList<BatchScanner> idle : idleScanners.values()) {
+                scanners.addAll(idle);
+            }
+            idleScanners.clear();
+        }
+        for (BatchScanner scanner : scanners) {
+            scanner.close();
+        }
+    }
+
+    public synchronized int getIdleCount() {
+        int count = 0;
+        for (LinkedList<BatchScanner> idle : idleScanners.values()) {
+            count += idle.size();
+        }
+        return count;
+    }
+
+    public long getCreatedCount() {
+        return createdCount.get();
+    }
+
+    public long getReusedCount() {
+        return reusedCount.get();
+    }
+
+    private static class PoolKey {
+        private final String tableName;
+        private final String authorizations;
+        private final int numQueryThreads;
+
+        private PoolKey(String tableName, Authorizations authorizations, int numQueryThreads) {
+            this.tableName = tableName;
+            // serialize() is sorted so equal sets of authorizations give equal keys
+            this.authorizations = authorizations.serialize();
+            this.numQueryThreads = numQueryThreads;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof PoolKey)) {
+                return false;
+            }
+            PoolKey other = (PoolKey) o;
+            return tableName.equals(other.tableName)
+                    && authorizations.equals(other.authorizations)
+                    && numQueryThreads == other.numQueryThreads;
+        }
+
+        @Override
+        public int hashCode() {
+            return (tableName.hashCode() * 31 + authorizations.hashCode()) * 31 + numQueryThreads;
+        }
+    }
+}
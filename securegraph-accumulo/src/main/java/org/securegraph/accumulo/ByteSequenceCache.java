@@ -0,0 +1,38 @@
+package org.securegraph.accumulo;
+
+import org.apache.accumulo.core.data.ArrayByteSequence;
+import org.apache.accumulo.core.data.ByteSequence;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A bounded, thread safe cache of objects decoded from raw key bytes. Lookups use the caller's bytes without
+ * copying them; only a miss copies the bytes to use as the cache key. When the cache is full it is cleared.
+ */
+public abstract class ByteSequenceCache<T> {
+    private final ConcurrentHashMap<ByteSequence, T> cache = new ConcurrentHashMap<ByteSequence, T>();
+    private final int maxSize;
+
+    protected ByteSequenceCache(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    public T get(ByteSequence bytes) {
+        T result = cache.get(bytes);
+        if (result != null) {
+            return result;
+        }
+        result = create(bytes);
+        if (cache.size() >= maxSize) {
+            cache.clear();
+        }
+        cache.put(new ArrayByteSequence(bytes.toArray()), result);
+        return result;
+    }
+
+    public int size() {
+        return cache.size();
+    }
+
+    protected abstract T create(ByteSequence bytes);
+}
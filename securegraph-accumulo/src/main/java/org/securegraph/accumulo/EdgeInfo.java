@@ -3,54 +3,57 @@ package org.securegraph.accumulo;
 import org.apache.accumulo.core.data.Value;
 import org.securegraph.SecureGraphException;
 
-import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
 
-// We are doing custom serialization to make this as fast as possible since this can get called many times
+/**
+ * We are doing custom serialization to make this as fast as possible since this can get called many times.
+ * <p/>
+ * Version 1 is a {@link #VERSION_1} marker byte followed by the label and the other vertex id, each written as a
+ * varint of the UTF-8 length plus one (zero for null) and the UTF-8 bytes. The original encoding, which is still
+ * read, used a 4 byte big endian length (-1 for null) and the UTF-8 bytes; its first byte is always 0x00 or 0xff.
+ * The label and vertex id can be compared as bytes without decoding them into strings.
+ */
 public class EdgeInfo {
     public static final String CHARSET_NAME = "UTF-8";
+    public static final byte VERSION_1 = 0x01;
+    private static final Charset CHARSET = Charset.forName(CHARSET_NAME);
     private final byte[] bytes;
-    private transient boolean decoded;
+    private transient boolean parsed;
+    private transient int labelOffset;
+    private transient int labelLength;
+    private transient int vertexIdOffset;
+    private transient int vertexIdLength;
     private transient String label;
     private transient String vertexId;
 
     public EdgeInfo(String label, String vertexId) {
-        try {
-            byte[] labelBytes;
-            int labelBytesLength;
-            if (label == null) {
-                labelBytes = null;
-                labelBytesLength = -1;
-            } else {
-                labelBytes = label.getBytes(CHARSET_NAME);
-                labelBytesLength = labelBytes.length;
-            }
-
-            byte[] vertexIdBytes;
-            int vertexIdBytesLength;
-            if (vertexId == null) {
-                vertexIdBytes = null;
-                vertexIdBytesLength = -1;
-            } else {
-                vertexIdBytes = vertexId.getBytes(CHARSET_NAME);
-                vertexIdBytesLength = vertexIdBytes.length;
-            }
-            int len = 4 + labelBytesLength + 4 + vertexIdBytesLength;
-
-            ByteBuffer buffer = ByteBuffer.allocate(len);
-            buffer.putInt(labelBytesLength);
-            if (labelBytes != null) {
-                buffer.put(labelBytes);
-            }
-            buffer.putInt(vertexIdBytesLength);
-            if (vertexIdBytes != null) {
-                buffer.put(vertexIdBytes);
-            }
+        byte[] labelBytes = toBytes(label);
+        byte[] vertexIdBytes = toBytes(vertexId);
+        int labelBytesLength = labelBytes == null ? -1 : labelBytes.length;
+        int vertexIdBytesLength = vertexIdBytes == null ? -1 : vertexIdBytes.length;
 
-            this.bytes = buffer.array();
-        } catch (IOException ex) {
-            throw new SecureGraphException("Could not serialize edge info", ex);
+        this.bytes = new byte[1
+                + varIntLength(labelBytesLength + 1) + Math.max(0, labelBytesLength)
+                + varIntLength(vertexIdBytesLength + 1) + Math.max(0, vertexIdBytesLength)];
+        int offset = 0;
+        this.bytes[offset++] = VERSION_1;
+        offset = writeVarInt(this.bytes, offset, labelBytesLength + 1);
+        this.labelOffset = offset;
+        this.labelLength = labelBytesLength;
+        if (labelBytes != null) {
+            System.arraycopy(labelBytes, 0, this.bytes, offset, labelBytes.length);
+            offset += labelBytes.length;
         }
+        offset = writeVarInt(this.bytes, offset, vertexIdBytesLength + 1);
+        this.vertexIdOffset = offset;
+        this.vertexIdLength = vertexIdBytesLength;
+        if (vertexIdBytes != null) {
+            System.arraycopy(vertexIdBytes, 0, this.bytes, offset, vertexIdBytes.length);
+        }
+        this.parsed = true;
+        this.label = label;
+        this.vertexId = vertexId;
     }
 
     public EdgeInfo(byte[] bytes) {
@@ -58,37 +61,115 @@ public class EdgeInfo {
     }
 
     public String getLabel() {
-        decodeBytes();
+        parse();
+        if (label == null && labelLength >= 0) {
+            label = new String(bytes, labelOffset, labelLength, CHARSET);
+        }
         return label;
     }
 
     public String getVertexId() {
-        decodeBytes();
+        parse();
+        if (vertexId == null && vertexIdLength >= 0) {
+            vertexId = new String(bytes, vertexIdOffset, vertexIdLength, CHARSET);
+        }
         return vertexId;
     }
 
-    private void decodeBytes() {
-        if (!decoded) {
-            try {
-                ByteBuffer in = ByteBuffer.wrap(this.bytes);
-                this.label = readString(in);
-                this.vertexId = readString(in);
-                this.decoded = true;
-            } catch (IOException ex) {
-                throw new SecureGraphException("Could not decode EdgeInfo data", ex);
+    /**
+     * @param labelBytes the UTF-8 bytes of a label, see {@link #toBytes(String)}
+     */
+    public boolean labelEquals(byte[] labelBytes) {
+        parse();
+        return bytesEqual(labelOffset, labelLength, labelBytes);
+    }
+
+    /**
+     * @param vertexIdBytes the UTF-8 bytes of a vertex id, see {@link #toBytes(String)}
+     */
+    public boolean vertexIdEquals(byte[] vertexIdBytes) {
+        parse();
+        return bytesEqual(vertexIdOffset, vertexIdLength, vertexIdBytes);
+    }
+
+    private boolean bytesEqual(int offset, int length, byte[] other) {
+        if (length < 0 || other == null) {
+            return length < 0 && other == null;
+        }
+        if (length != other.length) {
+            return false;
+        }
+        for (int i = length - 1; i >= 0; i--) {
+            if (bytes[offset + i] != other[i]) {
+                return false;
             }
         }
+        return true;
+    }
+
+    private void parse() {
+        if (parsed) {
+            return;
+        }
+        try {
+            if (bytes.length > 0 && bytes[0] == VERSION_1) {
+                int offset = 1;
+                labelLength = readVarInt(bytes, offset) - 1;
+                offset += varIntLength(labelLength + 1);
+                labelOffset = offset;
+                offset += Math.max(0, labelLength);
+                vertexIdLength = readVarInt(bytes, offset) - 1;
+                offset += varIntLength(vertexIdLength + 1);
+                vertexIdOffset = offset;
+            } else {
+                ByteBuffer in = ByteBuffer.wrap(bytes);
+                labelLength = in.getInt();
+                labelOffset = 4;
+                vertexIdLength = in.getInt(labelOffset + Math.max(0, labelLength));
+                vertexIdOffset = labelOffset + Math.max(0, labelLength) + 4;
+            }
+        } catch (RuntimeException ex) {
+            throw new SecureGraphException("Could not decode EdgeInfo data", ex);
+        }
+        parsed = true;
+    }
+
+    static int readVarInt(byte[] bytes, int offset) {
+        int value = 0;
+        int shift = 0;
+        while (true) {
+            byte b = bytes[offset++];
+            value |= (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+            shift += 7;
+        }
+    }
+
+    static int writeVarInt(byte[] bytes, int offset, int value) {
+        while ((value & ~0x7f) != 0) {
+            bytes[offset++] = (byte) ((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        bytes[offset++] = (byte) value;
+        return offset;
+    }
+
+    static int varIntLength(int value) {
+        int length = 1;
+        while ((value & ~0x7f) != 0) {
+            value >>>= 7;
+            length++;
+        }
+        return length;
     }
 
-    private String readString(ByteBuffer in) throws IOException {
-        int labelBytesLength = in.getInt();
-        if (labelBytesLength == -1) {
+    public static byte[] toBytes(String str) {
+        if (str == null) {
             return null;
-        } else {
-            byte[] d = new byte[labelBytesLength];
-            in.get(d);
-            return new String(d, CHARSET_NAME);
         }
+        return str.getBytes(CHARSET);
     }
 
     public static EdgeInfo parse(Value value) {
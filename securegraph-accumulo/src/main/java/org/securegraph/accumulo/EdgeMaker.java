@@ -1,5 +1,6 @@
 package org.securegraph.accumulo;
 
+import org.apache.accumulo.core.data.ByteSequence;
 import org.apache.accumulo.core.data.Key;
 import org.apache.accumulo.core.data.Value;
 import org.apache.hadoop.io.Text;
@@ -11,7 +12,6 @@ import java.util.Iterator;
 import java.util.Map;
 
 public class EdgeMaker extends ElementMaker<Edge> {
-    private static final String VISIBILITY_SIGNAL = AccumuloEdge.CF_SIGNAL.toString();
     private final AccumuloGraph graph;
     private String inVertexId;
     private String outVertexId;
@@ -24,21 +24,20 @@ public class EdgeMaker extends ElementMaker<Edge> {
 
     @Override
     protected void processColumn(Key key, Value value) {
-        Text columnFamily = key.getColumnFamily();
-        Text columnQualifier = key.getColumnQualifier();
+        ByteSequence columnFamily = key.getColumnFamilyData();
 
-        if (AccumuloEdge.CF_SIGNAL.compareTo(columnFamily) == 0) {
-            this.label = columnQualifier.toString();
+        if (bytesEqual(columnFamily, AccumuloEdge.CF_SIGNAL)) {
+            this.label = getGraph().getStringCache().get(key.getColumnQualifierData());
             return;
         }
 
-        if (AccumuloEdge.CF_IN_VERTEX.compareTo(columnFamily) == 0) {
-            this.inVertexId = columnQualifier.toString();
+        if (bytesEqual(columnFamily, AccumuloEdge.CF_IN_VERTEX)) {
+            this.inVertexId = bytesToString(key.getColumnQualifierData());
             return;
         }
 
-        if (AccumuloEdge.CF_OUT_VERTEX.compareTo(columnFamily) == 0) {
-            this.outVertexId = columnQualifier.toString();
+        if (bytesEqual(columnFamily, AccumuloEdge.CF_OUT_VERTEX)) {
+            this.outVertexId = bytesToString(key.getColumnQualifierData());
         }
     }
 
@@ -51,8 +50,8 @@ public class EdgeMaker extends ElementMaker<Edge> {
     }
 
     @Override
-    protected String getVisibilitySignal() {
-        return VISIBILITY_SIGNAL;
+    protected Text getVisibilitySignal() {
+        return AccumuloEdge.CF_SIGNAL;
     }
 
     @Override
@@ -1,24 +1,24 @@
 package org.securegraph.accumulo;
 
+import org.apache.accumulo.core.data.ByteSequence;
 import org.apache.accumulo.core.data.Key;
 import org.apache.accumulo.core.data.Value;
 import org.apache.accumulo.core.iterators.user.RowDeletingIterator;
-import org.apache.accumulo.core.security.ColumnVisibility;
 import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.WritableComparator;
 import org.securegraph.Authorizations;
 import org.securegraph.Property;
 import org.securegraph.SecureGraphException;
 import org.securegraph.Visibility;
 
+import java.nio.charset.Charset;
 import java.util.*;
 
 public abstract class ElementMaker<T> {
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    private static final byte VALUE_SEPARATOR = (byte) ElementMutationBuilder.VALUE_SEPARATOR.charAt(0);
     private final Iterator<Map.Entry<Key, Value>> row;
-    private final Map<String, String> propertyNames = new HashMap<String, String>();
-    private final Map<String, String> propertyColumnQualifier = new HashMap<String, String>();
-    private final Map<String, byte[]> propertyValues = new HashMap<String, byte[]>();
-    private final Map<String, Visibility> propertyVisibilities = new HashMap<String, Visibility>();
-    private final Map<String, byte[]> propertyMetadata = new HashMap<String, byte[]>();
+    private final Map<PropertyColumnKey, PropertyColumn> propertyColumns = new HashMap<PropertyColumnKey, PropertyColumn>();
     private final AccumuloGraph graph;
     private final Authorizations authorizations;
     private String id;
@@ -33,37 +33,37 @@ public abstract class ElementMaker<T> {
     public T make() {
         while (row.hasNext()) {
             Map.Entry<Key, Value> col = row.next();
+            Key key = col.getKey();
 
             if (this.id == null) {
-                this.id = getIdFromRowKey(col.getKey().getRow().toString());
+                this.id = getIdFromRowKey(key.getRow().toString());
             }
 
-            Text columnFamily = col.getKey().getColumnFamily();
-            Text columnQualifier = col.getKey().getColumnQualifier();
-            ColumnVisibility columnVisibility = getGraph().visibilityToAccumuloVisibility(col.getKey().getColumnVisibility().toString());
+            ByteSequence columnFamily = key.getColumnFamilyData();
+            ByteSequence columnQualifier = key.getColumnQualifierData();
             Value value = col.getValue();
 
-            if (columnFamily.equals(AccumuloGraph.DELETE_ROW_COLUMN_FAMILY)
-                    && columnQualifier.equals(AccumuloGraph.DELETE_ROW_COLUMN_QUALIFIER)
+            if (columnFamily.length() == 0
+                    && columnQualifier.length() == 0
                     && value.equals(RowDeletingIterator.DELETE_ROW_VALUE)) {
                 return null;
             }
 
-            if (AccumuloElement.CF_PROPERTY.compareTo(columnFamily) == 0) {
-                extractPropertyData(columnQualifier, columnVisibility, value);
+            if (bytesEqual(columnFamily, AccumuloElement.CF_PROPERTY)) {
+                extractPropertyData(columnQualifier, key.getColumnVisibilityData(), value);
                 continue;
             }
 
-            if (AccumuloElement.CF_PROPERTY_METADATA.compareTo(columnFamily) == 0) {
-                extractPropertyMetadata(columnQualifier, columnVisibility, value);
+            if (bytesEqual(columnFamily, AccumuloElement.CF_PROPERTY_METADATA)) {
+                extractPropertyMetadata(columnQualifier, key.getColumnVisibilityData(), value);
                 continue;
             }
 
-            if (getVisibilitySignal().equals(columnFamily.toString())) {
-                this.visibility = accumuloVisibilityToVisibility(columnVisibility);
+            if (bytesEqual(columnFamily, getVisibilitySignal())) {
+                this.visibility = getGraph().getVisibilityCache().get(key.getColumnVisibilityData());
             }
 
-            processColumn(col.getKey(), col.getValue());
+            processColumn(key, value);
         }
 
         // If the org.securegraph.accumulo.iterator.ElementVisibilityRowFilter isn't installed this will catch stray rows
@@ -78,7 +78,7 @@ public abstract class ElementMaker<T> {
 
     protected abstract String getIdFromRowKey(String rowKey);
 
-    protected abstract String getVisibilitySignal();
+    protected abstract Text getVisibilitySignal();
 
     protected abstract T makeElement();
 
@@ -95,62 +95,97 @@ public abstract class ElementMaker<T> {
     }
 
     protected List<Property> getProperties() {
-        List<Property> results = new ArrayList<Property>(propertyValues.size());
-        for (Map.Entry<String, byte[]> propertyValueEntry : propertyValues.entrySet()) {
-            String key = propertyValueEntry.getKey();
-            String propertyKey = getPropertyKeyFromColumnQualifier(propertyColumnQualifier.get(key));
-            String propertyName = propertyNames.get(key);
-            byte[] propertyValue = propertyValueEntry.getValue();
-            Visibility visibility = propertyVisibilities.get(key);
-            byte[] metadata = propertyMetadata.get(key);
-            results.add(new LazyMutableProperty(getGraph(), getGraph().getValueSerializer(), propertyKey, propertyName, propertyValue, metadata, visibility));
+        List<Property> results = new ArrayList<Property>(propertyColumns.size());
+        for (PropertyColumn propertyColumn : propertyColumns.values()) {
+            if (propertyColumn.value == null) {
+                continue;
+            }
+            ByteSequence columnQualifier = propertyColumn.columnQualifier;
+            int separatorIndex = indexOf(columnQualifier, VALUE_SEPARATOR);
+            if (separatorIndex < 0) {
+                throw new SecureGraphException("Invalid property column qualifier");
+            }
+            String propertyName = getGraph().getStringCache().get(columnQualifier.subSequence(0, separatorIndex));
+            String propertyKey = bytesToString(columnQualifier.subSequence(separatorIndex + 1, columnQualifier.length()));
+            results.add(new LazyMutableProperty(getGraph(), getGraph().getValueSerializer(), propertyKey, propertyName, propertyColumn.value, propertyColumn.metadata, propertyColumn.visibility));
         }
         return results;
     }
 
-    private void extractPropertyMetadata(Text columnQualifier, ColumnVisibility columnVisibility, Value value) {
-        String key = toKey(columnQualifier, columnVisibility);
-        propertyMetadata.put(key, value.get());
+    private void extractPropertyMetadata(ByteSequence columnQualifier, ByteSequence columnVisibility, Value value) {
+        getPropertyColumn(columnQualifier, columnVisibility).metadata = value.get();
     }
 
-    private void extractPropertyData(Text columnQualifier, ColumnVisibility columnVisibility, Value value) {
-        String propertyName = getPropertyNameFromColumnQualifier(columnQualifier.toString());
-        String key = toKey(columnQualifier, columnVisibility);
-        propertyColumnQualifier.put(key, columnQualifier.toString());
-        propertyNames.put(key, propertyName);
-        propertyValues.put(key, value.get());
-        propertyVisibilities.put(key, accumuloVisibilityToVisibility(columnVisibility));
+    private void extractPropertyData(ByteSequence columnQualifier, ByteSequence columnVisibility, Value value) {
+        PropertyColumn propertyColumn = getPropertyColumn(columnQualifier, columnVisibility);
+        propertyColumn.value = value.get();
+        propertyColumn.visibility = getGraph().getVisibilityCache().get(columnVisibility);
     }
 
-    private String toKey(Text columnQualifier, ColumnVisibility columnVisibility) {
-        return columnQualifier.toString() + ":" + columnVisibility.toString();
+    private PropertyColumn getPropertyColumn(ByteSequence columnQualifier, ByteSequence columnVisibility) {
+        PropertyColumnKey key = new PropertyColumnKey(columnQualifier, columnVisibility);
+        PropertyColumn propertyColumn = propertyColumns.get(key);
+        if (propertyColumn == null) {
+            propertyColumn = new PropertyColumn(columnQualifier);
+            propertyColumns.put(key, propertyColumn);
+        }
+        return propertyColumn;
     }
 
-    private String getPropertyNameFromColumnQualifier(String columnQualifier) {
-        int i = columnQualifier.indexOf(ElementMutationBuilder.VALUE_SEPARATOR);
-        if (i < 0) {
-            throw new SecureGraphException("Invalid property column qualifier");
-        }
-        return columnQualifier.substring(0, i);
+    public Authorizations getAuthorizations() {
+        return authorizations;
+    }
+
+    protected static boolean bytesEqual(ByteSequence bytes, Text text) {
+        return bytes.length() == text.getLength()
+                && WritableComparator.compareBytes(bytes.getBackingArray(), bytes.offset(), bytes.length(), text.getBytes(), 0, text.getLength()) == 0;
+    }
+
+    protected static String bytesToString(ByteSequence bytes) {
+        return new String(bytes.getBackingArray(), bytes.offset(), bytes.length(), UTF8);
     }
 
-    private Visibility accumuloVisibilityToVisibility(ColumnVisibility columnVisibility) {
-        String columnVisibilityString = columnVisibility.toString();
-        if (columnVisibilityString.startsWith("[") && columnVisibilityString.endsWith("]")) {
-            return new Visibility(columnVisibilityString.substring(1, columnVisibilityString.length() - 1));
+    private static int indexOf(ByteSequence bytes, byte b) {
+        for (int i = 0; i < bytes.length(); i++) {
+            if (bytes.byteAt(i) == b) {
+                return i;
+            }
         }
-        return new Visibility(columnVisibilityString);
+        return -1;
     }
 
-    private String getPropertyKeyFromColumnQualifier(String columnQualifier) {
-        int i = columnQualifier.indexOf(ElementMutationBuilder.VALUE_SEPARATOR);
-        if (i < 0) {
-            throw new SecureGraphException("Invalid property column qualifier");
+    private static class PropertyColumnKey {
+        private final ByteSequence columnQualifier;
+        private final ByteSequence columnVisibility;
+
+        private PropertyColumnKey(ByteSequence columnQualifier, ByteSequence columnVisibility) {
+            this.columnQualifier = columnQualifier;
+            this.columnVisibility = columnVisibility;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * columnQualifier.hashCode() + columnVisibility.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof PropertyColumnKey)) {
+                return false;
+            }
+            PropertyColumnKey other = (PropertyColumnKey) obj;
+            return columnQualifier.equals(other.columnQualifier) && columnVisibility.equals(other.columnVisibility);
         }
-        return columnQualifier.substring(i + 1);
     }
 
-    public Authorizations getAuthorizations() {
-        return authorizations;
+    private static class PropertyColumn {
+        private final ByteSequence columnQualifier;
+        private byte[] value;
+        private byte[] metadata;
+        private Visibility visibility;
+
+        private PropertyColumn(ByteSequence columnQualifier) {
+            this.columnQualifier = columnQualifier;
+        }
     }
 }
@@ -169,7 +169,7 @@ public abstract class ElementMutationBuilder {
     protected StreamingPropertyValueRef saveStreamingPropertyValue(final String rowKey, final Property property, StreamingPropertyValue propertyValue) {
         try {
             HdfsLargeDataStore largeDataStore = new HdfsLargeDataStore(this.fileSystem, this.dataDir, rowKey, property);
-            LimitOutputStream out = new LimitOutputStream(largeDataStore, maxStreamingPropertyValueTableDataSize);
+            LimitOutputStream out = new LimitOutputStream(largeDataStore, maxStreamingPropertyValueTableDataSize, propertyValue.getLength());
             try {
                 StreamUtils.copy(propertyValue.getInputStream(), out);
             } finally {
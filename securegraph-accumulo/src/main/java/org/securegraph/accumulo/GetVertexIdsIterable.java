@@ -7,20 +7,20 @@ import java.util.Iterator;
 
 class GetVertexIdsIterable extends LookAheadIterable<EdgeInfo, String> {
     private final Collection<EdgeInfo> edgeInfos;
-    private final String[] labels;
+    private final byte[][] labelsBytes;
 
     public GetVertexIdsIterable(Collection<EdgeInfo> edgeInfos, String[] labels) {
         this.edgeInfos = edgeInfos;
-        this.labels = labels;
+        this.labelsBytes = AccumuloVertex.toBytes(labels);
     }
 
     @Override
     protected boolean isIncluded(EdgeInfo edgeInfo, String vertexId) {
-        if (labels == null || labels.length == 0) {
+        if (labelsBytes == null) {
             return true;
         }
-        for (String label : labels) {
-            if (edgeInfo.getLabel().equals(label)) {
+        for (byte[] labelBytes : labelsBytes) {
+            if (edgeInfo.labelEquals(labelBytes)) {
                 return true;
             }
         }
@@ -0,0 +1,85 @@
+package org.securegraph.accumulo;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.user.WholeRowIterator;
+import org.apache.hadoop.io.Text;
+import org.securegraph.SecureGraphException;
+import org.securegraph.accumulo.iterator.ElementProjectionIterator;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Reassembles the row chunks returned by {@link ElementProjectionIterator} into one iterator of cells per row.
+ * A batch scanner may interleave chunks of different rows so partial rows are held until their last chunk arrives.
+ * Rows encoded by {@link WholeRowIterator} are complete in a single entry.
+ */
+class ProjectedRowIterator implements Iterator<Iterator<Map.Entry<Key, Value>>> {
+    private final Iterator<Map.Entry<Key, Value>> chunks;
+    private final boolean wholeRows;
+    private final Map<Text, List<Map.Entry<Key, Value>>> pendingRows = new HashMap<Text, List<Map.Entry<Key, Value>>>();
+    private List<Map.Entry<Key, Value>> next;
+    private boolean scanComplete;
+
+    /**
+     * @param wholeRows True if the scanner used {@link WholeRowIterator} instead of {@link ElementProjectionIterator}.
+     */
+    public ProjectedRowIterator(Iterator<Map.Entry<Key, Value>> chunks, boolean wholeRows) {
+        this.chunks = chunks;
+        this.wholeRows = wholeRows;
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (next == null && chunks.hasNext()) {
+            Map.Entry<Key, Value> chunk = chunks.next();
+            Key chunkKey = chunk.getKey();
+            Text row = chunkKey.getRow();
+            List<Map.Entry<Key, Value>> cells = pendingRows.get(row);
+            if (cells == null) {
+                cells = new ArrayList<Map.Entry<Key, Value>>();
+            }
+            try {
+                cells.addAll(WholeRowIterator.decodeRow(chunkKey, chunk.getValue()).entrySet());
+            } catch (IOException ex) {
+                throw new SecureGraphException("Could not decode row chunk", ex);
+            }
+            if (wholeRows || chunkKey.compareColumnFamily(ElementProjectionIterator.LAST_CHUNK_COLUMN_FAMILY) == 0) {
+                pendingRows.remove(row);
+                next = cells;
+            } else {
+                pendingRows.put(row, cells);
+            }
+        }
+        if (next == null) {
+            scanComplete = true;
+            if (pendingRows.size() > 0) {
+                throw new SecureGraphException("Scan ended with " + pendingRows.size() + " incomplete rows");
+            }
+        }
+        return next != null;
+    }
+
+    @Override
+    public Iterator<Map.Entry<Key, Value>> next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        Iterator<Map.Entry<Key, Value>> result = next.iterator();
+        next = null;
+        return result;
+    }
+
+    /**
+     * True once every chunk returned by the scanner has been read.
+     */
+    public boolean isScanComplete() {
+        return scanComplete;
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+}
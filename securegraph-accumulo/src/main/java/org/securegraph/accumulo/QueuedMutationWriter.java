@@ -0,0 +1,287 @@
+package org.securegraph.accumulo;
+
+import org.apache.accumulo.core.client.BatchWriter;
+import org.apache.accumulo.core.data.Mutation;
+import org.securegraph.SecureGraphException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Hands mutations from any number of caller threads to a single flusher thread which feeds the
+ * {@link BatchWriter}s. Callers never contend on a shared monitor; they only block when the queue is full.
+ * <p/>
+ * A mutation the batch writer rejects is reported by the next {@link #flush()} of the thread that added it.
+ */
+public class QueuedMutationWriter {
+    private static final Logger LOGGER = LoggerFactory.getLogger(QueuedMutationWriter.class);
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final long FLUSH_WAIT_MILLIS = 100;
+    private final ConcurrentLinkedQueue<PendingMutation> queue = new ConcurrentLinkedQueue<PendingMutation>();
+    private final Semaphore capacity;
+    private final int maxQueueSize;
+    private final AtomicLong enqueuedCount = new AtomicLong();
+    private final AtomicLong writtenCount = new AtomicLong();
+    private final AtomicLong backpressureCount = new AtomicLong();
+    private final AtomicLong backpressureWaitNanos = new AtomicLong();
+    private final ConcurrentSkipListMap<Long, Failure> failures = new ConcurrentSkipListMap<Long, Failure>();
+    private final Object writtenMonitor = new Object();
+    private final AtomicInteger flushWaiters = new AtomicInteger();
+    private volatile Thread flusherThread;
+    private volatile boolean shutdown;
+
+    public QueuedMutationWriter(int maxQueueSize) {
+        if (maxQueueSize <= 0) {
+            throw new IllegalArgumentException("maxQueueSize must be greater than 0");
+        }
+        this.maxQueueSize = maxQueueSize;
+        this.capacity = new Semaphore(maxQueueSize);
+    }
+
+    public void add(BatchWriter writer, Mutation... mutations) {
+        if (shutdown) {
+            throw new SecureGraphException("Mutation writer has been shutdown");
+        }
+        Thread flusher = ensureFlusherStarted();
+        for (Mutation m : mutations) {
+            acquireCapacity(flusher);
+            // counted before it is queued so the written count never passes the enqueued count, which flush waits on
+            long sequence = enqueuedCount.incrementAndGet();
+            queue.offer(new PendingMutation(writer, m, sequence, Thread.currentThread()));
+        }
+        LockSupport.unpark(flusher);
+    }
+
+    private void acquireCapacity(Thread flusher) {
+        if (capacity.tryAcquire()) {
+            return;
+        }
+        backpressureCount.incrementAndGet();
+        long startTime = System.nanoTime();
+        LockSupport.unpark(flusher);
+        capacity.acquireUninterruptibly();
+        backpressureWaitNanos.addAndGet(System.nanoTime() - startTime);
+    }
+
+    /**
+     * Blocks until every mutation added before this call has been handed to its {@link BatchWriter}, then fails if
+     * one of the mutations this thread added was rejected. This does not flush the batch writers themselves.
+     */
+    public void flush() {
+        long target = enqueuedCount.get();
+        Thread flusher = this.flusherThread;
+        if (flusher != null) {
+            waitForWritten(flusher, target);
+        }
+        checkFailures(target);
+    }
+
+    private void waitForWritten(Thread flusher, long target) {
+        if (writtenCount.get() >= target) {
+            return;
+        }
+        LockSupport.unpark(flusher);
+        flushWaiters.incrementAndGet();
+        try {
+            synchronized (writtenMonitor) {
+                while (writtenCount.get() < target) {
+                    if (!flusher.isAlive()) {
+                        throw new SecureGraphException("Mutation flusher thread died with " + (target - writtenCount.get()) + " mutations pending");
+                    }
+                    try {
+                        writtenMonitor.wait(FLUSH_WAIT_MILLIS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new SecureGraphException("Interrupted waiting for mutations to drain", e);
+                    }
+                }
+            }
+        } finally {
+            flushWaiters.decrementAndGet();
+        }
+    }
+
+    /**
+     * Reports the rejected mutations this thread added at or before the target. Those of threads that ended without
+     * flushing are dropped, since no one is left to report them to.
+     */
+    private void checkFailures(long target) {
+        Exception firstFailure = null;
+        int failureCount = 0;
+        Iterator<Map.Entry<Long, Failure>> it = failures.headMap(target, true).entrySet().iterator();
+        while (it.hasNext()) {
+            Failure failure = it.next().getValue();
+            if (failure.thread == Thread.currentThread()) {
+                if (firstFailure == null) {
+                    firstFailure = failure.exception;
+                }
+                failureCount++;
+                it.remove();
+            } else if (!failure.thread.isAlive()) {
+                it.remove();
+            }
+        }
+        if (firstFailure != null) {
+            throw new SecureGraphException("Could not add " + failureCount + " mutation(s)", firstFailure);
+        }
+    }
+
+    public void shutdown() {
+        try {
+            flush();
+        } finally {
+            shutdown = true;
+            Thread flusher = this.flusherThread;
+            if (flusher != null) {
+                LockSupport.unpark(flusher);
+                try {
+                    flusher.join();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                this.flusherThread = null;
+            }
+            if (!failures.isEmpty()) {
+                LOGGER.warn(failures.size() + " rejected mutation(s) were never reported by a flush of the thread that added them");
+                failures.clear();
+            }
+        }
+    }
+
+    private Thread ensureFlusherStarted() {
+        Thread flusher = this.flusherThread;
+        if (flusher != null) {
+            return flusher;
+        }
+        synchronized (this) {
+            if (this.flusherThread == null) {
+                Thread t = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        runFlusher();
+                    }
+                }, "securegraph-mutation-flusher");
+                t.setDaemon(true);
+                t.start();
+                this.flusherThread = t;
+            }
+            return this.flusherThread;
+        }
+    }
+
+    private void runFlusher() {
+        LOGGER.debug("mutation flusher started (max queue size: " + maxQueueSize + ")");
+        while (!shutdown || !queue.isEmpty()) {
+            // waiters are woken after every batch so a flush returns as soon as its own mutations are written
+            int written = 0;
+            PendingMutation pendingMutation;
+            while (written < maxQueueSize && (pendingMutation = queue.poll()) != null) {
+                write(pendingMutation);
+                written++;
+            }
+            if (written > 0) {
+                signalWritten();
+            } else {
+                LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+            }
+        }
+        signalWritten();
+        LOGGER.debug("mutation flusher stopped (written: " + writtenCount.get() + ", backpressure waits: " + backpressureCount.get() + ")");
+    }
+
+    private void write(PendingMutation pendingMutation) {
+        try {
+            pendingMutation.getWriter().addMutation(pendingMutation.getMutation());
+        } catch (Exception ex) {
+            LOGGER.error("Could not add mutation", ex);
+            failures.put(pendingMutation.getSequence(), new Failure(pendingMutation.getThread(), ex));
+        } finally {
+            capacity.release();
+            writtenCount.incrementAndGet();
+        }
+    }
+
+    private void signalWritten() {
+        if (flushWaiters.get() == 0) {
+            return;
+        }
+        synchronized (writtenMonitor) {
+            writtenMonitor.notifyAll();
+        }
+    }
+
+    /**
+     * The number of mutations added but not yet handed to a batch writer.
+     */
+    public long getQueueDepth() {
+        return Math.max(0, enqueuedCount.get() - writtenCount.get());
+    }
+
+    public int getMaxQueueSize() {
+        return maxQueueSize;
+    }
+
+    public long getWrittenCount() {
+        return writtenCount.get();
+    }
+
+    /**
+     * The number of times a caller had to wait because the queue was full.
+     */
+    public long getBackpressureCount() {
+        return backpressureCount.get();
+    }
+
+    public long getBackpressureWaitMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(backpressureWaitNanos.get());
+    }
+
+    private static class PendingMutation {
+        private final BatchWriter writer;
+        private final Mutation mutation;
+        private final long sequence;
+        private final Thread thread;
+
+        private PendingMutation(BatchWriter writer, Mutation mutation, long sequence, Thread thread) {
+            this.writer = writer;
+            this.mutation = mutation;
+            this.sequence = sequence;
+            this.thread = thread;
+        }
+
+        public BatchWriter getWriter() {
+            return writer;
+        }
+
+        public Mutation getMutation() {
+            return mutation;
+        }
+
+        public long getSequence() {
+            return sequence;
+        }
+
+        public Thread getThread() {
+            return thread;
+        }
+    }
+
+    private static class Failure {
+        private final Thread thread;
+        private final Exception exception;
+
+        private Failure(Thread thread, Exception exception) {
+            this.thread = thread;
+            this.exception = exception;
+        }
+    }
+}
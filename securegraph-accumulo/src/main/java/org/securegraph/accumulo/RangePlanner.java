@@ -0,0 +1,129 @@
+package org.securegraph.accumulo;
+
+import org.apache.accumulo.core.client.Connector;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Range;
+import org.apache.hadoop.io.Text;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Turns element ids into sorted, de-duplicated scan ranges and picks a batch scanner query thread count from the
+ * number of tablets those ranges touch. Table split points are cached for {@code splitsCacheMillis}.
+ */
+class RangePlanner {
+    private static final Logger LOGGER = LoggerFactory.getLogger(RangePlanner.class);
+    private final Connector connector;
+    private final int maxQueryThreads;
+    private final long splitsCacheMillis;
+    private final Map<String, TableSplits> splitsCache = new ConcurrentHashMap<String, TableSplits>();
+
+    public RangePlanner(Connector connector, int maxQueryThreads, long splitsCacheMillis) {
+        this.connector = connector;
+        this.maxQueryThreads = Math.max(1, maxQueryThreads);
+        this.splitsCacheMillis = splitsCacheMillis;
+    }
+
+    /**
+     * Creates one range per distinct row, sorted, with overlapping ranges merged. Rows that were not asked for are
+     * never pulled into a range since every row read is sent back to the client.
+     */
+    public List<Range> planRanges(String rowKeyPrefix, Iterable<String> ids) {
+        SortedSet<String> rowKeys = new TreeSet<String>();
+        for (String id : ids) {
+            rowKeys.add(rowKeyPrefix + id);
+        }
+        List<Range> ranges = new ArrayList<Range>(rowKeys.size());
+        for (String rowKey : rowKeys) {
+            ranges.add(new Range(rowKey));
+        }
+        return Range.mergeOverlapping(ranges);
+    }
+
+    /**
+     * A tablet is read by at most one query thread at a time so there is no point having more threads than tablets.
+     *
+     * @param ranges sorted ranges as returned by {@link #planRanges(String, Iterable)}
+     */
+    public int getQueryThreadCount(String tableName, List<Range> ranges) {
+        List<Text> splits = getSplits(tableName);
+        int threads;
+        if (splits == null) {
+            threads = ranges.size() / 10;
+        } else {
+            threads = Math.min(countTablets(splits, ranges), ranges.size());
+        }
+        return Math.min(Math.max(1, threads), maxQueryThreads);
+    }
+
+    static int countTablets(List<Text> splits, List<Range> ranges) {
+        int count = 0;
+        int lastTablet = -1;
+        for (Range range : ranges) {
+            int startTablet = range.getStartKey() == null ? 0 : getTablet(splits, range.getStartKey().getRow());
+            int endTablet = range.getEndKey() == null ? splits.size() : getTablet(splits, getLastRow(range));
+            int firstNewTablet = Math.max(startTablet, lastTablet + 1);
+            if (endTablet >= firstNewTablet) {
+                count += endTablet - firstNewTablet + 1;
+                lastTablet = endTablet;
+            }
+        }
+        return count;
+    }
+
+    private static Text getLastRow(Range range) {
+        Key endKey = range.getEndKey();
+        Text endRow = endKey.getRow();
+        // a single row range ends exclusively at the key following the row
+        if (!range.isEndKeyInclusive() && endKey.getColumnFamilyData().length() == 0 && endRow.getLength() > 0
+                && endRow.getBytes()[endRow.getLength() - 1] == 0) {
+            return new Text(Arrays.copyOf(endRow.getBytes(), endRow.getLength() - 1));
+        }
+        return endRow;
+    }
+
+    /**
+     * Split points are the inclusive end rows of the tablets, the last tablet has no end row.
+     */
+    private static int getTablet(List<Text> splits, Text row) {
+        int i = Collections.binarySearch(splits, row);
+        return i >= 0 ? i : -i - 1;
+    }
+
+    private List<Text> getSplits(String tableName) {
+        TableSplits tableSplits = splitsCache.get(tableName);
+        long now = System.currentTimeMillis();
+        if (tableSplits == null || now - tableSplits.getLoadedTime() > splitsCacheMillis) {
+            try {
+                tableSplits = new TableSplits(new ArrayList<Text>(connector.tableOperations().listSplits(tableName)), now);
+            } catch (Exception ex) {
+                LOGGER.warn("Could not list splits for table " + tableName, ex);
+                return null;
+            }
+            splitsCache.put(tableName, tableSplits);
+        }
+        return tableSplits.getSplits();
+    }
+
+    private static class TableSplits {
+        private final List<Text> splits;
+        private final long loadedTime;
+
+        private TableSplits(List<Text> splits, long loadedTime) {
+            Collections.sort(splits);
+            this.splits = splits;
+            this.loadedTime = loadedTime;
+        }
+
+        public List<Text> getSplits() {
+            return splits;
+        }
+
+        public long getLoadedTime() {
+            return loadedTime;
+        }
+    }
+}
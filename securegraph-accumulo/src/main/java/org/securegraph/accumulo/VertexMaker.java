@@ -1,22 +1,24 @@
 package org.securegraph.accumulo;
 
+import org.apache.accumulo.core.data.ByteSequence;
 import org.apache.accumulo.core.data.Key;
 import org.apache.accumulo.core.data.Value;
 import org.apache.hadoop.io.Text;
 import org.securegraph.Authorizations;
 import org.securegraph.SecureGraphException;
 import org.securegraph.Vertex;
+import org.securegraph.accumulo.iterator.EdgeCountSummaryIterator;
 
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
 
 public class VertexMaker extends ElementMaker<Vertex> {
-    private static final String VISIBILITY_SIGNAL = AccumuloVertex.CF_SIGNAL.toString();
-
     private final AccumuloGraph graph;
     private final Map<String, EdgeInfo> outEdges = new HashMap<String, EdgeInfo>();
     private final Map<String, EdgeInfo> inEdges = new HashMap<String, EdgeInfo>();
+    private Map<String, Integer> outEdgeCounts;
+    private Map<String, Integer> inEdgeCounts;
 
     public VertexMaker(AccumuloGraph graph, Iterator<Map.Entry<Key, Value>> row, Authorizations authorizations) {
         super(graph, row, authorizations);
@@ -25,22 +27,37 @@ public class VertexMaker extends ElementMaker<Vertex> {
 
     @Override
     protected void processColumn(Key key, Value value) {
-        Text columnFamily = key.getColumnFamily();
-        Text columnQualifier = key.getColumnQualifier();
+        ByteSequence columnFamily = key.getColumnFamilyData();
 
-        if (AccumuloVertex.CF_OUT_EDGE.compareTo(columnFamily) == 0) {
-            String edgeId = columnQualifier.toString();
+        if (bytesEqual(columnFamily, AccumuloVertex.CF_OUT_EDGE)) {
+            String edgeId = bytesToString(key.getColumnQualifierData());
             EdgeInfo edgeInfo = EdgeInfo.parse(value);
             outEdges.put(edgeId, edgeInfo);
             return;
         }
 
-        if (AccumuloVertex.CF_IN_EDGE.compareTo(columnFamily) == 0) {
-            String edgeId = columnQualifier.toString();
+        if (bytesEqual(columnFamily, AccumuloVertex.CF_IN_EDGE)) {
+            String edgeId = bytesToString(key.getColumnQualifierData());
             EdgeInfo edgeInfo = EdgeInfo.parse(value);
             inEdges.put(edgeId, edgeInfo);
             return;
         }
+
+        if (bytesEqual(columnFamily, EdgeCountSummaryIterator.CF_OUT_EDGE_COUNT)) {
+            if (outEdgeCounts == null) {
+                outEdgeCounts = new HashMap<String, Integer>();
+            }
+            outEdgeCounts.put(graph.getStringCache().get(key.getColumnQualifierData()), Integer.parseInt(value.toString()));
+            return;
+        }
+
+        if (bytesEqual(columnFamily, EdgeCountSummaryIterator.CF_IN_EDGE_COUNT)) {
+            if (inEdgeCounts == null) {
+                inEdgeCounts = new HashMap<String, Integer>();
+            }
+            inEdgeCounts.put(graph.getStringCache().get(key.getColumnQualifierData()), Integer.parseInt(value.toString()));
+            return;
+        }
     }
 
     @Override
@@ -52,8 +69,8 @@ public class VertexMaker extends ElementMaker<Vertex> {
     }
 
     @Override
-    protected String getVisibilitySignal() {
-        return VISIBILITY_SIGNAL;
+    protected Text getVisibilitySignal() {
+        return AccumuloVertex.CF_SIGNAL;
     }
 
     @Override
@@ -65,6 +82,8 @@ public class VertexMaker extends ElementMaker<Vertex> {
                 this.getProperties(),
                 this.inEdges,
                 this.outEdges,
+                this.inEdgeCounts,
+                this.outEdgeCounts,
                 this.getAuthorizations());
     }
 
@@ -6,23 +6,27 @@ import org.apache.accumulo.core.data.Range;
 import org.apache.accumulo.core.data.Value;
 import org.apache.accumulo.minicluster.MiniAccumuloCluster;
 import org.apache.accumulo.minicluster.MiniAccumuloConfig;
+import org.apache.hadoop.io.Text;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
 import org.securegraph.*;
+import org.securegraph.accumulo.iterator.RelatedEdgesFilter;
 import org.securegraph.test.GraphTestBase;
+import org.securegraph.util.IterableUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.URISyntaxException;
-import java.util.EnumSet;
-import java.util.HashMap;
-import java.util.Iterator;
-import java.util.Map;
+import java.util.*;
 
 import static junit.framework.Assert.*;
 import static org.junit.Assert.assertNotEquals;
@@ -128,6 +132,51 @@ public class AccumuloGraphTest extends GraphTestBase {
         assertEquals("v2", e1.getVertexId(Direction.IN));
     }
 
+    @Test
+    public void testEdgeCountsFetchHint() {
+        Vertex v1 = graph.addVertex("v1", VISIBILITY_A, AUTHORIZATIONS_A);
+        Vertex v2 = graph.addVertex("v2", VISIBILITY_A, AUTHORIZATIONS_A);
+        Vertex v3 = graph.addVertex("v3", VISIBILITY_A, AUTHORIZATIONS_A);
+        graph.addEdge("e1", v1, v2, "label1", VISIBILITY_A, AUTHORIZATIONS_A);
+        graph.addEdge("e2", v1, v3, "label1", VISIBILITY_A, AUTHORIZATIONS_A);
+        graph.addEdge("e3", v1, v3, "label2", VISIBILITY_A, AUTHORIZATIONS_A);
+        graph.addEdge("e4", v2, v1, "label1", VISIBILITY_A, AUTHORIZATIONS_A);
+        graph.addEdge("e5", v3, v1, "label3", VISIBILITY_B, AUTHORIZATIONS_B);
+        graph.flush();
+
+        v1 = graph.getVertex("v1", EnumSet.of(FetchHint.EDGE_COUNTS), AUTHORIZATIONS_A);
+        assertNotNull(v1);
+        assertEquals(0, count(v1.getEdgeIds(Direction.BOTH, AUTHORIZATIONS_A)));
+        assertEquals(3, v1.getEdgeCount(Direction.OUT, AUTHORIZATIONS_A));
+        assertEquals(1, v1.getEdgeCount(Direction.IN, AUTHORIZATIONS_A));
+        assertEquals(4, v1.getEdgeCount(Direction.BOTH, AUTHORIZATIONS_A));
+        assertEquals(toSet("label1", "label2"), IterableUtils.toSet(v1.getEdgeLabels(Direction.OUT, AUTHORIZATIONS_A)));
+        assertEquals(toSet("label1"), IterableUtils.toSet(v1.getEdgeLabels(Direction.IN, AUTHORIZATIONS_A)));
+
+        v1 = IterableUtils.single(graph.getVertices(Arrays.asList("v1"), EnumSet.of(FetchHint.EDGE_COUNTS, FetchHint.IN_EDGE_REFS), AUTHORIZATIONS_A_AND_B));
+        assertEquals(3, v1.getEdgeCount(Direction.OUT, AUTHORIZATIONS_A_AND_B));
+        assertEquals(2, v1.getEdgeCount(Direction.IN, AUTHORIZATIONS_A_AND_B));
+        assertEquals(2, count(v1.getEdgeIds(Direction.IN, AUTHORIZATIONS_A_AND_B)));
+        assertEquals(0, count(v1.getEdgeIds(Direction.OUT, AUTHORIZATIONS_A_AND_B)));
+    }
+
+    @Test
+    public void testBatchScannerReuse() {
+        graph.addVertex("v1", VISIBILITY_A, AUTHORIZATIONS_A);
+        graph.addVertex("v2", VISIBILITY_A, AUTHORIZATIONS_A);
+        graph.flush();
+
+        BatchScannerPool batchScannerPool = ((AccumuloGraph) graph).getBatchScannerPool();
+        long reusedCount = batchScannerPool.getReusedCount();
+        assertEquals(2, count(graph.getVertices(Arrays.asList("v1", "v2", "v1"), AUTHORIZATIONS_A)));
+        assertEquals(2, count(graph.getVertices(Arrays.asList("v2", "v1"), AUTHORIZATIONS_A)));
+        assertEquals(reusedCount + 1, batchScannerPool.getReusedCount());
+    }
+
+    private static Set<String> toSet(String... items) {
+        return new HashSet<String>(Arrays.asList(items));
+    }
+
     @Test
     public void testStoringEmptyMetadata() {
         Vertex v1 = graph.addVertex("v1", VISIBILITY_EMPTY, AUTHORIZATIONS_EMPTY);
@@ -168,6 +217,170 @@ public class AccumuloGraphTest extends GraphTestBase {
         }
     }
 
+    @Test
+    public void testBulkLoad() {
+        AccumuloGraph accumuloGraph = (AccumuloGraph) graph;
+        List<ElementBuilder<?>> elementBuilders = new ArrayList<ElementBuilder<?>>();
+        Vertex v1 = new AccumuloVertex(accumuloGraph, "v1", VISIBILITY_A, new ArrayList<Property>(), AUTHORIZATIONS_A);
+        Vertex v2 = new AccumuloVertex(accumuloGraph, "v2", VISIBILITY_A, new ArrayList<Property>(), AUTHORIZATIONS_A);
+        elementBuilders.add(accumuloGraph.prepareVertex("v1", VISIBILITY_A).setProperty("prop1", "value1", VISIBILITY_A));
+        elementBuilders.add(accumuloGraph.prepareVertex("v2", VISIBILITY_A));
+        elementBuilders.add(accumuloGraph.prepareEdge("e1", v1, v2, "label1", VISIBILITY_A).setProperty("prop1", "value1", VISIBILITY_A));
+        accumuloGraph.bulkLoad(elementBuilders, AUTHORIZATIONS_A);
+
+        v1 = graph.getVertex("v1", AUTHORIZATIONS_A);
+        assertNotNull(v1);
+        assertEquals("value1", v1.getPropertyValue("prop1"));
+        assertEquals(1, count(v1.getEdges(Direction.OUT, AUTHORIZATIONS_A)));
+        v2 = graph.getVertex("v2", AUTHORIZATIONS_A);
+        assertNotNull(v2);
+        assertEquals(1, count(v2.getEdges(Direction.IN, AUTHORIZATIONS_A)));
+        Edge e1 = graph.getEdge("e1", AUTHORIZATIONS_A);
+        assertNotNull(e1);
+        assertEquals("label1", e1.getLabel());
+        assertEquals("value1", e1.getPropertyValue("prop1"));
+    }
+
+    @Test
+    public void testGetVerticesWithFetchFilter() {
+        Vertex v1 = graph.prepareVertex("v1", VISIBILITY_A)
+                .setProperty("prop1", "value1", VISIBILITY_A)
+                .setProperty("prop2", "value2", VISIBILITY_A)
+                .save(AUTHORIZATIONS_A);
+        Vertex v2 = graph.addVertex("v2", VISIBILITY_A, AUTHORIZATIONS_A);
+        Vertex v3 = graph.addVertex("v3", VISIBILITY_B, AUTHORIZATIONS_B);
+        graph.addEdge("e1", v1, v2, "label1", VISIBILITY_A, AUTHORIZATIONS_A);
+        graph.addEdge("e2", v1, v2, "label2", VISIBILITY_A, AUTHORIZATIONS_A);
+        graph.addEdge("e3", v1, v3, "label1", VISIBILITY_A, AUTHORIZATIONS_A);
+
+        FetchFilter fetchFilter = FetchFilter.propertyNames("prop1").withEdgeLabels("label1");
+        List<Vertex> vertices = IterableUtils.toList(graph.getVertices(Arrays.asList("v1", "v3"), FetchHint.ALL, fetchFilter, AUTHORIZATIONS_A));
+        assertEquals(1, vertices.size());
+        v1 = vertices.get(0);
+        assertEquals("value1", v1.getPropertyValue("prop1"));
+        assertNull(v1.getPropertyValue("prop2"));
+        assertEquals(2, count(v1.getEdgeIds(Direction.OUT, AUTHORIZATIONS_A)));
+
+        List<Edge> edges = IterableUtils.toList(graph.getEdges(Arrays.asList("e1", "e2", "e3"), FetchHint.ALL, FetchFilter.edgeLabels("label2"), AUTHORIZATIONS_A));
+        assertEquals(1, edges.size());
+        assertEquals("e2", edges.get(0).getId());
+    }
+
+    @Test
+    public void testGetVerticesWithoutServerSideIterators() throws Exception {
+        Vertex v1 = graph.prepareVertex("v1", VISIBILITY_A)
+                .setProperty("prop1", "value1", VISIBILITY_A)
+                .save(AUTHORIZATIONS_A);
+        Vertex v2 = graph.addVertex("v2", VISIBILITY_A, AUTHORIZATIONS_A);
+        graph.addVertex("v3", VISIBILITY_B, AUTHORIZATIONS_B);
+        graph.addEdge("e1", v1, v2, "label1", VISIBILITY_A, AUTHORIZATIONS_A);
+        graph.addEdge("e2", v1, v2, "label2", VISIBILITY_A, AUTHORIZATIONS_A);
+        graph.flush();
+
+        Map configMap = createConfig();
+        configMap.put(AccumuloGraphConfiguration.USE_SERVER_SIDE_ELEMENT_VISIBILITY_ROW_FILTER, false);
+        Graph clientSideGraph = AccumuloGraph.create(new AccumuloGraphConfiguration(configMap));
+        try {
+            List<Vertex> vertices = IterableUtils.toList(clientSideGraph.getVertices(Arrays.asList("v1", "v2", "v3"), FetchHint.ALL, FetchFilter.propertyNames("prop1"), AUTHORIZATIONS_A));
+            assertEquals(2, vertices.size());
+            Vertex vertex = clientSideGraph.getVerticesInOrder(Arrays.asList("v1"), AUTHORIZATIONS_A).get(0);
+            assertEquals("value1", vertex.getPropertyValue("prop1"));
+            assertEquals(2, count(vertex.getEdgeIds(Direction.OUT, AUTHORIZATIONS_A)));
+
+            List<Edge> edges = IterableUtils.toList(clientSideGraph.getEdges(Arrays.asList("e1", "e2"), FetchHint.ALL, FetchFilter.edgeLabels("label2"), AUTHORIZATIONS_A));
+            assertEquals(1, edges.size());
+            assertEquals("e2", edges.get(0).getId());
+        } finally {
+            clientSideGraph.shutdown();
+        }
+    }
+
+    @Test
+    public void testFindRelatedEdgesWithServerSideFilter() throws Exception {
+        Connector connector = config.createConnector();
+        String tableName = AccumuloGraph.getVerticesTableName(AccumuloGraphConfiguration.DEFAULT_TABLE_NAME_PREFIX);
+        assertTrue(AccumuloGraph.isIteratorAvailable(connector, tableName, RelatedEdgesFilter.class.getName()));
+        assertFalse(AccumuloGraph.isIteratorAvailable(connector, tableName, "org.securegraph.accumulo.iterator.MissingIterator"));
+        assertTrue(((AccumuloGraph) graph).isRelatedEdgesFilterAvailable());
+
+        Vertex v1 = graph.addVertex("v1", VISIBILITY_A, AUTHORIZATIONS_A);
+        Vertex v2 = graph.addVertex("v2", VISIBILITY_A, AUTHORIZATIONS_A);
+        Vertex v3 = graph.addVertex("v3", VISIBILITY_A, AUTHORIZATIONS_A);
+        graph.addEdge("e1", v1, v2, "label1", VISIBILITY_A, AUTHORIZATIONS_A);
+        graph.addEdge("e2", v2, v3, "label1", VISIBILITY_A, AUTHORIZATIONS_A);
+        graph.flush();
+
+        // a failed scan is reported instead of switching to the client side filter
+        try {
+            graph.findRelatedEdges(Arrays.asList("v1", "v2"), createAuthorizations("notGranted"));
+            fail("scan with authorizations the user does not have should fail");
+        } catch (RuntimeException ex) {
+            // expected
+        }
+
+        List<String> edgeIds = IterableUtils.toList(graph.findRelatedEdges(Arrays.asList("v1", "v2"), AUTHORIZATIONS_A));
+        assertEquals(1, edgeIds.size());
+        assertEquals("e1", edgeIds.get(0));
+    }
+
+    @Test
+    public void testReindexPartitionedByTabletSplits() throws Exception {
+        for (int i = 0; i < 9; i++) {
+            graph.addVertex("v" + i, VISIBILITY_A, AUTHORIZATIONS_A);
+        }
+        graph.addEdge("e1", graph.getVertex("v1", AUTHORIZATIONS_A), graph.getVertex("v5", AUTHORIZATIONS_A), "label1", VISIBILITY_A, AUTHORIZATIONS_A);
+        graph.flush();
+        SortedSet<Text> splits = new TreeSet<Text>();
+        splits.add(new Text(AccumuloConstants.VERTEX_ROW_KEY_PREFIX + "v3"));
+        splits.add(new Text(AccumuloConstants.VERTEX_ROW_KEY_PREFIX + "v6"));
+        config.createConnector().tableOperations().addSplits(((AccumuloGraph) graph).getVerticesTableName(), splits);
+
+        File checkpointFile = new File(tempDir, "reindex.checkpoint");
+        AccumuloReindexer reindexer = new AccumuloReindexer((AccumuloGraph) graph, 3, checkpointFile, 2);
+        reindexer.reindex(EnumSet.allOf(ElementType.class), false, AUTHORIZATIONS_A);
+        assertEquals(10, reindexer.getElementCount());
+
+        Properties checkpoint = new Properties();
+        InputStream in = new FileInputStream(checkpointFile);
+        try {
+            checkpoint.load(in);
+        } finally {
+            in.close();
+        }
+        assertEquals("4", checkpoint.getProperty("partition.count"));
+        for (int i = 0; i < 4; i++) {
+            assertEquals("true", checkpoint.getProperty("partition." + i + ".complete"));
+        }
+
+        // every partition is complete so there is nothing left to resume
+        reindexer = new AccumuloReindexer((AccumuloGraph) graph, 3, checkpointFile, 2);
+        reindexer.reindex(EnumSet.allOf(ElementType.class), true, AUTHORIZATIONS_A);
+        assertEquals(0, reindexer.getElementCount());
+
+        // the first partition (v0 to v3) stopped after v1, the second (v4 to v6) never started
+        checkpoint.setProperty("partition.0.complete", "false");
+        checkpoint.setProperty("partition.0.lastId", "v1");
+        checkpoint.setProperty("partition.1.complete", "false");
+        checkpoint.remove("partition.1.lastId");
+        OutputStream out = new FileOutputStream(checkpointFile);
+        try {
+            checkpoint.store(out, null);
+        } finally {
+            out.close();
+        }
+        reindexer = new AccumuloReindexer((AccumuloGraph) graph, 3, checkpointFile, 2);
+        reindexer.reindex(EnumSet.allOf(ElementType.class), true, AUTHORIZATIONS_A);
+        assertEquals(5, reindexer.getElementCount());
+
+        reindexer = new AccumuloReindexer((AccumuloGraph) graph, 3, checkpointFile, 2);
+        try {
+            reindexer.reindex(EnumSet.of(ElementType.VERTEX), true, AUTHORIZATIONS_A);
+            fail("resumed a checkpoint written reindexing other element types");
+        } catch (SecureGraphException ex) {
+            // expected
+        }
+    }
+
     public void start() throws IOException, InterruptedException {
         if (accumulo != null) {
             return;
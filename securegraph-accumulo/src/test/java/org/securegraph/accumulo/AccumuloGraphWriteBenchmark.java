@@ -0,0 +1,90 @@
+package org.securegraph.accumulo;
+
+import org.apache.accumulo.minicluster.MiniAccumuloCluster;
+import org.apache.accumulo.minicluster.MiniAccumuloConfig;
+import org.securegraph.Authorizations;
+import org.securegraph.Vertex;
+import org.securegraph.Visibility;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compares edge ingest rates for separate batch writers and a single multi table batch writer.
+ * This is not part of the test suite, run it with: java org.securegraph.accumulo.AccumuloGraphWriteBenchmark [vertexCount] [edgeCount] [threadCount]
+ */
+public class AccumuloGraphWriteBenchmark {
+    private static final String ACCUMULO_PASSWORD = "test";
+    private static final Visibility VISIBILITY = new Visibility("");
+    private static final Authorizations AUTHORIZATIONS = new AccumuloAuthorizations();
+
+    public static void main(String[] args) throws Exception {
+        int vertexCount = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int edgeCount = args.length > 1 ? Integer.parseInt(args[1]) : 100000;
+        int threadCount = args.length > 2 ? Integer.parseInt(args[2]) : 8;
+
+        File tempDir = File.createTempFile("securegraph-benchmark", Long.toString(System.nanoTime()));
+        tempDir.delete();
+        tempDir.mkdir();
+        MiniAccumuloCluster accumulo = new MiniAccumuloCluster(new MiniAccumuloConfig(tempDir, ACCUMULO_PASSWORD));
+        accumulo.start();
+        try {
+            run("separate writers", accumulo, "bench_separate", false, vertexCount, edgeCount, threadCount);
+            run("multi table writer", accumulo, "bench_multi", true, vertexCount, edgeCount, threadCount);
+        } finally {
+            accumulo.stop();
+        }
+    }
+
+    private static void run(String name, MiniAccumuloCluster accumulo, String tableNamePrefix, boolean useMultiTableBatchWriter, int vertexCount, final int edgeCount, int threadCount) throws Exception {
+        Map configMap = new HashMap();
+        configMap.put(AccumuloGraphConfiguration.ZOOKEEPER_SERVERS, accumulo.getZooKeepers());
+        configMap.put(AccumuloGraphConfiguration.ACCUMULO_INSTANCE_NAME, accumulo.getInstanceName());
+        configMap.put(AccumuloGraphConfiguration.ACCUMULO_USERNAME, "root");
+        configMap.put(AccumuloGraphConfiguration.ACCUMULO_PASSWORD, ACCUMULO_PASSWORD);
+        configMap.put(AccumuloGraphConfiguration.TABLE_NAME_PREFIX, tableNamePrefix);
+        configMap.put(AccumuloGraphConfiguration.DATA_DIR, "/tmp/");
+        configMap.put(AccumuloGraphConfiguration.BATCHWRITER_USE_MULTI_TABLE_BATCH_WRITER, useMultiTableBatchWriter);
+        final AccumuloGraph graph = AccumuloGraph.create(new AccumuloGraphConfiguration(configMap));
+        try {
+            final List<Vertex> vertices = new ArrayList<Vertex>();
+            for (int i = 0; i < vertexCount; i++) {
+                vertices.add(graph.addVertex("v" + i, VISIBILITY, AUTHORIZATIONS));
+            }
+            graph.flush();
+
+            final int edgesPerThread = edgeCount / threadCount;
+            List<Thread> threads = new ArrayList<Thread>();
+            long startTime = System.currentTimeMillis();
+            for (int t = 0; t < threadCount; t++) {
+                final int threadNumber = t;
+                Thread thread = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        for (int i = 0; i < edgesPerThread; i++) {
+                            Vertex out = vertices.get((threadNumber + i) % vertices.size());
+                            Vertex in = vertices.get((threadNumber * 31 + i * 17) % vertices.size());
+                            graph.addEdge("e" + threadNumber + "_" + i, out, in, "label" + (i % 10), VISIBILITY, AUTHORIZATIONS);
+                        }
+                    }
+                });
+                thread.start();
+                threads.add(thread);
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            graph.flush();
+            long time = System.currentTimeMillis() - startTime;
+
+            long totalEdges = (long) edgesPerThread * threadCount;
+            System.out.println(String.format("%s: %d edges in %dms (%.0f edges/sec, %d threads, %d backpressure waits)",
+                    name, totalEdges, time, totalEdges * 1000.0 / Math.max(1, time), threadCount, graph.getMutationWriter().getBackpressureCount()));
+        } finally {
+            graph.shutdown();
+        }
+    }
+}
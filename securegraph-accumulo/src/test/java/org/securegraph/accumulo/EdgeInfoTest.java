@@ -0,0 +1,63 @@
+package org.securegraph.accumulo;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.*;
+
+@RunWith(JUnit4.class)
+public class EdgeInfoTest {
+    @Test
+    public void testRoundTrip() {
+        EdgeInfo edgeInfo = new EdgeInfo(EdgeInfo.parse(new EdgeInfo("label1", "v1").toValue()).toValue().get());
+        assertEquals(EdgeInfo.VERSION_1, edgeInfo.toValue().get()[0]);
+        assertEquals("label1", edgeInfo.getLabel());
+        assertEquals("v1", edgeInfo.getVertexId());
+        assertTrue(edgeInfo.labelEquals(EdgeInfo.toBytes("label1")));
+        assertFalse(edgeInfo.labelEquals(EdgeInfo.toBytes("label2")));
+        assertTrue(edgeInfo.vertexIdEquals(EdgeInfo.toBytes("v1")));
+        assertFalse(edgeInfo.vertexIdEquals(EdgeInfo.toBytes("v10")));
+    }
+
+    @Test
+    public void testNullAndLongValues() {
+        StringBuilder longVertexId = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            longVertexId.append('v');
+        }
+        EdgeInfo edgeInfo = new EdgeInfo(new EdgeInfo(null, longVertexId.toString()).toValue().get());
+        assertNull(edgeInfo.getLabel());
+        assertTrue(edgeInfo.labelEquals(null));
+        assertFalse(edgeInfo.labelEquals(EdgeInfo.toBytes("")));
+        assertEquals(longVertexId.toString(), edgeInfo.getVertexId());
+    }
+
+    @Test
+    public void testReadOriginalEncoding() {
+        EdgeInfo edgeInfo = new EdgeInfo(originalEncoding("label1", "v1"));
+        assertEquals("label1", edgeInfo.getLabel());
+        assertEquals("v1", edgeInfo.getVertexId());
+        assertTrue(edgeInfo.labelEquals(EdgeInfo.toBytes("label1")));
+        assertTrue(edgeInfo.vertexIdEquals(EdgeInfo.toBytes("v1")));
+
+        edgeInfo = new EdgeInfo(originalEncoding(null, "v1"));
+        assertNull(edgeInfo.getLabel());
+        assertEquals("v1", edgeInfo.getVertexId());
+    }
+
+    private static byte[] originalEncoding(String label, String vertexId) {
+        byte[] labelBytes = EdgeInfo.toBytes(label);
+        byte[] vertexIdBytes = EdgeInfo.toBytes(vertexId);
+        ByteBuffer buffer = ByteBuffer.allocate(8 + (labelBytes == null ? 0 : labelBytes.length) + vertexIdBytes.length);
+        buffer.putInt(labelBytes == null ? -1 : labelBytes.length);
+        if (labelBytes != null) {
+            buffer.put(labelBytes);
+        }
+        buffer.putInt(vertexIdBytes.length);
+        buffer.put(vertexIdBytes);
+        return buffer.array();
+    }
+}
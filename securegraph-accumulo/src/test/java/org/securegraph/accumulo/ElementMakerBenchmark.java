@@ -0,0 +1,70 @@
+package org.securegraph.accumulo;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+import org.apache.hadoop.io.Text;
+import org.securegraph.Authorizations;
+import org.securegraph.accumulo.serializer.JavaValueSerializer;
+import org.securegraph.id.UUIDIdGenerator;
+import org.securegraph.search.DefaultSearchIndex;
+
+import java.lang.management.ManagementFactory;
+import java.util.*;
+
+/**
+ * Measures cells/sec and bytes allocated per vertex when decoding vertex rows.
+ * This is not part of the test suite, run it with: java org.securegraph.accumulo.ElementMakerBenchmark [vertexCount] [iterations]
+ */
+public class ElementMakerBenchmark {
+    private static final String[] VISIBILITIES = new String[]{"", "a", "a|b", "(a&b)|c"};
+
+    public static void main(String[] args) {
+        int vertexCount = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+
+        Map config = new HashMap();
+        AccumuloGraphConfiguration graphConfig = new AccumuloGraphConfiguration(config);
+        JavaValueSerializer valueSerializer = new JavaValueSerializer(config);
+        AccumuloGraph graph = new AccumuloGraph(graphConfig, new UUIDIdGenerator(config), new DefaultSearchIndex(config), null, null, valueSerializer);
+        Authorizations authorizations = new AccumuloAuthorizations("a", "b", "c");
+
+        List<List<Map.Entry<Key, Value>>> rows = new ArrayList<List<Map.Entry<Key, Value>>>();
+        long cellCount = 0;
+        for (int i = 0; i < vertexCount; i++) {
+            List<Map.Entry<Key, Value>> row = createVertexRow(i, valueSerializer);
+            cellCount += row.size();
+            rows.add(row);
+        }
+
+        com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        for (int iteration = 0; iteration < iterations; iteration++) {
+            long startBytes = threadMXBean.getThreadAllocatedBytes(threadId);
+            long startTime = System.nanoTime();
+            for (List<Map.Entry<Key, Value>> row : rows) {
+                new VertexMaker(graph, row.iterator(), authorizations).make();
+            }
+            long time = System.nanoTime() - startTime;
+            long bytes = threadMXBean.getThreadAllocatedBytes(threadId) - startBytes;
+            System.out.println(String.format("iteration %d: %.0f cells/sec, %d bytes allocated/vertex",
+                    iteration, cellCount * 1000000000.0 / time, bytes / vertexCount));
+        }
+    }
+
+    private static List<Map.Entry<Key, Value>> createVertexRow(int vertexNumber, JavaValueSerializer valueSerializer) {
+        Text row = new Text(AccumuloConstants.VERTEX_ROW_KEY_PREFIX + "v" + vertexNumber);
+        SortedMap<Key, Value> cells = new TreeMap<Key, Value>();
+        cells.put(new Key(row, AccumuloVertex.CF_SIGNAL, new Text(""), new Text(VISIBILITIES[vertexNumber % VISIBILITIES.length])), ElementMutationBuilder.EMPTY_VALUE);
+        for (int p = 0; p < 20; p++) {
+            Text columnQualifier = new Text("prop" + p + ElementMutationBuilder.VALUE_SEPARATOR + "key" + (p % 3));
+            Text columnVisibility = new Text(VISIBILITIES[p % VISIBILITIES.length]);
+            cells.put(new Key(row, AccumuloElement.CF_PROPERTY, columnQualifier, columnVisibility), valueSerializer.objectToValue("value" + p));
+            cells.put(new Key(row, AccumuloElement.CF_PROPERTY_METADATA, columnQualifier, columnVisibility), ElementMutationBuilder.EMPTY_VALUE);
+        }
+        for (int e = 0; e < 20; e++) {
+            EdgeInfo edgeInfo = new EdgeInfo("label" + (e % 4), "v" + e);
+            cells.put(new Key(row, AccumuloVertex.CF_OUT_EDGE, new Text("e" + vertexNumber + "_" + e), new Text("")), edgeInfo.toValue());
+        }
+        return new ArrayList<Map.Entry<Key, Value>>(cells.entrySet());
+    }
+}
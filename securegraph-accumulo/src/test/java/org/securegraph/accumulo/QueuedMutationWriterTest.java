@@ -0,0 +1,126 @@
+package org.securegraph.accumulo;
+
+import org.apache.accumulo.core.client.BatchWriter;
+import org.apache.accumulo.core.client.MutationsRejectedException;
+import org.apache.accumulo.core.data.Mutation;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.securegraph.SecureGraphException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+@RunWith(JUnit4.class)
+public class QueuedMutationWriterTest {
+    @Test
+    public void testFlushWaitsForAddedMutation() {
+        RecordingBatchWriter batchWriter = new RecordingBatchWriter();
+        QueuedMutationWriter mutationWriter = new QueuedMutationWriter(10);
+        Mutation m = new Mutation("row1");
+        mutationWriter.add(batchWriter, m);
+        mutationWriter.flush();
+
+        assertTrue(batchWriter.mutations.contains(m));
+        assertEquals(0, mutationWriter.getQueueDepth());
+        mutationWriter.shutdown();
+    }
+
+    @Test
+    public void testFlushWaitsForOwnMutationWithConcurrentWriters() throws InterruptedException {
+        final RecordingBatchWriter batchWriter = new RecordingBatchWriter();
+        final QueuedMutationWriter mutationWriter = new QueuedMutationWriter(4);
+        final AtomicReference<String> failure = new AtomicReference<String>();
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int t = 0; t < 8; t++) {
+            final int threadNumber = t;
+            threads.add(new Thread() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < 500; i++) {
+                        Mutation m = new Mutation("row" + threadNumber + "_" + i);
+                        mutationWriter.add(batchWriter, m);
+                        mutationWriter.flush();
+                        if (!batchWriter.mutations.contains(m)) {
+                            failure.compareAndSet(null, "flush returned before " + new String(m.getRow()) + " was written");
+                        }
+                    }
+                }
+            });
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        mutationWriter.shutdown();
+
+        assertNull(failure.get());
+        assertEquals(8 * 500, batchWriter.mutations.size());
+    }
+
+    @Test
+    public void testFailureIsReportedToTheThreadThatAddedTheMutation() throws InterruptedException {
+        final RecordingBatchWriter batchWriter = new RecordingBatchWriter();
+        final QueuedMutationWriter mutationWriter = new QueuedMutationWriter(10);
+        final AtomicReference<Exception> otherThreadFailure = new AtomicReference<Exception>();
+        mutationWriter.add(batchWriter, new Mutation("reject"));
+
+        Thread otherThread = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    mutationWriter.add(batchWriter, new Mutation("row1"));
+                    mutationWriter.flush();
+                } catch (Exception ex) {
+                    otherThreadFailure.set(ex);
+                }
+            }
+        };
+        otherThread.start();
+        otherThread.join();
+        assertNull(otherThreadFailure.get());
+
+        try {
+            mutationWriter.flush();
+            fail("expected the rejected mutation to be reported");
+        } catch (SecureGraphException ex) {
+            // expected
+        }
+        mutationWriter.flush();
+        mutationWriter.shutdown();
+        assertEquals(1, batchWriter.mutations.size());
+    }
+
+    private static class RecordingBatchWriter implements BatchWriter {
+        private final List<Mutation> mutations = Collections.synchronizedList(new ArrayList<Mutation>());
+
+        @Override
+        public void addMutation(Mutation m) throws MutationsRejectedException {
+            if ("reject".equals(new String(m.getRow()))) {
+                throw new IllegalStateException("rejected");
+            }
+            mutations.add(m);
+        }
+
+        @Override
+        public void addMutations(Iterable<Mutation> iterable) throws MutationsRejectedException {
+            for (Mutation m : iterable) {
+                addMutation(m);
+            }
+        }
+
+        @Override
+        public void flush() throws MutationsRejectedException {
+        }
+
+        @Override
+        public void close() throws MutationsRejectedException {
+        }
+    }
+}
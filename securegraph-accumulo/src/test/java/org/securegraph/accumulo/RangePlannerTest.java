@@ -0,0 +1,39 @@
+package org.securegraph.accumulo;
+
+import org.apache.accumulo.core.data.Range;
+import org.apache.hadoop.io.Text;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+@RunWith(JUnit4.class)
+public class RangePlannerTest {
+    private final RangePlanner rangePlanner = new RangePlanner(null, 10, 0);
+
+    @Test
+    public void testPlanRangesSortsAndDedupes() {
+        List<Range> ranges = rangePlanner.planRanges("V", Arrays.asList("c", "a", "b", "a"));
+        assertEquals(3, ranges.size());
+        assertEquals(new Range("Va"), ranges.get(0));
+        assertEquals(new Range("Vb"), ranges.get(1));
+        assertEquals(new Range("Vc"), ranges.get(2));
+    }
+
+    @Test
+    public void testCountTablets() {
+        List<Text> splits = new ArrayList<Text>();
+        splits.add(new Text("Vc"));
+        splits.add(new Text("Vm"));
+
+        assertEquals(1, RangePlanner.countTablets(new ArrayList<Text>(), rangePlanner.planRanges("V", Arrays.asList("a", "z"))));
+        assertEquals(1, RangePlanner.countTablets(splits, rangePlanner.planRanges("V", Arrays.asList("a", "b", "c"))));
+        assertEquals(2, RangePlanner.countTablets(splits, rangePlanner.planRanges("V", Arrays.asList("a", "d"))));
+        assertEquals(3, RangePlanner.countTablets(splits, rangePlanner.planRanges("V", Arrays.asList("a", "d", "z"))));
+    }
+}
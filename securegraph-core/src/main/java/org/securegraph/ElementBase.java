@@ -1,7 +1,10 @@
 package org.securegraph;
 
 import org.securegraph.mutation.ExistingElementMutation;
+import org.securegraph.mutation.ExistingElementMutationImpl;
 import org.securegraph.property.PropertyValue;
+import org.securegraph.search.SearchIndex;
+import org.securegraph.search.SearchIndexBase;
 import org.securegraph.util.ConvertingIterable;
 import org.securegraph.util.FilterIterable;
 
@@ -256,6 +259,18 @@ public abstract class ElementBase<T extends Element> implements Element {
         return authorizations;
     }
 
+    /**
+     * Indexes a saved mutation. Only the changed properties are sent unless a visibility changed, which changes the
+     * visibility of the element's whole document.
+     */
+    protected void indexExistingElementMutation(SearchIndex searchIndex, ExistingElementMutationImpl<?> mutation, Iterable<Property> properties, Authorizations authorizations) {
+        if (mutation.getNewElementVisibility() != null || mutation.getAlterPropertyVisibilities().size() > 0) {
+            searchIndex.addElement(getGraph(), mutation.getElement(), authorizations);
+        } else {
+            SearchIndexBase.addElementProperties(searchIndex, getGraph(), mutation.getElement(), properties, authorizations);
+        }
+    }
+
     @Override
     public void mergeProperties(Element element) {
         for (Property property : element.getProperties()) {
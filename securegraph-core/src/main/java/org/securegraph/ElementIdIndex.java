@@ -0,0 +1,129 @@
+package org.securegraph;
+
+import java.util.*;
+
+/**
+ * The elements of a backend that can not read a single element, keyed by id, for one combination of fetch hints and
+ * authorizations. Used by {@link GraphBase} for lookups by id.
+ * <p/>
+ * The index is built by one scan of all the elements the first time it is used. After that it is kept up to date by
+ * the writes the backend reports: a written element is marked stale and a removed one is dropped. Looking up a stale
+ * element rescans once for every element marked stale so far; looking up any other element never scans.
+ */
+abstract class ElementIdIndex<T extends Element> {
+    private final Map<String, T> elementsById = new HashMap<String, T>();
+    private final Set<String> staleIds = new HashSet<String>();
+    private final Object scanLock = new Object();
+    private boolean built;
+    private boolean scanning;
+
+    /**
+     * Reads all the elements with the fetch hints and authorizations of this index.
+     */
+    protected abstract Iterable<T> scan();
+
+    public T get(String id) {
+        return getAll(Collections.singleton(id)).get(id);
+    }
+
+    /**
+     * @return the elements found, keyed by id
+     */
+    public Map<String, T> getAll(Set<String> ids) {
+        if (isScanNeeded(ids)) {
+            rescan();
+        }
+        Map<String, T> results = new HashMap<String, T>();
+        synchronized (this) {
+            for (String id : ids) {
+                T element = elementsById.get(id);
+                if (element != null) {
+                    results.put(id, element);
+                }
+            }
+        }
+        return results;
+    }
+
+    private synchronized boolean isScanNeeded(Set<String> ids) {
+        if (!built) {
+            return true;
+        }
+        for (String id : ids) {
+            if (staleIds.contains(id)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Scans while holding only the scan lock, so writes are marked while a scan runs. An element written or removed
+     * during the scan stays stale since the scan may have read it before the change.
+     */
+    private void rescan() {
+        synchronized (scanLock) {
+            boolean fullScan;
+            Set<String> idsToRefresh;
+            synchronized (this) {
+                fullScan = !built;
+                idsToRefresh = new HashSet<String>(staleIds);
+                staleIds.clear();
+                if (!fullScan && idsToRefresh.isEmpty()) {
+                    // another thread refreshed them while this one waited for the scan lock
+                    return;
+                }
+                scanning = true;
+            }
+
+            Map<String, T> found = new HashMap<String, T>();
+            try {
+                for (T element : scan()) {
+                    if (fullScan || idsToRefresh.contains(element.getId())) {
+                        found.put(element.getId(), element);
+                    }
+                }
+            } catch (RuntimeException ex) {
+                synchronized (this) {
+                    scanning = false;
+                    staleIds.addAll(idsToRefresh);
+                }
+                throw ex;
+            }
+
+            synchronized (this) {
+                scanning = false;
+                if (fullScan) {
+                    elementsById.putAll(found);
+                    built = true;
+                } else {
+                    for (String id : idsToRefresh) {
+                        if (staleIds.contains(id)) {
+                            continue;
+                        }
+                        T element = found.get(id);
+                        if (element == null) {
+                            elementsById.remove(id);
+                        } else {
+                            elementsById.put(id, element);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    public synchronized void written(String id) {
+        elementsById.remove(id);
+        staleIds.add(id);
+    }
+
+    public synchronized void removed(String id) {
+        elementsById.remove(id);
+        if (scanning || !built) {
+            staleIds.add(id);
+        } else {
+            staleIds.remove(id);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package org.securegraph;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Narrows what is fetched beyond the parts selected by {@link FetchHint}. A null set means everything is fetched.
+ * Graph implementations which cannot filter while fetching may return more than was asked for.
+ */
+public class FetchFilter {
+    public static final FetchFilter ALL = new FetchFilter(null, null);
+    private final Set<String> propertyNames;
+    private final Set<String> edgeLabels;
+
+    public FetchFilter(Set<String> propertyNames, Set<String> edgeLabels) {
+        this.propertyNames = propertyNames == null ? null : Collections.unmodifiableSet(new HashSet<String>(propertyNames));
+        this.edgeLabels = edgeLabels == null ? null : Collections.unmodifiableSet(new HashSet<String>(edgeLabels));
+    }
+
+    public static FetchFilter propertyNames(String... propertyNames) {
+        return ALL.withPropertyNames(propertyNames);
+    }
+
+    public static FetchFilter edgeLabels(String... edgeLabels) {
+        return ALL.withEdgeLabels(edgeLabels);
+    }
+
+    public FetchFilter withPropertyNames(String... propertyNames) {
+        return new FetchFilter(new HashSet<String>(Arrays.asList(propertyNames)), this.edgeLabels);
+    }
+
+    /**
+     * For vertices this limits the edge references fetched, for edges it limits which edges are fetched.
+     */
+    public FetchFilter withEdgeLabels(String... edgeLabels) {
+        return new FetchFilter(this.propertyNames, new HashSet<String>(Arrays.asList(edgeLabels)));
+    }
+
+    public Set<String> getPropertyNames() {
+        return propertyNames;
+    }
+
+    public Set<String> getEdgeLabels() {
+        return edgeLabels;
+    }
+
+    public boolean isPropertyNameIncluded(String propertyName) {
+        return propertyNames == null || propertyNames.contains(propertyName);
+    }
+
+    public boolean isEdgeLabelIncluded(String edgeLabel) {
+        return edgeLabels == null || edgeLabels.contains(edgeLabel);
+    }
+
+    public boolean isAll() {
+        return propertyNames == null && edgeLabels == null;
+    }
+
+    @Override
+    public String toString() {
+        return "FetchFilter{propertyNames=" + propertyNames + ", edgeLabels=" + edgeLabels + "}";
+    }
+}
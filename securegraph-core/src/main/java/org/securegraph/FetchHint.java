@@ -6,9 +6,19 @@ public enum FetchHint {
     PROPERTIES,
     PROPERTY_METADATA,
     IN_EDGE_REFS,
-    OUT_EDGE_REFS;
+    OUT_EDGE_REFS,
+    /**
+     * Fetch the number of edges per direction and label without fetching the edge references themselves.
+     */
+    EDGE_COUNTS,
+    /**
+     * Build query results from the search index's copy of the element when the search index supports it. Anything
+     * the copy does not have is read from the graph when first used.
+     */
+    SEARCH_INDEX;
 
     public static final EnumSet<FetchHint> NONE = EnumSet.noneOf(FetchHint.class);
-    public static final EnumSet<FetchHint> ALL = EnumSet.allOf(FetchHint.class);
+    public static final EnumSet<FetchHint> ALL = EnumSet.complementOf(EnumSet.of(SEARCH_INDEX));
     public static final EnumSet<FetchHint> EDGE_REFS = EnumSet.of(IN_EDGE_REFS, OUT_EDGE_REFS);
+    public static final EnumSet<FetchHint> PROPERTIES_AND_EDGE_COUNTS = EnumSet.of(PROPERTIES, PROPERTY_METADATA, EDGE_COUNTS);
 }
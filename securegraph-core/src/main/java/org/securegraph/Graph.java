@@ -2,9 +2,12 @@ package org.securegraph;
 
 import org.securegraph.id.IdGenerator;
 import org.securegraph.query.GraphQuery;
+import org.securegraph.util.CloseableIterable;
 
 import java.util.EnumSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 public interface Graph {
     /**
@@ -113,6 +116,19 @@ public interface Graph {
      */
     Iterable<Vertex> getVertices(Iterable<String> ids, EnumSet<FetchHint> fetchHints, Authorizations authorizations);
 
+    /**
+     * Gets all vertices matching the given ids on the graph. The order of
+     * the returned vertices is not guaranteed {@link org.securegraph.Graph#getVerticesInOrder(Iterable, Authorizations)}.
+     * Vertices are not kept in memory during the iteration.
+     *
+     * @param ids            The ids of the vertices to get.
+     * @param fetchHints     Hint at what parts of the vertex to fetch.
+     * @param fetchFilter    Limits the properties and edge labels fetched.
+     * @param authorizations The authorizations required to load the vertex.
+     * @return An iterable of all the vertices.
+     */
+    Iterable<Vertex> getVertices(Iterable<String> ids, EnumSet<FetchHint> fetchHints, FetchFilter fetchFilter, Authorizations authorizations);
+
     /**
      * Gets all vertices matching the given ids on the graph. This method is similar to
      * {@link org.securegraph.Graph#getVertices(Iterable, Authorizations)}
@@ -138,6 +154,57 @@ public interface Graph {
      */
     List<Vertex> getVerticesInOrder(Iterable<String> ids, EnumSet<FetchHint> fetchHints, Authorizations authorizations);
 
+    /**
+     * Gets all vertices matching the given ids on the graph in the order that you passed in the ids, like
+     * {@link org.securegraph.Graph#getVerticesInOrder(Iterable, EnumSet, Authorizations)}, but returns each vertex as
+     * soon as the vertices for all the ids before it have been loaded. Only the vertices loaded ahead of their turn are
+     * kept in memory.
+     *
+     * @param ids            The ids of the vertices to get.
+     * @param fetchHints     Hint at what parts of the vertex to fetch.
+     * @param authorizations The authorizations required to load the vertex.
+     * @return An iterable of all the vertices.
+     */
+    CloseableIterable<Vertex> getVerticesInOrderStreaming(Iterable<String> ids, EnumSet<FetchHint> fetchHints, Authorizations authorizations);
+
+    /**
+     * Gets the ids of the vertices adjacent to each of the given vertices with one batched fetch, instead of fetching
+     * the adjacent vertex ids of each vertex on its own. Only adjacent vertices reached through an edge the
+     * authorizations can read, and which the authorizations can read themselves, are included.
+     *
+     * @param vertexIds      The ids of the vertices to get the adjacent vertex ids of.
+     * @param direction      The side of the edges to follow.
+     * @param labels         The labels of the edges to follow, null to follow edges of any label.
+     * @param authorizations The authorizations required to load the vertices.
+     * @return The adjacent vertex ids keyed by the id of each vertex that was found.
+     */
+    Map<String, Set<String>> getVertexIdsOfVertices(Iterable<String> vertexIds, Direction direction, String[] labels, Authorizations authorizations);
+
+    /**
+     * Gets the distinct vertices adjacent to any of the given vertices, using one batched fetch for the adjacent
+     * vertex ids and one for the adjacent vertices.
+     *
+     * @param vertexIds      The ids of the vertices to get the adjacent vertices of.
+     * @param direction      The side of the edges to follow.
+     * @param labels         The labels of the edges to follow, null to follow edges of any label.
+     * @param authorizations The authorizations required to load the vertices.
+     * @return An iterable of the adjacent vertices.
+     */
+    Iterable<Vertex> getVerticesOfVertices(Iterable<String> vertexIds, Direction direction, String[] labels, Authorizations authorizations);
+
+    /**
+     * Gets the distinct vertices adjacent to any of the given vertices, using one batched fetch for the adjacent
+     * vertex ids and one for the adjacent vertices.
+     *
+     * @param vertexIds      The ids of the vertices to get the adjacent vertices of.
+     * @param direction      The side of the edges to follow.
+     * @param labels         The labels of the edges to follow, null to follow edges of any label.
+     * @param fetchHints     Hint at what parts of the adjacent vertices to fetch.
+     * @param authorizations The authorizations required to load the vertices.
+     * @return An iterable of the adjacent vertices.
+     */
+    Iterable<Vertex> getVerticesOfVertices(Iterable<String> vertexIds, Direction direction, String[] labels, EnumSet<FetchHint> fetchHints, Authorizations authorizations);
+
     /**
      * Removes a vertex from the graph.
      *
@@ -251,6 +318,49 @@ public interface Graph {
      */
     Iterable<Edge> getEdges(Iterable<String> ids, EnumSet<FetchHint> fetchHints, Authorizations authorizations);
 
+    /**
+     * Gets all edges on the graph matching the given ids.
+     *
+     * @param ids            The ids of the edges to get.
+     * @param fetchHints     Hint at what parts of the edge to fetch.
+     * @param fetchFilter    Limits the properties fetched and the labels of the edges returned.
+     * @param authorizations The authorizations required to load the edge.
+     * @return An iterable of all the edges.
+     */
+    Iterable<Edge> getEdges(Iterable<String> ids, EnumSet<FetchHint> fetchHints, FetchFilter fetchFilter, Authorizations authorizations);
+
+    /**
+     * Gets all edges matching the given ids on the graph in the order that you passed in the ids. This requires
+     * loading all the edges in memory to sort them.
+     *
+     * @param ids            The ids of the edges to get.
+     * @param authorizations The authorizations required to load the edge.
+     * @return A list of all the edges.
+     */
+    List<Edge> getEdgesInOrder(Iterable<String> ids, Authorizations authorizations);
+
+    /**
+     * Gets all edges matching the given ids on the graph in the order that you passed in the ids. This requires
+     * loading all the edges in memory to sort them.
+     *
+     * @param ids            The ids of the edges to get.
+     * @param fetchHints     Hint at what parts of the edge to fetch.
+     * @param authorizations The authorizations required to load the edge.
+     * @return A list of all the edges.
+     */
+    List<Edge> getEdgesInOrder(Iterable<String> ids, EnumSet<FetchHint> fetchHints, Authorizations authorizations);
+
+    /**
+     * Gets all edges matching the given ids on the graph in the order that you passed in the ids, returning each edge
+     * as soon as the edges for all the ids before it have been loaded.
+     *
+     * @param ids            The ids of the edges to get.
+     * @param fetchHints     Hint at what parts of the edge to fetch.
+     * @param authorizations The authorizations required to load the edge.
+     * @return An iterable of all the edges.
+     */
+    CloseableIterable<Edge> getEdgesInOrderStreaming(Iterable<String> ids, EnumSet<FetchHint> fetchHints, Authorizations authorizations);
+
     /**
      * Given a list of vertex ids, find all the edge ids that connect them.
      *
@@ -1,19 +1,26 @@
 package org.securegraph;
 
-import org.securegraph.path.PathFindingAlgorithm;
-import org.securegraph.path.RecursivePathFindingAlgorithm;
+import org.securegraph.path.BidirectionalPathFindingAlgorithm;
 import org.securegraph.query.GraphQuery;
-import org.securegraph.util.LookAheadIterable;
+import org.securegraph.util.CloseableIterable;
+import org.securegraph.util.ElementIdOrder;
+import org.securegraph.util.FilterIterable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static org.securegraph.util.IterableUtils.toList;
+import static org.securegraph.util.IterableUtils.toSet;
 
 public abstract class GraphBase implements Graph {
     private static final Logger LOGGER = LoggerFactory.getLogger(GraphBase.class);
-    private final PathFindingAlgorithm pathFindingAlgorithm = new RecursivePathFindingAlgorithm();
+    private static final int MAX_ELEMENT_ID_INDEXES = 16;
+    private final BidirectionalPathFindingAlgorithm pathFindingAlgorithm = new BidirectionalPathFindingAlgorithm();
+    private final AtomicLong fullScanCount = new AtomicLong();
+    private final Map<ElementIdIndexKey, ElementIdIndex<Vertex>> vertexIdIndexes = createElementIdIndexes();
+    private final Map<ElementIdIndexKey, ElementIdIndex<Edge>> edgeIdIndexes = createElementIdIndexes();
 
     @Override
     public Vertex addVertex(Visibility visibility, Authorizations authorizations) {
@@ -41,41 +48,70 @@ public abstract class GraphBase implements Graph {
 
     @Override
     public Vertex getVertex(String vertexId, EnumSet<FetchHint> fetchHints, Authorizations authorizations) {
-        LOGGER.warn("Performing scan of all vertices! Override getVertex.");
-        for (Vertex vertex : getVertices(fetchHints, authorizations)) {
-            if (vertex.getId().equals(vertexId)) {
-                return vertex;
-            }
+        return lookupVertex(vertexId, fetchHints, authorizations);
+    }
+
+    /**
+     * Reads a single vertex by id, null if it is not found. Backends that can read a vertex directly should override
+     * this. The default uses an index of the vertices when {@link #isElementIdIndexed()}, otherwise it scans all the
+     * vertices.
+     */
+    protected Vertex lookupVertex(String vertexId, EnumSet<FetchHint> fetchHints, Authorizations authorizations) {
+        if (isElementIdIndexed()) {
+            return getVertexIdIndex(fetchHints, authorizations).get(vertexId);
+        }
+        for (Vertex vertex : scanVertices(Collections.singleton(vertexId), fetchHints, authorizations)) {
+            return vertex;
         }
         return null;
     }
 
-    @Override
-    public Vertex getVertex(String vertexId, Authorizations authorizations) throws SecureGraphException {
-        return getVertex(vertexId, FetchHint.ALL, authorizations);
+    /**
+     * Reads the vertices with the given ids, in any order, skipping ids that are not found. The default uses an index
+     * of the vertices when {@link #isElementIdIndexed()}, otherwise it finds all of them in one scan of all the
+     * vertices.
+     */
+    protected Iterable<Vertex> lookupVertices(Iterable<String> ids, EnumSet<FetchHint> fetchHints, Authorizations authorizations) {
+        Set<String> idSet = toSet(ids);
+        if (idSet.size() == 0) {
+            return Collections.emptyList();
+        }
+        if (isElementIdIndexed()) {
+            return getVertexIdIndex(fetchHints, authorizations).getAll(idSet).values();
+        }
+        return scanVertices(idSet, fetchHints, authorizations);
     }
 
-    @Override
-    public Iterable<Vertex> getVertices(final Iterable<String> ids, EnumSet<FetchHint> fetchHints, final Authorizations authorizations) {
-        LOGGER.warn("Getting each vertex one by one! Override getVertices(java.lang.Iterable<java.lang.String>, org.securegraph.Authorizations)");
-        return new LookAheadIterable<String, Vertex>() {
-            @Override
-            protected boolean isIncluded(String src, Vertex vertex) {
-                return vertex != null;
-            }
-
+    private Iterable<Vertex> scanVertices(final Set<String> ids, EnumSet<FetchHint> fetchHints, Authorizations authorizations) {
+        return new FilterIterable<Vertex>(getVertices(fetchHints, authorizations)) {
             @Override
-            protected Vertex convert(String id) {
-                return getVertex(id, authorizations);
+            protected Iterator<Vertex> createIterator() {
+                fullScanPerformed("vertices");
+                return super.createIterator();
             }
 
             @Override
-            protected Iterator<String> createIterator() {
-                return ids.iterator();
+            protected boolean isIncluded(Vertex vertex) {
+                return ids.contains(vertex.getId());
             }
         };
     }
 
+    @Override
+    public Vertex getVertex(String vertexId, Authorizations authorizations) throws SecureGraphException {
+        return getVertex(vertexId, FetchHint.ALL, authorizations);
+    }
+
+    @Override
+    public Iterable<Vertex> getVertices(final Iterable<String> ids, EnumSet<FetchHint> fetchHints, final Authorizations authorizations) {
+        return lookupVertices(ids, fetchHints, authorizations);
+    }
+
+    @Override
+    public Iterable<Vertex> getVertices(Iterable<String> ids, EnumSet<FetchHint> fetchHints, FetchFilter fetchFilter, Authorizations authorizations) {
+        return getVertices(ids, fetchHints, authorizations);
+    }
+
     @Override
     public Iterable<Vertex> getVertices(final Iterable<String> ids, final Authorizations authorizations) {
         return getVertices(ids, FetchHint.ALL, authorizations);
@@ -83,17 +119,86 @@ public abstract class GraphBase implements Graph {
 
     @Override
     public List<Vertex> getVerticesInOrder(Iterable<String> ids, EnumSet<FetchHint> fetchHints, Authorizations authorizations) {
-        final List<String> vertexIds = toList(ids);
-        List<Vertex> vertices = toList(getVertices(vertexIds, authorizations));
-        Collections.sort(vertices, new Comparator<Vertex>() {
-            @Override
-            public int compare(Vertex v1, Vertex v2) {
-                Integer i1 = vertexIds.indexOf(v1.getId());
-                Integer i2 = vertexIds.indexOf(v2.getId());
-                return i1.compareTo(i2);
-            }
-        });
-        return vertices;
+        ElementIdOrder order = new ElementIdOrder(ids);
+        return order.sort(getVertices(order.getIds(), fetchHints, authorizations));
+    }
+
+    @Override
+    public CloseableIterable<Vertex> getVerticesInOrderStreaming(Iterable<String> ids, EnumSet<FetchHint> fetchHints, Authorizations authorizations) {
+        ElementIdOrder order = new ElementIdOrder(ids);
+        return order.stream(getVertices(order.getIds(), fetchHints, authorizations));
+    }
+
+    /**
+     * Reads the adjacency of every vertex in one pass, see {@link #readVertexIdsOfVertices}. The adjacent vertices
+     * are then fetched without any of their parts, in a second pass, to drop those the authorizations cannot read.
+     * The readability of a vertex is only known from its own row, so backends storing vertices like Accumulo can not
+     * do it in the first pass.
+     */
+    @Override
+    public Map<String, Set<String>> getVertexIdsOfVertices(Iterable<String> vertexIds, Direction direction, String[] labels, Authorizations authorizations) {
+        Map<String, Set<String>> results = readVertexIdsOfVertices(vertexIds, direction, labels, authorizations);
+        Set<String> adjacentVertexIds = new HashSet<String>();
+        for (Set<String> ids : results.values()) {
+            adjacentVertexIds.addAll(ids);
+        }
+        if (adjacentVertexIds.size() == 0) {
+            return results;
+        }
+
+        Set<String> visibleVertexIds = new HashSet<String>();
+        for (Vertex vertex : getVertices(adjacentVertexIds, FetchHint.NONE, authorizations)) {
+            visibleVertexIds.add(vertex.getId());
+        }
+        for (Set<String> ids : results.values()) {
+            ids.retainAll(visibleVertexIds);
+        }
+        return results;
+    }
+
+    /**
+     * Fetches only the edge references on the followed side, limited to the followed labels, so backends which can
+     * filter while fetching read the adjacency of every vertex in one pass. Adjacent vertices the authorizations can
+     * not read are included.
+     */
+    private Map<String, Set<String>> readVertexIdsOfVertices(Iterable<String> vertexIds, Direction direction, String[] labels, Authorizations authorizations) {
+        FetchFilter fetchFilter = labels == null ? FetchFilter.ALL : FetchFilter.edgeLabels(labels);
+        Map<String, Set<String>> results = new HashMap<String, Set<String>>();
+        for (Vertex vertex : getVertices(vertexIds, getEdgeRefsFetchHints(direction), fetchFilter, authorizations)) {
+            results.put(vertex.getId(), new HashSet<String>(toList(vertex.getVertexIds(direction, labels, authorizations))));
+        }
+        return results;
+    }
+
+    private static EnumSet<FetchHint> getEdgeRefsFetchHints(Direction direction) {
+        switch (direction) {
+            case IN:
+                return EnumSet.of(FetchHint.IN_EDGE_REFS);
+            case OUT:
+                return EnumSet.of(FetchHint.OUT_EDGE_REFS);
+            case BOTH:
+                return FetchHint.EDGE_REFS;
+            default:
+                throw new SecureGraphException("Unexpected direction: " + direction);
+        }
+    }
+
+    @Override
+    public Iterable<Vertex> getVerticesOfVertices(Iterable<String> vertexIds, Direction direction, String[] labels, Authorizations authorizations) {
+        return getVerticesOfVertices(vertexIds, direction, labels, FetchHint.ALL, authorizations);
+    }
+
+    /**
+     * The adjacent vertices the authorizations can not read are dropped by fetching the adjacent vertices, so this
+     * takes two passes.
+     */
+    @Override
+    public Iterable<Vertex> getVerticesOfVertices(Iterable<String> vertexIds, Direction direction, String[] labels, EnumSet<FetchHint> fetchHints, Authorizations authorizations) {
+        Set<String> adjacentVertexIds = new LinkedHashSet<String>();
+        for (Set<String> ids : readVertexIdsOfVertices(vertexIds, direction, labels, authorizations).values()) {
+            adjacentVertexIds.addAll(ids);
+        }
+        return getVertices(adjacentVertexIds, fetchHints, authorizations);
     }
 
     @Override
@@ -112,6 +217,23 @@ public abstract class GraphBase implements Graph {
     @Override
     public abstract void removeVertex(Vertex vertex, Authorizations authorizations);
 
+    @Override
+    public List<Edge> getEdgesInOrder(Iterable<String> ids, Authorizations authorizations) {
+        return getEdgesInOrder(ids, FetchHint.ALL, authorizations);
+    }
+
+    @Override
+    public List<Edge> getEdgesInOrder(Iterable<String> ids, EnumSet<FetchHint> fetchHints, Authorizations authorizations) {
+        ElementIdOrder order = new ElementIdOrder(ids);
+        return order.sort(getEdges(order.getIds(), fetchHints, authorizations));
+    }
+
+    @Override
+    public CloseableIterable<Edge> getEdgesInOrderStreaming(Iterable<String> ids, EnumSet<FetchHint> fetchHints, Authorizations authorizations) {
+        ElementIdOrder order = new ElementIdOrder(ids);
+        return order.stream(getEdges(order.getIds(), fetchHints, authorizations));
+    }
+
     @Override
     public Edge addEdge(Vertex outVertex, Vertex inVertex, String label, Visibility visibility, Authorizations authorizations) {
         return prepareEdge(outVertex, inVertex, label, visibility).save(authorizations);
@@ -129,37 +251,200 @@ public abstract class GraphBase implements Graph {
 
     @Override
     public Edge getEdge(String edgeId, EnumSet<FetchHint> fetchHints, Authorizations authorizations) {
-        LOGGER.warn("Performing scan of all edges! Override getEdge.");
-        for (Edge edge : getEdges(fetchHints, authorizations)) {
-            if (edge.getId().equals(edgeId)) {
-                return edge;
-            }
+        return lookupEdge(edgeId, fetchHints, authorizations);
+    }
+
+    /**
+     * Reads a single edge by id, null if it is not found. See {@link #lookupVertex(String, EnumSet, Authorizations)}.
+     */
+    protected Edge lookupEdge(String edgeId, EnumSet<FetchHint> fetchHints, Authorizations authorizations) {
+        if (isElementIdIndexed()) {
+            return getEdgeIdIndex(fetchHints, authorizations).get(edgeId);
+        }
+        for (Edge edge : scanEdges(Collections.singleton(edgeId), fetchHints, authorizations)) {
+            return edge;
         }
         return null;
     }
 
-    @Override
-    public Edge getEdge(String edgeId, Authorizations authorizations) {
-        return getEdge(edgeId, FetchHint.ALL, authorizations);
+    /**
+     * Reads the edges with the given ids, in any order. See {@link #lookupVertices(Iterable, EnumSet, Authorizations)}.
+     */
+    protected Iterable<Edge> lookupEdges(Iterable<String> ids, EnumSet<FetchHint> fetchHints, Authorizations authorizations) {
+        Set<String> idSet = toSet(ids);
+        if (idSet.size() == 0) {
+            return Collections.emptyList();
+        }
+        if (isElementIdIndexed()) {
+            return getEdgeIdIndex(fetchHints, authorizations).getAll(idSet).values();
+        }
+        return scanEdges(idSet, fetchHints, authorizations);
     }
 
-    @Override
-    public Iterable<Edge> getEdges(final Iterable<String> ids, EnumSet<FetchHint> fetchHints, final Authorizations authorizations) {
-        LOGGER.warn("Getting each edge one by one! Override getEdges(java.lang.Iterable<java.lang.String>, org.securegraph.Authorizations)");
-        return new LookAheadIterable<String, Edge>() {
+    private Iterable<Edge> scanEdges(final Set<String> ids, EnumSet<FetchHint> fetchHints, Authorizations authorizations) {
+        return new FilterIterable<Edge>(getEdges(fetchHints, authorizations)) {
             @Override
-            protected boolean isIncluded(String src, Edge edge) {
-                return edge != null;
+            protected Iterator<Edge> createIterator() {
+                fullScanPerformed("edges");
+                return super.createIterator();
+            }
+
+            @Override
+            protected boolean isIncluded(Edge edge) {
+                return ids.contains(edge.getId());
+            }
+        };
+    }
+
+    /**
+     * Backends without lookups by id which report every write with {@link #vertexWritten(String)},
+     * {@link #vertexRemoved(String)}, {@link #edgeWritten(String)} and {@link #edgeRemoved(String)} return true, so
+     * the default lookups use indexes of the elements kept up to date by those writes instead of scanning every time.
+     */
+    protected boolean isElementIdIndexed() {
+        return false;
+    }
+
+    /**
+     * Reports that a vertex was added or changed, including a change of its edges.
+     */
+    protected void vertexWritten(String vertexId) {
+        for (ElementIdIndex<Vertex> index : getElementIdIndexes(vertexIdIndexes)) {
+            index.written(vertexId);
+        }
+    }
+
+    protected void vertexRemoved(String vertexId) {
+        for (ElementIdIndex<Vertex> index : getElementIdIndexes(vertexIdIndexes)) {
+            index.removed(vertexId);
+        }
+    }
+
+    /**
+     * Reports that an edge was added or changed. The vertices it joins are reported with {@link #vertexWritten(String)}.
+     */
+    protected void edgeWritten(String edgeId) {
+        for (ElementIdIndex<Edge> index : getElementIdIndexes(edgeIdIndexes)) {
+            index.written(edgeId);
+        }
+    }
+
+    protected void edgeRemoved(String edgeId) {
+        for (ElementIdIndex<Edge> index : getElementIdIndexes(edgeIdIndexes)) {
+            index.removed(edgeId);
+        }
+    }
+
+    private ElementIdIndex<Vertex> getVertexIdIndex(final EnumSet<FetchHint> fetchHints, final Authorizations authorizations) {
+        ElementIdIndexKey key = new ElementIdIndexKey(fetchHints, authorizations);
+        synchronized (vertexIdIndexes) {
+            ElementIdIndex<Vertex> index = vertexIdIndexes.get(key);
+            if (index == null) {
+                index = new ElementIdIndex<Vertex>() {
+                    @Override
+                    protected Iterable<Vertex> scan() {
+                        fullScanPerformed("vertices");
+                        return getVertices(fetchHints, authorizations);
+                    }
+                };
+                vertexIdIndexes.put(key, index);
+            }
+            return index;
+        }
+    }
+
+    private ElementIdIndex<Edge> getEdgeIdIndex(final EnumSet<FetchHint> fetchHints, final Authorizations authorizations) {
+        ElementIdIndexKey key = new ElementIdIndexKey(fetchHints, authorizations);
+        synchronized (edgeIdIndexes) {
+            ElementIdIndex<Edge> index = edgeIdIndexes.get(key);
+            if (index == null) {
+                index = new ElementIdIndex<Edge>() {
+                    @Override
+                    protected Iterable<Edge> scan() {
+                        fullScanPerformed("edges");
+                        return getEdges(fetchHints, authorizations);
+                    }
+                };
+                edgeIdIndexes.put(key, index);
             }
+            return index;
+        }
+    }
 
+    private static <T extends Element> Map<ElementIdIndexKey, ElementIdIndex<T>> createElementIdIndexes() {
+        // the least recently used combinations of fetch hints and authorizations are dropped
+        return new LinkedHashMap<ElementIdIndexKey, ElementIdIndex<T>>(16, 0.75f, true) {
             @Override
-            protected Edge convert(String id) {
-                return getEdge(id, authorizations);
+            protected boolean removeEldestEntry(Map.Entry<ElementIdIndexKey, ElementIdIndex<T>> eldest) {
+                return size() > MAX_ELEMENT_ID_INDEXES;
             }
+        };
+    }
 
+    private static <T extends Element> List<ElementIdIndex<T>> getElementIdIndexes(Map<ElementIdIndexKey, ElementIdIndex<T>> indexes) {
+        synchronized (indexes) {
+            return new ArrayList<ElementIdIndex<T>>(indexes.values());
+        }
+    }
+
+    private static class ElementIdIndexKey {
+        private final EnumSet<FetchHint> fetchHints;
+        private final Set<String> authorizations;
+
+        private ElementIdIndexKey(EnumSet<FetchHint> fetchHints, Authorizations authorizations) {
+            this.fetchHints = fetchHints;
+            this.authorizations = new HashSet<String>(Arrays.asList(authorizations.getAuthorizations()));
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof ElementIdIndexKey)) {
+                return false;
+            }
+            ElementIdIndexKey other = (ElementIdIndexKey) o;
+            return fetchHints.equals(other.fetchHints) && authorizations.equals(other.authorizations);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * fetchHints.hashCode() + authorizations.hashCode();
+        }
+    }
+
+    private void fullScanPerformed(String elementType) {
+        if (fullScanCount.incrementAndGet() == 1) {
+            LOGGER.warn("Performing scan of all " + elementType + " to find elements by id! Override the lookup methods of " + GraphBase.class.getSimpleName() + ".");
+        } else {
+            LOGGER.debug("Performing scan of all " + elementType + " to find elements by id");
+        }
+    }
+
+    /**
+     * @return the number of times all the vertices or edges were scanned to find elements by id
+     */
+    public long getFullScanCount() {
+        return fullScanCount.get();
+    }
+
+    @Override
+    public Edge getEdge(String edgeId, Authorizations authorizations) {
+        return getEdge(edgeId, FetchHint.ALL, authorizations);
+    }
+
+    @Override
+    public Iterable<Edge> getEdges(final Iterable<String> ids, EnumSet<FetchHint> fetchHints, final Authorizations authorizations) {
+        return lookupEdges(ids, fetchHints, authorizations);
+    }
+
+    @Override
+    public Iterable<Edge> getEdges(Iterable<String> ids, EnumSet<FetchHint> fetchHints, final FetchFilter fetchFilter, Authorizations authorizations) {
+        if (fetchFilter.getEdgeLabels() == null) {
+            return getEdges(ids, fetchHints, authorizations);
+        }
+        return new FilterIterable<Edge>(getEdges(ids, fetchHints, authorizations)) {
             @Override
-            protected Iterator<String> createIterator() {
-                return ids.iterator();
+            protected boolean isIncluded(Edge edge) {
+                return fetchFilter.isEdgeLabelIncluded(edge.getLabel());
             }
         };
     }
@@ -231,7 +516,9 @@ public abstract class GraphBase implements Graph {
     public abstract void flush();
 
     @Override
-    public abstract void shutdown();
+    public void shutdown() {
+        pathFindingAlgorithm.shutdown();
+    }
 
     @Override
     public abstract DefinePropertyBuilder defineProperty(String propertyName);
@@ -1,10 +1,10 @@
 package org.securegraph;
 
 import org.securegraph.id.IdGenerator;
-import org.securegraph.path.PathFindingAlgorithm;
-import org.securegraph.path.RecursivePathFindingAlgorithm;
 import org.securegraph.query.GraphQuery;
 import org.securegraph.search.SearchIndex;
+import org.securegraph.search.SearchIndexBase;
+import org.securegraph.search.WriteBehindSearchIndex;
 import org.securegraph.util.ToElementIterable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -16,12 +16,20 @@ public abstract class GraphBaseWithSearchIndex extends GraphBase implements Grap
     private final GraphConfiguration configuration;
     private final IdGenerator idGenerator;
     private SearchIndex searchIndex;
-    private final PathFindingAlgorithm pathFindingAlgorithm = new RecursivePathFindingAlgorithm();
 
     protected GraphBaseWithSearchIndex(GraphConfiguration configuration, IdGenerator idGenerator, SearchIndex searchIndex) {
         this.configuration = configuration;
         this.idGenerator = idGenerator;
-        this.searchIndex = searchIndex;
+        this.searchIndex = createSearchIndex(configuration, searchIndex);
+    }
+
+    private static SearchIndex createSearchIndex(GraphConfiguration configuration, SearchIndex searchIndex) {
+        if (configuration == null || !configuration.isSearchIndexWriteBehind()) {
+            return searchIndex;
+        }
+        LOGGER.info("Indexing elements in the background, queue size " + configuration.getSearchIndexWriteBehindQueueSize()
+                + ", batch size " + configuration.getSearchIndexWriteBehindBatchSize());
+        return new WriteBehindSearchIndex(searchIndex, configuration.getSearchIndexWriteBehindQueueSize(), configuration.getSearchIndexWriteBehindBatchSize());
     }
 
     @Override
@@ -53,11 +61,13 @@ public abstract class GraphBaseWithSearchIndex extends GraphBase implements Grap
     }
 
     protected void reindexVertices(Authorizations authorizations) {
-        this.searchIndex.addElements(this, new ToElementIterable<Vertex>(getVertices(authorizations)), authorizations);
+        // search indexes only need the edge counts of a vertex, not its edge references
+        this.searchIndex.addElements(this, new ToElementIterable<Vertex>(getVertices(FetchHint.PROPERTIES_AND_EDGE_COUNTS, authorizations)), authorizations);
     }
 
     private void reindexEdges(Authorizations authorizations) {
-        this.searchIndex.addElements(this, new ToElementIterable<Edge>(getEdges(authorizations)), authorizations);
+        // the vertices, with their edge counts, were reindexed by reindexVertices
+        SearchIndexBase.reindexElements(this.searchIndex, this, new ToElementIterable<Edge>(getEdges(authorizations)), authorizations);
     }
 
     @Override
@@ -74,6 +84,7 @@ public abstract class GraphBaseWithSearchIndex extends GraphBase implements Grap
             this.searchIndex.shutdown();
             this.searchIndex = null;
         }
+        super.shutdown();
     }
 
     @Override
@@ -12,10 +12,16 @@ public class GraphConfiguration {
     public static final String IDGENERATOR_PROP_PREFIX = "idgenerator";
     public static final String SEARCH_INDEX_PROP_PREFIX = "search";
     public static final String AUTO_FLUSH = "autoFlush";
+    public static final String SEARCH_INDEX_WRITE_BEHIND = "searchIndexWriteBehind";
+    public static final String SEARCH_INDEX_WRITE_BEHIND_QUEUE_SIZE = "searchIndexWriteBehindQueueSize";
+    public static final String SEARCH_INDEX_WRITE_BEHIND_BATCH_SIZE = "searchIndexWriteBehindBatchSize";
 
     public static final String DEFAULT_IDGENERATOR = UUIDIdGenerator.class.getName();
     public static final String DEFAULT_SEARCH_INDEX = DefaultSearchIndex.class.getName();
     public static final boolean DEFAULT_AUTO_FLUSH = false;
+    public static final boolean DEFAULT_SEARCH_INDEX_WRITE_BEHIND = false;
+    public static final int DEFAULT_SEARCH_INDEX_WRITE_BEHIND_QUEUE_SIZE = 10000;
+    public static final int DEFAULT_SEARCH_INDEX_WRITE_BEHIND_BATCH_SIZE = 500;
 
     private final Map config;
 
@@ -64,6 +70,18 @@ public class GraphConfiguration {
         return o;
     }
 
+    public boolean isSearchIndexWriteBehind() {
+        return getConfigBoolean(SEARCH_INDEX_WRITE_BEHIND, DEFAULT_SEARCH_INDEX_WRITE_BEHIND);
+    }
+
+    public int getSearchIndexWriteBehindQueueSize() {
+        return (int) getConfigLong(SEARCH_INDEX_WRITE_BEHIND_QUEUE_SIZE, DEFAULT_SEARCH_INDEX_WRITE_BEHIND_QUEUE_SIZE);
+    }
+
+    public int getSearchIndexWriteBehindBatchSize() {
+        return (int) getConfigLong(SEARCH_INDEX_WRITE_BEHIND_BATCH_SIZE, DEFAULT_SEARCH_INDEX_WRITE_BEHIND_BATCH_SIZE);
+    }
+
     public IdGenerator createIdGenerator() throws SecureGraphException {
         return ConfigurationUtils.createProvider(getConfig(), IDGENERATOR_PROP_PREFIX, DEFAULT_IDGENERATOR);
     }
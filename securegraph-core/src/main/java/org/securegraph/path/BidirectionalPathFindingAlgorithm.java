@@ -0,0 +1,352 @@
+package org.securegraph.path;
+
+import org.securegraph.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Finds all paths without repeated vertices of at most {@code hops} edges between two vertices. Partial paths are
+ * grown breadth first from both ends, one edge at a time, always growing the end with the fewest vertices to expand.
+ * After the two ends together span n edges the paths of n edges are streamed, by joining the partial paths from the
+ * source with the partial paths from the destination that end at the same vertex, before growing any further. Paths
+ * are returned shortest first and the search stops once {@code maxResults} paths are read.
+ * <p/>
+ * Only vertex ids are followed. The neighbours of all the vertices at the same depth are read with one
+ * {@link Graph#getVertexIdsOfVertices(Iterable, Direction, String[], Authorizations)} call, split into chunks read in
+ * parallel when there are many.
+ */
+public class BidirectionalPathFindingAlgorithm implements PathFindingAlgorithm {
+    public static final int DEFAULT_MAX_RESULTS = Integer.MAX_VALUE;
+    public static final int DEFAULT_MAX_VISITED_NODES = 1000000;
+    public static final int DEFAULT_PARALLELISM = 4;
+    private static final int CHUNK_SIZE = 500;
+    private final int maxResults;
+    private final int maxVisitedNodes;
+    private final int parallelism;
+    private ExecutorService executor;
+
+    public BidirectionalPathFindingAlgorithm() {
+        this(DEFAULT_MAX_RESULTS, DEFAULT_MAX_VISITED_NODES, DEFAULT_PARALLELISM);
+    }
+
+    /**
+     * @param maxResults      the most paths returned
+     * @param maxVisitedNodes the most partial paths kept in memory, exceeding it fails the search
+     * @param parallelism     the most chunks of vertices read at the same time
+     */
+    public BidirectionalPathFindingAlgorithm(int maxResults, int maxVisitedNodes, int parallelism) {
+        this.maxResults = maxResults;
+        this.maxVisitedNodes = maxVisitedNodes;
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    @Override
+    public Iterable<Path> findPaths(final Graph graph, final Vertex sourceVertex, final Vertex destVertex, final int hops, final Authorizations authorizations) {
+        return new Iterable<Path>() {
+            @Override
+            public Iterator<Path> iterator() {
+                return new Search(graph, sourceVertex.getId(), destVertex.getId(), hops, authorizations);
+            }
+        };
+    }
+
+    /**
+     * Stops the threads reading the neighbors of vertices. Searches started afterwards start new threads.
+     */
+    public synchronized void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    private synchronized ExecutorService getExecutor() {
+        if (executor == null) {
+            executor = Executors.newFixedThreadPool(parallelism, new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "securegraph-path-finding");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return executor;
+    }
+
+    /**
+     * A partial path, the vertex ids are found by following the parents back to the end it was grown from.
+     */
+    private static class Node {
+        private final String vertexId;
+        private final Node parent;
+        private final int depth;
+
+        private Node(String vertexId, Node parent) {
+            this.vertexId = vertexId;
+            this.parent = parent;
+            this.depth = parent == null ? 0 : parent.depth + 1;
+        }
+
+        public boolean contains(String id) {
+            for (Node node = this; node != null; node = node.parent) {
+                if (node.vertexId.equals(id)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private class Search implements Iterator<Path> {
+        private final Graph graph;
+        private final String sourceVertexId;
+        private final String destVertexId;
+        private final int hops;
+        private final Authorizations authorizations;
+        private final Map<String, Set<String>> neighborsById = new HashMap<String, Set<String>>();
+        private List<Node> sourceLeaves = new ArrayList<Node>();
+        private List<Node> destLeaves = new ArrayList<Node>();
+        // paths from the source that reached the destination in the last step
+        private List<Node> sourceToDest = new ArrayList<Node>();
+        private int depth;
+        private int destDepth;
+        private int visitedNodes;
+        private int found;
+        // the joins of the paths spanning the current depth
+        private Iterator<Node> sourceToDestIterator = Collections.<Node>emptyList().iterator();
+        private Iterator<Node> sourceLeavesIterator = Collections.<Node>emptyList().iterator();
+        private Map<String, List<Node>> destLeavesByVertexId = Collections.emptyMap();
+        private Node sourceLeaf;
+        private Iterator<Node> destNodes = Collections.<Node>emptyList().iterator();
+        private Path next;
+
+        private Search(Graph graph, String sourceVertexId, String destVertexId, int hops, Authorizations authorizations) {
+            this.graph = graph;
+            this.sourceVertexId = sourceVertexId;
+            this.destVertexId = destVertexId;
+            this.hops = hops;
+            this.authorizations = authorizations;
+            sourceLeaves.add(new Node(sourceVertexId, null));
+            destLeaves.add(new Node(destVertexId, null));
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next == null && found < maxResults) {
+                next = computeNext();
+                if (next != null) {
+                    found++;
+                }
+            }
+            return next != null;
+        }
+
+        @Override
+        public Path next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Path result = next;
+            next = null;
+            return result;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        private Path computeNext() {
+            while (true) {
+                Path path = nextJoinedPath();
+                if (path != null) {
+                    return path;
+                }
+                if (!expand()) {
+                    return null;
+                }
+            }
+        }
+
+        /**
+         * Grows one end by one edge and starts joining the paths spanning the new depth.
+         *
+         * @return false once no more paths can be found
+         */
+        private boolean expand() {
+            if (depth >= hops || sourceLeaves.isEmpty() || destLeaves.isEmpty()) {
+                return false;
+            }
+            depth++;
+            if (countVertices(sourceLeaves) <= countVertices(destLeaves)) {
+                sourceToDest = new ArrayList<Node>();
+                sourceLeaves = grow(sourceLeaves, destVertexId, true);
+            } else {
+                destLeaves = grow(destLeaves, sourceVertexId, false);
+                destDepth++;
+            }
+
+            // paths reaching the destination from the source alone span the new depth only while the destination end
+            // has not grown, the others are found again joined to a partial path from the destination
+            sourceToDestIterator = destDepth > 0 ? Collections.<Node>emptyList().iterator() : sourceToDest.iterator();
+            destLeavesByVertexId = new HashMap<String, List<Node>>();
+            if (destDepth > 0) {
+                for (Node destNode : destLeaves) {
+                    List<Node> nodes = destLeavesByVertexId.get(destNode.vertexId);
+                    if (nodes == null) {
+                        nodes = new ArrayList<Node>();
+                        destLeavesByVertexId.put(destNode.vertexId, nodes);
+                    }
+                    nodes.add(destNode);
+                }
+            }
+            sourceLeavesIterator = sourceLeaves.iterator();
+            destNodes = Collections.<Node>emptyList().iterator();
+            return true;
+        }
+
+        /**
+         * Each full path is found once, after the step in which the two ends together first span its length: either
+         * from the source all the way to the destination, or as a partial path from the source joined to a partial
+         * path from the destination.
+         */
+        private Path nextJoinedPath() {
+            if (sourceToDestIterator.hasNext()) {
+                return toPath(sourceToDestIterator.next(), null);
+            }
+            while (true) {
+                while (destNodes.hasNext()) {
+                    Node destNode = destNodes.next();
+                    if (isDisjoint(sourceLeaf, destNode.parent)) {
+                        return toPath(sourceLeaf, destNode.parent);
+                    }
+                }
+                if (!sourceLeavesIterator.hasNext()) {
+                    return null;
+                }
+                sourceLeaf = sourceLeavesIterator.next();
+                List<Node> nodes = destLeavesByVertexId.get(sourceLeaf.vertexId);
+                destNodes = nodes == null ? Collections.<Node>emptyList().iterator() : nodes.iterator();
+            }
+        }
+
+        private int countVertices(List<Node> nodes) {
+            Set<String> ids = new HashSet<String>();
+            for (Node node : nodes) {
+                ids.add(node.vertexId);
+            }
+            return ids.size();
+        }
+
+        /**
+         * Grows every partial path by one edge.
+         *
+         * @param otherEndVertexId partial paths from the source stop when they reach it, partial paths from the
+         *                         destination never go through it
+         */
+        private List<Node> grow(List<Node> leaves, String otherEndVertexId, boolean fromSource) {
+            Set<String> ids = new LinkedHashSet<String>();
+            for (Node leaf : leaves) {
+                ids.add(leaf.vertexId);
+            }
+            loadNeighbors(ids);
+
+            List<Node> results = new ArrayList<Node>();
+            for (Node leaf : leaves) {
+                Set<String> neighbors = neighborsById.get(leaf.vertexId);
+                if (neighbors == null) {
+                    continue;
+                }
+                for (String neighborId : neighbors) {
+                    if (leaf.contains(neighborId)) {
+                        continue;
+                    }
+                    if (neighborId.equals(otherEndVertexId) && !fromSource) {
+                        continue;
+                    }
+                    if (++visitedNodes > maxVisitedNodes) {
+                        throw new SecureGraphException("Path finding exceeded " + maxVisitedNodes + " partial paths between " + sourceVertexId + " and " + destVertexId);
+                    }
+                    Node node = new Node(neighborId, leaf);
+                    if (fromSource && neighborId.equals(otherEndVertexId)) {
+                        sourceToDest.add(node);
+                    } else {
+                        results.add(node);
+                    }
+                }
+            }
+            return results;
+        }
+
+        private void loadNeighbors(Set<String> ids) {
+            List<String> idsToLoad = new ArrayList<String>();
+            for (String id : ids) {
+                if (!neighborsById.containsKey(id)) {
+                    idsToLoad.add(id);
+                }
+            }
+            if (idsToLoad.size() <= CHUNK_SIZE || parallelism == 1) {
+                neighborsById.putAll(readNeighbors(idsToLoad));
+                return;
+            }
+
+            List<Future<Map<String, Set<String>>>> futures = new ArrayList<Future<Map<String, Set<String>>>>();
+            for (int start = 0; start < idsToLoad.size(); start += CHUNK_SIZE) {
+                final List<String> chunk = idsToLoad.subList(start, Math.min(idsToLoad.size(), start + CHUNK_SIZE));
+                futures.add(getExecutor().submit(new Callable<Map<String, Set<String>>>() {
+                    @Override
+                    public Map<String, Set<String>> call() {
+                        return readNeighbors(chunk);
+                    }
+                }));
+            }
+            try {
+                for (Future<Map<String, Set<String>>> future : futures) {
+                    neighborsById.putAll(future.get());
+                }
+            } catch (ExecutionException ex) {
+                throw new SecureGraphException("Could not read the neighbors of vertices", ex);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new SecureGraphException("Interrupted reading the neighbors of vertices", ex);
+            }
+        }
+
+        private Map<String, Set<String>> readNeighbors(List<String> ids) {
+            Map<String, Set<String>> results = new HashMap<String, Set<String>>(graph.getVertexIdsOfVertices(ids, Direction.BOTH, null, authorizations));
+            // vertices that could not be read have no neighbors
+            for (String id : ids) {
+                if (!results.containsKey(id)) {
+                    results.put(id, Collections.<String>emptySet());
+                }
+            }
+            return results;
+        }
+
+        private boolean isDisjoint(Node sourceNode, Node destNode) {
+            for (Node node = destNode; node != null; node = node.parent) {
+                if (sourceNode.contains(node.vertexId)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * @param destNode the rest of the path back to the destination, starting after the vertex of sourceNode
+         */
+        private Path toPath(Node sourceNode, Node destNode) {
+            String[] vertexIds = new String[sourceNode.depth + 1 + (destNode == null ? 0 : destNode.depth + 1)];
+            for (Node node = sourceNode; node != null; node = node.parent) {
+                vertexIds[node.depth] = node.vertexId;
+            }
+            int i = sourceNode.depth + 1;
+            for (Node node = destNode; node != null; node = node.parent) {
+                vertexIds[i++] = node.vertexId;
+            }
+            return new Path(vertexIds);
+        }
+    }
+}
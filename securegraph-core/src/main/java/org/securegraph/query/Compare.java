@@ -22,7 +22,7 @@ public enum Compare implements Predicate {
         return false;
     }
 
-    private boolean evaluate(Property property, Object second, PropertyDefinition propertyDefinition) {
+    boolean evaluate(Property property, Object second, PropertyDefinition propertyDefinition) {
         Object first = property.getValue();
 
         if (first instanceof DateOnly) {
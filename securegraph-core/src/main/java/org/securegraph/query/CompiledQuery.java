@@ -0,0 +1,224 @@
+package org.securegraph.query;
+
+import org.securegraph.Element;
+import org.securegraph.Property;
+import org.securegraph.PropertyDefinition;
+import org.securegraph.SecureGraphException;
+import org.securegraph.TextIndexHint;
+
+import java.util.*;
+
+/**
+ * The query parameters compiled once per iteration into matchers grouped by property name. All has containers for
+ * the built in predicates are checked in a single walk of an element's properties, cheapest predicate first, and the
+ * query string is only checked once they all match.
+ * <p/>
+ * Not thread safe, the matched flags are reused between elements.
+ */
+class CompiledQuery {
+    private static final HasMatcher[] EMPTY_MATCHERS = new HasMatcher[0];
+    private final Map<String, HasMatcher[]> matchersByPropertyName = new HashMap<String, HasMatcher[]>();
+    private final boolean[] matched;
+    private final List<QueryBase.HasContainer> otherHasContainers = new ArrayList<QueryBase.HasContainer>();
+    private final String queryString;
+    private final boolean matchAnyValue;
+    private final char[] lowerCaseQueryString;
+
+    CompiledQuery(QueryBase.Parameters parameters, boolean evaluateQueryString, boolean evaluateHasContainers) {
+        List<HasMatcher> matchers = new ArrayList<HasMatcher>();
+        if (evaluateHasContainers) {
+            for (QueryBase.HasContainer has : parameters.getHasContainers()) {
+                HasMatcher matcher = HasMatcher.create(has, matchers.size());
+                if (matcher == null) {
+                    otherHasContainers.add(has);
+                } else {
+                    matchers.add(matcher);
+                }
+            }
+        }
+        Collections.sort(matchers, new Comparator<HasMatcher>() {
+            @Override
+            public int compare(HasMatcher o1, HasMatcher o2) {
+                return o1.cost - o2.cost;
+            }
+        });
+        for (HasMatcher matcher : matchers) {
+            HasMatcher[] existing = matchersByPropertyName.get(matcher.propertyName);
+            if (existing == null) {
+                existing = EMPTY_MATCHERS;
+            }
+            HasMatcher[] updated = Arrays.copyOf(existing, existing.length + 1);
+            updated[existing.length] = matcher;
+            matchersByPropertyName.put(matcher.propertyName, updated);
+        }
+        this.matched = new boolean[matchers.size()];
+
+        this.queryString = evaluateQueryString ? parameters.getQueryString() : null;
+        this.matchAnyValue = "*".equals(this.queryString);
+        this.lowerCaseQueryString = this.queryString == null ? null : toLowerCase(this.queryString);
+    }
+
+    public boolean isMatch(Element elem) {
+        if (matched.length > 0 && !isHasContainersMatch(elem)) {
+            return false;
+        }
+        for (QueryBase.HasContainer has : otherHasContainers) {
+            if (!has.isMatch(elem)) {
+                return false;
+            }
+        }
+        return queryString == null || isQueryStringMatch(elem);
+    }
+
+    private boolean isHasContainersMatch(Element elem) {
+        Arrays.fill(matched, false);
+        int remaining = matched.length;
+        for (Property property : elem.getProperties()) {
+            HasMatcher[] matchers = matchersByPropertyName.get(property.getName());
+            if (matchers == null) {
+                continue;
+            }
+            for (HasMatcher matcher : matchers) {
+                if (!matched[matcher.index] && matcher.isMatch(property)) {
+                    matched[matcher.index] = true;
+                    if (--remaining == 0) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    private boolean isQueryStringMatch(Element elem) {
+        for (Property property : elem.getProperties()) {
+            Object value = property.getValue();
+            if (value == null) {
+                continue;
+            }
+            if (matchAnyValue || containsIgnoreCase(value.toString(), lowerCaseQueryString)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static char[] toLowerCase(String str) {
+        char[] result = new char[str.length()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = Character.toLowerCase(str.charAt(i));
+        }
+        return result;
+    }
+
+    /**
+     * Case insensitive substring search that does not allocate.
+     *
+     * @param lowerCaseNeedle the needle already lower cased by {@link #toLowerCase(String)}
+     */
+    static boolean containsIgnoreCase(CharSequence haystack, char[] lowerCaseNeedle) {
+        int last = haystack.length() - lowerCaseNeedle.length;
+        if (lowerCaseNeedle.length == 0) {
+            return true;
+        }
+        char first = lowerCaseNeedle[0];
+        for (int start = 0; start <= last; start++) {
+            if (Character.toLowerCase(haystack.charAt(start)) != first) {
+                continue;
+            }
+            int i = 1;
+            while (i < lowerCaseNeedle.length && Character.toLowerCase(haystack.charAt(start + i)) == lowerCaseNeedle[i]) {
+                i++;
+            }
+            if (i == lowerCaseNeedle.length) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static abstract class HasMatcher {
+        private final String propertyName;
+        private final int index;
+        private final int cost;
+
+        protected HasMatcher(String propertyName, int index, int cost) {
+            this.propertyName = propertyName;
+            this.index = index;
+            this.cost = cost;
+        }
+
+        /**
+         * @return null if the predicate is not one of the built in predicates
+         */
+        public static HasMatcher create(QueryBase.HasContainer has, int index) {
+            PropertyDefinition propertyDefinition = has.getPropertyDefinitions() == null ? null : has.getPropertyDefinitions().get(has.key);
+            if (has.predicate instanceof Compare) {
+                return new CompareMatcher(has.key, index, (Compare) has.predicate, has.value, propertyDefinition);
+            }
+            if (has.predicate == TextPredicate.CONTAINS && has.value instanceof String) {
+                return new TextContainsMatcher(has.key, index, (String) has.value, propertyDefinition);
+            }
+            if (has.predicate instanceof GeoCompare) {
+                return new GeoCompareMatcher(has.key, index, (GeoCompare) has.predicate, has.value);
+            }
+            return null;
+        }
+
+        protected abstract boolean isMatch(Property property);
+    }
+
+    private static class CompareMatcher extends HasMatcher {
+        private final Compare compare;
+        private final Object value;
+        private final PropertyDefinition propertyDefinition;
+
+        private CompareMatcher(String propertyName, int index, Compare compare, Object value, PropertyDefinition propertyDefinition) {
+            super(propertyName, index, compare == Compare.IN ? 2 : (value instanceof Number ? 0 : 1));
+            this.compare = compare;
+            this.value = value;
+            this.propertyDefinition = propertyDefinition;
+        }
+
+        @Override
+        protected boolean isMatch(Property property) {
+            return compare.evaluate(property, value, propertyDefinition);
+        }
+    }
+
+    private static class TextContainsMatcher extends HasMatcher {
+        private final char[] lowerCaseValue;
+        private final boolean fullTextIndexed;
+
+        private TextContainsMatcher(String propertyName, int index, String value, PropertyDefinition propertyDefinition) {
+            super(propertyName, index, 3);
+            this.lowerCaseValue = toLowerCase(value);
+            this.fullTextIndexed = propertyDefinition == null || propertyDefinition.getTextIndexHints().contains(TextIndexHint.FULL_TEXT);
+        }
+
+        @Override
+        protected boolean isMatch(Property property) {
+            Object propertyValue = property.getValue();
+            if (!(propertyValue instanceof String)) {
+                throw new SecureGraphException("Text predicates are only valid for string fields");
+            }
+            return fullTextIndexed && containsIgnoreCase((String) propertyValue, lowerCaseValue);
+        }
+    }
+
+    private static class GeoCompareMatcher extends HasMatcher {
+        private final GeoCompare geoCompare;
+        private final Object value;
+
+        private GeoCompareMatcher(String propertyName, int index, GeoCompare geoCompare, Object value) {
+            super(propertyName, index, 4);
+            this.geoCompare = geoCompare;
+            this.value = value;
+        }
+
+        @Override
+        protected boolean isMatch(Property property) {
+            return geoCompare.evaluate(property, value);
+        }
+    }
+}
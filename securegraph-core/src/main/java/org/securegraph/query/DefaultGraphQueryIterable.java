@@ -1,11 +1,13 @@
 package org.securegraph.query;
 
 import org.securegraph.Element;
-import org.securegraph.Property;
+import org.securegraph.util.CloseableIterable;
+import org.securegraph.util.CloseableUtils;
 
+import java.io.Closeable;
 import java.util.Iterator;
 
-public class DefaultGraphQueryIterable<T extends Element> implements Iterable<T> {
+public class DefaultGraphQueryIterable<T extends Element> implements CloseableIterable<T> {
     private final QueryBase.Parameters parameters;
     private final Iterable<T> iterable;
     private final boolean evaluateQueryString;
@@ -18,91 +20,86 @@ public class DefaultGraphQueryIterable<T extends Element> implements Iterable<T>
         this.evaluateHasContainers = evaluateHasContainers;
     }
 
+    /**
+     * Closes the iterable the results are read from, if it can be closed.
+     */
+    @Override
+    public void close() {
+        if (iterable instanceof Closeable) {
+            CloseableUtils.closeQuietly((Closeable) iterable);
+        }
+    }
+
     @Override
     public Iterator<T> iterator() {
-        final Iterator<T> it = iterable.iterator();
+        return new QueryIterator(iterable.iterator(), new CompiledQuery(parameters, evaluateQueryString, evaluateHasContainers));
+    }
 
-        return new Iterator<T>() {
-            public T next;
-            public T current;
-            public long count;
+    /**
+     * Closes the underlying iterator, if it can be closed, so results which are not read to the end can be released.
+     */
+    private class QueryIterator implements Iterator<T>, Closeable {
+        private final Iterator<T> it;
+        private final CompiledQuery compiledQuery;
+        private T next;
+        private T current;
+        private long count;
+
+        private QueryIterator(Iterator<T> it, CompiledQuery compiledQuery) {
+            this.it = it;
+            this.compiledQuery = compiledQuery;
+        }
 
-            @Override
-            public boolean hasNext() {
-                loadNext();
-                return next != null;
+        @Override
+        public void close() {
+            if (it instanceof Closeable) {
+                CloseableUtils.closeQuietly((Closeable) it);
             }
+        }
+
+        @Override
+        public boolean hasNext() {
+            loadNext();
+            return next != null;
+        }
+
+        @Override
+        public T next() {
+            loadNext();
+            this.current = this.next;
+            this.next = null;
+            return this.current;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
 
-            @Override
-            public T next() {
-                loadNext();
-                this.current = this.next;
-                this.next = null;
-                return this.current;
+        private void loadNext() {
+            if (this.next != null) {
+                return;
             }
 
-            @Override
-            public void remove() {
-                throw new UnsupportedOperationException();
+            if (this.count >= parameters.getLimit()) {
+                return;
             }
 
-            private void loadNext() {
-                if (this.next != null) {
-                    return;
-                }
+            while (it.hasNext()) {
+                T elem = it.next();
 
-                if (this.count >= parameters.getLimit()) {
-                    return;
+                if (!compiledQuery.isMatch(elem)) {
+                    continue;
                 }
 
-                while (it.hasNext()) {
-                    T elem = it.next();
-
-                    boolean match = true;
-                    if (evaluateHasContainers) {
-                        for (QueryBase.HasContainer has : parameters.getHasContainers()) {
-                            if (!has.isMatch(elem)) {
-                                match = false;
-                                break;
-                            }
-                        }
-                    }
-                    if (!match) {
-                        continue;
-                    }
-                    if (evaluateQueryString && parameters.getQueryString() != null && !evaluateQueryString(elem, parameters.getQueryString())) {
-                        continue;
-                    }
-
-                    this.count++;
-                    if (this.count <= parameters.getSkip()) {
-                        continue;
-                    }
-
-                    this.next = elem;
-                    break;
+                this.count++;
+                if (this.count <= parameters.getSkip()) {
+                    continue;
                 }
-            }
-        };
-    }
 
-    protected boolean evaluateQueryString(Element elem, String queryString) {
-        for (Property property : elem.getProperties()) {
-            if (evaluateQueryStringOnValue(property.getValue(), queryString)) {
-                return true;
+                this.next = elem;
+                break;
             }
         }
-        return false;
-    }
-
-    private boolean evaluateQueryStringOnValue(Object value, String queryString) {
-        if (value == null) {
-            return false;
-        }
-        if (queryString.equals("*")) {
-            return true;
-        }
-        String valueString = value.toString().toLowerCase();
-        return valueString.contains(queryString.toLowerCase());
     }
 }
@@ -19,7 +19,7 @@ public enum GeoCompare implements Predicate {
         return false;
     }
 
-    private boolean evaluate(Property property, Object second) {
+    boolean evaluate(Property property, Object second) {
         switch (this) {
             case WITHIN:
                 return ((GeoShape) second).within((GeoShape) property.getValue());
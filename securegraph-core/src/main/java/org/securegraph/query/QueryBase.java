@@ -113,6 +113,10 @@ public abstract class QueryBase implements Query {
         public boolean isMatch(Element elem) {
             return this.predicate.evaluate(elem.getProperties(this.key), this.value, this.propertyDefinitions);
         }
+
+        Map<String, PropertyDefinition> getPropertyDefinitions() {
+            return propertyDefinitions;
+        }
     }
 
     public static class Parameters {
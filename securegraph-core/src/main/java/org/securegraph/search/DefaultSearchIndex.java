@@ -9,7 +9,7 @@ import org.securegraph.query.VertexQuery;
 import java.util.HashMap;
 import java.util.Map;
 
-public class DefaultSearchIndex implements SearchIndex {
+public class DefaultSearchIndex extends SearchIndexBase {
     private Map<String, PropertyDefinition> propertyDefinitions = new HashMap<String, PropertyDefinition>();
 
     public DefaultSearchIndex(Map configuration) {
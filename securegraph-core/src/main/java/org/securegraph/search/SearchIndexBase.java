@@ -0,0 +1,56 @@
+package org.securegraph.search;
+
+import org.securegraph.Authorizations;
+import org.securegraph.Element;
+import org.securegraph.Graph;
+import org.securegraph.Property;
+
+/**
+ * Defaults for the search index operations which are not part of {@link SearchIndex}, so implementations of the
+ * interface keep working without them.
+ */
+public abstract class SearchIndexBase implements SearchIndex {
+    /**
+     * Indexes properties added to or changed on an element which is already indexed. Reindexes the whole element
+     * unless overridden.
+     *
+     * @param element    The element, with the properties already applied.
+     * @param properties The properties that were added or changed.
+     */
+    public void addElementProperties(Graph graph, Element element, Iterable<Property> properties, Authorizations authorizations) {
+        addElement(graph, element, authorizations);
+    }
+
+    /**
+     * Indexes the elements of a reindex. Unlike {@link #addElements(Graph, Iterable, Authorizations)} the documents of
+     * the vertices of edges are not updated, the reindex indexes every vertex once itself. Calls
+     * {@link #addElements(Graph, Iterable, Authorizations)} unless overridden.
+     */
+    public void reindexElements(Graph graph, Iterable<Element> elements, Authorizations authorizations) {
+        addElements(graph, elements, authorizations);
+    }
+
+    /**
+     * Calls {@link #reindexElements(Graph, Iterable, Authorizations)} on search indexes extending this class and
+     * {@link SearchIndex#addElements(Graph, Iterable, Authorizations)} on others.
+     */
+    public static void reindexElements(SearchIndex searchIndex, Graph graph, Iterable<Element> elements, Authorizations authorizations) {
+        if (searchIndex instanceof SearchIndexBase) {
+            ((SearchIndexBase) searchIndex).reindexElements(graph, elements, authorizations);
+        } else {
+            searchIndex.addElements(graph, elements, authorizations);
+        }
+    }
+
+    /**
+     * Calls {@link #addElementProperties(Graph, Element, Iterable, Authorizations)} on search indexes extending this
+     * class and {@link SearchIndex#addElement(Graph, Element, Authorizations)} on others.
+     */
+    public static void addElementProperties(SearchIndex searchIndex, Graph graph, Element element, Iterable<Property> properties, Authorizations authorizations) {
+        if (searchIndex instanceof SearchIndexBase) {
+            ((SearchIndexBase) searchIndex).addElementProperties(graph, element, properties, authorizations);
+        } else {
+            searchIndex.addElement(graph, element, authorizations);
+        }
+    }
+}
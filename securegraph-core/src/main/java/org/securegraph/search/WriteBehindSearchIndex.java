@@ -0,0 +1,420 @@
+package org.securegraph.search;
+
+import org.securegraph.*;
+import org.securegraph.query.GraphQuery;
+import org.securegraph.query.VertexQuery;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Queues added elements and indexes them on a background thread so graph writes do not wait on the search index.
+ * The writer takes up to a batch of elements off the queue at a time. Repeated adds of the same element id before it
+ * is indexed are coalesced into one, keeping the latest element. The queue is bounded,
+ * {@link #addElement(Graph, Element, Authorizations)} blocks while it is full. Added properties are queued the same
+ * way and indexed with {@link SearchIndexBase#addElementProperties(Graph, Element, Iterable, Authorizations)}, unless
+ * the element is also queued to be added whole.
+ * <p/>
+ * {@link #flush()} waits for everything queued before it was called to be indexed before flushing the search index.
+ * Removes are not queued, they wait the same way so they can not be overtaken by an earlier add. Elements queued while
+ * they wait are not waited for, so a steady stream of adds can not hold them up. Queries are passed straight through,
+ * so elements are only searchable once they have been indexed.
+ */
+public class WriteBehindSearchIndex extends SearchIndexBase {
+    private static final Logger LOGGER = LoggerFactory.getLogger(WriteBehindSearchIndex.class);
+    private final SearchIndex searchIndex;
+    private final int maxQueueSize;
+    private final int batchSize;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private final Condition idle = lock.newCondition();
+    private final LinkedHashMap<String, PendingElement> pending = new LinkedHashMap<String, PendingElement>();
+    private final Thread writerThread;
+    private boolean writing;
+    private long writingSequence;
+    private boolean shutdown;
+    private RuntimeException failure;
+    private long failureSequence;
+    private long enqueuedCount;
+    private long indexedCount;
+    private long coalescedCount;
+    private long batchCount;
+
+    public WriteBehindSearchIndex(SearchIndex searchIndex, int maxQueueSize, int batchSize) {
+        this.searchIndex = searchIndex;
+        this.maxQueueSize = maxQueueSize;
+        this.batchSize = batchSize;
+        this.writerThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                writeLoop();
+            }
+        }, "securegraph-search-index-writer");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+
+    public SearchIndex getSearchIndex() {
+        return searchIndex;
+    }
+
+    @Override
+    public void addElement(Graph graph, Element element, Authorizations authorizations) {
+        enqueue(graph, element, null, authorizations);
+    }
+
+    @Override
+    public void addElementProperties(Graph graph, Element element, Iterable<Property> properties, Authorizations authorizations) {
+        enqueue(graph, element, properties, authorizations);
+    }
+
+    /**
+     * @param properties The added properties, null to add the whole element.
+     */
+    private void enqueue(Graph graph, Element element, Iterable<Property> properties, Authorizations authorizations) {
+        lock.lock();
+        try {
+            while (true) {
+                checkNotShutdown();
+                // a coalesced add keeps the place of the queued element, so it is written no later than that element
+                PendingElement existing = pending.get(element.getId());
+                if (existing != null) {
+                    existing.graph = graph;
+                    existing.element = element;
+                    existing.authorizations = authorizations;
+                    existing.addProperties(properties);
+                    enqueuedCount++;
+                    coalescedCount++;
+                    return;
+                }
+                if (pending.size() < maxQueueSize) {
+                    break;
+                }
+                notFull.awaitUninterruptibly();
+            }
+            PendingElement pendingElement = new PendingElement(graph, element, authorizations, ++enqueuedCount);
+            pendingElement.addProperties(properties);
+            pending.put(element.getId(), pendingElement);
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void removeElement(Graph graph, Element element, Authorizations authorizations) {
+        waitForQueuedElements();
+        searchIndex.removeElement(graph, element, authorizations);
+    }
+
+    @Override
+    public void removeProperty(Graph graph, Element element, Property property, Authorizations authorizations) {
+        waitForQueuedElements();
+        searchIndex.removeProperty(graph, element, property, authorizations);
+    }
+
+    @Override
+    public void addElements(Graph graph, Iterable<Element> elements, Authorizations authorizations) {
+        waitForQueuedElements();
+        searchIndex.addElements(graph, elements, authorizations);
+    }
+
+    @Override
+    public void reindexElements(Graph graph, Iterable<Element> elements, Authorizations authorizations) {
+        waitForQueuedElements();
+        SearchIndexBase.reindexElements(searchIndex, graph, elements, authorizations);
+    }
+
+    @Override
+    public GraphQuery queryGraph(Graph graph, String queryString, Authorizations authorizations) {
+        return searchIndex.queryGraph(graph, queryString, authorizations);
+    }
+
+    @Override
+    public VertexQuery queryVertex(Graph graph, Vertex vertex, String queryString, Authorizations authorizations) {
+        return searchIndex.queryVertex(graph, vertex, queryString, authorizations);
+    }
+
+    @Override
+    public void flush() {
+        waitForQueuedElements();
+        searchIndex.flush();
+    }
+
+    @Override
+    public void shutdown() {
+        RuntimeException drainFailure = null;
+        lock.lock();
+        try {
+            if (shutdown) {
+                return;
+            }
+            waitForQueuedElementsLocked();
+        } catch (RuntimeException ex) {
+            drainFailure = ex;
+        } finally {
+            shutdown = true;
+            notEmpty.signalAll();
+            notFull.signalAll();
+            lock.unlock();
+        }
+        try {
+            writerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        searchIndex.shutdown();
+        if (drainFailure != null) {
+            throw drainFailure;
+        }
+    }
+
+    @Override
+    public void addPropertyDefinition(PropertyDefinition propertyDefinition) throws IOException {
+        searchIndex.addPropertyDefinition(propertyDefinition);
+    }
+
+    @Override
+    public boolean isFieldBoostSupported() {
+        return searchIndex.isFieldBoostSupported();
+    }
+
+    @Override
+    public boolean isEdgeBoostSupported() {
+        return searchIndex.isEdgeBoostSupported();
+    }
+
+    @Override
+    public void clearData() {
+        lock.lock();
+        try {
+            pending.clear();
+            notFull.signalAll();
+            while (writing) {
+                idle.awaitUninterruptibly();
+            }
+            failure = null;
+        } finally {
+            lock.unlock();
+        }
+        searchIndex.clearData();
+    }
+
+    @Override
+    public SearchIndexSecurityGranularity getSearchIndexSecurityGranularity() {
+        return searchIndex.getSearchIndexSecurityGranularity();
+    }
+
+    /**
+     * @return the number of elements waiting to be indexed
+     */
+    public int getQueueDepth() {
+        lock.lock();
+        try {
+            return pending.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return how long the oldest element waiting to be indexed has been queued, 0 if the queue is empty
+     */
+    public long getLagMillis() {
+        lock.lock();
+        try {
+            if (pending.isEmpty()) {
+                return 0;
+            }
+            return System.currentTimeMillis() - pending.values().iterator().next().queuedTime;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getIndexedCount() {
+        lock.lock();
+        try {
+            return indexedCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getCoalescedCount() {
+        lock.lock();
+        try {
+            return coalescedCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getBatchCount() {
+        lock.lock();
+        try {
+            return batchCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void checkNotShutdown() {
+        if (shutdown) {
+            throw new SecureGraphException("Search index has been shutdown");
+        }
+    }
+
+    private void waitForQueuedElements() {
+        lock.lock();
+        try {
+            waitForQueuedElementsLocked();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits until every element queued so far has been written, without waiting for elements queued after this call.
+     */
+    private void waitForQueuedElementsLocked() {
+        long sequence = enqueuedCount;
+        while (getFirstUnwrittenSequence() <= sequence) {
+            idle.awaitUninterruptibly();
+        }
+        if (failure != null && failureSequence <= sequence) {
+            RuntimeException ex = failure;
+            failure = null;
+            throw new SecureGraphException("Could not index elements", ex);
+        }
+    }
+
+    /**
+     * The queue is in the order elements were first queued and the batch being written was taken from its head, so
+     * nothing queued before the returned sequence is left to write.
+     */
+    private long getFirstUnwrittenSequence() {
+        if (writing) {
+            return writingSequence;
+        }
+        if (!pending.isEmpty()) {
+            return pending.values().iterator().next().sequence;
+        }
+        return Long.MAX_VALUE;
+    }
+
+    private void writeLoop() {
+        while (true) {
+            List<PendingElement> batch;
+            lock.lock();
+            try {
+                while (pending.isEmpty() && !shutdown) {
+                    notEmpty.awaitUninterruptibly();
+                }
+                if (pending.isEmpty()) {
+                    return;
+                }
+                batch = new ArrayList<PendingElement>(Math.min(batchSize, pending.size()));
+                Iterator<PendingElement> it = pending.values().iterator();
+                while (it.hasNext() && batch.size() < batchSize) {
+                    batch.add(it.next());
+                    it.remove();
+                }
+                writing = true;
+                writingSequence = batch.get(0).sequence;
+                notFull.signalAll();
+            } finally {
+                lock.unlock();
+            }
+
+            RuntimeException batchFailure = null;
+            try {
+                writeBatch(batch);
+            } catch (RuntimeException ex) {
+                LOGGER.error("Could not index " + batch.size() + " elements", ex);
+                batchFailure = ex;
+            }
+
+            lock.lock();
+            try {
+                writing = false;
+                batchCount++;
+                if (batchFailure == null) {
+                    indexedCount += batch.size();
+                } else if (failure == null) {
+                    failure = batchFailure;
+                    failureSequence = writingSequence;
+                }
+                idle.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Whole elements go through {@link SearchIndex#addElement(Graph, Element, Authorizations)} rather than
+     * {@link SearchIndex#addElements(Graph, Iterable, Authorizations)}, which is meant for reindexing whole elements.
+     * An element saved with only some of its properties has to be merged with the stored element, and indexes keep
+     * other documents, such as the edge counts of vertices, up to date when an element is added.
+     */
+    private void writeBatch(List<PendingElement> batch) {
+        for (PendingElement pendingElement : batch) {
+            if (pendingElement.properties == null) {
+                searchIndex.addElement(pendingElement.graph, pendingElement.element, pendingElement.authorizations);
+            } else {
+                SearchIndexBase.addElementProperties(searchIndex, pendingElement.graph, pendingElement.element, pendingElement.properties, pendingElement.authorizations);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s{queueDepth=%d, lag=%dms, indexed=%d, coalesced=%d, batches=%d}",
+                getClass().getSimpleName(), getQueueDepth(), getLagMillis(), getIndexedCount(), getCoalescedCount(), getBatchCount());
+    }
+
+    private static class PendingElement {
+        private final long queuedTime = System.currentTimeMillis();
+        private final long sequence;
+        private Graph graph;
+        private Element element;
+        private Authorizations authorizations;
+        private boolean whole;
+        private List<Property> properties;
+
+        private PendingElement(Graph graph, Element element, Authorizations authorizations, long sequence) {
+            this.sequence = sequence;
+            this.graph = graph;
+            this.element = element;
+            this.authorizations = authorizations;
+        }
+
+        /**
+         * @param properties The added properties, null once the whole element is to be added.
+         */
+        private void addProperties(Iterable<Property> properties) {
+            if (properties == null) {
+                this.whole = true;
+                this.properties = null;
+                return;
+            }
+            if (this.whole) {
+                return;
+            }
+            if (this.properties == null) {
+                this.properties = new ArrayList<Property>();
+            }
+            for (Property property : properties) {
+                // a later value of the same property replaces the earlier one
+                this.properties.remove(property);
+                this.properties.add(property);
+            }
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package org.securegraph.util;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded, thread safe cache with hit and miss counts. When the cache is full it is cleared.
+ */
+public class BoundedConcurrentCache<K, V> {
+    private final ConcurrentHashMap<K, V> cache = new ConcurrentHashMap<K, V>();
+    private final int maxSize;
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+
+    public BoundedConcurrentCache(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    public V get(K key) {
+        V result = cache.get(key);
+        if (result == null) {
+            missCount.incrementAndGet();
+        } else {
+            hitCount.incrementAndGet();
+        }
+        return result;
+    }
+
+    public void put(K key, V value) {
+        if (cache.size() >= maxSize) {
+            cache.clear();
+        }
+        cache.put(key, value);
+    }
+
+    public int size() {
+        return cache.size();
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+}
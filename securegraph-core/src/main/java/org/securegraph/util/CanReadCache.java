@@ -0,0 +1,53 @@
+package org.securegraph.util;
+
+/**
+ * Caches the result of evaluating visibility strings against one set of authorizations. The parsed visibilities are
+ * kept in a cache passed in by the caller, so a cache shared by all sets of authorizations can be used since parsed
+ * visibilities are immutable.
+ *
+ * @param <TVisibility> The parsed form of a visibility string.
+ */
+public abstract class CanReadCache<TVisibility> {
+    private static final int DEFAULT_MAX_SIZE = 1000;
+    private final BoundedConcurrentCache<String, TVisibility> parsedVisibilityCache;
+    private final BoundedConcurrentCache<String, Boolean> canReadCache;
+
+    protected CanReadCache(BoundedConcurrentCache<String, TVisibility> parsedVisibilityCache) {
+        this(parsedVisibilityCache, DEFAULT_MAX_SIZE);
+    }
+
+    protected CanReadCache(BoundedConcurrentCache<String, TVisibility> parsedVisibilityCache, int maxSize) {
+        this.parsedVisibilityCache = parsedVisibilityCache;
+        this.canReadCache = new BoundedConcurrentCache<String, Boolean>(maxSize);
+    }
+
+    public boolean canRead(String visibilityString) {
+        Boolean canRead = canReadCache.get(visibilityString);
+        if (canRead == null) {
+            canRead = evaluate(getParsedVisibility(visibilityString));
+            canReadCache.put(visibilityString, canRead);
+        }
+        return canRead;
+    }
+
+    private TVisibility getParsedVisibility(String visibilityString) {
+        TVisibility visibility = parsedVisibilityCache.get(visibilityString);
+        if (visibility == null) {
+            visibility = parse(visibilityString);
+            parsedVisibilityCache.put(visibilityString, visibility);
+        }
+        return visibility;
+    }
+
+    protected abstract TVisibility parse(String visibilityString);
+
+    protected abstract boolean evaluate(TVisibility visibility);
+
+    public long getHitCount() {
+        return canReadCache.getHitCount();
+    }
+
+    public long getMissCount() {
+        return canReadCache.getMissCount();
+    }
+}
@@ -0,0 +1,142 @@
+package org.securegraph.util;
+
+import org.securegraph.Element;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Puts elements fetched in any order back into the order of the ids they were requested with. An id requested more
+ * than once is returned once, at its first position. Ids that were not found are skipped.
+ */
+public class ElementIdOrder {
+    private final Map<String, Integer> positionsById;
+    private final int size;
+
+    public ElementIdOrder(Iterable<String> ids) {
+        this.positionsById = new LinkedHashMap<String, Integer>();
+        int position = 0;
+        for (String id : ids) {
+            if (!positionsById.containsKey(id)) {
+                positionsById.put(id, position++);
+            }
+        }
+        this.size = position;
+    }
+
+    /**
+     * @return the distinct ids in the order they were requested
+     */
+    public Set<String> getIds() {
+        return positionsById.keySet();
+    }
+
+    /**
+     * Sorts the elements in time linear to the number of ids.
+     */
+    public <T extends Element> List<T> sort(Iterable<T> elements) {
+        List<T> slots = new ArrayList<T>(Collections.<T>nCopies(size, null));
+        for (T element : elements) {
+            Integer position = positionsById.get(element.getId());
+            if (position != null) {
+                slots.set(position, element);
+            }
+        }
+        List<T> results = new ArrayList<T>(size);
+        for (T slot : slots) {
+            if (slot != null) {
+                results.add(slot);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Returns each element as soon as all the elements requested before it have been read, or once the elements are
+     * exhausted for the elements after an id that was not found. Only the elements read ahead of their turn are
+     * kept in memory.
+     */
+    public <T extends Element> CloseableIterable<T> stream(final Iterable<T> elements) {
+        return new CloseableIterable<T>() {
+            @Override
+            public Iterator<T> iterator() {
+                return new InOrderIterator<T>(positionsById, size, elements.iterator());
+            }
+
+            @Override
+            public void close() throws IOException {
+                if (elements instanceof Closeable) {
+                    ((Closeable) elements).close();
+                }
+            }
+        };
+    }
+
+    private static class InOrderIterator<T extends Element> implements Iterator<T> {
+        private final Map<String, Integer> positionsById;
+        private final int size;
+        private final Iterator<T> source;
+        private final Map<Integer, T> readAhead = new HashMap<Integer, T>();
+        private int nextPosition;
+        private T next;
+
+        private InOrderIterator(Map<String, Integer> positionsById, int size, Iterator<T> source) {
+            this.positionsById = positionsById;
+            this.size = size;
+            this.source = source;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next == null) {
+                next = computeNext();
+            }
+            return next != null;
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            T result = next;
+            next = null;
+            return result;
+        }
+
+        private T computeNext() {
+            while (nextPosition < size) {
+                T element = readAhead.remove(nextPosition);
+                if (element != null) {
+                    nextPosition++;
+                    return element;
+                }
+                if (!source.hasNext()) {
+                    // the element at this position was not found, move on to the ones read ahead
+                    if (readAhead.isEmpty()) {
+                        return null;
+                    }
+                    nextPosition++;
+                    continue;
+                }
+                T read = source.next();
+                Integer position = positionsById.get(read.getId());
+                if (position == null || position < nextPosition) {
+                    continue;
+                }
+                if (position == nextPosition) {
+                    nextPosition++;
+                    return read;
+                }
+                readAhead.put(position, read);
+            }
+            return null;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException("remove not supported");
+        }
+    }
+}
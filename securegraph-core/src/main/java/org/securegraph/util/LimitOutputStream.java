@@ -4,53 +4,67 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 
+/**
+ * Keeps what is written in memory up to a size limit, past which everything is written to a {@link LargeDataStore}.
+ * The memory buffer grows with what is written instead of being allocated at the limit up front, and data known to be
+ * over the limit goes straight to the large data store.
+ * <p/>
+ * Not thread safe.
+ */
 public class LimitOutputStream extends OutputStream {
-    private final int maxSizeToStore;
-    private final ByteArrayOutputStream smallOutputStream;
+    private static final int INITIAL_BUFFER_SIZE = 1024;
+    private final long maxSizeToStore;
     private final LargeDataStore largeDataStore;
+    private ByteArrayOutputStream smallOutputStream;
     private OutputStream largeOutputStream;
     private long length;
 
     public LimitOutputStream(LargeDataStore largeDataStore, long maxSizeToStore) {
+        this(largeDataStore, maxSizeToStore, -1);
+    }
+
+    /**
+     * @param expectedLength The length of the data to be written, or -1 if not known.
+     */
+    public LimitOutputStream(LargeDataStore largeDataStore, long maxSizeToStore, long expectedLength) {
         this.largeDataStore = largeDataStore;
-        this.maxSizeToStore = (int) maxSizeToStore;
-        this.smallOutputStream = new ByteArrayOutputStream((int) maxSizeToStore);
+        this.maxSizeToStore = maxSizeToStore;
+        if (expectedLength < 0) {
+            this.smallOutputStream = new ByteArrayOutputStream((int) Math.min(INITIAL_BUFFER_SIZE, maxSizeToStore));
+        } else if (expectedLength <= maxSizeToStore) {
+            this.smallOutputStream = new ByteArrayOutputStream((int) expectedLength);
+        }
         this.length = 0;
     }
 
-    private synchronized OutputStream getLargeOutputStream() throws IOException {
+    private OutputStream getLargeOutputStream() throws IOException {
         if (largeOutputStream == null) {
             largeOutputStream = largeDataStore.createOutputStream();
-            if (smallOutputStream.size() > 0) {
-                largeOutputStream.write(smallOutputStream.toByteArray());
+            if (smallOutputStream != null) {
+                smallOutputStream.writeTo(largeOutputStream);
+                smallOutputStream = null;
             }
         }
         return largeOutputStream;
     }
 
-    @Override
-    public synchronized void write(int b) throws IOException {
-        if (this.smallOutputStream.size() <= maxSizeToStore - 1) {
-            this.smallOutputStream.write(b);
-        } else {
-            getLargeOutputStream().write(b);
-        }
-        length++;
+    private boolean fitsInSmall(int len) {
+        return smallOutputStream != null && smallOutputStream.size() + (long) len <= maxSizeToStore;
     }
 
     @Override
-    public synchronized void write(byte[] b) throws IOException {
-        if (this.smallOutputStream.size() <= maxSizeToStore - b.length) {
+    public void write(int b) throws IOException {
+        if (fitsInSmall(1)) {
             this.smallOutputStream.write(b);
         } else {
             getLargeOutputStream().write(b);
         }
-        length += b.length;
+        length++;
     }
 
     @Override
-    public synchronized void write(byte[] b, int off, int len) throws IOException {
-        if (this.smallOutputStream.size() <= maxSizeToStore - len) {
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (fitsInSmall(len)) {
             this.smallOutputStream.write(b, off, len);
         } else {
             getLargeOutputStream().write(b, off, len);
@@ -58,8 +72,8 @@ public class LimitOutputStream extends OutputStream {
         length += len;
     }
 
-    public synchronized boolean hasExceededSizeLimit() {
-        return this.largeOutputStream != null;
+    public boolean hasExceededSizeLimit() {
+        return this.smallOutputStream == null;
     }
 
     public byte[] getSmall() {
@@ -70,20 +84,17 @@ public class LimitOutputStream extends OutputStream {
     }
 
     @Override
-    public synchronized void flush() throws IOException {
+    public void flush() throws IOException {
         if (this.largeOutputStream != null) {
             this.largeOutputStream.flush();
         }
-        super.close();
     }
 
     @Override
-    public synchronized void close() throws IOException {
-        if (this.largeOutputStream != null) {
-            this.largeOutputStream.close();
-        }
-        if (this.smallOutputStream != null) {
-            this.smallOutputStream.close();
+    public void close() throws IOException {
+        if (hasExceededSizeLimit()) {
+            // data expected to be large is stored as such even if less was written
+            getLargeOutputStream().close();
         }
         super.close();
     }
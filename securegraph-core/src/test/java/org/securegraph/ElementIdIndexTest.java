@@ -0,0 +1,84 @@
+package org.securegraph;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+@RunWith(JUnit4.class)
+public class ElementIdIndexTest {
+    private Map<String, Element> elements;
+    private int scanCount;
+    private ElementIdIndex<Element> index;
+
+    @Before
+    public void before() {
+        elements = new LinkedHashMap<String, Element>();
+        put("e1");
+        put("e2");
+        scanCount = 0;
+        index = new ElementIdIndex<Element>() {
+            @Override
+            protected Iterable<Element> scan() {
+                scanCount++;
+                return new ArrayList<Element>(elements.values());
+            }
+        };
+    }
+
+    @Test
+    public void testBuiltByOneScan() {
+        assertEquals("e1", index.get("e1").getId());
+        assertEquals(1, scanCount);
+
+        assertEquals(2, index.getAll(new HashSet<String>(Arrays.asList("e1", "e2", "missing"))).size());
+        assertNull(index.get("missing"));
+        assertEquals(1, scanCount);
+    }
+
+    @Test
+    public void testWrittenElementIsRescannedOnce() {
+        index.get("e1");
+        Element e1 = put("e1");
+        index.written("e1");
+        put("e3");
+        index.written("e3");
+
+        assertSame(e1, index.get("e1"));
+        assertEquals(2, scanCount);
+        assertEquals("e3", index.get("e3").getId());
+        assertEquals("e2", index.get("e2").getId());
+        assertEquals(2, scanCount);
+    }
+
+    @Test
+    public void testRemovedElementIsDroppedWithoutScan() {
+        index.get("e1");
+        elements.remove("e1");
+        index.removed("e1");
+
+        assertNull(index.get("e1"));
+        assertEquals(1, scanCount);
+    }
+
+    private Element put(final String id) {
+        Element element = (Element) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{Element.class}, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                if (method.getName().equals("getId")) {
+                    return id;
+                }
+                throw new UnsupportedOperationException(method.getName());
+            }
+        });
+        elements.put(id, element);
+        return element;
+    }
+}
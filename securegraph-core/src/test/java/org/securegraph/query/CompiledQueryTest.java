@@ -0,0 +1,21 @@
+package org.securegraph.query;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(JUnit4.class)
+public class CompiledQueryTest {
+    @Test
+    public void testContainsIgnoreCase() {
+        assertTrue(CompiledQuery.containsIgnoreCase("Hello World", CompiledQuery.toLowerCase("WORLD")));
+        assertTrue(CompiledQuery.containsIgnoreCase("Hello World", CompiledQuery.toLowerCase("o w")));
+        assertTrue(CompiledQuery.containsIgnoreCase("Hello", CompiledQuery.toLowerCase("")));
+        assertTrue(CompiledQuery.containsIgnoreCase("aaab", CompiledQuery.toLowerCase("aab")));
+        assertFalse(CompiledQuery.containsIgnoreCase("Hello World", CompiledQuery.toLowerCase("worlds")));
+        assertFalse(CompiledQuery.containsIgnoreCase("", CompiledQuery.toLowerCase("a")));
+    }
+}
@@ -0,0 +1,67 @@
+package org.securegraph.util;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+@RunWith(JUnit4.class)
+public class CanReadCacheTest {
+    @Test
+    public void testCanReadIsCached() {
+        List<String> parsed = new ArrayList<String>();
+        RecordingCanReadCache cache = new RecordingCanReadCache(new BoundedConcurrentCache<String, String>(10), parsed, "a");
+        assertTrue(cache.canRead("a"));
+        assertFalse(cache.canRead("b"));
+        assertTrue(cache.canRead("a"));
+        assertFalse(cache.canRead("b"));
+
+        assertEquals(2, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+        assertEquals(Arrays.asList("a", "b"), cache.evaluated);
+        assertEquals(Arrays.asList("a", "b"), parsed);
+    }
+
+    @Test
+    public void testParsedVisibilitiesAreShared() {
+        BoundedConcurrentCache<String, String> parsedVisibilityCache = new BoundedConcurrentCache<String, String>(10);
+        List<String> parsed = new ArrayList<String>();
+        RecordingCanReadCache cacheA = new RecordingCanReadCache(parsedVisibilityCache, parsed, "a");
+        RecordingCanReadCache cacheB = new RecordingCanReadCache(parsedVisibilityCache, parsed, "b");
+        assertTrue(cacheA.canRead("a"));
+        assertFalse(cacheB.canRead("a"));
+        assertTrue(cacheB.canRead("b"));
+
+        assertEquals(Arrays.asList("a", "b"), parsed);
+        assertEquals(Arrays.asList("a", "b"), cacheB.evaluated);
+    }
+
+    private static class RecordingCanReadCache extends CanReadCache<String> {
+        private final List<String> parsed;
+        private final List<String> evaluated = new ArrayList<String>();
+        private final String authorization;
+
+        public RecordingCanReadCache(BoundedConcurrentCache<String, String> parsedVisibilityCache, List<String> parsed, String authorization) {
+            super(parsedVisibilityCache);
+            this.parsed = parsed;
+            this.authorization = authorization;
+        }
+
+        @Override
+        protected String parse(String visibilityString) {
+            parsed.add(visibilityString);
+            return visibilityString;
+        }
+
+        @Override
+        protected boolean evaluate(String visibility) {
+            evaluated.add(visibility);
+            return authorization.equals(visibility);
+        }
+    }
+}
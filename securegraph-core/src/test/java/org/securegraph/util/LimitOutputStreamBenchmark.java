@@ -0,0 +1,87 @@
+package org.securegraph.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+
+/**
+ * Measures MB/sec and heap used when copying a mix of small, medium and large values through a
+ * {@link LimitOutputStream} with the default 10MB table size limit, with and without the length known up front. Large
+ * values are written to a store which discards them.
+ * This is not part of the test suite, run it with: java org.securegraph.util.LimitOutputStreamBenchmark [valueCount] [iterations]
+ */
+public class LimitOutputStreamBenchmark {
+    private static final long MAX_SIZE_TO_STORE = 10 * 1024 * 1024;
+    private static final int[] SIZES = new int[]{100, 100, 100, 100, 100, 100, 10 * 1024, 10 * 1024, 1024 * 1024, 20 * 1024 * 1024};
+
+    public static void main(String[] args) throws IOException {
+        int valueCount = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+        byte[] data = new byte[SIZES[SIZES.length - 1]];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) i;
+        }
+        LimitOutputStream.LargeDataStore largeDataStore = new LimitOutputStream.LargeDataStore() {
+            @Override
+            public OutputStream createOutputStream() throws IOException {
+                return new OutputStream() {
+                    @Override
+                    public void write(int b) throws IOException {
+                    }
+
+                    @Override
+                    public void write(byte[] b, int off, int len) throws IOException {
+                    }
+                };
+            }
+        };
+
+        for (int iteration = 0; iteration < iterations; iteration++) {
+            for (boolean lengthKnown : new boolean[]{false, true}) {
+                System.gc();
+                resetPeakHeapUsed();
+                long startTime = System.nanoTime();
+                long bytes = 0;
+                int largeCount = 0;
+                for (int i = 0; i < valueCount; i++) {
+                    int size = SIZES[i % SIZES.length];
+                    LimitOutputStream out = new LimitOutputStream(largeDataStore, MAX_SIZE_TO_STORE, lengthKnown ? size : -1);
+                    StreamUtils.copy(new ByteArrayInputStream(data, 0, size), out);
+                    out.close();
+                    if (out.hasExceededSizeLimit()) {
+                        largeCount++;
+                    } else {
+                        out.getSmall();
+                    }
+                    bytes += size;
+                }
+                long time = System.nanoTime() - startTime;
+                System.out.println(String.format("iteration %d (length %s): %.1f MB/sec, %d of %d values large, peak heap %dMB",
+                        iteration, lengthKnown ? "known" : "unknown", bytes * 1000.0 / time, largeCount, valueCount,
+                        getPeakHeapUsed() / (1024 * 1024)));
+            }
+        }
+    }
+
+    private static void resetPeakHeapUsed() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+            }
+        }
+    }
+
+    private static long getPeakHeapUsed() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
+}
@@ -0,0 +1,76 @@
+package org.securegraph.util;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import static org.junit.Assert.*;
+
+@RunWith(JUnit4.class)
+public class LimitOutputStreamTest {
+    @Test
+    public void testSmall() throws IOException {
+        RecordingLargeDataStore largeDataStore = new RecordingLargeDataStore();
+        LimitOutputStream out = new LimitOutputStream(largeDataStore, 10);
+        out.write(new byte[]{1, 2, 3});
+        out.write(4);
+        out.close();
+
+        assertFalse(out.hasExceededSizeLimit());
+        assertArrayEquals(new byte[]{1, 2, 3, 4}, out.getSmall());
+        assertEquals(4, out.getLength());
+        assertNull(largeDataStore.out);
+    }
+
+    @Test
+    public void testExceedsLimit() throws IOException {
+        RecordingLargeDataStore largeDataStore = new RecordingLargeDataStore();
+        LimitOutputStream out = new LimitOutputStream(largeDataStore, 4);
+        out.write(new byte[]{1, 2, 3});
+        out.write(new byte[]{4, 5});
+        out.write(6);
+        out.close();
+
+        assertTrue(out.hasExceededSizeLimit());
+        assertNull(out.getSmall());
+        assertEquals(6, out.getLength());
+        assertArrayEquals(new byte[]{1, 2, 3, 4, 5, 6}, largeDataStore.out.toByteArray());
+    }
+
+    @Test
+    public void testExpectedLengthOverLimit() throws IOException {
+        RecordingLargeDataStore largeDataStore = new RecordingLargeDataStore();
+        LimitOutputStream out = new LimitOutputStream(largeDataStore, 4, 5);
+        out.write(1);
+        out.close();
+
+        assertTrue(out.hasExceededSizeLimit());
+        assertArrayEquals(new byte[]{1}, largeDataStore.out.toByteArray());
+    }
+
+    @Test
+    public void testExpectedLengthUnderLimit() throws IOException {
+        RecordingLargeDataStore largeDataStore = new RecordingLargeDataStore();
+        LimitOutputStream out = new LimitOutputStream(largeDataStore, 4, 2);
+        out.write(new byte[]{1, 2, 3});
+        out.close();
+
+        assertFalse(out.hasExceededSizeLimit());
+        assertArrayEquals(new byte[]{1, 2, 3}, out.getSmall());
+    }
+
+    private static class RecordingLargeDataStore extends LimitOutputStream.LargeDataStore {
+        private ByteArrayOutputStream out;
+
+        @Override
+        public OutputStream createOutputStream() throws IOException {
+            assertNull("large output stream created twice", out);
+            out = new ByteArrayOutputStream();
+            return out;
+        }
+    }
+}
@@ -0,0 +1,248 @@
+package org.securegraph.elasticsearch;
+
+import org.elasticsearch.ExceptionsHelper;
+import org.elasticsearch.action.ActionRequest;
+import org.elasticsearch.action.UnavailableShardsException;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.delete.DeleteRequest;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.action.update.UpdateRequest;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.client.transport.NoNodeAvailableException;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
+import org.securegraph.SecureGraphException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Groups index requests into bulk requests of at most {@code maxActions} requests or {@code maxBytes} bytes and
+ * sends up to {@code concurrentRequests} of them at a time on the given executor. Items rejected because the cluster
+ * is busy or a shard is unavailable are retried up to {@code maxRetries} times with an increasing delay. Other
+ * failures are not retried. Anything that could not be indexed is reported by {@link #flush()}.
+ * <p/>
+ * {@link #add(ActionRequest)} is not thread safe.
+ */
+public class ElasticSearchBulkIndexer {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ElasticSearchBulkIndexer.class);
+    private static final long RETRY_DELAY_MILLIS = 100;
+    private final Client client;
+    private final int maxActions;
+    private final long maxBytes;
+    private final int concurrentRequests;
+    private final int maxRetries;
+    private final Executor executor;
+    private final Semaphore semaphore;
+    private final AtomicReference<String> firstFailure = new AtomicReference<String>();
+    private final AtomicLong requestCount = new AtomicLong();
+    private final AtomicLong bulkRequestCount = new AtomicLong();
+    private final AtomicLong retriedCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+    private final long startTime = System.currentTimeMillis();
+    private BulkRequest bulkRequest = new BulkRequest();
+
+    /**
+     * @param executor           runs the bulk requests, it is not shut down by this class. Null to send each bulk
+     *                           request from the calling thread.
+     * @param concurrentRequests the number of bulk requests in flight at a time when an executor is given
+     */
+    public ElasticSearchBulkIndexer(Client client, Executor executor, int maxActions, long maxBytes, int concurrentRequests, int maxRetries) {
+        this.client = client;
+        this.maxActions = maxActions;
+        this.maxBytes = maxBytes;
+        this.concurrentRequests = concurrentRequests;
+        this.maxRetries = maxRetries;
+        if (executor != null && concurrentRequests > 0) {
+            this.executor = executor;
+            this.semaphore = new Semaphore(concurrentRequests);
+        } else {
+            this.executor = null;
+            this.semaphore = null;
+        }
+    }
+
+    public void add(ActionRequest request) {
+        addToBulkRequest(bulkRequest, request);
+        requestCount.incrementAndGet();
+        if (bulkRequest.numberOfActions() >= maxActions || bulkRequest.estimatedSizeInBytes() >= maxBytes) {
+            sendBulkRequest();
+        }
+    }
+
+    /**
+     * Sends any pending requests and waits for all bulk requests to complete.
+     */
+    public void flush() {
+        if (bulkRequest.numberOfActions() > 0) {
+            sendBulkRequest();
+        }
+        if (semaphore != null) {
+            semaphore.acquireUninterruptibly(concurrentRequests);
+            semaphore.release(concurrentRequests);
+        }
+        String failure = firstFailure.getAndSet(null);
+        if (failure != null) {
+            throw new SecureGraphException("Could not index " + failedCount.get() + " documents, first failure: " + failure);
+        }
+    }
+
+    /**
+     * Waits for the bulk requests already sent to complete without reporting failures.
+     */
+    public void close() {
+        if (semaphore != null) {
+            semaphore.acquireUninterruptibly(concurrentRequests);
+            semaphore.release(concurrentRequests);
+        }
+    }
+
+    private void sendBulkRequest() {
+        final BulkRequest request = bulkRequest;
+        bulkRequest = new BulkRequest();
+        bulkRequestCount.incrementAndGet();
+        if (executor == null) {
+            execute(request);
+            return;
+        }
+        semaphore.acquireUninterruptibly();
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        execute(request);
+                    } finally {
+                        semaphore.release();
+                    }
+                }
+            });
+        } catch (RuntimeException ex) {
+            semaphore.release();
+            throw ex;
+        }
+    }
+
+    private void execute(BulkRequest request) {
+        for (int attempt = 0; ; attempt++) {
+            String failure = null;
+            BulkRequest retryRequest = new BulkRequest();
+            try {
+                BulkResponse response = client.bulk(request).actionGet();
+                if (!response.hasFailures()) {
+                    return;
+                }
+                int nonRetryableCount = 0;
+                String nonRetryableFailure = null;
+                for (BulkItemResponse item : response) {
+                    if (!item.isFailed()) {
+                        continue;
+                    }
+                    String itemFailure = item.getId() + ": " + item.getFailureMessage();
+                    if (isRetryable(item.getFailureMessage())) {
+                        addToBulkRequest(retryRequest, request.requests().get(item.getItemId()));
+                        if (failure == null) {
+                            failure = itemFailure;
+                        }
+                    } else {
+                        nonRetryableCount++;
+                        if (nonRetryableFailure == null) {
+                            nonRetryableFailure = itemFailure;
+                        }
+                    }
+                }
+                if (nonRetryableCount > 0) {
+                    failed(nonRetryableCount, nonRetryableFailure);
+                }
+            } catch (Exception ex) {
+                if (!isRetryable(ex)) {
+                    failed(request.numberOfActions(), ex.getMessage());
+                    return;
+                }
+                retryRequest = request;
+                failure = ex.getMessage();
+            }
+
+            if (retryRequest.numberOfActions() == 0) {
+                return;
+            }
+            if (attempt >= maxRetries) {
+                failed(retryRequest.numberOfActions(), "after " + attempt + " retries: " + failure);
+                return;
+            }
+            LOGGER.warn("Retrying " + retryRequest.numberOfActions() + " documents: " + failure);
+            retriedCount.addAndGet(retryRequest.numberOfActions());
+            try {
+                Thread.sleep(RETRY_DELAY_MILLIS << attempt);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            request = retryRequest;
+        }
+    }
+
+    private void failed(int count, String failure) {
+        LOGGER.error("Could not index " + count + " documents: " + failure);
+        failedCount.addAndGet(count);
+        firstFailure.compareAndSet(null, failure);
+    }
+
+    /**
+     * True for failures caused by a full queue on a node or an unavailable shard, which may succeed later.
+     */
+    static boolean isRetryable(Throwable ex) {
+        Throwable cause = ExceptionsHelper.unwrapCause(ex);
+        return cause instanceof EsRejectedExecutionException
+                || cause instanceof UnavailableShardsException
+                || cause instanceof NoNodeAvailableException;
+    }
+
+    /**
+     * Bulk item failures only carry a message, which starts with the name of the exception.
+     */
+    static boolean isRetryable(String failureMessage) {
+        return failureMessage != null
+                && (failureMessage.startsWith(EsRejectedExecutionException.class.getSimpleName())
+                || failureMessage.startsWith(UnavailableShardsException.class.getSimpleName()));
+    }
+
+    private static void addToBulkRequest(BulkRequest bulkRequest, ActionRequest request) {
+        if (request instanceof IndexRequest) {
+            bulkRequest.add((IndexRequest) request);
+        } else if (request instanceof DeleteRequest) {
+            bulkRequest.add((DeleteRequest) request);
+        } else if (request instanceof UpdateRequest) {
+            bulkRequest.add((UpdateRequest) request);
+        } else {
+            throw new SecureGraphException("Unsupported bulk request type " + request.getClass().getName());
+        }
+    }
+
+    public long getRequestCount() {
+        return requestCount.get();
+    }
+
+    public long getBulkRequestCount() {
+        return bulkRequestCount.get();
+    }
+
+    public long getRetriedCount() {
+        return retriedCount.get();
+    }
+
+    public long getFailedCount() {
+        return failedCount.get();
+    }
+
+    @Override
+    public String toString() {
+        long time = Math.max(1, System.currentTimeMillis() - startTime);
+        return String.format("%d documents in %d bulk requests (%.0f documents/sec, %d retried, %d failed)",
+                getRequestCount(), getBulkRequestCount(), getRequestCount() * 1000.0 / time, getRetriedCount(), getFailedCount());
+    }
+}
@@ -4,6 +4,7 @@ import org.elasticsearch.action.search.SearchRequestBuilder;
 import org.elasticsearch.action.search.SearchResponse;
 import org.elasticsearch.client.transport.TransportClient;
 import org.elasticsearch.common.unit.DistanceUnit;
+import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.index.query.*;
 import org.elasticsearch.index.query.functionscore.FunctionScoreQueryBuilder;
 import org.elasticsearch.index.query.functionscore.ScoreFunctionBuilder;
@@ -17,13 +18,16 @@ import org.securegraph.query.GraphQueryBase;
 import org.securegraph.query.TextPredicate;
 import org.securegraph.type.GeoCircle;
 import org.securegraph.util.ConvertingIterable;
+import org.securegraph.util.ElementIdOrder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
 import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executor;
 
 import static org.securegraph.util.IterableUtils.toList;
 
@@ -34,6 +38,8 @@ public abstract class ElasticSearchGraphQueryBase extends GraphQueryBase {
     private String[] indicesToQuery;
     private final double inEdgeBoost;
     private final double outEdgeBoost;
+    private final ElasticSearchScrollOptions scrollOptions;
+    private final Executor scrollExecutor;
 
     protected ElasticSearchGraphQueryBase(
             TransportClient client,
@@ -43,6 +49,8 @@ public abstract class ElasticSearchGraphQueryBase extends GraphQueryBase {
             Map<String, PropertyDefinition> propertyDefinitions,
             double inEdgeBoost,
             double outEdgeBoost,
+            ElasticSearchScrollOptions scrollOptions,
+            Executor scrollExecutor,
             boolean evaluateHasContainers,
             Authorizations authorizations) {
         super(graph, queryString, propertyDefinitions, authorizations);
@@ -50,20 +58,26 @@ public abstract class ElasticSearchGraphQueryBase extends GraphQueryBase {
         this.indicesToQuery = indicesToQuery;
         this.inEdgeBoost = inEdgeBoost;
         this.outEdgeBoost = outEdgeBoost;
+        this.scrollOptions = scrollOptions;
+        this.scrollExecutor = scrollExecutor;
         this.evaluateHasContainers = evaluateHasContainers;
     }
 
     @Override
-    public Iterable<Vertex> vertices(EnumSet<FetchHint> fetchHints) {
+    public Iterable<Vertex> vertices(final EnumSet<FetchHint> fetchHints) {
+        if (scrollOptions.isScroll(getParameters().getLimit())) {
+            return scroll(ElasticSearchSearchIndexBase.ELEMENT_TYPE_VERTEX, new ElementFetcher<Vertex>() {
+                @Override
+                public Iterable<Vertex> getElements(List<SearchHit> hits, Authorizations authorizations) {
+                    return getVertices(hits, getIds(hits), fetchHints, authorizations);
+                }
+            });
+        }
+
         long startTime = System.nanoTime();
         SearchResponse response = getSearchResponse(ElasticSearchSearchIndexBase.ELEMENT_TYPE_VERTEX);
         final SearchHits hits = response.getHits();
-        List<String> ids = toList(new ConvertingIterable<SearchHit, String>(hits) {
-            @Override
-            protected String convert(SearchHit searchHit) {
-                return searchHit.getId();
-            }
-        });
+        List<String> ids = getIds(hits);
         long endTime = System.nanoTime();
         long searchTime = endTime - startTime;
         if (LOGGER.isDebugEnabled()) {
@@ -74,21 +88,25 @@ public abstract class ElasticSearchGraphQueryBase extends GraphQueryBase {
         // and rely on the DefaultGraphQueryIterable to provide property filtering
         Parameters filterParameters = getParameters().clone();
         filterParameters.setSkip(0); // ES already did a skip
-        Iterable<Vertex> vertices = getGraph().getVertices(ids, fetchHints, filterParameters.getAuthorizations());
+        Iterable<Vertex> vertices = getVertices(hits, ids, fetchHints, filterParameters.getAuthorizations());
         return createIterable(response, filterParameters, vertices, evaluateHasContainers, searchTime, hits);
     }
 
     @Override
-    public Iterable<Edge> edges(EnumSet<FetchHint> fetchHints) {
+    public Iterable<Edge> edges(final EnumSet<FetchHint> fetchHints) {
+        if (scrollOptions.isScroll(getParameters().getLimit())) {
+            return scroll(ElasticSearchSearchIndexBase.ELEMENT_TYPE_EDGE, new ElementFetcher<Edge>() {
+                @Override
+                public Iterable<Edge> getElements(List<SearchHit> hits, Authorizations authorizations) {
+                    return getEdges(hits, getIds(hits), fetchHints, authorizations);
+                }
+            });
+        }
+
         long startTime = System.nanoTime();
         SearchResponse response = getSearchResponse(ElasticSearchSearchIndexBase.ELEMENT_TYPE_EDGE);
         final SearchHits hits = response.getHits();
-        List<String> ids = toList(new ConvertingIterable<SearchHit, String>(hits) {
-            @Override
-            protected String convert(SearchHit searchHit) {
-                return searchHit.getId();
-            }
-        });
+        List<String> ids = getIds(hits);
         long endTime = System.nanoTime();
         long searchTime = endTime - startTime;
         if (LOGGER.isDebugEnabled()) {
@@ -99,16 +117,188 @@ public abstract class ElasticSearchGraphQueryBase extends GraphQueryBase {
         // and rely on the DefaultGraphQueryIterable to provide property filtering
         Parameters filterParameters = getParameters().clone();
         filterParameters.setSkip(0); // ES already did a skip
-        Iterable<Edge> edges = getGraph().getEdges(ids, fetchHints, filterParameters.getAuthorizations());
+        Iterable<Edge> edges = getEdges(hits, ids, fetchHints, filterParameters.getAuthorizations());
         // TODO instead of passing false here to not evaluate the query string it would be better to support the Lucene query
         return createIterable(response, filterParameters, edges, evaluateHasContainers, searchTime, hits);
     }
 
+    private static List<String> getIds(Iterable<SearchHit> hits) {
+        return toList(new ConvertingIterable<SearchHit, String>(hits) {
+            @Override
+            protected String convert(SearchHit searchHit) {
+                return searchHit.getId();
+            }
+        });
+    }
+
+    /**
+     * The vertices of the hits in the order of the hits, built from the hits when the fetch hints allow it.
+     */
+    private Iterable<Vertex> getVertices(Iterable<SearchHit> hits, List<String> ids, EnumSet<FetchHint> fetchHints, Authorizations authorizations) {
+        if (!isBuiltFromSearchIndex(fetchHints)) {
+            return getGraph().getVerticesInOrder(ids, fetchHints, authorizations);
+        }
+        List<Vertex> vertices = new ArrayList<Vertex>();
+        List<String> idsWithoutSource = new ArrayList<String>();
+        for (SearchHit hit : hits) {
+            Map<String, Object> propertyValues = getPropertyValuesFromSource(hit);
+            if (propertyValues == null) {
+                idsWithoutSource.add(hit.getId());
+            } else {
+                vertices.add(new SearchIndexVertex(getGraph(), hit.getId(), propertyValues, fetchHints, authorizations));
+            }
+        }
+        if (idsWithoutSource.size() > 0) {
+            for (Vertex vertex : getGraph().getVertices(idsWithoutSource, fetchHints, authorizations)) {
+                vertices.add(vertex);
+            }
+        }
+        // the elements read from the graph are put back among the ones built from the hits
+        return new ElementIdOrder(ids).sort(vertices);
+    }
+
+    /**
+     * The edges of the hits in the order of the hits, built from the hits when the fetch hints allow it.
+     */
+    private Iterable<Edge> getEdges(Iterable<SearchHit> hits, List<String> ids, EnumSet<FetchHint> fetchHints, Authorizations authorizations) {
+        if (!isBuiltFromSearchIndex(fetchHints)) {
+            return getGraph().getEdgesInOrder(ids, fetchHints, authorizations);
+        }
+        List<Edge> edges = new ArrayList<Edge>();
+        List<String> idsWithoutSource = new ArrayList<String>();
+        for (SearchHit hit : hits) {
+            Map<String, Object> propertyValues = getPropertyValuesFromSource(hit);
+            if (propertyValues == null) {
+                idsWithoutSource.add(hit.getId());
+            } else {
+                edges.add(new SearchIndexEdge(getGraph(), hit.getId(), propertyValues, fetchHints, authorizations));
+            }
+        }
+        if (idsWithoutSource.size() > 0) {
+            for (Edge edge : getGraph().getEdges(idsWithoutSource, fetchHints, authorizations)) {
+                edges.add(edge);
+            }
+        }
+        // the elements read from the graph are put back among the ones built from the hits
+        return new ElementIdOrder(ids).sort(edges);
+    }
+
+    private boolean isBuiltFromSearchIndex(EnumSet<FetchHint> fetchHints) {
+        return fetchHints.contains(FetchHint.SEARCH_INDEX) && isAuthorizationsFiltered();
+    }
+
+    /**
+     * True when the search only returns documents fully visible to the authorizations, so elements can be built from
+     * the returned documents without reading them from the graph.
+     */
+    protected boolean isAuthorizationsFiltered() {
+        return false;
+    }
+
+    /**
+     * The property values in the hit's source which convert back to their defined type exactly, or null if the
+     * source is not stored.
+     */
+    private Map<String, Object> getPropertyValuesFromSource(SearchHit hit) {
+        if (hit.isSourceEmpty()) {
+            return null;
+        }
+        Map<String, Object> propertyValues = new HashMap<String, Object>();
+        for (Map.Entry<String, Object> sourceField : hit.getSource().entrySet()) {
+            String propertyName = sourceField.getKey();
+            if (propertyName.endsWith(ElasticSearchSearchIndexBase.EXACT_MATCH_PROPERTY_NAME_SUFFIX)) {
+                propertyName = propertyName.substring(0, propertyName.length() - ElasticSearchSearchIndexBase.EXACT_MATCH_PROPERTY_NAME_SUFFIX.length());
+            }
+            PropertyDefinition propertyDefinition = getPropertyDefinitions().get(propertyName);
+            if (propertyDefinition == null) {
+                continue;
+            }
+            Object value = toPropertyValue(propertyDefinition.getDataType(), sourceField.getValue());
+            if (value != null) {
+                propertyValues.put(propertyName, value);
+            }
+        }
+        return propertyValues;
+    }
+
+    /**
+     * Dates, geo points and other values which do not come back from the source as they were indexed are left to be
+     * read from the graph.
+     */
+    private static Object toPropertyValue(Class dataType, Object value) {
+        if (dataType == String.class || dataType == Boolean.class) {
+            return dataType.isInstance(value) ? value : null;
+        }
+        if (!(value instanceof Number)) {
+            return null;
+        }
+        Number number = (Number) value;
+        if (dataType == Integer.class) {
+            return number.intValue();
+        } else if (dataType == Long.class) {
+            return number.longValue();
+        } else if (dataType == Double.class) {
+            return number.doubleValue();
+        } else if (dataType == Float.class) {
+            return number.floatValue();
+        } else if (dataType == Short.class) {
+            return number.shortValue();
+        } else if (dataType == Byte.class) {
+            return number.byteValue();
+        }
+        return null;
+    }
+
     protected <T extends Element> ElasticSearchGraphQueryIterable<T> createIterable(SearchResponse response, Parameters filterParameters, Iterable<T> elements, boolean evaluateHasContainers, long searchTime, SearchHits hits) {
         return new ElasticSearchGraphQueryIterable<T>(response, filterParameters, elements, false, evaluateHasContainers, hits.getTotalHits(), searchTime, hits);
     }
 
+    /**
+     * Streams the hits page by page with a scroll, getting the elements of each page like an unscrolled search while
+     * the next pages are read. Only the scores of the first page are kept.
+     */
+    private <T extends Element> Iterable<T> scroll(String elementType, final ElementFetcher<T> elementFetcher) {
+        long startTime = System.nanoTime();
+        final SearchRequestBuilder q = createSearchRequestBuilder(elementType)
+                .setFrom(0)
+                .setSize(scrollOptions.getPageSize())
+                .setScroll(TimeValue.timeValueMillis(scrollOptions.getKeepAliveMillis()));
+        LOGGER.debug("scroll query: " + q);
+        SearchResponse response = q.execute().actionGet();
+        long searchTime = System.nanoTime() - startTime;
+        SearchHits hits = response.getHits();
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("elastic search scroll of " + hits.getTotalHits() + " results (time: " + (searchTime / 1000 / 1000) + "ms)");
+        }
+
+        final Parameters filterParameters = getParameters().clone();
+        filterParameters.setSkip(0); // skipped while scrolling
+        Iterable<T> elements = new ElasticSearchScrollIterable<T>(client, scrollOptions, scrollExecutor, response, getParameters().getSkip(), getParameters().getLimit()) {
+            @Override
+            protected SearchResponse startScroll() {
+                return q.execute().actionGet();
+            }
+
+            @Override
+            protected Iterable<T> getElements(List<SearchHit> hits) {
+                return elementFetcher.getElements(hits, filterParameters.getAuthorizations());
+            }
+        };
+        return createIterable(response, filterParameters, elements, evaluateHasContainers, searchTime, hits);
+    }
+
+    private static interface ElementFetcher<T extends Element> {
+        Iterable<T> getElements(List<SearchHit> hits, Authorizations authorizations);
+    }
+
     private SearchResponse getSearchResponse(String elementType) {
+        SearchRequestBuilder q = createSearchRequestBuilder(elementType);
+        LOGGER.debug("query: " + q);
+        return q.execute()
+                .actionGet();
+    }
+
+    private SearchRequestBuilder createSearchRequestBuilder(String elementType) {
         List<FilterBuilder> filters = getFilters(elementType);
         QueryBuilder query = createQuery(getParameters().getQueryString(), elementType, filters);
 
@@ -121,11 +311,7 @@ public abstract class ElasticSearchGraphQueryBase extends GraphQueryBase {
 
         FunctionScoreQueryBuilder functionScoreQuery = QueryBuilders.functionScoreQuery(query, scoreFunction);
 
-        SearchRequestBuilder q = getSearchRequestBuilder(filters, functionScoreQuery);
-
-        LOGGER.debug("query: " + q);
-        return q.execute()
-                .actionGet();
+        return getSearchRequestBuilder(filters, functionScoreQuery);
     }
 
     protected List<FilterBuilder> getFilters(String elementType) {
@@ -261,4 +447,8 @@ public abstract class ElasticSearchGraphQueryBase extends GraphQueryBase {
     public String[] getIndicesToQuery() {
         return indicesToQuery;
     }
+
+    public ElasticSearchScrollOptions getScrollOptions() {
+        return scrollOptions;
+    }
 }
@@ -0,0 +1,293 @@
+package org.securegraph.elasticsearch;
+
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.client.transport.TransportClient;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.search.SearchHit;
+import org.securegraph.Element;
+import org.securegraph.SecureGraphException;
+import org.securegraph.util.CloseableIterable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.util.*;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Streams the elements of the hits of a scrolled search, holding at most a few pages of hits in memory whatever the
+ * number of hits. The next pages of hits are read on the executor while the elements of the current page are
+ * fetched. A read is one task per page, so the executor's threads are only held while a scroll request
+ * is in flight, not while pages wait to be taken.
+ * <p/>
+ * The first iteration uses the response the scroll was started with, later iterations start a new scroll.
+ * <p/>
+ * An iterator which is not read to the end should be closed, which clears its scroll once no page is being read.
+ * Closing the iterable closes the iterators open at the time, it can still be iterated again afterwards.
+ */
+public abstract class ElasticSearchScrollIterable<T extends Element> implements CloseableIterable<T> {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ElasticSearchScrollIterable.class);
+    private final TransportClient client;
+    private final ElasticSearchScrollOptions scrollOptions;
+    private final Executor executor;
+    private final long skip;
+    private final long limit;
+    private SearchResponse firstResponse;
+    private final List<ScrollIterator> iterators = new ArrayList<ScrollIterator>();
+
+    /**
+     * @param executor      reads the pages, shared by the scrolls of a search index
+     * @param firstResponse the response of the search which started the scroll
+     * @param skip          the number of hits to skip, scrolls can not skip hits on the server
+     * @param limit         the most hits to read after the skipped hits
+     */
+    protected ElasticSearchScrollIterable(TransportClient client, ElasticSearchScrollOptions scrollOptions, Executor executor, SearchResponse firstResponse, long skip, long limit) {
+        this.client = client;
+        this.scrollOptions = scrollOptions;
+        this.executor = executor;
+        this.firstResponse = firstResponse;
+        this.skip = skip;
+        this.limit = limit;
+    }
+
+    /**
+     * Starts a new scroll with the same search.
+     */
+    protected abstract SearchResponse startScroll();
+
+    /**
+     * Gets the elements of a page of hits, in the order of the hits.
+     */
+    protected abstract Iterable<T> getElements(List<SearchHit> hits);
+
+    @Override
+    public Iterator<T> iterator() {
+        SearchResponse response;
+        synchronized (this) {
+            response = firstResponse;
+            firstResponse = null;
+        }
+        if (response == null) {
+            response = startScroll();
+        }
+        ScrollIterator iterator = new ScrollIterator(response);
+        synchronized (this) {
+            iterators.add(iterator);
+        }
+        iterator.readAhead();
+        return iterator;
+    }
+
+    @Override
+    public void close() {
+        List<ScrollIterator> iteratorsToClose;
+        synchronized (this) {
+            iteratorsToClose = new ArrayList<ScrollIterator>(iterators);
+            iterators.clear();
+        }
+        for (ScrollIterator iterator : iteratorsToClose) {
+            iterator.close();
+        }
+    }
+
+    private synchronized void removeIterator(ScrollIterator iterator) {
+        iterators.remove(iterator);
+    }
+
+    private class ScrollIterator implements Iterator<T>, Closeable, Runnable {
+        private final LinkedList<List<SearchHit>> pages = new LinkedList<List<SearchHit>>();
+        private SearchResponse response;
+        private String scrollId;
+        private long remainingSkip = skip;
+        private long remainingLimit = limit;
+        private boolean reading;
+        private boolean exhausted;
+        private boolean closed;
+        private boolean scrollCleared;
+        private Exception failure;
+        private Iterator<T> elements = Collections.<T>emptyList().iterator();
+        private boolean done;
+
+        private ScrollIterator(SearchResponse response) {
+            this.response = response;
+            this.scrollId = response.getScrollId();
+        }
+
+        /**
+         * Reads the next page unless a page is being read or enough pages have been read ahead.
+         */
+        private void readAhead() {
+            synchronized (this) {
+                if (reading || exhausted || closed || pages.size() >= scrollOptions.getPrefetchPages()) {
+                    return;
+                }
+                reading = true;
+            }
+            try {
+                executor.execute(this);
+            } catch (RejectedExecutionException ex) {
+                pageRead(null, ex);
+            }
+        }
+
+        @Override
+        public void run() {
+            List<SearchHit> hits = null;
+            Exception readFailure = null;
+            try {
+                SearchResponse pageResponse;
+                synchronized (this) {
+                    pageResponse = response;
+                    response = null;
+                }
+                if (pageResponse == null) {
+                    TimeValue keepAlive = TimeValue.timeValueMillis(scrollOptions.getKeepAliveMillis());
+                    pageResponse = client.prepareSearchScroll(scrollId).setScroll(keepAlive).execute().actionGet();
+                }
+                hits = getPageHits(pageResponse);
+            } catch (Exception ex) {
+                readFailure = ex;
+            }
+            pageRead(hits, readFailure);
+            readAhead();
+        }
+
+        /**
+         * @return the hits which are neither skipped nor past the limit, null if there are no more hits
+         */
+        private List<SearchHit> getPageHits(SearchResponse pageResponse) {
+            SearchHit[] hits = pageResponse.getHits().getHits();
+            synchronized (this) {
+                scrollId = pageResponse.getScrollId();
+                if (hits.length == 0) {
+                    return null;
+                }
+                List<SearchHit> pageHits = new ArrayList<SearchHit>(hits.length);
+                for (SearchHit hit : hits) {
+                    if (remainingSkip > 0) {
+                        remainingSkip--;
+                    } else if (remainingLimit > 0) {
+                        remainingLimit--;
+                        pageHits.add(hit);
+                    }
+                }
+                return pageHits;
+            }
+        }
+
+        /**
+         * @param hits null when there are no more hits or the read failed
+         */
+        private void pageRead(List<SearchHit> hits, Exception readFailure) {
+            boolean clear;
+            synchronized (this) {
+                reading = false;
+                if (hits == null || remainingLimit == 0) {
+                    exhausted = true;
+                }
+                if (readFailure != null && !closed) {
+                    failure = readFailure;
+                }
+                if (hits != null && !hits.isEmpty() && !closed) {
+                    pages.add(hits);
+                }
+                clear = isScrollToClear();
+                notifyAll();
+            }
+            if (clear) {
+                clearScroll();
+            }
+        }
+
+        private boolean isScrollToClear() {
+            if (scrollCleared || reading || !(exhausted || closed)) {
+                return false;
+            }
+            scrollCleared = true;
+            return true;
+        }
+
+        private void clearScroll() {
+            if (scrollId == null) {
+                return;
+            }
+            try {
+                client.prepareClearScroll().addScrollId(scrollId).execute();
+            } catch (Exception ex) {
+                LOGGER.warn("Could not clear scroll " + scrollId, ex);
+            }
+        }
+
+        /**
+         * Drops the pages read ahead and clears the scroll, or leaves it to the page being read.
+         */
+        @Override
+        public void close() {
+            boolean clear;
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                done = true;
+                pages.clear();
+                response = null;
+                elements = Collections.<T>emptyList().iterator();
+                clear = isScrollToClear();
+                notifyAll();
+            }
+            removeIterator(this);
+            if (clear) {
+                clearScroll();
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (!elements.hasNext()) {
+                List<SearchHit> hits;
+                synchronized (this) {
+                    if (done) {
+                        return false;
+                    }
+                    while (pages.isEmpty() && !exhausted && !closed) {
+                        try {
+                            wait();
+                        } catch (InterruptedException ex) {
+                            Thread.currentThread().interrupt();
+                            throw new SecureGraphException("Interrupted reading scroll", ex);
+                        }
+                    }
+                    if (pages.isEmpty()) {
+                        done = true;
+                        Exception ex = failure;
+                        failure = null;
+                        removeIterator(this);
+                        if (ex != null) {
+                            throw new SecureGraphException("Could not read scroll", ex);
+                        }
+                        return false;
+                    }
+                    hits = pages.removeFirst();
+                }
+                readAhead();
+                elements = getElements(hits).iterator();
+            }
+            return true;
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return elements.next();
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package org.securegraph.elasticsearch;
+
+/**
+ * When and how queries stream their hits with a scroll instead of reading them all with one search.
+ */
+public class ElasticSearchScrollOptions {
+    private final long threshold;
+    private final int pageSize;
+    private final int prefetchPages;
+    private final long keepAliveMillis;
+
+    /**
+     * @param threshold       queries with a limit above this are scrolled
+     * @param pageSize        the number of hits read per scroll request
+     * @param prefetchPages   the most pages of hits read ahead of the elements being fetched from the graph
+     * @param keepAliveMillis how long the scroll is kept between requests
+     */
+    public ElasticSearchScrollOptions(long threshold, int pageSize, int prefetchPages, long keepAliveMillis) {
+        this.threshold = threshold;
+        this.pageSize = pageSize;
+        this.prefetchPages = Math.max(1, prefetchPages);
+        this.keepAliveMillis = keepAliveMillis;
+    }
+
+    public boolean isScroll(long limit) {
+        return limit > threshold;
+    }
+
+    public long getThreshold() {
+        return threshold;
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    public int getPrefetchPages() {
+        return prefetchPages;
+    }
+
+    public long getKeepAliveMillis() {
+        return keepAliveMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "ElasticSearchScrollOptions{threshold=" + threshold + ", pageSize=" + pageSize + ", prefetchPages=" + prefetchPages + ", keepAliveMillis=" + keepAliveMillis + "}";
+    }
+}
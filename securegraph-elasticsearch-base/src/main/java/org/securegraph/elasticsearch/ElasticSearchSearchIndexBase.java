@@ -22,17 +22,18 @@ import org.securegraph.property.StreamingPropertyValue;
 import org.securegraph.query.DefaultVertexQuery;
 import org.securegraph.query.GraphQuery;
 import org.securegraph.query.VertexQuery;
-import org.securegraph.search.SearchIndex;
+import org.securegraph.search.SearchIndexBase;
 import org.securegraph.type.GeoPoint;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.*;
 
 import static org.securegraph.util.Preconditions.checkNotNull;
 
-public abstract class ElasticSearchSearchIndexBase implements SearchIndex {
+public abstract class ElasticSearchSearchIndexBase extends SearchIndexBase {
     private static final Logger LOGGER = LoggerFactory.getLogger(ElasticSearchSearchIndexBase.class);
     public static final String CONFIG_STORE_SOURCE_DATA = "storeSourceData";
     public static final String CONFIG_ES_LOCATIONS = "locations";
@@ -45,6 +46,25 @@ public abstract class ElasticSearchSearchIndexBase implements SearchIndex {
     private static final double DEFAULT_OUT_EDGE_BOOST = 1.1;
     public static final String CONFIG_USE_EDGE_BOOST = "useEdgeBoost";
     private static final boolean DEFAULT_USE_EDGE_BOOST = true;
+    public static final String CONFIG_BULK_MAX_ACTIONS = "bulkMaxActions";
+    private static final int DEFAULT_BULK_MAX_ACTIONS = 1000;
+    public static final String CONFIG_BULK_MAX_BYTES = "bulkMaxBytes";
+    private static final long DEFAULT_BULK_MAX_BYTES = 5 * 1024 * 1024;
+    public static final String CONFIG_BULK_CONCURRENT_REQUESTS = "bulkConcurrentRequests";
+    private static final int DEFAULT_BULK_CONCURRENT_REQUESTS = 1;
+    public static final String CONFIG_BULK_MAX_RETRIES = "bulkMaxRetries";
+    private static final int DEFAULT_BULK_MAX_RETRIES = 3;
+    public static final String CONFIG_SCROLL_THRESHOLD = "scrollThreshold";
+    private static final long DEFAULT_SCROLL_THRESHOLD = 10000;
+    public static final String CONFIG_SCROLL_PAGE_SIZE = "scrollPageSize";
+    private static final int DEFAULT_SCROLL_PAGE_SIZE = 1000;
+    public static final String CONFIG_SCROLL_PREFETCH_PAGES = "scrollPrefetchPages";
+    private static final int DEFAULT_SCROLL_PREFETCH_PAGES = 2;
+    public static final String CONFIG_SCROLL_KEEP_ALIVE = "scrollKeepAlive";
+    private static final long DEFAULT_SCROLL_KEEP_ALIVE = 60 * 1000;
+    public static final String CONFIG_SCROLL_READER_THREADS = "scrollReaderThreads";
+    private static final int DEFAULT_SCROLL_READER_THREADS = 4;
+    private static final int EDGE_BOOST_VERTEX_WINDOW_SIZE = 10000;
     public static final String ELEMENT_TYPE = "element";
     public static final String ELEMENT_TYPE_FIELD_NAME = "__elementType";
     public static final String VISIBILITY_FIELD_NAME = "__visibility";
@@ -67,6 +87,14 @@ public abstract class ElasticSearchSearchIndexBase implements SearchIndex {
     private double inEdgeBoost;
     private double outEdgeBoost;
     private boolean useEdgeBoost;
+    private int bulkMaxActions;
+    private long bulkMaxBytes;
+    private int bulkConcurrentRequests;
+    private int bulkMaxRetries;
+    private ExecutorService bulkExecutor;
+    private ElasticSearchScrollOptions scrollOptions;
+    private int scrollReaderThreads;
+    private ThreadPoolExecutor scrollExecutor;
 
     protected ElasticSearchSearchIndexBase(Map config) {
         readConfig(config);
@@ -172,6 +200,31 @@ public abstract class ElasticSearchSearchIndexBase implements SearchIndex {
             useEdgeBoost = Boolean.parseBoolean(useEdgeBoostString);
         }
         LOGGER.info("Use edge boost: " + useEdgeBoost);
+
+        // Bulk indexing
+        String bulkMaxActionsString = (String) config.get(GraphConfiguration.SEARCH_INDEX_PROP_PREFIX + "." + CONFIG_BULK_MAX_ACTIONS);
+        bulkMaxActions = bulkMaxActionsString == null ? DEFAULT_BULK_MAX_ACTIONS : Integer.parseInt(bulkMaxActionsString);
+        String bulkMaxBytesString = (String) config.get(GraphConfiguration.SEARCH_INDEX_PROP_PREFIX + "." + CONFIG_BULK_MAX_BYTES);
+        bulkMaxBytes = bulkMaxBytesString == null ? DEFAULT_BULK_MAX_BYTES : Long.parseLong(bulkMaxBytesString);
+        String bulkConcurrentRequestsString = (String) config.get(GraphConfiguration.SEARCH_INDEX_PROP_PREFIX + "." + CONFIG_BULK_CONCURRENT_REQUESTS);
+        bulkConcurrentRequests = bulkConcurrentRequestsString == null ? DEFAULT_BULK_CONCURRENT_REQUESTS : Integer.parseInt(bulkConcurrentRequestsString);
+        String bulkMaxRetriesString = (String) config.get(GraphConfiguration.SEARCH_INDEX_PROP_PREFIX + "." + CONFIG_BULK_MAX_RETRIES);
+        bulkMaxRetries = bulkMaxRetriesString == null ? DEFAULT_BULK_MAX_RETRIES : Integer.parseInt(bulkMaxRetriesString);
+        LOGGER.info("Bulk indexing: " + bulkMaxActions + " actions, " + bulkMaxBytes + " bytes, " + bulkConcurrentRequests + " concurrent requests, " + bulkMaxRetries + " retries");
+
+        // scroll
+        String scrollThresholdString = (String) config.get(GraphConfiguration.SEARCH_INDEX_PROP_PREFIX + "." + CONFIG_SCROLL_THRESHOLD);
+        long scrollThreshold = scrollThresholdString == null ? DEFAULT_SCROLL_THRESHOLD : Long.parseLong(scrollThresholdString);
+        String scrollPageSizeString = (String) config.get(GraphConfiguration.SEARCH_INDEX_PROP_PREFIX + "." + CONFIG_SCROLL_PAGE_SIZE);
+        int scrollPageSize = scrollPageSizeString == null ? DEFAULT_SCROLL_PAGE_SIZE : Integer.parseInt(scrollPageSizeString);
+        String scrollPrefetchPagesString = (String) config.get(GraphConfiguration.SEARCH_INDEX_PROP_PREFIX + "." + CONFIG_SCROLL_PREFETCH_PAGES);
+        int scrollPrefetchPages = scrollPrefetchPagesString == null ? DEFAULT_SCROLL_PREFETCH_PAGES : Integer.parseInt(scrollPrefetchPagesString);
+        String scrollKeepAliveString = (String) config.get(GraphConfiguration.SEARCH_INDEX_PROP_PREFIX + "." + CONFIG_SCROLL_KEEP_ALIVE);
+        long scrollKeepAlive = scrollKeepAliveString == null ? DEFAULT_SCROLL_KEEP_ALIVE : Long.parseLong(scrollKeepAliveString);
+        scrollOptions = new ElasticSearchScrollOptions(scrollThreshold, scrollPageSize, scrollPrefetchPages, scrollKeepAlive);
+        String scrollReaderThreadsString = (String) config.get(GraphConfiguration.SEARCH_INDEX_PROP_PREFIX + "." + CONFIG_SCROLL_READER_THREADS);
+        scrollReaderThreads = scrollReaderThreadsString == null ? DEFAULT_SCROLL_READER_THREADS : Integer.parseInt(scrollReaderThreadsString);
+        LOGGER.info("Scroll: " + scrollOptions + ", " + scrollReaderThreads + " reader threads");
     }
 
     protected void loadIndexInfos() {
@@ -383,18 +436,106 @@ public abstract class ElasticSearchSearchIndexBase implements SearchIndex {
 
     @Override
     public void addElements(Graph graph, Iterable<Element> elements, Authorizations authorizations) {
-        // TODO change this to use elastic search bulk import
-        int count = 0;
-        for (Element element : elements) {
-            if (count % 1000 == 0) {
-                LOGGER.debug("adding elements... " + count);
+        addElements(graph, elements, isUseEdgeBoost(), authorizations);
+    }
+
+    @Override
+    public void reindexElements(Graph graph, Iterable<Element> elements, Authorizations authorizations) {
+        addElements(graph, elements, false, authorizations);
+    }
+
+    /**
+     * @param reindexEdgeVertices reindex the vertices of the edges, which have the edge counts with edge boost
+     */
+    private void addElements(Graph graph, Iterable<Element> elements, boolean reindexEdgeVertices, Authorizations authorizations) {
+        ElasticSearchBulkIndexer bulkIndexer = createBulkIndexer();
+        try {
+            // with edge boost each edge changes the document of both of its vertices, a vertex shared by many of the
+            // edges is only indexed once per window of edges
+            Set<String> edgeBoostVertexIds = new LinkedHashSet<String>();
+            int count = 0;
+            for (Element element : elements) {
+                if (count % 10000 == 0) {
+                    LOGGER.debug("adding elements... " + bulkIndexer);
+                }
+                addElementToBulkIndexer(graph, bulkIndexer, element, authorizations);
+                count++;
+
+                if (reindexEdgeVertices && element instanceof Edge) {
+                    edgeBoostVertexIds.add(((Edge) element).getVertexId(Direction.OUT));
+                    edgeBoostVertexIds.add(((Edge) element).getVertexId(Direction.IN));
+                    if (edgeBoostVertexIds.size() >= EDGE_BOOST_VERTEX_WINDOW_SIZE) {
+                        addEdgeBoostVerticesToBulkIndexer(graph, bulkIndexer, edgeBoostVertexIds, authorizations);
+                    }
+                }
             }
-            addElement(graph, element, authorizations);
-            count++;
+            addEdgeBoostVerticesToBulkIndexer(graph, bulkIndexer, edgeBoostVertexIds, authorizations);
+            bulkIndexer.flush();
+            LOGGER.debug("added " + count + " elements: " + bulkIndexer);
+        } finally {
+            bulkIndexer.close();
+        }
+
+        if (isAutoflush()) {
+            flush();
+        }
+    }
+
+    private void addEdgeBoostVerticesToBulkIndexer(Graph graph, ElasticSearchBulkIndexer bulkIndexer, Set<String> vertexIds, Authorizations authorizations) {
+        if (vertexIds.isEmpty()) {
+            return;
+        }
+        // the documents only need the edge counts of a vertex, not its edge references
+        for (Vertex vertex : graph.getVertices(vertexIds, FetchHint.PROPERTIES_AND_EDGE_COUNTS, authorizations)) {
+            addElementToBulkIndexer(graph, bulkIndexer, vertex, authorizations);
         }
-        LOGGER.debug("added " + count + " elements");
+        vertexIds.clear();
     }
 
+    public ElasticSearchBulkIndexer createBulkIndexer() {
+        return new ElasticSearchBulkIndexer(client, getBulkExecutor(), bulkMaxActions, bulkMaxBytes, bulkConcurrentRequests, bulkMaxRetries);
+    }
+
+    // one pool per search index, shared by all its bulk indexers and shut down with the search index
+    private synchronized ExecutorService getBulkExecutor() {
+        if (bulkConcurrentRequests <= 0) {
+            return null;
+        }
+        if (bulkExecutor == null) {
+            bulkExecutor = Executors.newFixedThreadPool(bulkConcurrentRequests, new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "securegraph-elasticsearch-bulk");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return bulkExecutor;
+    }
+
+    // one pool per search index, shared by the scrolls of all its queries and shut down with the search index
+    protected synchronized ThreadPoolExecutor getScrollExecutor() {
+        if (scrollExecutor == null) {
+            scrollExecutor = new ThreadPoolExecutor(scrollReaderThreads, scrollReaderThreads, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "securegraph-es-scroll");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return scrollExecutor;
+    }
+
+    /**
+     * Adds the requests to index the element. Unlike {@link #addElement(Graph, Element, Authorizations)} the element
+     * is not merged with the stored element, it is expected to have been read from the graph, and the vertices of an
+     * edge are not reindexed.
+     */
+    protected abstract void addElementToBulkIndexer(Graph graph, ElasticSearchBulkIndexer bulkIndexer, Element element, Authorizations authorizations);
+
     @Override
     public abstract GraphQuery queryGraph(Graph graph, String queryString, Authorizations authorizations);
 
@@ -427,6 +568,16 @@ public abstract class ElasticSearchSearchIndexBase implements SearchIndex {
 
     @Override
     public void shutdown() {
+        synchronized (this) {
+            if (bulkExecutor != null) {
+                bulkExecutor.shutdown();
+                bulkExecutor = null;
+            }
+            if (scrollExecutor != null) {
+                scrollExecutor.shutdownNow();
+                scrollExecutor = null;
+            }
+        }
         client.close();
     }
 
@@ -547,6 +698,10 @@ public abstract class ElasticSearchSearchIndexBase implements SearchIndex {
         return outEdgeBoost;
     }
 
+    public ElasticSearchScrollOptions getScrollOptions() {
+        return scrollOptions;
+    }
+
     protected void addTypeToMapping(XContentBuilder mapping, String propertyName, Class dataType, boolean analyzed, Double boost) throws IOException {
         if (dataType == String.class) {
             LOGGER.debug("Registering string type for {}", propertyName);
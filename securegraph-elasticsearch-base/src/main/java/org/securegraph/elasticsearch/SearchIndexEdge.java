@@ -0,0 +1,58 @@
+package org.securegraph.elasticsearch;
+
+import org.securegraph.*;
+import org.securegraph.mutation.ExistingElementMutation;
+
+import java.util.EnumSet;
+import java.util.Map;
+
+public class SearchIndexEdge extends SearchIndexElement<Edge> implements Edge {
+    public SearchIndexEdge(Graph graph, String id, Map<String, Object> propertyValues, EnumSet<FetchHint> fetchHints, Authorizations authorizations) {
+        super(graph, id, propertyValues, fetchHints, authorizations);
+    }
+
+    @Override
+    protected Edge getElement(Graph graph, String id, EnumSet<FetchHint> fetchHints, Authorizations authorizations) {
+        return graph.getEdge(id, fetchHints, authorizations);
+    }
+
+    @Override
+    public String getLabel() {
+        return getElement().getLabel();
+    }
+
+    @Override
+    public String getVertexId(Direction direction) {
+        return getElement().getVertexId(direction);
+    }
+
+    @Override
+    public Vertex getVertex(Direction direction, Authorizations authorizations) {
+        return getElement().getVertex(direction, authorizations);
+    }
+
+    @Override
+    public Vertex getVertex(Direction direction, EnumSet<FetchHint> fetchHints, Authorizations authorizations) {
+        return getElement().getVertex(direction, fetchHints, authorizations);
+    }
+
+    @Override
+    public String getOtherVertexId(String myVertexId) {
+        return getElement().getOtherVertexId(myVertexId);
+    }
+
+    @Override
+    public Vertex getOtherVertex(String myVertexId, Authorizations authorizations) {
+        return getElement().getOtherVertex(myVertexId, authorizations);
+    }
+
+    @Override
+    public Vertex getOtherVertex(String myVertexId, EnumSet<FetchHint> fetchHints, Authorizations authorizations) {
+        return getElement().getOtherVertex(myVertexId, fetchHints, authorizations);
+    }
+
+    @Override
+    public ExistingElementMutation<Edge> prepareMutation() {
+        return getElement().prepareMutation();
+    }
+}
@@ -0,0 +1,180 @@
+package org.securegraph.elasticsearch;
+
+import org.securegraph.*;
+
+import java.util.EnumSet;
+import java.util.Map;
+
+/**
+ * An element built from its search index document. Property values found in the document are read from it, anything
+ * else loads the element from the graph the first time it is used.
+ * <p/>
+ * A property with several values is indexed once per value, so the value read from the document is one of them.
+ */
+public abstract class SearchIndexElement<T extends Element> implements Element {
+    private final Graph graph;
+    private final String id;
+    private final Map<String, Object> propertyValues;
+    private final EnumSet<FetchHint> fetchHints;
+    private final Authorizations authorizations;
+    private T element;
+
+    protected SearchIndexElement(Graph graph, String id, Map<String, Object> propertyValues, EnumSet<FetchHint> fetchHints, Authorizations authorizations) {
+        this.graph = graph;
+        this.id = id;
+        this.propertyValues = propertyValues;
+        this.fetchHints = fetchHints;
+        this.authorizations = authorizations;
+    }
+
+    protected abstract T getElement(Graph graph, String id, EnumSet<FetchHint> fetchHints, Authorizations authorizations);
+
+    /**
+     * The element read from the graph, loaded on first use.
+     */
+    protected T getElement() {
+        if (element == null) {
+            element = getElement(graph, id, fetchHints, authorizations);
+            if (element == null) {
+                throw new SecureGraphException("Could not find element " + id + " found in the search index");
+            }
+        }
+        return element;
+    }
+
+    @Override
+    public String getId() {
+        return id;
+    }
+
+    @Override
+    public Visibility getVisibility() {
+        return getElement().getVisibility();
+    }
+
+    @Override
+    public Iterable<Property> getProperties() {
+        return getElement().getProperties();
+    }
+
+    @Override
+    public Property getProperty(String key, String name) {
+        return getElement().getProperty(key, name);
+    }
+
+    @Override
+    public Property getProperty(String key, String name, Visibility visibility) {
+        return getElement().getProperty(key, name, visibility);
+    }
+
+    @Override
+    public Property getProperty(String name) {
+        return getElement().getProperty(name);
+    }
+
+    @Override
+    public Iterable<Property> getProperties(String name) {
+        return getElement().getProperties(name);
+    }
+
+    @Override
+    public Iterable<Property> getProperties(String key, String name) {
+        return getElement().getProperties(key, name);
+    }
+
+    @Override
+    public Iterable<Object> getPropertyValues(String name) {
+        return getElement().getPropertyValues(name);
+    }
+
+    @Override
+    public Iterable<Object> getPropertyValues(String key, String name) {
+        return getElement().getPropertyValues(key, name);
+    }
+
+    @Override
+    public Object getPropertyValue(String name) {
+        return getPropertyValue(name, 0);
+    }
+
+    @Override
+    public Object getPropertyValue(String key, String name) {
+        return getElement().getPropertyValue(key, name);
+    }
+
+    @Override
+    public Object getPropertyValue(String name, int index) {
+        if (index == 0 && element == null) {
+            Object value = propertyValues.get(name);
+            if (value != null) {
+                return value;
+            }
+        }
+        return getElement().getPropertyValue(name, index);
+    }
+
+    @Override
+    public Object getPropertyValue(String key, String name, int index) {
+        return getElement().getPropertyValue(key, name, index);
+    }
+
+    @Override
+    public void removeProperty(String key, String name, Authorizations authorizations) {
+        getElement().removeProperty(key, name, authorizations);
+    }
+
+    @Override
+    public void removeProperty(String name, Authorizations authorizations) {
+        getElement().removeProperty(name, authorizations);
+    }
+
+    @Override
+    public Graph getGraph() {
+        return graph;
+    }
+
+    @Override
+    public void addPropertyValue(String key, String name, Object value, Visibility visibility, Authorizations authorizations) {
+        getElement().addPropertyValue(key, name, value, visibility, authorizations);
+    }
+
+    @Override
+    public void addPropertyValue(String key, String name, Object value, Map<String, Object> metadata, Visibility visibility, Authorizations authorizations) {
+        getElement().addPropertyValue(key, name, value, metadata, visibility, authorizations);
+    }
+
+    @Override
+    public void setProperty(String name, Object value, Visibility visibility, Authorizations authorizations) {
+        getElement().setProperty(name, value, visibility, authorizations);
+    }
+
+    @Override
+    public void setProperty(String name, Object value, Map<String, Object> metadata, Visibility visibility, Authorizations authorizations) {
+        getElement().setProperty(name, value, metadata, visibility, authorizations);
+    }
+
+    @Override
+    public Authorizations getAuthorizations() {
+        return authorizations;
+    }
+
+    @Override
+    public void mergeProperties(Element element) {
+        getElement().mergeProperties(element);
+    }
+
+    @Override
+    public int hashCode() {
+        return id.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return obj instanceof Element && id.equals(((Element) obj).getId());
+    }
+
+    @Override
+    public String toString() {
+        return id;
+    }
+}
@@ -0,0 +1,179 @@
+package org.securegraph.elasticsearch;
+
+import org.securegraph.*;
+import org.securegraph.mutation.ExistingElementMutation;
+import org.securegraph.query.VertexQuery;
+
+import java.util.EnumSet;
+import java.util.Map;
+
+public class SearchIndexVertex extends SearchIndexElement<Vertex> implements Vertex {
+    public SearchIndexVertex(Graph graph, String id, Map<String, Object> propertyValues, EnumSet<FetchHint> fetchHints, Authorizations authorizations) {
+        super(graph, id, propertyValues, fetchHints, authorizations);
+    }
+
+    @Override
+    protected Vertex getElement(Graph graph, String id, EnumSet<FetchHint> fetchHints, Authorizations authorizations) {
+        return graph.getVertex(id, fetchHints, authorizations);
+    }
+
+    @Override
+    public Iterable<Edge> getEdges(Direction direction, Authorizations authorizations) {
+        return getElement().getEdges(direction, authorizations);
+    }
+
+    @Override
+    public Iterable<Edge> getEdges(Direction direction, EnumSet<FetchHint> fetchHints, Authorizations authorizations) {
+        return getElement().getEdges(direction, fetchHints, authorizations);
+    }
+
+    @Override
+    public Iterable<String> getEdgeIds(Direction direction, Authorizations authorizations) {
+        return getElement().getEdgeIds(direction, authorizations);
+    }
+
+    @Override
+    public Iterable<Edge> getEdges(Direction direction, String label, Authorizations authorizations) {
+        return getElement().getEdges(direction, label, authorizations);
+    }
+
+    @Override
+    public Iterable<Edge> getEdges(Direction direction, String label, EnumSet<FetchHint> fetchHints, Authorizations authorizations) {
+        return getElement().getEdges(direction, label, fetchHints, authorizations);
+    }
+
+    @Override
+    public Iterable<String> getEdgeIds(Direction direction, String label, Authorizations authorizations) {
+        return getElement().getEdgeIds(direction, label, authorizations);
+    }
+
+    @Override
+    public Iterable<Edge> getEdges(Direction direction, String[] labels, Authorizations authorizations) {
+        return getElement().getEdges(direction, labels, authorizations);
+    }
+
+    @Override
+    public Iterable<Edge> getEdges(Direction direction, String[] labels, EnumSet<FetchHint> fetchHints, Authorizations authorizations) {
+        return getElement().getEdges(direction, labels, fetchHints, authorizations);
+    }
+
+    @Override
+    public Iterable<String> getEdgeIds(Direction direction, String[] labels, Authorizations authorizations) {
+        return getElement().getEdgeIds(direction, labels, authorizations);
+    }
+
+    @Override
+    public Iterable<Edge> getEdges(Vertex otherVertex, Direction direction, Authorizations authorizations) {
+        return getElement().getEdges(otherVertex, direction, authorizations);
+    }
+
+    @Override
+    public Iterable<Edge> getEdges(Vertex otherVertex, Direction direction, EnumSet<FetchHint> fetchHints, Authorizations authorizations) {
+        return getElement().getEdges(otherVertex, direction, fetchHints, authorizations);
+    }
+
+    @Override
+    public Iterable<String> getEdgeIds(Vertex otherVertex, Direction direction, Authorizations authorizations) {
+        return getElement().getEdgeIds(otherVertex, direction, authorizations);
+    }
+
+    @Override
+    public Iterable<Edge> getEdges(Vertex otherVertex, Direction direction, String label, Authorizations authorizations) {
+        return getElement().getEdges(otherVertex, direction, label, authorizations);
+    }
+
+    @Override
+    public Iterable<Edge> getEdges(Vertex otherVertex, Direction direction, String label, EnumSet<FetchHint> fetchHints, Authorizations authorizations) {
+        return getElement().getEdges(otherVertex, direction, label, fetchHints, authorizations);
+    }
+
+    @Override
+    public Iterable<String> getEdgeIds(Vertex otherVertex, Direction direction, String label, Authorizations authorizations) {
+        return getElement().getEdgeIds(otherVertex, direction, label, authorizations);
+    }
+
+    @Override
+    public Iterable<Edge> getEdges(Vertex otherVertex, Direction direction, String[] labels, Authorizations authorizations) {
+        return getElement().getEdges(otherVertex, direction, labels, authorizations);
+    }
+
+    @Override
+    public Iterable<Edge> getEdges(Vertex otherVertex, Direction direction, String[] labels, EnumSet<FetchHint> fetchHints, Authorizations authorizations) {
+        return getElement().getEdges(otherVertex, direction, labels, fetchHints, authorizations);
+    }
+
+    @Override
+    public Iterable<String> getEdgeIds(Vertex otherVertex, Direction direction, String[] labels, Authorizations authorizations) {
+        return getElement().getEdgeIds(otherVertex, direction, labels, authorizations);
+    }
+
+    @Override
+    public int getEdgeCount(Direction direction, Authorizations authorizations) {
+        return getElement().getEdgeCount(direction, authorizations);
+    }
+
+    @Override
+    public Iterable<String> getEdgeLabels(Direction direction, Authorizations authorizations) {
+        return getElement().getEdgeLabels(direction, authorizations);
+    }
+
+    @Override
+    public Iterable<Vertex> getVertices(Direction direction, Authorizations authorizations) {
+        return getElement().getVertices(direction, authorizations);
+    }
+
+    @Override
+    public Iterable<Vertex> getVertices(Direction direction, EnumSet<FetchHint> fetchHints, Authorizations authorizations) {
+        return getElement().getVertices(direction, fetchHints, authorizations);
+    }
+
+    @Override
+    public Iterable<Vertex> getVertices(Direction direction, String label, Authorizations authorizations) {
+        return getElement().getVertices(direction, label, authorizations);
+    }
+
+    @Override
+    public Iterable<Vertex> getVertices(Direction direction, String label, EnumSet<FetchHint> fetchHints, Authorizations authorizations) {
+        return getElement().getVertices(direction, label, fetchHints, authorizations);
+    }
+
+    @Override
+    public Iterable<Vertex> getVertices(Direction direction, String[] labels, Authorizations authorizations) {
+        return getElement().getVertices(direction, labels, authorizations);
+    }
+
+    @Override
+    public Iterable<Vertex> getVertices(Direction direction, String[] labels, EnumSet<FetchHint> fetchHints, Authorizations authorizations) {
+        return getElement().getVertices(direction, labels, fetchHints, authorizations);
+    }
+
+    @Override
+    public Iterable<String> getVertexIds(Direction direction, String label, Authorizations authorizations) {
+        return getElement().getVertexIds(direction, label, authorizations);
+    }
+
+    @Override
+    public Iterable<String> getVertexIds(Direction direction, String[] labels, Authorizations authorizations) {
+        return getElement().getVertexIds(direction, labels, authorizations);
+    }
+
+    @Override
+    public Iterable<String> getVertexIds(Direction direction, Authorizations authorizations) {
+        return getElement().getVertexIds(direction, authorizations);
+    }
+
+    @Override
+    public VertexQuery query(Authorizations authorizations) {
+        return getElement().query(authorizations);
+    }
+
+    @Override
+    public VertexQuery query(String queryString, Authorizations authorizations) {
+        return getElement().query(queryString, authorizations);
+    }
+
+    @Override
+    public ExistingElementMutation<Vertex> prepareMutation() {
+        return getElement().prepareMutation();
+    }
+}
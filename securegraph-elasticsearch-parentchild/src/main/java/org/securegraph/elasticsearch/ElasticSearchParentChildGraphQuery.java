@@ -10,10 +10,11 @@ import org.securegraph.PropertyDefinition;
 
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executor;
 
 public class ElasticSearchParentChildGraphQuery extends ElasticSearchGraphQueryBase {
-    protected ElasticSearchParentChildGraphQuery(TransportClient client, String[] indicesToQuery, Graph graph, String queryString, Map<String, PropertyDefinition> propertyDefinitions, double inEdgeBoost, double outEdgeBoost, Authorizations authorizations) {
-        super(client, indicesToQuery, graph, queryString, propertyDefinitions, inEdgeBoost, outEdgeBoost, false, authorizations);
+    protected ElasticSearchParentChildGraphQuery(TransportClient client, String[] indicesToQuery, Graph graph, String queryString, Map<String, PropertyDefinition> propertyDefinitions, double inEdgeBoost, double outEdgeBoost, ElasticSearchScrollOptions scrollOptions, Executor scrollExecutor, Authorizations authorizations) {
+        super(client, indicesToQuery, graph, queryString, propertyDefinitions, inEdgeBoost, outEdgeBoost, scrollOptions, scrollExecutor, false, authorizations);
     }
 
     @Override
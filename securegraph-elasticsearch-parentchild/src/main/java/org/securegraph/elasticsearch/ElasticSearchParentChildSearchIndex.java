@@ -1,5 +1,6 @@
 package org.securegraph.elasticsearch;
 
+import org.elasticsearch.action.ActionRequest;
 import org.elasticsearch.action.admin.indices.mapping.put.PutMappingResponse;
 import org.elasticsearch.action.bulk.BulkRequest;
 import org.elasticsearch.action.delete.DeleteResponse;
@@ -27,7 +28,6 @@ import java.util.Map;
 public class ElasticSearchParentChildSearchIndex extends ElasticSearchSearchIndexBase {
     private static final Logger LOGGER = LoggerFactory.getLogger(ElasticSearchParentChildSearchIndex.class);
     public static final String PROPERTY_TYPE = "property";
-    public static final int BATCH_SIZE = 1000;
 
     public ElasticSearchParentChildSearchIndex(Map config) {
         super(config);
@@ -165,51 +165,12 @@ public class ElasticSearchParentChildSearchIndex extends ElasticSearchSearchInde
     }
 
     @Override
-    public void addElements(Graph graph, Iterable<Element> elements, Authorizations authorizations) {
-        int totalCount = 0;
-        Map<IndexInfo, BulkRequestWithCount> bulkRequests = new HashMap<IndexInfo, BulkRequestWithCount>();
-        for (Element element : elements) {
-            String indexName = getIndexName(element);
-            IndexInfo indexInfo = ensureIndexCreatedAndInitialized(indexName, isStoreSourceData());
-            BulkRequestWithCount bulkRequestWithCount = bulkRequests.get(indexInfo);
-            if (bulkRequestWithCount == null) {
-                bulkRequestWithCount = new BulkRequestWithCount();
-                bulkRequests.put(indexInfo, bulkRequestWithCount);
-            }
-
-            if (bulkRequestWithCount.getCount() >= BATCH_SIZE) {
-                LOGGER.debug("adding elements... " + totalCount);
-                doBulkRequest(bulkRequestWithCount.getBulkRequest());
-                bulkRequestWithCount.clear();
-            }
-            addElementToBulkRequest(indexInfo, bulkRequestWithCount.getBulkRequest(), element, authorizations);
-            bulkRequestWithCount.incrementCount();
-            totalCount++;
-
-            if (isUseEdgeBoost() && element instanceof Edge) {
-                Element vOut = ((Edge) element).getVertex(Direction.OUT, authorizations);
-                if (vOut != null) {
-                    addElementToBulkRequest(indexInfo, bulkRequestWithCount.getBulkRequest(), vOut, authorizations);
-                    bulkRequestWithCount.incrementCount();
-                    totalCount++;
-                }
-                Element vIn = ((Edge) element).getVertex(Direction.IN, authorizations);
-                if (vIn != null) {
-                    addElementToBulkRequest(indexInfo, bulkRequestWithCount.getBulkRequest(), vIn, authorizations);
-                    bulkRequestWithCount.incrementCount();
-                    totalCount++;
-                }
-            }
-        }
-        for (BulkRequestWithCount bulkRequestWithCount : bulkRequests.values()) {
-            if (bulkRequestWithCount.getCount() > 0) {
-                doBulkRequest(bulkRequestWithCount.getBulkRequest());
-            }
-        }
-        LOGGER.debug("added " + totalCount + " elements");
-
-        if (isAutoflush()) {
-            flush();
+    protected void addElementToBulkIndexer(Graph graph, ElasticSearchBulkIndexer bulkIndexer, Element element, Authorizations authorizations) {
+        IndexInfo indexInfo = addPropertiesToIndex(element, element.getProperties());
+        BulkRequest bulkRequest = new BulkRequest();
+        addElementToBulkRequest(indexInfo, bulkRequest, element, authorizations);
+        for (ActionRequest request : bulkRequest.requests()) {
+            bulkIndexer.add(request);
         }
     }
 
@@ -334,7 +295,7 @@ public class ElasticSearchParentChildSearchIndex extends ElasticSearchSearchInde
 
     @Override
     public GraphQuery queryGraph(Graph graph, String queryString, Authorizations authorizations) {
-        return new ElasticSearchParentChildGraphQuery(getClient(), getIndicesToQuery(), graph, queryString, getAllPropertyDefinitions(), getInEdgeBoost(), getOutEdgeBoost(), authorizations);
+        return new ElasticSearchParentChildGraphQuery(getClient(), getIndicesToQuery(), graph, queryString, getAllPropertyDefinitions(), getInEdgeBoost(), getOutEdgeBoost(), getScrollOptions(), getScrollExecutor(), authorizations);
     }
 
     @Override
@@ -0,0 +1,295 @@
+package org.securegraph.elasticsearch;
+
+import org.apache.lucene.index.*;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.OpenBitSet;
+import org.elasticsearch.common.cache.Cache;
+import org.elasticsearch.common.cache.CacheBuilder;
+import org.elasticsearch.common.cache.Weigher;
+import org.elasticsearch.common.logging.ESLogger;
+import org.elasticsearch.common.logging.Loggers;
+import org.elasticsearch.common.lucene.SegmentReaderUtils;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeUnit;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.securegraph.inmemory.security.Authorizations;
+import org.securegraph.inmemory.security.ColumnVisibility;
+import org.securegraph.inmemory.security.VisibilityEvaluator;
+import org.securegraph.inmemory.security.VisibilityParseException;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caches the documents of each segment visible to a set of authorizations, and whether each visibility expression is
+ * visible to a set of authorizations. Shared by every {@link AuthorizationsFilter} on the node.
+ * <p/>
+ * The documents are cached per segment core, ignoring deletions which {@link AuthorizationsFilter} applies on top, so
+ * they stay valid until the segment is merged away and its core closed. Closing the core evicts its documents.
+ * <p/>
+ * A document with several visibility terms, one for each visibility indexed with it, is visible when any one of them
+ * can be read.
+ */
+public class AuthorizationsFilterCache implements SegmentReader.CoreClosedListener {
+    private static final ESLogger LOGGER = Loggers.getLogger(AuthorizationsFilterCache.class);
+    public static final String SETTING_DOCS_CACHE_SIZE = "securegraph.authorizations_filter.docs_cache_size";
+    public static final ByteSizeValue DEFAULT_DOCS_CACHE_SIZE = new ByteSizeValue(256, ByteSizeUnit.MB);
+    public static final String SETTING_VISIBILITY_CACHE_SIZE = "securegraph.authorizations_filter.visibility_cache_size";
+    public static final int DEFAULT_VISIBILITY_CACHE_SIZE = 100000;
+    private static final long STATS_LOG_INTERVAL_MILLIS = 60 * 1000;
+    private final Cache<DocsKey, OpenBitSet> visibleDocs;
+    private final Cache<VisibilityKey, Boolean> visibilities;
+    private final Set<Object> listenedCoreKeys = Collections.newSetFromMap(new ConcurrentHashMap<Object, Boolean>());
+    private final AtomicLong buildCount = new AtomicLong();
+    private final AtomicLong buildNanos = new AtomicLong();
+    private volatile long lastStatsLogTime = System.currentTimeMillis();
+
+    public AuthorizationsFilterCache(Settings settings) {
+        this(
+                settings.getAsBytesSize(SETTING_DOCS_CACHE_SIZE, DEFAULT_DOCS_CACHE_SIZE).bytes(),
+                settings.getAsInt(SETTING_VISIBILITY_CACHE_SIZE, DEFAULT_VISIBILITY_CACHE_SIZE)
+        );
+    }
+
+    /**
+     * @param maxDocsBytes      the most memory used by the cached documents, least recently used are evicted first
+     * @param maxVisibilities   the most visibility decisions kept
+     */
+    public AuthorizationsFilterCache(long maxDocsBytes, int maxVisibilities) {
+        this.visibleDocs = CacheBuilder.newBuilder()
+                .maximumWeight(maxDocsBytes)
+                .weigher(new Weigher<DocsKey, OpenBitSet>() {
+                    @Override
+                    public int weigh(DocsKey key, OpenBitSet bitSet) {
+                        return (int) Math.min(Integer.MAX_VALUE, bitSet.getBits().length * 8L);
+                    }
+                })
+                .recordStats()
+                .build();
+        this.visibilities = CacheBuilder.newBuilder()
+                .maximumSize(maxVisibilities)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * The documents in the segment, deleted or not, with at least one visibility the authorizations can read.
+     */
+    public OpenBitSet getVisibleDocs(final AtomicReader reader, final Terms terms, final Authorizations authorizations) throws IOException {
+        Object coreKey = reader.getCoreCacheKey();
+        if (!listenForCoreClosed(reader, coreKey)) {
+            // without a way to evict it when the segment goes away the result is not cached
+            return buildVisibleDocs(reader, terms, authorizations);
+        }
+        try {
+            return visibleDocs.get(new DocsKey(coreKey, authorizations), new Callable<OpenBitSet>() {
+                @Override
+                public OpenBitSet call() throws IOException {
+                    return buildVisibleDocs(reader, terms, authorizations);
+                }
+            });
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    private boolean listenForCoreClosed(AtomicReader reader, Object coreKey) {
+        if (listenedCoreKeys.contains(coreKey)) {
+            return true;
+        }
+        SegmentReader segmentReader = SegmentReaderUtils.segmentReaderOrNull(reader);
+        if (segmentReader == null) {
+            return false;
+        }
+        if (listenedCoreKeys.add(coreKey)) {
+            segmentReader.addCoreClosedListener(this);
+        }
+        return true;
+    }
+
+    @Override
+    public void onClose(Object ownerCoreCacheKey) {
+        listenedCoreKeys.remove(ownerCoreCacheKey);
+        Iterator<DocsKey> keys = visibleDocs.asMap().keySet().iterator();
+        while (keys.hasNext()) {
+            if (keys.next().coreKey == ownerCoreCacheKey) {
+                keys.remove();
+            }
+        }
+    }
+
+    private OpenBitSet buildVisibleDocs(AtomicReader reader, Terms terms, Authorizations authorizations) throws IOException {
+        long startTime = System.nanoTime();
+        VisibilityEvaluator visibilityEvaluator = new VisibilityEvaluator(authorizations);
+        OpenBitSet bitSet = new OpenBitSet(reader.maxDoc());
+        TermsEnum termsEnum = terms.iterator(null);
+        DocsEnum docsEnum = null;
+        BytesRef bytesRef;
+        while ((bytesRef = termsEnum.next()) != null) {
+            // the postings of visibilities that can not be read are never walked
+            if (!isVisible(visibilityEvaluator, authorizations, bytesRef)) {
+                continue;
+            }
+            docsEnum = termsEnum.docs(null, docsEnum, DocsEnum.FLAG_NONE);
+            int doc;
+            while ((doc = docsEnum.nextDoc()) != DocsEnum.NO_MORE_DOCS) {
+                bitSet.fastSet(doc);
+            }
+        }
+        buildCount.incrementAndGet();
+        buildNanos.addAndGet(System.nanoTime() - startTime);
+        logStats();
+        return bitSet;
+    }
+
+    private boolean isVisible(VisibilityEvaluator visibilityEvaluator, Authorizations authorizations, BytesRef bytesRef) throws IOException {
+        if (bytesRef.length == 0) {
+            return true;
+        }
+        // looked up with the terms enum's reused bytes, copied only when added
+        Boolean visible = visibilities.getIfPresent(new VisibilityKey(authorizations, bytesRef));
+        if (visible != null) {
+            return visible;
+        }
+        byte[] expression = Arrays.copyOfRange(bytesRef.bytes, bytesRef.offset, bytesRef.offset + bytesRef.length);
+        try {
+            visible = visibilityEvaluator.evaluate(new ColumnVisibility(expression));
+        } catch (VisibilityParseException e) {
+            throw new IOException(e);
+        }
+        visibilities.put(new VisibilityKey(authorizations, new BytesRef(expression)), visible);
+        return visible;
+    }
+
+    private void logStats() {
+        long now = System.currentTimeMillis();
+        if (now - lastStatsLogTime >= STATS_LOG_INTERVAL_MILLIS) {
+            lastStatsLogTime = now;
+            LOGGER.info("authorizations filter cache: {}", getStats());
+        }
+    }
+
+    public Stats getStats() {
+        return new Stats(
+                visibleDocs.size(),
+                visibleDocs.stats().hitRate(),
+                visibleDocs.stats().evictionCount(),
+                visibilities.size(),
+                visibilities.stats().hitRate(),
+                buildCount.get(),
+                buildNanos.get()
+        );
+    }
+
+    public static class Stats {
+        private final long docsCount;
+        private final double docsHitRate;
+        private final long docsEvictionCount;
+        private final long visibilityCount;
+        private final double visibilityHitRate;
+        private final long buildCount;
+        private final long buildNanos;
+
+        public Stats(long docsCount, double docsHitRate, long docsEvictionCount, long visibilityCount, double visibilityHitRate, long buildCount, long buildNanos) {
+            this.docsCount = docsCount;
+            this.docsHitRate = docsHitRate;
+            this.docsEvictionCount = docsEvictionCount;
+            this.visibilityCount = visibilityCount;
+            this.visibilityHitRate = visibilityHitRate;
+            this.buildCount = buildCount;
+            this.buildNanos = buildNanos;
+        }
+
+        public long getDocsCount() {
+            return docsCount;
+        }
+
+        public double getDocsHitRate() {
+            return docsHitRate;
+        }
+
+        public long getDocsEvictionCount() {
+            return docsEvictionCount;
+        }
+
+        public long getVisibilityCount() {
+            return visibilityCount;
+        }
+
+        public double getVisibilityHitRate() {
+            return visibilityHitRate;
+        }
+
+        public long getBuildCount() {
+            return buildCount;
+        }
+
+        public double getAverageBuildMillis() {
+            return buildCount == 0 ? 0 : buildNanos / 1000000.0 / buildCount;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d segment doc sets (%.1f%% hits, %d evicted), %d visibilities (%.1f%% hits), %d builds (%.2f ms avg)",
+                    docsCount, docsHitRate * 100, docsEvictionCount, visibilityCount, visibilityHitRate * 100, buildCount, getAverageBuildMillis());
+        }
+    }
+
+    private static class DocsKey {
+        private final Object coreKey;
+        private final Authorizations authorizations;
+
+        private DocsKey(Object coreKey, Authorizations authorizations) {
+            this.coreKey = coreKey;
+            this.authorizations = authorizations;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof DocsKey)) {
+                return false;
+            }
+            DocsKey other = (DocsKey) o;
+            return coreKey == other.coreKey && authorizations.equals(other.authorizations);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(coreKey) + authorizations.hashCode();
+        }
+    }
+
+    private static class VisibilityKey {
+        private final Authorizations authorizations;
+        private final BytesRef expression;
+
+        private VisibilityKey(Authorizations authorizations, BytesRef expression) {
+            this.authorizations = authorizations;
+            this.expression = expression;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof VisibilityKey)) {
+                return false;
+            }
+            VisibilityKey other = (VisibilityKey) o;
+            return expression.equals(other.expression) && authorizations.equals(other.authorizations);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * expression.hashCode() + authorizations.hashCode();
+        }
+    }
+}
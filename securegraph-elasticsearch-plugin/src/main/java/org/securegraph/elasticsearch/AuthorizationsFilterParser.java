@@ -15,6 +15,11 @@ import java.util.List;
 
 public class AuthorizationsFilterParser implements FilterParser {
     private static final String NAME = "authorizations";
+    private final AuthorizationsFilterCache cache;
+
+    public AuthorizationsFilterParser(AuthorizationsFilterCache cache) {
+        this.cache = cache;
+    }
 
     @Override
     public String[] names() {
@@ -44,7 +49,7 @@ public class AuthorizationsFilterParser implements FilterParser {
 
         List<Filter> filters = new ArrayList<Filter>();
         filters.add(new FieldValueFilter(AuthorizationsFilter.VISIBILITY_FIELD_NAME, true));
-        filters.add(new AuthorizationsFilter(authorizations));
+        filters.add(new AuthorizationsFilter(cache, authorizations));
         return new OrFilter(filters);
     }
 }
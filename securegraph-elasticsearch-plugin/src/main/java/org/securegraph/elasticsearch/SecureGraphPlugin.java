@@ -1,10 +1,18 @@
 package org.securegraph.elasticsearch;
 
 import org.elasticsearch.common.inject.Module;
+import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.indices.query.IndicesQueriesModule;
 import org.elasticsearch.plugins.AbstractPlugin;
+import org.elasticsearch.script.ScriptModule;
 
 public class SecureGraphPlugin extends AbstractPlugin {
+    private final AuthorizationsFilterCache authorizationsFilterCache;
+
+    public SecureGraphPlugin(Settings settings) {
+        this.authorizationsFilterCache = new AuthorizationsFilterCache(settings);
+    }
+
     @Override
     public String name() {
         return "securegraph-plugin";
@@ -12,13 +20,16 @@ public class SecureGraphPlugin extends AbstractPlugin {
 
     @Override
     public String description() {
-        return "SecureGraph plugin for applying security filters.";
+        return "SecureGraph plugin for applying security filters and updating documents.";
     }
 
     @Override
     public void processModule(Module module) {
         if (module instanceof IndicesQueriesModule) {
-            ((IndicesQueriesModule) module).addFilter(new AuthorizationsFilterParser());
+            ((IndicesQueriesModule) module).addFilter(new AuthorizationsFilterParser(authorizationsFilterCache));
+        }
+        if (module instanceof ScriptModule) {
+            ((ScriptModule) module).registerScript(UpdateElementScript.NAME, UpdateElementScript.Factory.class);
         }
     }
 }
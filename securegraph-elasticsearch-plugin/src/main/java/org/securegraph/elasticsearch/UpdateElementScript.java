@@ -0,0 +1,124 @@
+package org.securegraph.elasticsearch;
+
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.script.AbstractExecutableScript;
+import org.elasticsearch.script.ExecutableScript;
+import org.elasticsearch.script.NativeScriptFactory;
+import org.securegraph.Visibility;
+
+import java.util.*;
+
+/**
+ * Updates an element's document in place so an update request only carries what changed: sets the fields of the
+ * changed properties, adds their visibilities to the document's visibility and adds to counters such as the edge
+ * counts.
+ */
+public class UpdateElementScript extends AbstractExecutableScript {
+    public static final String NAME = "securegraph_update_element";
+    public static final String PARAM_FIELDS = "fields";
+    public static final String PARAM_VISIBILITIES = "visibilities";
+    public static final String PARAM_INCREMENTS = "increments";
+    private final Map<String, Object> params;
+    private Map<String, Object> ctx;
+
+    public UpdateElementScript(Map<String, Object> params) {
+        this.params = params == null ? Collections.<String, Object>emptyMap() : params;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void setNextVar(String name, Object value) {
+        if ("ctx".equals(name)) {
+            ctx = (Map<String, Object>) value;
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Object run() {
+        Map<String, Object> source = (Map<String, Object>) ctx.get("_source");
+
+        Map<String, Object> fields = (Map<String, Object>) params.get(PARAM_FIELDS);
+        if (fields != null) {
+            source.putAll(fields);
+        }
+
+        List<String> visibilities = (List<String>) params.get(PARAM_VISIBILITIES);
+        if (visibilities != null) {
+            String visibility = (String) source.get(AuthorizationsFilter.VISIBILITY_FIELD_NAME);
+            source.put(AuthorizationsFilter.VISIBILITY_FIELD_NAME, and(visibility, visibilities));
+        }
+
+        Map<String, Object> increments = (Map<String, Object>) params.get(PARAM_INCREMENTS);
+        if (increments != null) {
+            for (Map.Entry<String, Object> increment : increments.entrySet()) {
+                Number count = (Number) source.get(increment.getKey());
+                long newCount = (count == null ? 0 : count.longValue()) + ((Number) increment.getValue()).longValue();
+                source.put(increment.getKey(), (int) Math.max(0, newCount));
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Adds visibilities to a document visibility, which is built by {@link Visibility#and(Set)} as a conjunction of
+     * parenthesized terms. A document only ever becomes visible to fewer authorizations this way, removing a
+     * visibility takes reindexing the element.
+     */
+    static String and(String visibility, List<String> visibilities) {
+        Set<String> terms = new LinkedHashSet<String>(getTerms(visibility));
+        terms.addAll(visibilities);
+        return Visibility.and(terms).getVisibilityString();
+    }
+
+    static List<String> getTerms(String visibility) {
+        List<String> terms = new ArrayList<String>();
+        if (visibility == null || visibility.length() == 0) {
+            return terms;
+        }
+        int depth = 0;
+        int start = 0;
+        for (int i = 0; i < visibility.length(); i++) {
+            char c = visibility.charAt(i);
+            if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                depth--;
+            } else if (c == '&' && depth == 0) {
+                terms.add(stripParentheses(visibility.substring(start, i)));
+                start = i + 1;
+            }
+        }
+        terms.add(stripParentheses(visibility.substring(start)));
+        return terms;
+    }
+
+    /**
+     * Strips parentheses around the whole term, "(a)|(b)" is left as it is.
+     */
+    private static String stripParentheses(String term) {
+        if (term.length() < 2 || term.charAt(0) != '(' || term.charAt(term.length() - 1) != ')') {
+            return term;
+        }
+        int depth = 0;
+        for (int i = 0; i < term.length() - 1; i++) {
+            char c = term.charAt(i);
+            if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                depth--;
+            }
+            if (depth == 0) {
+                return term;
+            }
+        }
+        return term.substring(1, term.length() - 1);
+    }
+
+    public static class Factory implements NativeScriptFactory {
+        @Override
+        public ExecutableScript newScript(@Nullable Map<String, Object> params) {
+            return new UpdateElementScript(params);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package org.securegraph.elasticsearch;
+
+import org.apache.lucene.analysis.core.KeywordAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.AtomicReader;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.store.RAMDirectory;
+import org.apache.lucene.util.OpenBitSet;
+import org.apache.lucene.util.Version;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.securegraph.inmemory.security.Authorizations;
+
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+@RunWith(JUnit4.class)
+public class AuthorizationsFilterCacheTest {
+    private RAMDirectory directory;
+    private DirectoryReader directoryReader;
+    private AuthorizationsFilterCache cache;
+
+    @Before
+    public void before() throws IOException {
+        directory = new RAMDirectory();
+        IndexWriter writer = new IndexWriter(directory, new IndexWriterConfig(Version.LUCENE_47, new KeywordAnalyzer()));
+        writer.addDocument(createDocument("a", "b"));
+        writer.addDocument(createDocument("b"));
+        writer.addDocument(createDocument("a&b"));
+        writer.addDocument(createDocument(""));
+        writer.close();
+        directoryReader = DirectoryReader.open(directory);
+        cache = new AuthorizationsFilterCache(1024 * 1024, 100);
+    }
+
+    @After
+    public void after() throws IOException {
+        if (directoryReader != null) {
+            directoryReader.close();
+        }
+        directory.close();
+    }
+
+    @Test
+    public void testVisibilityTermsAreOred() throws IOException {
+        OpenBitSet docs = getVisibleDocs(new Authorizations("a"));
+        assertTrue(docs.get(0));
+        assertFalse(docs.get(1));
+        assertFalse(docs.get(2));
+        assertTrue(docs.get(3));
+
+        docs = getVisibleDocs(new Authorizations("a", "b"));
+        assertEquals(4, docs.cardinality());
+
+        docs = getVisibleDocs(new Authorizations());
+        assertEquals(1, docs.cardinality());
+        assertTrue(docs.get(3));
+    }
+
+    @Test
+    public void testVisibleDocsAreCached() throws IOException {
+        OpenBitSet docs = getVisibleDocs(new Authorizations("a"));
+        assertSame(docs, getVisibleDocs(new Authorizations("a")));
+        assertEquals(1, cache.getStats().getBuildCount());
+        assertEquals(0.5, cache.getStats().getDocsHitRate(), 0.001);
+
+        assertNotSame(docs, getVisibleDocs(new Authorizations("b")));
+        assertEquals(2, cache.getStats().getBuildCount());
+        assertEquals(2, cache.getStats().getDocsCount());
+    }
+
+    @Test
+    public void testClosingSegmentEvictsVisibleDocs() throws IOException {
+        getVisibleDocs(new Authorizations("a"));
+        getVisibleDocs(new Authorizations("b"));
+        assertEquals(2, cache.getStats().getDocsCount());
+
+        directoryReader.close();
+        directoryReader = null;
+        assertEquals(0, cache.getStats().getDocsCount());
+    }
+
+    private OpenBitSet getVisibleDocs(Authorizations authorizations) throws IOException {
+        assertEquals(1, directoryReader.leaves().size());
+        AtomicReader reader = directoryReader.leaves().get(0).reader();
+        return cache.getVisibleDocs(reader, reader.terms(AuthorizationsFilter.VISIBILITY_FIELD_NAME), authorizations);
+    }
+
+    private static Document createDocument(String... visibilities) {
+        Document document = new Document();
+        for (String visibility : visibilities) {
+            document.add(new StringField(AuthorizationsFilter.VISIBILITY_FIELD_NAME, visibility, Field.Store.NO));
+        }
+        return document;
+    }
+}
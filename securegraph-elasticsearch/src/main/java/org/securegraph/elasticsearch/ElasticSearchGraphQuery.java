@@ -19,6 +19,7 @@ import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executor;
 
 public class ElasticSearchGraphQuery extends ElasticSearchGraphQueryBase implements
         GraphQueryWithHistogramAggregation,
@@ -28,8 +29,8 @@ public class ElasticSearchGraphQuery extends ElasticSearchGraphQueryBase impleme
     private final List<TermsQueryItem> termsQueryItems = new ArrayList<TermsQueryItem>();
     private final List<GeohashQueryItem> geohashQueryItems = new ArrayList<GeohashQueryItem>();
 
-    public ElasticSearchGraphQuery(TransportClient client, String[] indicesToQuery, Graph graph, String queryString, Map<String, PropertyDefinition> propertyDefinitions, double inEdgeBoost, double outEdgeBoost, Authorizations authorizations) {
-        super(client, indicesToQuery, graph, queryString, propertyDefinitions, inEdgeBoost, outEdgeBoost, false, authorizations);
+    public ElasticSearchGraphQuery(TransportClient client, String[] indicesToQuery, Graph graph, String queryString, Map<String, PropertyDefinition> propertyDefinitions, double inEdgeBoost, double outEdgeBoost, ElasticSearchScrollOptions scrollOptions, Executor scrollExecutor, Authorizations authorizations) {
+        super(client, indicesToQuery, graph, queryString, propertyDefinitions, inEdgeBoost, outEdgeBoost, scrollOptions, scrollExecutor, false, authorizations);
     }
 
     @Override
@@ -42,6 +43,11 @@ public class ElasticSearchGraphQuery extends ElasticSearchGraphQueryBase impleme
         return filters;
     }
 
+    @Override
+    protected boolean isAuthorizationsFiltered() {
+        return true;
+    }
+
     @Override
     public GraphQueryWithHistogramAggregation addHistogramAggregation(String aggregationName, String fieldName, String interval) {
         histogramQueryItems.add(new HistogramQueryItem(aggregationName, fieldName, interval));
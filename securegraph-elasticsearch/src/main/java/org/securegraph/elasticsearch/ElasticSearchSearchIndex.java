@@ -1,10 +1,14 @@
 package org.securegraph.elasticsearch;
 
+import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.ExceptionsHelper;
 import org.elasticsearch.action.admin.indices.mapping.put.PutMappingResponse;
 import org.elasticsearch.action.delete.DeleteResponse;
+import org.elasticsearch.action.index.IndexRequest;
 import org.elasticsearch.action.index.IndexResponse;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.index.engine.DocumentMissingException;
 import org.securegraph.*;
 import org.securegraph.property.StreamingPropertyValue;
 import org.securegraph.query.GraphQuery;
@@ -15,13 +19,11 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Map;
-import java.util.Set;
+import java.util.*;
 
 public class ElasticSearchSearchIndex extends ElasticSearchSearchIndexBase {
     private static final Logger LOGGER = LoggerFactory.getLogger(ElasticSearchSearchIndexBase.class);
+    private static final int UPDATE_RETRY_ON_CONFLICT = 3;
 
     public ElasticSearchSearchIndex(Map config) {
         super(config);
@@ -31,6 +33,7 @@ public class ElasticSearchSearchIndex extends ElasticSearchSearchIndexBase {
     public void addElement(Graph graph, Element element, Authorizations authorizations) {
         IndexInfo indexInfo = addPropertiesToIndex(element, element.getProperties());
 
+        boolean created;
         try {
             boolean mergeExisting = true;
             XContentBuilder jsonBuilder = buildJsonContentFromElement(graph, indexInfo, element, mergeExisting, authorizations);
@@ -43,6 +46,7 @@ public class ElasticSearchSearchIndex extends ElasticSearchSearchIndexBase {
             if (response.getId() == null) {
                 throw new SecureGraphException("Could not index document " + element.getId());
             }
+            created = response.isCreated();
 
             if (isAutoflush()) {
                 flush();
@@ -52,15 +56,147 @@ public class ElasticSearchSearchIndex extends ElasticSearchSearchIndexBase {
         }
 
         if (isUseEdgeBoost() && element instanceof Edge) {
-            Element vOut = ((Edge) element).getVertex(Direction.OUT, authorizations);
-            if (vOut != null) {
-                addElement(graph, vOut, authorizations);
+            if (isStoreSourceData()) {
+                // a reindexed edge is already counted
+                if (created) {
+                    addToEdgeCounts(graph, (Edge) element, 1, authorizations);
+                }
+            } else {
+                reindexVertices(graph, (Edge) element, authorizations);
+            }
+        }
+    }
+
+    /**
+     * Updates only the fields of the changed properties when the source is stored. Like
+     * {@link #addElementToBulkIndexer(Graph, ElasticSearchBulkIndexer, Element, Authorizations)} the element is expected
+     * to have been read from the graph, with its properties.
+     */
+    @Override
+    public void addElementProperties(Graph graph, Element element, Iterable<Property> properties, Authorizations authorizations) {
+        if (!isStoreSourceData() || !canUpdateProperties(element, properties)) {
+            // updates need the source
+            addElement(graph, element, authorizations);
+            return;
+        }
+
+        IndexInfo indexInfo = addPropertiesToIndex(element, properties);
+        Map<String, Object> fields = new HashMap<String, Object>();
+        Set<String> visibilityStrings = new HashSet<String>();
+        visibilityStrings.add(element.getVisibility().getVisibilityString());
+        boolean hasProperty = false;
+        try {
+            for (Property property : properties) {
+                hasProperty = true;
+                visibilityStrings.add(property.getVisibility().getVisibilityString());
+                fields.putAll(getPropertyFields(indexInfo, property));
+            }
+        } catch (IOException e) {
+            throw new SecureGraphException("Could not add element properties", e);
+        }
+        if (!hasProperty) {
+            return;
+        }
+
+        Map<String, Object> params = new HashMap<String, Object>();
+        params.put(UpdateElementScript.PARAM_FIELDS, fields);
+        params.put(UpdateElementScript.PARAM_VISIBILITIES, new ArrayList<String>(visibilityStrings));
+        if (!updateDocument(indexInfo.getIndexName(), element.getId(), params)) {
+            addElement(graph, element, authorizations);
+            return;
+        }
+
+        if (isAutoflush()) {
+            flush();
+        }
+    }
+
+    /**
+     * The values of a property with several values share a field, and a streaming value may have been read while it
+     * was saved. Both need the element reindexed.
+     */
+    private static boolean canUpdateProperties(Element element, Iterable<Property> properties) {
+        for (Property property : properties) {
+            if (property.getValue() instanceof StreamingPropertyValue) {
+                return false;
             }
-            Element vIn = ((Edge) element).getVertex(Direction.IN, authorizations);
-            if (vIn != null) {
-                addElement(graph, vIn, authorizations);
+            for (Property otherProperty : element.getProperties(property.getName())) {
+                if (!otherProperty.getKey().equals(property.getKey())) {
+                    return false;
+                }
             }
         }
+        return true;
+    }
+
+    /**
+     * Keeps the edge counts of the vertices in step with a whole vertex document, which counts the edges the
+     * authorizations it is indexed with can read. An edge those authorizations can not read is not counted.
+     */
+    private void addToEdgeCounts(Graph graph, Edge edge, int delta, Authorizations authorizations) {
+        if (!authorizations.canRead(edge.getVisibility())) {
+            return;
+        }
+        addToEdgeCount(graph, edge, Direction.OUT, ElasticSearchSearchIndexBase.OUT_EDGE_COUNT_FIELD_NAME, delta, authorizations);
+        addToEdgeCount(graph, edge, Direction.IN, ElasticSearchSearchIndexBase.IN_EDGE_COUNT_FIELD_NAME, delta, authorizations);
+    }
+
+    private void addToEdgeCount(Graph graph, Edge edge, Direction direction, String countFieldName, int delta, Authorizations authorizations) {
+        Vertex vertex = edge.getVertex(direction, authorizations);
+        if (vertex == null) {
+            return;
+        }
+        Map<String, Object> increments = new HashMap<String, Object>();
+        increments.put(countFieldName, delta);
+        Map<String, Object> params = new HashMap<String, Object>();
+        params.put(UpdateElementScript.PARAM_INCREMENTS, increments);
+        if (!updateDocument(getIndexName(vertex), vertex.getId(), params)) {
+            addElement(graph, vertex, authorizations);
+        }
+    }
+
+    private void reindexVertices(Graph graph, Edge edge, Authorizations authorizations) {
+        Element vOut = edge.getVertex(Direction.OUT, authorizations);
+        if (vOut != null) {
+            addElement(graph, vOut, authorizations);
+        }
+        Element vIn = edge.getVertex(Direction.IN, authorizations);
+        if (vIn != null) {
+            addElement(graph, vIn, authorizations);
+        }
+    }
+
+    /**
+     * Runs {@link UpdateElementScript} on the document, returns false if there is no document to update.
+     */
+    private boolean updateDocument(String indexName, String id, Map<String, Object> params) {
+        try {
+            getClient()
+                    .prepareUpdate(indexName, ElasticSearchSearchIndexBase.ELEMENT_TYPE, id)
+                    .setScriptLang("native")
+                    .setScript(UpdateElementScript.NAME)
+                    .setScriptParams(params)
+                    .setRetryOnConflict(UPDATE_RETRY_ON_CONFLICT)
+                    .execute()
+                    .actionGet();
+            return true;
+        } catch (ElasticsearchException e) {
+            if (ExceptionsHelper.unwrapCause(e) instanceof DocumentMissingException) {
+                return false;
+            }
+            throw new SecureGraphException("Could not update document " + id, e);
+        }
+    }
+
+    @Override
+    protected void addElementToBulkIndexer(Graph graph, ElasticSearchBulkIndexer bulkIndexer, Element element, Authorizations authorizations) {
+        IndexInfo indexInfo = addPropertiesToIndex(element, element.getProperties());
+        try {
+            XContentBuilder jsonBuilder = buildJsonContentFromElement(graph, indexInfo, element, false, authorizations);
+            bulkIndexer.add(new IndexRequest(indexInfo.getIndexName(), ElasticSearchSearchIndexBase.ELEMENT_TYPE, element.getId()).source(jsonBuilder.endObject()));
+        } catch (IOException e) {
+            throw new SecureGraphException("Could not add element", e);
+        }
     }
 
     @Override
@@ -76,6 +212,10 @@ public class ElasticSearchSearchIndex extends ElasticSearchSearchIndexBase {
         if (!deleteResponse.isFound()) {
             throw new SecureGraphException("Could not remove element " + element.getId());
         }
+
+        if (isUseEdgeBoost() && isStoreSourceData() && element instanceof Edge) {
+            addToEdgeCounts(graph, (Edge) element, -1, authorizations);
+        }
     }
 
     public String createJsonForElement(Graph graph, Element element, boolean mergeExisting, Authorizations authorizations) {
@@ -116,44 +256,9 @@ public class ElasticSearchSearchIndex extends ElasticSearchSearchIndexBase {
 
         for (Property property : element.getProperties()) {
             visibilityStrings.add(property.getVisibility().getVisibilityString());
-
-            Object propertyValue = property.getValue();
-            if (propertyValue != null && shouldIgnoreType(propertyValue.getClass())) {
-                continue;
-            } else if (propertyValue instanceof GeoPoint) {
-                GeoPoint geoPoint = (GeoPoint) propertyValue;
-                Map<String, Object> propertyValueMap = new HashMap<String, Object>();
-                propertyValueMap.put("lat", geoPoint.getLatitude());
-                propertyValueMap.put("lon", geoPoint.getLongitude());
-                propertyValue = propertyValueMap;
-            } else if (propertyValue instanceof StreamingPropertyValue) {
-                StreamingPropertyValue streamingPropertyValue = (StreamingPropertyValue) propertyValue;
-                if (!streamingPropertyValue.isSearchIndex()) {
-                    continue;
-                }
-                Class valueType = streamingPropertyValue.getValueType();
-                if (valueType == String.class) {
-                    InputStream in = streamingPropertyValue.getInputStream();
-                    propertyValue = StreamUtils.toString(in);
-                } else {
-                    throw new SecureGraphException("Unhandled StreamingPropertyValue type: " + valueType.getName());
-                }
-            } else if (propertyValue instanceof String) {
-                PropertyDefinition propertyDefinition = indexInfo.getPropertyDefinitions().get(property.getName());
-                if (propertyDefinition == null || propertyDefinition.getTextIndexHints().contains(TextIndexHint.EXACT_MATCH)) {
-                    jsonBuilder.field(property.getName() + ElasticSearchSearchIndexBase.EXACT_MATCH_PROPERTY_NAME_SUFFIX, propertyValue);
-                }
-                if (propertyDefinition == null || propertyDefinition.getTextIndexHints().contains(TextIndexHint.FULL_TEXT)) {
-                    jsonBuilder.field(property.getName(), propertyValue);
-                }
-                continue;
+            for (Map.Entry<String, Object> field : getPropertyFields(indexInfo, property).entrySet()) {
+                jsonBuilder.field(field.getKey(), field.getValue());
             }
-
-            if (propertyValue instanceof DateOnly) {
-                propertyValue = ((DateOnly) propertyValue).getDate();
-            }
-
-            jsonBuilder.field(property.getName(), propertyValue);
         }
 
         String visibilityString = Visibility.and(visibilityStrings).getVisibilityString();
@@ -162,6 +267,51 @@ public class ElasticSearchSearchIndex extends ElasticSearchSearchIndexBase {
         return jsonBuilder;
     }
 
+    /**
+     * The document fields of the property's value, none if the value is not indexed.
+     */
+    private Map<String, Object> getPropertyFields(IndexInfo indexInfo, Property property) throws IOException {
+        Map<String, Object> fields = new LinkedHashMap<String, Object>();
+        Object propertyValue = property.getValue();
+        if (propertyValue != null && shouldIgnoreType(propertyValue.getClass())) {
+            return fields;
+        } else if (propertyValue instanceof GeoPoint) {
+            GeoPoint geoPoint = (GeoPoint) propertyValue;
+            Map<String, Object> propertyValueMap = new HashMap<String, Object>();
+            propertyValueMap.put("lat", geoPoint.getLatitude());
+            propertyValueMap.put("lon", geoPoint.getLongitude());
+            propertyValue = propertyValueMap;
+        } else if (propertyValue instanceof StreamingPropertyValue) {
+            StreamingPropertyValue streamingPropertyValue = (StreamingPropertyValue) propertyValue;
+            if (!streamingPropertyValue.isSearchIndex()) {
+                return fields;
+            }
+            Class valueType = streamingPropertyValue.getValueType();
+            if (valueType == String.class) {
+                InputStream in = streamingPropertyValue.getInputStream();
+                propertyValue = StreamUtils.toString(in);
+            } else {
+                throw new SecureGraphException("Unhandled StreamingPropertyValue type: " + valueType.getName());
+            }
+        } else if (propertyValue instanceof String) {
+            PropertyDefinition propertyDefinition = indexInfo.getPropertyDefinitions().get(property.getName());
+            if (propertyDefinition == null || propertyDefinition.getTextIndexHints().contains(TextIndexHint.EXACT_MATCH)) {
+                fields.put(property.getName() + ElasticSearchSearchIndexBase.EXACT_MATCH_PROPERTY_NAME_SUFFIX, propertyValue);
+            }
+            if (propertyDefinition == null || propertyDefinition.getTextIndexHints().contains(TextIndexHint.FULL_TEXT)) {
+                fields.put(property.getName(), propertyValue);
+            }
+            return fields;
+        }
+
+        if (propertyValue instanceof DateOnly) {
+            propertyValue = ((DateOnly) propertyValue).getDate();
+        }
+
+        fields.put(property.getName(), propertyValue);
+        return fields;
+    }
+
     private Element requeryWithAuthsAndMergedElement(Graph graph, Element element, Authorizations authorizations) {
         Element existingElement;
         if (element instanceof Vertex) {
@@ -221,7 +371,7 @@ public class ElasticSearchSearchIndex extends ElasticSearchSearchIndexBase {
 
     @Override
     public GraphQuery queryGraph(Graph graph, String queryString, Authorizations authorizations) {
-        return new ElasticSearchGraphQuery(getClient(), getIndicesToQuery(), graph, queryString, getAllPropertyDefinitions(), getInEdgeBoost(), getOutEdgeBoost(), authorizations);
+        return new ElasticSearchGraphQuery(getClient(), getIndicesToQuery(), graph, queryString, getAllPropertyDefinitions(), getInEdgeBoost(), getOutEdgeBoost(), getScrollOptions(), getScrollExecutor(), authorizations);
     }
 
     @Override
@@ -0,0 +1,103 @@
+package org.securegraph.elasticsearch;
+
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
+import org.elasticsearch.index.mapper.MapperParsingException;
+import org.elasticsearch.transport.RemoteTransportException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.securegraph.Graph;
+import org.securegraph.SecureGraphException;
+import org.securegraph.elasticsearch.helpers.TestHelpers;
+
+import static org.junit.Assert.*;
+
+@RunWith(JUnit4.class)
+public class ElasticSearchBulkIndexerTest {
+    private static final String INDEX_NAME = "bulk-indexer-test";
+    private static final String TYPE_NAME = "doc";
+    private Graph graph;
+    private ElasticSearchSearchIndex searchIndex;
+
+    @Before
+    public void before() throws Exception {
+        TestHelpers.before();
+        graph = TestHelpers.createGraph();
+        searchIndex = (ElasticSearchSearchIndex) graph.getSearchIndex();
+        searchIndex.getClient().admin().indices().prepareCreate(INDEX_NAME)
+                .addMapping(TYPE_NAME, "{\"" + TYPE_NAME + "\":{\"properties\":{\"num\":{\"type\":\"long\"}}}}")
+                .execute()
+                .actionGet();
+    }
+
+    @After
+    public void after() throws Exception {
+        if (graph != null) {
+            graph.shutdown();
+        }
+        TestHelpers.after();
+    }
+
+    @Test
+    public void testIsRetryable() {
+        assertTrue(ElasticSearchBulkIndexer.isRetryable(new EsRejectedExecutionException("queue full")));
+        assertTrue(ElasticSearchBulkIndexer.isRetryable(new RemoteTransportException("remote", new EsRejectedExecutionException("queue full"))));
+        assertFalse(ElasticSearchBulkIndexer.isRetryable(new MapperParsingException("bad value")));
+        assertTrue(ElasticSearchBulkIndexer.isRetryable("EsRejectedExecutionException[rejected execution (queue capacity 50)]"));
+        assertTrue(ElasticSearchBulkIndexer.isRetryable("UnavailableShardsException[[bulk-indexer-test][0] Primary shard is not active]"));
+        assertFalse(ElasticSearchBulkIndexer.isRetryable("MapperParsingException[failed to parse [num]]"));
+        assertFalse(ElasticSearchBulkIndexer.isRetryable((String) null));
+    }
+
+    @Test
+    public void testFailedItemIsNotRetried() {
+        ElasticSearchBulkIndexer bulkIndexer = searchIndex.createBulkIndexer();
+        bulkIndexer.add(new IndexRequest(INDEX_NAME, TYPE_NAME, "good").source("{\"num\":1}"));
+        bulkIndexer.add(new IndexRequest(INDEX_NAME, TYPE_NAME, "bad").source("{\"num\":\"not a number\"}"));
+        try {
+            bulkIndexer.flush();
+            fail("expected the document that does not match the mapping to fail");
+        } catch (SecureGraphException ex) {
+            assertTrue(ex.getMessage(), ex.getMessage().contains("bad"));
+        } finally {
+            bulkIndexer.close();
+        }
+
+        assertEquals(0, bulkIndexer.getRetriedCount());
+        assertEquals(1, bulkIndexer.getFailedCount());
+        Client client = searchIndex.getClient();
+        assertTrue(client.prepareGet(INDEX_NAME, TYPE_NAME, "good").execute().actionGet().isExists());
+    }
+
+    @Test
+    public void testShutdownStopsBulkThreads() throws InterruptedException {
+        for (int i = 0; i < 3; i++) {
+            ElasticSearchBulkIndexer bulkIndexer = searchIndex.createBulkIndexer();
+            bulkIndexer.add(new IndexRequest(INDEX_NAME, TYPE_NAME, "doc" + i).source("{\"num\":" + i + "}"));
+            bulkIndexer.flush();
+            bulkIndexer.close();
+        }
+        assertTrue(countBulkThreads() > 0);
+
+        graph.shutdown();
+        graph = null;
+        for (int i = 0; i < 50 && countBulkThreads() > 0; i++) {
+            Thread.sleep(100);
+        }
+        assertEquals(0, countBulkThreads());
+    }
+
+    private static int countBulkThreads() {
+        int count = 0;
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.isAlive() && thread.getName().equals("securegraph-elasticsearch-bulk")) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
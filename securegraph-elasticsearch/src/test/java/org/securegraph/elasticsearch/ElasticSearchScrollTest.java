@@ -0,0 +1,151 @@
+package org.securegraph.elasticsearch;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.securegraph.*;
+import org.securegraph.elasticsearch.helpers.TestHelpers;
+import org.securegraph.inmemory.InMemoryAuthorizations;
+import org.securegraph.util.CloseableIterable;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import static org.junit.Assert.*;
+import static org.securegraph.util.IterableUtils.count;
+
+@RunWith(JUnit4.class)
+public class ElasticSearchScrollTest {
+    private static final Visibility VISIBILITY_A = new Visibility("a");
+    private static final Authorizations AUTHORIZATIONS_A = new InMemoryAuthorizations("a");
+    private static final int VERTEX_COUNT = 10;
+    private Graph graph;
+
+    @Before
+    public void before() throws Exception {
+        TestHelpers.before();
+        Map config = new HashMap();
+        config.put(GraphConfiguration.SEARCH_INDEX_PROP_PREFIX + "." + ElasticSearchSearchIndexBase.CONFIG_SCROLL_THRESHOLD, "5");
+        config.put(GraphConfiguration.SEARCH_INDEX_PROP_PREFIX + "." + ElasticSearchSearchIndexBase.CONFIG_SCROLL_PAGE_SIZE, "2");
+        config.put(GraphConfiguration.SEARCH_INDEX_PROP_PREFIX + "." + ElasticSearchSearchIndexBase.CONFIG_SCROLL_PREFETCH_PAGES, "1");
+        config.put(GraphConfiguration.SEARCH_INDEX_PROP_PREFIX + "." + ElasticSearchSearchIndexBase.CONFIG_STORE_SOURCE_DATA, "true");
+        graph = TestHelpers.createGraph(config);
+        graph.defineProperty("name").dataType(String.class).define();
+        for (int i = 0; i < VERTEX_COUNT; i++) {
+            graph.prepareVertex("v" + i, VISIBILITY_A)
+                    .setProperty("name", "vertex " + i, VISIBILITY_A)
+                    .save(AUTHORIZATIONS_A);
+        }
+        graph.flush();
+    }
+
+    @After
+    public void after() throws Exception {
+        graph.shutdown();
+        TestHelpers.after();
+    }
+
+    @Test
+    public void testScrollReturnsAllHits() {
+        Iterable<Vertex> vertices = graph.query(AUTHORIZATIONS_A).limit(100).vertices();
+        Set<String> ids = new HashSet<String>();
+        for (Vertex v : vertices) {
+            ids.add(v.getId());
+        }
+        assertEquals(VERTEX_COUNT, ids.size());
+        waitForScrollReaders();
+    }
+
+    @Test
+    public void testScrollWithSkipAndLimit() {
+        assertEquals(4, count(graph.query(AUTHORIZATIONS_A).skip(6).limit(100).vertices()));
+        assertEquals(7, count(graph.query(AUTHORIZATIONS_A).skip(1).limit(7).vertices()));
+        waitForScrollReaders();
+    }
+
+    @Test
+    public void testScrollBuildsElementsFromSearchIndex() {
+        Iterable<Vertex> vertices = graph.query(AUTHORIZATIONS_A).limit(100).vertices(EnumSet.of(FetchHint.PROPERTIES, FetchHint.SEARCH_INDEX));
+        int count = 0;
+        for (Vertex vertex : vertices) {
+            assertTrue(vertex instanceof SearchIndexVertex);
+            assertEquals("vertex " + vertex.getId().substring(1), vertex.getPropertyValue("name"));
+            count++;
+        }
+        assertEquals(VERTEX_COUNT, count);
+        waitForScrollReaders();
+    }
+
+    @Test
+    public void testCloseIteratorStopsScroll() throws IOException {
+        Iterator<Vertex> it = graph.query(AUTHORIZATIONS_A).limit(100).vertices().iterator();
+        assertTrue(it.hasNext());
+        it.next();
+        assertTrue(it instanceof Closeable);
+        ((Closeable) it).close();
+        assertFalse(it.hasNext());
+        waitForScrollReaders();
+    }
+
+    @Test
+    public void testCloseIterableStopsScroll() throws IOException {
+        Iterable<Vertex> vertices = graph.query(AUTHORIZATIONS_A).limit(100).vertices();
+        assertTrue(vertices instanceof CloseableIterable);
+        Iterator<Vertex> it = vertices.iterator();
+        assertTrue(it.hasNext());
+        it.next();
+        ((CloseableIterable<Vertex>) vertices).close();
+        waitForScrollReaders();
+    }
+
+    @Test
+    public void testOpenIteratorsShareTheReaderThreads() {
+        List<Iterator<Vertex>> iterators = new ArrayList<Iterator<Vertex>>();
+        for (int i = 0; i < 20; i++) {
+            Iterator<Vertex> it = graph.query(AUTHORIZATIONS_A).limit(100).vertices().iterator();
+            assertTrue(it.hasNext());
+            iterators.add(it);
+        }
+        waitForScrollReaders();
+        assertTrue(countScrollThreads() <= ((ElasticSearchSearchIndex) graph.getSearchIndex()).getScrollExecutor().getMaximumPoolSize());
+        for (Iterator<Vertex> it : iterators) {
+            int count = 0;
+            while (it.hasNext()) {
+                it.next();
+                count++;
+            }
+            assertEquals(VERTEX_COUNT, count);
+        }
+    }
+
+    private void waitForScrollReaders() {
+        for (int i = 0; i < 50 && countScrollReaders() > 0; i++) {
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        assertEquals(0, countScrollReaders());
+    }
+
+    private int countScrollReaders() {
+        ThreadPoolExecutor scrollExecutor = ((ElasticSearchSearchIndex) graph.getSearchIndex()).getScrollExecutor();
+        return scrollExecutor.getActiveCount() + scrollExecutor.getQueue().size();
+    }
+
+    private static int countScrollThreads() {
+        int count = 0;
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.isAlive() && thread.getName().equals("securegraph-es-scroll")) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
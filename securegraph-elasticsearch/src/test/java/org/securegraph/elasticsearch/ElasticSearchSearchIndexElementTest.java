@@ -0,0 +1,107 @@
+package org.securegraph.elasticsearch;
+
+import org.elasticsearch.common.settings.ImmutableSettings;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.securegraph.*;
+import org.securegraph.elasticsearch.helpers.TestHelpers;
+import org.securegraph.inmemory.InMemoryAuthorizations;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+import static org.securegraph.util.IterableUtils.toList;
+
+@RunWith(JUnit4.class)
+public class ElasticSearchSearchIndexElementTest {
+    private static final String INDEX_NAME = "search-index-element-test";
+    private static final Visibility VISIBILITY_A = new Visibility("a");
+    private static final Authorizations AUTHORIZATIONS_A = new InMemoryAuthorizations("a");
+    private static final EnumSet<FetchHint> SEARCH_INDEX = EnumSet.of(FetchHint.PROPERTIES, FetchHint.SEARCH_INDEX);
+    private Graph graph;
+
+    @Before
+    public void before() throws Exception {
+        TestHelpers.before();
+
+        // a single shard scores every hit the same way, so the hit order only depends on the text
+        Graph bootstrapGraph = TestHelpers.createGraph();
+        ((ElasticSearchSearchIndex) bootstrapGraph.getSearchIndex()).getClient().admin().indices().prepareCreate(INDEX_NAME)
+                .setSettings(ImmutableSettings.settingsBuilder().put("index.number_of_shards", 1))
+                .execute()
+                .actionGet();
+        bootstrapGraph.shutdown();
+
+        Map config = new HashMap();
+        config.put(GraphConfiguration.SEARCH_INDEX_PROP_PREFIX + "." + ElasticSearchSearchIndexBase.CONFIG_STORE_SOURCE_DATA, "true");
+        config.put(GraphConfiguration.SEARCH_INDEX_PROP_PREFIX + "." + ElasticSearchSearchIndexBase.CONFIG_INDEX_NAME, INDEX_NAME);
+        graph = TestHelpers.createGraph(config);
+        graph.defineProperty("text").dataType(String.class).define();
+        graph.defineProperty("count").dataType(Integer.class).define();
+        graph.defineProperty("date").dataType(Date.class).define();
+    }
+
+    @After
+    public void after() throws Exception {
+        graph.shutdown();
+        TestHelpers.after();
+    }
+
+    @Test
+    public void testHitOrderIsKept() {
+        addVertex("v1", "hello x x x", 1, new Date(1000));
+        addVertex("v2", "hello hello x x", 2, new Date(2000));
+        addVertex("v3", "hello hello hello x", 3, new Date(3000));
+        graph.flush();
+
+        List<Vertex> vertices = toList(graph.query("hello", AUTHORIZATIONS_A).vertices(SEARCH_INDEX));
+        assertEquals(Arrays.asList("v3", "v2", "v1"), getIds(vertices));
+        for (Vertex vertex : vertices) {
+            assertTrue(vertex instanceof SearchIndexVertex);
+        }
+    }
+
+    @Test
+    public void testNonScalarPropertiesFallBackToGraph() {
+        addVertex("v1", "hello", 1, new Date(1000));
+        addVertex("v2", "hello", 2, new Date(2000));
+        graph.flush();
+
+        Map<String, Vertex> verticesById = new HashMap<String, Vertex>();
+        for (Vertex vertex : graph.query("hello", AUTHORIZATIONS_A).vertices(SEARCH_INDEX)) {
+            verticesById.put(vertex.getId(), vertex);
+        }
+        assertEquals(new Date(2000), verticesById.get("v2").getPropertyValue("date"));
+
+        // the scalar values are read from the document, the date needs the vertex from the graph
+        graph.removeVertex(graph.getVertex("v1", AUTHORIZATIONS_A), AUTHORIZATIONS_A);
+        Vertex v1 = verticesById.get("v1");
+        assertEquals("hello", v1.getPropertyValue("text"));
+        assertEquals(1, v1.getPropertyValue("count"));
+        try {
+            v1.getPropertyValue("date");
+            fail("expected the removed vertex to be read from the graph");
+        } catch (SecureGraphException ex) {
+            // expected
+        }
+    }
+
+    private void addVertex(String id, String text, int count, Date date) {
+        graph.prepareVertex(id, VISIBILITY_A)
+                .setProperty("text", text, VISIBILITY_A)
+                .setProperty("count", count, VISIBILITY_A)
+                .setProperty("date", date, VISIBILITY_A)
+                .save(AUTHORIZATIONS_A);
+    }
+
+    private static List<String> getIds(List<Vertex> vertices) {
+        List<String> ids = new ArrayList<String>();
+        for (Vertex vertex : vertices) {
+            ids.add(vertex.getId());
+        }
+        return ids;
+    }
+}
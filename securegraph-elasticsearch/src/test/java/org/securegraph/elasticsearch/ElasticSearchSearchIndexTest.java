@@ -5,9 +5,7 @@ import org.json.JSONObject;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
-import org.securegraph.Authorizations;
-import org.securegraph.Graph;
-import org.securegraph.Vertex;
+import org.securegraph.*;
 import org.securegraph.elasticsearch.helpers.TestHelpers;
 import org.securegraph.inmemory.InMemoryAuthorizations;
 import org.securegraph.inmemory.InMemoryGraph;
@@ -22,6 +20,7 @@ import java.util.HashMap;
 import java.util.Map;
 
 import static junit.framework.TestCase.assertNotNull;
+import static org.junit.Assert.assertEquals;
 
 public class ElasticSearchSearchIndexTest extends GraphTestBase {
     @Override
@@ -72,4 +71,45 @@ public class ElasticSearchSearchIndexTest extends GraphTestBase {
 
         getSearchIndex().loadPropertyDefinitions();
     }
+
+    @Test
+    public void testAddElementPropertiesUpdatesDocument() {
+        graph.prepareVertex("v1", VISIBILITY_A)
+                .setProperty("prop1", "value1", VISIBILITY_A)
+                .save(AUTHORIZATIONS_A_AND_B);
+        Vertex v1 = graph.getVertex("v1", AUTHORIZATIONS_A_AND_B);
+        v1.setProperty("prop2", 5, VISIBILITY_B, AUTHORIZATIONS_A_AND_B);
+
+        Map<String, Object> source = getSource(v1);
+        assertEquals("value1", source.get("prop1"));
+        assertEquals(5, ((Number) source.get("prop2")).intValue());
+        assertEquals("(a)&(b)", source.get(ElasticSearchSearchIndexBase.VISIBILITY_FIELD_NAME));
+    }
+
+    @Test
+    public void testEdgeCountsUpdatedInPlace() {
+        Vertex v1 = graph.addVertex("v1", VISIBILITY_A, AUTHORIZATIONS_A);
+        Vertex v2 = graph.addVertex("v2", VISIBILITY_A, AUTHORIZATIONS_A);
+        graph.addEdge("e1", v1, v2, "label1", VISIBILITY_A, AUTHORIZATIONS_A);
+        Edge e2 = graph.addEdge("e2", v1, v2, "label1", VISIBILITY_A, AUTHORIZATIONS_A);
+        assertEquals(2, getEdgeCount(v1, ElasticSearchSearchIndexBase.OUT_EDGE_COUNT_FIELD_NAME));
+        assertEquals(0, getEdgeCount(v1, ElasticSearchSearchIndexBase.IN_EDGE_COUNT_FIELD_NAME));
+        assertEquals(2, getEdgeCount(v2, ElasticSearchSearchIndexBase.IN_EDGE_COUNT_FIELD_NAME));
+
+        graph.removeEdge(e2, AUTHORIZATIONS_A);
+        assertEquals(1, getEdgeCount(v1, ElasticSearchSearchIndexBase.OUT_EDGE_COUNT_FIELD_NAME));
+        assertEquals(1, getEdgeCount(v2, ElasticSearchSearchIndexBase.IN_EDGE_COUNT_FIELD_NAME));
+    }
+
+    private int getEdgeCount(Vertex vertex, String countFieldName) {
+        return ((Number) getSource(vertex).get(countFieldName)).intValue();
+    }
+
+    private Map<String, Object> getSource(Element element) {
+        return getSearchIndex().getClient()
+                .prepareGet(getSearchIndex().getIndexName(element), ElasticSearchSearchIndexBase.ELEMENT_TYPE, element.getId())
+                .execute()
+                .actionGet()
+                .getSource();
+    }
 }
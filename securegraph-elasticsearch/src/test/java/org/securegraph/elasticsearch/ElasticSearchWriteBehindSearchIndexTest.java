@@ -0,0 +1,85 @@
+package org.securegraph.elasticsearch;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.securegraph.*;
+import org.securegraph.elasticsearch.helpers.TestHelpers;
+import org.securegraph.inmemory.InMemoryAuthorizations;
+import org.securegraph.inmemory.InMemoryGraph;
+import org.securegraph.search.WriteBehindSearchIndex;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+@RunWith(JUnit4.class)
+public class ElasticSearchWriteBehindSearchIndexTest {
+    private static final Visibility VISIBILITY_A = new Visibility("a");
+    private static final Visibility VISIBILITY_B = new Visibility("b");
+    private static final Authorizations AUTHORIZATIONS_A = new InMemoryAuthorizations("a");
+    private static final Authorizations AUTHORIZATIONS_A_AND_B = new InMemoryAuthorizations("a", "b");
+    private InMemoryGraph graph;
+
+    @Before
+    public void before() throws Exception {
+        TestHelpers.before();
+        Map config = new HashMap();
+        config.put(GraphConfiguration.SEARCH_INDEX_WRITE_BEHIND, "true");
+        config.put(GraphConfiguration.SEARCH_INDEX_PROP_PREFIX + "." + ElasticSearchSearchIndexBase.CONFIG_STORE_SOURCE_DATA, "true");
+        graph = (InMemoryGraph) TestHelpers.createGraph(config);
+    }
+
+    @After
+    public void after() throws Exception {
+        graph.shutdown();
+        TestHelpers.after();
+    }
+
+    @Test
+    public void testPartialElementKeepsOtherProperties() {
+        graph.prepareVertex("v1", VISIBILITY_A)
+                .setProperty("prop1", "value1", VISIBILITY_A)
+                .setProperty("prop2", "value2", VISIBILITY_B)
+                .save(AUTHORIZATIONS_A_AND_B);
+        graph.flush();
+
+        // a vertex carrying only the saved property, like the element a mutation of an existing element is saved with
+        InMemoryGraph otherGraph = InMemoryGraph.create(new HashMap());
+        Vertex partialVertex = otherGraph.prepareVertex("v1", VISIBILITY_A)
+                .setProperty("prop3", "value3", VISIBILITY_A)
+                .save(AUTHORIZATIONS_A);
+        graph.getSearchIndex().addElement(graph, partialVertex, AUTHORIZATIONS_A_AND_B);
+        graph.flush();
+
+        Map<String, Object> source = getSource(partialVertex);
+        assertEquals("value1", source.get("prop1"));
+        assertEquals("value2", source.get("prop2"));
+        assertEquals("value3", source.get("prop3"));
+    }
+
+    @Test
+    public void testAddEdgeUpdatesEdgeCounts() {
+        Vertex v1 = graph.addVertex("v1", VISIBILITY_A, AUTHORIZATIONS_A);
+        Vertex v2 = graph.addVertex("v2", VISIBILITY_A, AUTHORIZATIONS_A);
+        graph.flush();
+        graph.addEdge("e1", v1, v2, "label1", VISIBILITY_A, AUTHORIZATIONS_A);
+        graph.addEdge("e2", v1, v2, "label1", VISIBILITY_A, AUTHORIZATIONS_A);
+        graph.flush();
+
+        assertEquals(2, ((Number) getSource(v1).get(ElasticSearchSearchIndexBase.OUT_EDGE_COUNT_FIELD_NAME)).intValue());
+        assertEquals(2, ((Number) getSource(v2).get(ElasticSearchSearchIndexBase.IN_EDGE_COUNT_FIELD_NAME)).intValue());
+    }
+
+    private Map<String, Object> getSource(Element element) {
+        ElasticSearchSearchIndex searchIndex = (ElasticSearchSearchIndex) ((WriteBehindSearchIndex) graph.getSearchIndex()).getSearchIndex();
+        return searchIndex.getClient()
+                .prepareGet(searchIndex.getIndexName(element), ElasticSearchSearchIndexBase.ELEMENT_TYPE, element.getId())
+                .execute()
+                .actionGet()
+                .getSource();
+    }
+}
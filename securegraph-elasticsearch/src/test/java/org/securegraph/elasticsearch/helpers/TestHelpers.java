@@ -29,6 +29,10 @@ public class TestHelpers {
     private static boolean TESTING = false;
 
     public static Graph createGraph() {
+        return createGraph(new HashMap());
+    }
+
+    public static Graph createGraph(Map additionalConfig) {
         Map config = new HashMap();
         config.put(GraphConfiguration.AUTO_FLUSH, true);
         config.put(GraphConfiguration.SEARCH_INDEX_PROP_PREFIX, ElasticSearchSearchIndex.class.getName());
@@ -39,6 +43,7 @@ public class TestHelpers {
             config.put(ElasticSearchSearchIndexBase.SETTING_CLUSTER_NAME, clusterName);
         }
         config.put(GraphConfiguration.SEARCH_INDEX_PROP_PREFIX + "." + ElasticSearchSearchIndexBase.CONFIG_ES_LOCATIONS, addr);
+        config.putAll(additionalConfig);
         InMemoryGraphConfiguration configuration = new InMemoryGraphConfiguration(config);
         return new InMemoryGraph(configuration, configuration.createIdGenerator(), configuration.createSearchIndex());
     }
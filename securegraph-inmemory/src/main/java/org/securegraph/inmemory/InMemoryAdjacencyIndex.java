@@ -0,0 +1,212 @@
+package org.securegraph.inmemory;
+
+import org.securegraph.Direction;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The ids of the edges in and out of each vertex grouped by label, so edge lookups from a vertex do not scan every
+ * edge in the graph. Edge ids are kept in plain arrays, one per vertex, direction and label.
+ * <p/>
+ * Thread safe, each vertex's adjacency is locked on its own so writes to different vertices do not block each other.
+ */
+class InMemoryAdjacencyIndex {
+    private static final LabelEdgeIds[] EMPTY = new LabelEdgeIds[0];
+    private final ConcurrentHashMap<String, VertexAdjacency> adjacencyByVertexId = new ConcurrentHashMap<String, VertexAdjacency>();
+
+    public void addEdge(InMemoryEdge edge) {
+        boolean selfLoop = edge.getVertexId(Direction.OUT).equals(edge.getVertexId(Direction.IN));
+        add(edge.getVertexId(Direction.OUT), Direction.OUT, edge.getLabel(), edge.getId(), selfLoop);
+        add(edge.getVertexId(Direction.IN), Direction.IN, edge.getLabel(), edge.getId(), false);
+    }
+
+    public void removeEdge(InMemoryEdge edge) {
+        boolean selfLoop = edge.getVertexId(Direction.OUT).equals(edge.getVertexId(Direction.IN));
+        remove(edge.getVertexId(Direction.OUT), Direction.OUT, edge.getLabel(), edge.getId(), selfLoop);
+        remove(edge.getVertexId(Direction.IN), Direction.IN, edge.getLabel(), edge.getId(), false);
+    }
+
+    public void clear() {
+        adjacencyByVertexId.clear();
+    }
+
+    /**
+     * A snapshot of the edge ids so callers can change the graph while iterating.
+     *
+     * @param labels null for all labels
+     */
+    public List<String> getEdgeIds(String vertexId, Direction direction, String[] labels) {
+        VertexAdjacency adjacency = adjacencyByVertexId.get(vertexId);
+        if (adjacency == null) {
+            return Collections.emptyList();
+        }
+        List<String> results = new ArrayList<String>();
+        synchronized (adjacency) {
+            if (direction == Direction.OUT || direction == Direction.BOTH) {
+                addEdgeIds(adjacency.out, labels, results);
+            }
+            if (direction == Direction.IN || direction == Direction.BOTH) {
+                addEdgeIds(adjacency.in, labels, results);
+            }
+            if (direction == Direction.BOTH && adjacency.selfLoopCount > 0) {
+                // an edge from the vertex to itself is in both the in and out edges
+                return new ArrayList<String>(new LinkedHashSet<String>(results));
+            }
+        }
+        return results;
+    }
+
+    private static void addEdgeIds(LabelEdgeIds[] labelEdgeIdsArray, String[] labels, List<String> results) {
+        for (LabelEdgeIds labelEdgeIds : labelEdgeIdsArray) {
+            if (labels == null || contains(labels, labelEdgeIds.label)) {
+                results.addAll(Arrays.asList(labelEdgeIds.edgeIds).subList(0, labelEdgeIds.size));
+            }
+        }
+    }
+
+    private static boolean contains(String[] labels, String label) {
+        for (String l : labels) {
+            if (l == null ? label == null : l.equals(label)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void add(String vertexId, Direction direction, String label, String edgeId, boolean selfLoop) {
+        while (true) {
+            VertexAdjacency adjacency = adjacencyByVertexId.get(vertexId);
+            if (adjacency == null) {
+                VertexAdjacency newAdjacency = new VertexAdjacency();
+                adjacency = adjacencyByVertexId.putIfAbsent(vertexId, newAdjacency);
+                if (adjacency == null) {
+                    adjacency = newAdjacency;
+                }
+            }
+            synchronized (adjacency) {
+                // lost a race with the removal of the vertex's last edge, try again with a new adjacency
+                if (adjacency.removed) {
+                    continue;
+                }
+                adjacency.add(direction, label, edgeId);
+                if (selfLoop) {
+                    adjacency.selfLoopCount++;
+                }
+                return;
+            }
+        }
+    }
+
+    private void remove(String vertexId, Direction direction, String label, String edgeId, boolean selfLoop) {
+        VertexAdjacency adjacency = adjacencyByVertexId.get(vertexId);
+        if (adjacency == null) {
+            return;
+        }
+        synchronized (adjacency) {
+            if (!adjacency.remove(direction, label, edgeId)) {
+                return;
+            }
+            if (selfLoop) {
+                adjacency.selfLoopCount--;
+            }
+            if (adjacency.isEmpty()) {
+                adjacency.removed = true;
+                adjacencyByVertexId.remove(vertexId, adjacency);
+            }
+        }
+    }
+
+    private static class VertexAdjacency {
+        private LabelEdgeIds[] in = EMPTY;
+        private LabelEdgeIds[] out = EMPTY;
+        private int selfLoopCount;
+        private boolean removed;
+
+        public void add(Direction direction, String label, String edgeId) {
+            LabelEdgeIds[] labelEdgeIdsArray = direction == Direction.IN ? in : out;
+            LabelEdgeIds labelEdgeIds = find(labelEdgeIdsArray, label);
+            if (labelEdgeIds == null) {
+                labelEdgeIds = new LabelEdgeIds(label);
+                labelEdgeIdsArray = Arrays.copyOf(labelEdgeIdsArray, labelEdgeIdsArray.length + 1);
+                labelEdgeIdsArray[labelEdgeIdsArray.length - 1] = labelEdgeIds;
+                if (direction == Direction.IN) {
+                    in = labelEdgeIdsArray;
+                } else {
+                    out = labelEdgeIdsArray;
+                }
+            }
+            labelEdgeIds.add(edgeId);
+        }
+
+        public boolean remove(Direction direction, String label, String edgeId) {
+            LabelEdgeIds[] labelEdgeIdsArray = direction == Direction.IN ? in : out;
+            for (int i = 0; i < labelEdgeIdsArray.length; i++) {
+                LabelEdgeIds labelEdgeIds = labelEdgeIdsArray[i];
+                if (!labelEquals(labelEdgeIds.label, label)) {
+                    continue;
+                }
+                if (!labelEdgeIds.remove(edgeId)) {
+                    return false;
+                }
+                if (labelEdgeIds.size == 0) {
+                    LabelEdgeIds[] newArray = new LabelEdgeIds[labelEdgeIdsArray.length - 1];
+                    System.arraycopy(labelEdgeIdsArray, 0, newArray, 0, i);
+                    System.arraycopy(labelEdgeIdsArray, i + 1, newArray, i, newArray.length - i);
+                    if (direction == Direction.IN) {
+                        in = newArray;
+                    } else {
+                        out = newArray;
+                    }
+                }
+                return true;
+            }
+            return false;
+        }
+
+        public boolean isEmpty() {
+            return in.length == 0 && out.length == 0;
+        }
+
+        private static LabelEdgeIds find(LabelEdgeIds[] labelEdgeIdsArray, String label) {
+            for (LabelEdgeIds labelEdgeIds : labelEdgeIdsArray) {
+                if (labelEquals(labelEdgeIds.label, label)) {
+                    return labelEdgeIds;
+                }
+            }
+            return null;
+        }
+
+        private static boolean labelEquals(String label1, String label2) {
+            return label1 == null ? label2 == null : label1.equals(label2);
+        }
+    }
+
+    private static class LabelEdgeIds {
+        private final String label;
+        private String[] edgeIds = new String[2];
+        private int size;
+
+        private LabelEdgeIds(String label) {
+            this.label = label;
+        }
+
+        public void add(String edgeId) {
+            if (size == edgeIds.length) {
+                edgeIds = Arrays.copyOf(edgeIds, size * 2);
+            }
+            edgeIds[size++] = edgeId;
+        }
+
+        public boolean remove(String edgeId) {
+            for (int i = 0; i < size; i++) {
+                if (edgeIds[i].equals(edgeId)) {
+                    edgeIds[i] = edgeIds[--size];
+                    edgeIds[size] = null;
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
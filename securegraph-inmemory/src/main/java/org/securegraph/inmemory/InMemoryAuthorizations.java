@@ -7,6 +7,8 @@ import org.securegraph.inmemory.security.ColumnVisibility;
 import org.securegraph.inmemory.security.VisibilityEvaluator;
 import org.securegraph.inmemory.security.VisibilityParseException;
 import org.securegraph.util.ArrayUtils;
+import org.securegraph.util.BoundedConcurrentCache;
+import org.securegraph.util.CanReadCache;
 
 import java.io.Serializable;
 import java.util.Arrays;
@@ -15,7 +17,11 @@ import static org.securegraph.util.Preconditions.checkNotNull;
 
 public class InMemoryAuthorizations implements Authorizations, Serializable {
     private static final long serialVersionUID = 1L;
+    private static final int COLUMN_VISIBILITY_CACHE_MAX_SIZE = 10000;
+    // parsed visibilities are immutable so they are shared by all sets of authorizations
+    private static final BoundedConcurrentCache<String, ColumnVisibility> columnVisibilityCache = new BoundedConcurrentCache<String, ColumnVisibility>(COLUMN_VISIBILITY_CACHE_MAX_SIZE);
     private final String[] authorizations;
+    private transient volatile CanReadCache<ColumnVisibility> canReadCache;
 
     public InMemoryAuthorizations(String... authorizations) {
         this.authorizations = authorizations;
@@ -45,12 +51,39 @@ public class InMemoryAuthorizations implements Authorizations, Serializable {
             return true;
         }
 
-        VisibilityEvaluator visibilityEvaluator = new VisibilityEvaluator(new org.securegraph.inmemory.security.Authorizations(this.getAuthorizations()));
-        ColumnVisibility columnVisibility = new ColumnVisibility(visibility.getVisibilityString());
-        try {
-            return visibilityEvaluator.evaluate(columnVisibility);
-        } catch (VisibilityParseException e) {
-            throw new SecureGraphException("could not evaluate visibility " + visibility.getVisibilityString(), e);
+        return getCanReadCache().canRead(visibility.getVisibilityString());
+    }
+
+    // rebuilt lazily since it is not serialized, building it twice in a race is harmless
+    private CanReadCache<ColumnVisibility> getCanReadCache() {
+        CanReadCache<ColumnVisibility> canReadCache = this.canReadCache;
+        if (canReadCache == null) {
+            final VisibilityEvaluator visibilityEvaluator = new VisibilityEvaluator(new org.securegraph.inmemory.security.Authorizations(this.getAuthorizations()));
+            canReadCache = new CanReadCache<ColumnVisibility>(columnVisibilityCache) {
+                @Override
+                protected ColumnVisibility parse(String visibilityString) {
+                    return new ColumnVisibility(visibilityString);
+                }
+
+                @Override
+                protected boolean evaluate(ColumnVisibility visibility) {
+                    try {
+                        return visibilityEvaluator.evaluate(visibility);
+                    } catch (VisibilityParseException e) {
+                        throw new SecureGraphException("could not evaluate visibility " + new String(visibility.getExpression()), e);
+                    }
+                }
+            };
+            this.canReadCache = canReadCache;
         }
+        return canReadCache;
+    }
+
+    public long getCanReadCacheHitCount() {
+        return getCanReadCache().getHitCount();
+    }
+
+    public long getCanReadCacheMissCount() {
+        return getCanReadCache().getMissCount();
     }
 }
@@ -1,12 +1,18 @@
 package org.securegraph.inmemory;
 
 import org.securegraph.*;
+import org.securegraph.mutation.AlterPropertyMetadata;
 import org.securegraph.mutation.ExistingElementMutationImpl;
 import org.securegraph.property.MutableProperty;
+import org.securegraph.property.MutablePropertyImpl;
 import org.securegraph.property.StreamingPropertyValue;
 import org.securegraph.util.StreamUtils;
 
 import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 public abstract class InMemoryElement<T extends Element> extends ElementBase<T> {
     protected InMemoryElement(Graph graph, String id, Visibility visibility, Iterable<Property> properties, Authorizations authorizations) {
@@ -38,7 +44,8 @@ public abstract class InMemoryElement<T extends Element> extends ElementBase<T>
     protected void updatePropertiesInternal(Iterable<Property> properties) {
         try {
             for (Property property : properties) {
-                if (property.getValue() instanceof StreamingPropertyValue) {
+                // values already held in memory are shared by the versions of a stored element and left as they are
+                if (property.getValue() instanceof StreamingPropertyValue && !(property.getValue() instanceof InMemoryStreamingPropertyValue)) {
                     StreamingPropertyValue value = (StreamingPropertyValue) property.getValue();
                     byte[] valueData = StreamUtils.toBytes(value.getInputStream());
                     ((MutableProperty) property).setValue(new InMemoryStreamingPropertyValue(valueData, value.getValueType()));
@@ -69,20 +76,37 @@ public abstract class InMemoryElement<T extends Element> extends ElementBase<T>
             if (mutation.getNewElementVisibility() != null) {
                 getGraph().alterEdgeVisibility(mutation.getElement().getId(), mutation.getNewElementVisibility());
             }
-            getGraph().alterEdgePropertyVisibilities(mutation.getElement().getId(), mutation.getAlterPropertyVisibilities(), authorizations);
+            getGraph().alterEdgePropertyVisibilities(mutation.getElement().getId(), mutation.getAlterPropertyVisibilities());
             getGraph().alterEdgePropertyMetadata(mutation.getElement().getId(), mutation.getAlterPropertyMetadatas());
         } else if (mutation.getElement() instanceof Vertex) {
             if (mutation.getNewElementVisibility() != null) {
                 getGraph().alterVertexVisibility(mutation.getElement().getId(), mutation.getNewElementVisibility());
             }
-            getGraph().alterVertexPropertyVisibilities(mutation.getElement().getId(), mutation.getAlterPropertyVisibilities(), authorizations);
+            getGraph().alterVertexPropertyVisibilities(mutation.getElement().getId(), mutation.getAlterPropertyVisibilities());
             getGraph().alterVertexPropertyMetadata(mutation.getElement().getId(), mutation.getAlterPropertyMetadatas());
         } else {
             throw new IllegalStateException("Unexpected element type: " + mutation.getElement());
         }
+        if (mutation.getAlterPropertyMetadatas().size() > 0) {
+            ((InMemoryElement) mutation.getElement()).alterPropertyMetadataInternal(mutation.getAlterPropertyMetadatas());
+        }
+
+        indexExistingElementMutation(getGraph().getSearchIndex(), mutation, properties, authorizations);
     }
 
-    void setVisibilityInternal(Visibility visibility) {
-        super.setVisibility(visibility);
+    /**
+     * Properties are shared with the stored versions of the element, so they are replaced rather than changed.
+     */
+    void alterPropertyMetadataInternal(List<AlterPropertyMetadata> alterPropertyMetadatas) {
+        for (AlterPropertyMetadata apm : alterPropertyMetadatas) {
+            Property property = getProperty(apm.getPropertyKey(), apm.getPropertyName(), apm.getPropertyVisibility());
+            if (property == null) {
+                throw new SecureGraphException("Could not find property " + apm.getPropertyKey() + ":" + apm.getPropertyName());
+            }
+            Map<String, Object> metadata = new HashMap<String, Object>(property.getMetadata());
+            metadata.put(apm.getMetadataName(), apm.getNewValue());
+            Property newProperty = new MutablePropertyImpl(property.getKey(), property.getName(), property.getValue(), metadata, property.getVisibility());
+            updatePropertiesInternal(Collections.singletonList(newProperty));
+        }
     }
 }
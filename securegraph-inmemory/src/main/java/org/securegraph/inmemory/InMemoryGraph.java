@@ -5,32 +5,81 @@ import org.securegraph.id.IdGenerator;
 import org.securegraph.id.UUIDIdGenerator;
 import org.securegraph.mutation.AlterPropertyMetadata;
 import org.securegraph.mutation.AlterPropertyVisibility;
+import org.securegraph.property.MutablePropertyImpl;
 import org.securegraph.search.DefaultSearchIndex;
 import org.securegraph.search.SearchIndex;
 import org.securegraph.util.LookAheadIterable;
 
 import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
 
 import static org.securegraph.util.IterableUtils.toList;
 import static org.securegraph.util.Preconditions.checkNotNull;
 
 public class InMemoryGraph extends GraphBaseWithSearchIndex {
     private static final InMemoryGraphConfiguration DEFAULT_CONFIGURATION = new InMemoryGraphConfiguration(new HashMap());
+    private static final int ELEMENT_LOCK_COUNT = 256;
     private final Map<String, InMemoryVertex> vertices;
     private final Map<String, InMemoryEdge> edges;
+    private final InMemoryAdjacencyIndex adjacencyIndex = new InMemoryAdjacencyIndex();
+    // writes to the same element are serialized, writes to different elements usually take different locks
+    private final ReentrantLock[] elementLocks = new ReentrantLock[ELEMENT_LOCK_COUNT];
+    private final boolean concurrent;
 
     public InMemoryGraph() {
         this(DEFAULT_CONFIGURATION, new UUIDIdGenerator(DEFAULT_CONFIGURATION.getConfig()), new DefaultSearchIndex(DEFAULT_CONFIGURATION.getConfig()));
     }
 
     public InMemoryGraph(InMemoryGraphConfiguration configuration, IdGenerator idGenerator, SearchIndex searchIndex) {
-        this(configuration, idGenerator, searchIndex, new HashMap<String, InMemoryVertex>(), new HashMap<String, InMemoryEdge>());
+        this(configuration, idGenerator, searchIndex, InMemoryGraph.<InMemoryVertex>createElementMap(configuration), InMemoryGraph.<InMemoryEdge>createElementMap(configuration));
     }
 
     protected InMemoryGraph(InMemoryGraphConfiguration configuration, IdGenerator idGenerator, SearchIndex searchIndex, Map<String, InMemoryVertex> vertices, Map<String, InMemoryEdge> edges) {
         super(configuration, idGenerator, searchIndex);
+        this.concurrent = configuration.isConcurrent();
         this.vertices = vertices;
         this.edges = edges;
+        for (InMemoryEdge edge : edges.values()) {
+            this.adjacencyIndex.addEdge(edge);
+        }
+        for (int i = 0; i < this.elementLocks.length; i++) {
+            this.elementLocks[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * In concurrent mode readers iterate the elements while they are being written without blocking them. An
+     * iteration over the vertices or the edges sees them as they were when it started.
+     */
+    private static <T> Map<String, T> createElementMap(InMemoryGraphConfiguration configuration) {
+        if (configuration.isConcurrent()) {
+            return new SnapshotMap<T>();
+        }
+        return new HashMap<String, T>();
+    }
+
+    /**
+     * Locks the elements in a fixed order, so writes locking several elements can not deadlock. Callers must not
+     * already hold an element lock.
+     */
+    private List<ReentrantLock> lockElements(String... elementIds) {
+        SortedSet<Integer> lockIndexes = new TreeSet<Integer>();
+        for (String elementId : elementIds) {
+            lockIndexes.add((elementId.hashCode() & 0x7fffffff) % elementLocks.length);
+        }
+        List<ReentrantLock> locks = new ArrayList<ReentrantLock>(lockIndexes.size());
+        for (int lockIndex : lockIndexes) {
+            ReentrantLock lock = elementLocks[lockIndex];
+            lock.lock();
+            locks.add(lock);
+        }
+        return locks;
+    }
+
+    private static void unlock(List<ReentrantLock> locks) {
+        for (ReentrantLock lock : locks) {
+            lock.unlock();
+        }
     }
 
     public static InMemoryGraph create(InMemoryGraphConfiguration config) {
@@ -52,6 +101,15 @@ public class InMemoryGraph extends GraphBaseWithSearchIndex {
         return new VertexBuilder(vertexId, visibility) {
             @Override
             public Vertex save(Authorizations authorizations) {
+                List<ReentrantLock> locks = lockElements(getVertexId());
+                try {
+                    return saveVertex(authorizations);
+                } finally {
+                    unlock(locks);
+                }
+            }
+
+            private Vertex saveVertex(Authorizations authorizations) {
                 Vertex existingVertex = getVertex(getVertexId(), authorizations);
 
                 Iterable<Property> properties;
@@ -77,6 +135,35 @@ public class InMemoryGraph extends GraphBaseWithSearchIndex {
         };
     }
 
+    @Override
+    protected Vertex lookupVertex(String vertexId, EnumSet<FetchHint> fetchHints, Authorizations authorizations) {
+        InMemoryVertex vertex = this.vertices.get(vertexId);
+        if (vertex == null || !canRead(vertex.getVisibility(), authorizations)) {
+            return null;
+        }
+        return filteredVertex(vertex, authorizations);
+    }
+
+    @Override
+    protected Iterable<Vertex> lookupVertices(final Iterable<String> ids, final EnumSet<FetchHint> fetchHints, final Authorizations authorizations) {
+        return new LookAheadIterable<String, Vertex>() {
+            @Override
+            protected boolean isIncluded(String src, Vertex vertex) {
+                return vertex != null;
+            }
+
+            @Override
+            protected Vertex convert(String id) {
+                return lookupVertex(id, fetchHints, authorizations);
+            }
+
+            @Override
+            protected Iterator<String> createIterator() {
+                return ids.iterator();
+            }
+        };
+    }
+
     @Override
     public Iterable<Vertex> getVertices(EnumSet<FetchHint> fetchHints, final Authorizations authorizations) throws SecureGraphException {
         return new LookAheadIterable<InMemoryVertex, Vertex>() {
@@ -103,12 +190,19 @@ public class InMemoryGraph extends GraphBaseWithSearchIndex {
             return;
         }
 
-        List<Edge> edgesToRemove = toList(vertex.getEdges(Direction.BOTH, authorizations));
+        // edges are added with their vertices locked and only to vertices which exist, so none can be added to the
+        // vertex once it is removed
+        List<Edge> edgesToRemove;
+        List<ReentrantLock> locks = lockElements(vertex.getId());
+        try {
+            edgesToRemove = toList(getEdgesFromVertex(vertex.getId(), authorizations));
+            this.vertices.remove(vertex.getId());
+        } finally {
+            unlock(locks);
+        }
         for (Edge edgeToRemove : edgesToRemove) {
-            removeEdge(edgeToRemove, authorizations);
+            removeEdgeInternal(edgeToRemove, authorizations);
         }
-
-        this.vertices.remove(vertex.getId());
         getSearchIndex().removeElement(this, vertex, authorizations);
     }
 
@@ -121,6 +215,27 @@ public class InMemoryGraph extends GraphBaseWithSearchIndex {
         return new EdgeBuilder(edgeId, outVertex, inVertex, label, visibility) {
             @Override
             public Edge save(Authorizations authorizations) {
+                String outVertexId = getOutVertex().getId();
+                String inVertexId = getInVertex().getId();
+                List<ReentrantLock> locks = lockElements(getEdgeId(), outVertexId, inVertexId);
+                try {
+                    // a vertex removed by another thread after the edge was prepared would leave the edge dangling,
+                    // outside concurrent mode edges can still be saved to vertices which are not stored
+                    if (concurrent) {
+                        if (!vertices.containsKey(outVertexId)) {
+                            throw new SecureGraphException("Could not find out vertex: " + outVertexId);
+                        }
+                        if (!vertices.containsKey(inVertexId)) {
+                            throw new SecureGraphException("Could not find in vertex: " + inVertexId);
+                        }
+                    }
+                    return saveEdge(authorizations);
+                } finally {
+                    unlock(locks);
+                }
+            }
+
+            private Edge saveEdge(Authorizations authorizations) {
                 Edge existingEdge = getEdge(getEdgeId(), authorizations);
 
                 Iterable<Property> properties;
@@ -137,7 +252,11 @@ public class InMemoryGraph extends GraphBaseWithSearchIndex {
                 }
 
                 InMemoryEdge edge = new InMemoryEdge(InMemoryGraph.this, getEdgeId(), getOutVertex().getId(), getInVertex().getId(), getLabel(), getVisibility(), properties, authorizations);
-                edges.put(getEdgeId(), edge);
+                InMemoryEdge replacedEdge = edges.put(getEdgeId(), edge);
+                if (replacedEdge != null) {
+                    adjacencyIndex.removeEdge(replacedEdge);
+                }
+                adjacencyIndex.addEdge(edge);
 
                 getSearchIndex().addElement(InMemoryGraph.this, edge, authorizations);
 
@@ -146,6 +265,35 @@ public class InMemoryGraph extends GraphBaseWithSearchIndex {
         };
     }
 
+    @Override
+    protected Edge lookupEdge(String edgeId, EnumSet<FetchHint> fetchHints, Authorizations authorizations) {
+        InMemoryEdge edge = this.edges.get(edgeId);
+        if (edge == null || !canRead(edge.getVisibility(), authorizations)) {
+            return null;
+        }
+        return filteredEdge(edge, authorizations);
+    }
+
+    @Override
+    protected Iterable<Edge> lookupEdges(final Iterable<String> ids, final EnumSet<FetchHint> fetchHints, final Authorizations authorizations) {
+        return new LookAheadIterable<String, Edge>() {
+            @Override
+            protected boolean isIncluded(String src, Edge edge) {
+                return edge != null;
+            }
+
+            @Override
+            protected Edge convert(String id) {
+                return lookupEdge(id, fetchHints, authorizations);
+            }
+
+            @Override
+            protected Iterator<String> createIterator() {
+                return ids.iterator();
+            }
+        };
+    }
+
     @Override
     public Iterable<Edge> getEdges(EnumSet<FetchHint> fetchHints, final Authorizations authorizations) {
         return new LookAheadIterable<InMemoryEdge, Edge>() {
@@ -177,22 +325,33 @@ public class InMemoryGraph extends GraphBaseWithSearchIndex {
         Vertex outVertex = getVertex(edge.getVertexId(Direction.OUT), authorizations);
         checkNotNull(outVertex, "Could not find out vertex: " + edge.getVertexId(Direction.OUT));
 
-        this.edges.remove(edge.getId());
+        removeEdgeInternal(edge, authorizations);
+    }
+
+    private void removeEdgeInternal(Edge edge, Authorizations authorizations) {
+        List<ReentrantLock> locks = lockElements(edge.getId(), edge.getVertexId(Direction.OUT), edge.getVertexId(Direction.IN));
+        try {
+            InMemoryEdge removedEdge = this.edges.remove(edge.getId());
+            if (removedEdge != null) {
+                this.adjacencyIndex.removeEdge(removedEdge);
+            }
+        } finally {
+            unlock(locks);
+        }
         getSearchIndex().removeElement(this, edge, authorizations);
     }
 
-    public Iterable<Edge> getEdgesFromVertex(final String vertexId, final Authorizations authorizations) {
+    public Iterable<Edge> getEdgesFromVertex(String vertexId, Authorizations authorizations) {
+        return getEdgesFromVertex(vertexId, Direction.BOTH, null, authorizations);
+    }
+
+    /**
+     * @param labels null for all labels
+     */
+    public Iterable<Edge> getEdgesFromVertex(final String vertexId, final Direction direction, final String[] labels, final Authorizations authorizations) {
         return new LookAheadIterable<InMemoryEdge, Edge>() {
             @Override
             protected boolean isIncluded(InMemoryEdge src, Edge edge) {
-                String inVertexId = src.getVertexId(Direction.IN);
-                checkNotNull(inVertexId, "inVertexId was null");
-                String outVertexId = src.getVertexId(Direction.OUT);
-                checkNotNull(outVertexId, "outVertexId was null");
-
-                if (!inVertexId.equals(vertexId) && !outVertexId.equals(vertexId)) {
-                    return false;
-                }
                 return canRead(src.getVisibility(), authorizations);
             }
 
@@ -203,11 +362,86 @@ public class InMemoryGraph extends GraphBaseWithSearchIndex {
 
             @Override
             protected Iterator<InMemoryEdge> createIterator() {
-                return edges.values().iterator();
+                return getEdgesFromAdjacencyIndex(vertexId, direction, labels).iterator();
+            }
+        };
+    }
+
+    /**
+     * Edge ids without copying the edges and their properties.
+     *
+     * @param labels null for all labels
+     */
+    public Iterable<String> getEdgeIdsFromVertex(final String vertexId, final Direction direction, final String[] labels, final Authorizations authorizations) {
+        return new LookAheadIterable<InMemoryEdge, String>() {
+            @Override
+            protected boolean isIncluded(InMemoryEdge src, String edgeId) {
+                return canRead(src.getVisibility(), authorizations);
+            }
+
+            @Override
+            protected String convert(InMemoryEdge edge) {
+                return edge.getId();
+            }
+
+            @Override
+            protected Iterator<InMemoryEdge> createIterator() {
+                return getEdgesFromAdjacencyIndex(vertexId, direction, labels).iterator();
             }
         };
     }
 
+    /**
+     * Reads the adjacency index directly instead of copying the vertices and their edges.
+     */
+    @Override
+    public Map<String, Set<String>> getVertexIdsOfVertices(Iterable<String> vertexIds, Direction direction, String[] labels, Authorizations authorizations) {
+        Map<String, Set<String>> results = new HashMap<String, Set<String>>();
+        for (String vertexId : vertexIds) {
+            InMemoryVertex vertex = this.vertices.get(vertexId);
+            if (vertex == null || !canRead(vertex.getVisibility(), authorizations)) {
+                continue;
+            }
+            Set<String> adjacentVertexIds = new LinkedHashSet<String>();
+            for (InMemoryEdge edge : getEdgesFromAdjacencyIndex(vertexId, direction, labels)) {
+                if (!canRead(edge.getVisibility(), authorizations)) {
+                    continue;
+                }
+                String adjacentVertexId = edge.getOtherVertexId(vertexId);
+                InMemoryVertex adjacentVertex = this.vertices.get(adjacentVertexId);
+                if (adjacentVertex != null && canRead(adjacentVertex.getVisibility(), authorizations)) {
+                    adjacentVertexIds.add(adjacentVertexId);
+                }
+            }
+            results.put(vertexId, adjacentVertexIds);
+        }
+        return results;
+    }
+
+    /**
+     * The adjacent vertex ids read from the adjacency index are already limited to vertices that can be read.
+     */
+    @Override
+    public Iterable<Vertex> getVerticesOfVertices(Iterable<String> vertexIds, Direction direction, String[] labels, EnumSet<FetchHint> fetchHints, Authorizations authorizations) {
+        Set<String> adjacentVertexIds = new LinkedHashSet<String>();
+        for (Set<String> ids : getVertexIdsOfVertices(vertexIds, direction, labels, authorizations).values()) {
+            adjacentVertexIds.addAll(ids);
+        }
+        return getVertices(adjacentVertexIds, fetchHints, authorizations);
+    }
+
+    private List<InMemoryEdge> getEdgesFromAdjacencyIndex(String vertexId, Direction direction, String[] labels) {
+        List<String> edgeIds = adjacencyIndex.getEdgeIds(vertexId, direction, labels);
+        List<InMemoryEdge> results = new ArrayList<InMemoryEdge>(edgeIds.size());
+        for (String edgeId : edgeIds) {
+            InMemoryEdge edge = edges.get(edgeId);
+            if (edge != null) {
+                results.add(edge);
+            }
+        }
+        return results;
+    }
+
     private boolean canRead(Visibility visibility, Authorizations authorizations) {
         // this is just a shortcut so that we don't need to construct evaluators and visibility objects to check for an empty string.
         if (visibility.getVisibilityString().length() == 0) {
@@ -218,29 +452,60 @@ public class InMemoryGraph extends GraphBaseWithSearchIndex {
     }
 
     public void saveProperties(Element element, Iterable<Property> properties, Authorizations authorizations) {
-        if (element instanceof Vertex) {
-            InMemoryVertex vertex = vertices.get(element.getId());
-            vertex.updatePropertiesInternal(properties);
-        } else if (element instanceof Edge) {
-            InMemoryEdge edge = edges.get(element.getId());
-            edge.updatePropertiesInternal(properties);
-        } else {
-            throw new IllegalArgumentException("Unexpected element type: " + element.getClass().getName());
+        List<ReentrantLock> locks = lockElements(element.getId());
+        try {
+            InMemoryElement storedElement = copyStoredElement(element);
+            storedElement.updatePropertiesInternal(properties);
+            storeElement(storedElement);
+        } finally {
+            unlock(locks);
         }
-        getSearchIndex().addElement(this, element, authorizations);
     }
 
     public void removeProperty(Element element, Property property, Authorizations authorizations) {
+        List<ReentrantLock> locks = lockElements(element.getId());
+        try {
+            InMemoryElement storedElement = copyStoredElement(element);
+            storedElement.removePropertyInternal(property.getKey(), property.getName());
+            storeElement(storedElement);
+        } finally {
+            unlock(locks);
+        }
+        getSearchIndex().removeProperty(this, element, property, authorizations);
+    }
+
+    /**
+     * Stored elements are never changed, a write stores a changed copy so readers keep seeing the version they read.
+     */
+    private InMemoryElement copyStoredElement(Element element) {
+        InMemoryElement storedElement;
         if (element instanceof Vertex) {
-            InMemoryVertex vertex = vertices.get(element.getId());
-            vertex.removePropertyInternal(property.getKey(), property.getName());
+            storedElement = vertices.get(element.getId());
         } else if (element instanceof Edge) {
-            InMemoryEdge edge = edges.get(element.getId());
-            edge.removePropertyInternal(property.getKey(), property.getName());
+            storedElement = edges.get(element.getId());
         } else {
             throw new IllegalArgumentException("Unexpected element type: " + element.getClass().getName());
         }
-        getSearchIndex().removeProperty(this, element, property, authorizations);
+        if (storedElement == null) {
+            throw new SecureGraphException("Could not find element " + element.getId());
+        }
+        return copyStoredElement(storedElement, storedElement.getVisibility(), storedElement.getProperties());
+    }
+
+    private InMemoryElement copyStoredElement(InMemoryElement storedElement, Visibility visibility, Iterable<Property> properties) {
+        if (storedElement instanceof InMemoryVertex) {
+            return new InMemoryVertex(this, storedElement.getId(), visibility, properties, storedElement.getAuthorizations());
+        }
+        InMemoryEdge edge = (InMemoryEdge) storedElement;
+        return new InMemoryEdge(this, edge.getId(), edge.getVertexId(Direction.OUT), edge.getVertexId(Direction.IN), edge.getLabel(), visibility, properties, edge.getAuthorizations());
+    }
+
+    private void storeElement(InMemoryElement element) {
+        if (element instanceof InMemoryVertex) {
+            vertices.put(element.getId(), (InMemoryVertex) element);
+        } else {
+            edges.put(element.getId(), (InMemoryEdge) element);
+        }
     }
 
     private Edge filteredEdge(InMemoryEdge edge, Authorizations authorizations) {
@@ -279,52 +544,83 @@ public class InMemoryGraph extends GraphBaseWithSearchIndex {
     }
 
     void alterEdgeVisibility(String edgeId, Visibility newEdgeVisibility) {
-        this.edges.get(edgeId).setVisibilityInternal(newEdgeVisibility);
+        alterElementVisibility(this.edges, edgeId, newEdgeVisibility);
     }
 
     void alterVertexVisibility(String vertexId, Visibility newVertexVisibility) {
-        this.vertices.get(vertexId).setVisibilityInternal(newVertexVisibility);
+        alterElementVisibility(this.vertices, vertexId, newVertexVisibility);
     }
 
-    void alterEdgePropertyVisibilities(String edgeId, List<AlterPropertyVisibility> alterPropertyVisibilities, Authorizations authorizations) {
-        alterElementPropertyVisibilities(this.edges.get(edgeId), alterPropertyVisibilities, authorizations);
+    private void alterElementVisibility(Map<String, ? extends InMemoryElement> elements, String elementId, Visibility newVisibility) {
+        List<ReentrantLock> locks = lockElements(elementId);
+        try {
+            InMemoryElement element = getStoredElement(elements, elementId);
+            storeElement(copyStoredElement(element, newVisibility, element.getProperties()));
+        } finally {
+            unlock(locks);
+        }
     }
 
-    void alterVertexPropertyVisibilities(String vertexId, List<AlterPropertyVisibility> alterPropertyVisibilities, Authorizations authorizations) {
-        alterElementPropertyVisibilities(this.vertices.get(vertexId), alterPropertyVisibilities, authorizations);
+    void alterEdgePropertyVisibilities(String edgeId, List<AlterPropertyVisibility> alterPropertyVisibilities) {
+        alterElementPropertyVisibilities(this.edges, edgeId, alterPropertyVisibilities);
     }
 
-    void alterElementPropertyVisibilities(InMemoryElement element, List<AlterPropertyVisibility> alterPropertyVisibilities, Authorizations authorizations) {
-        for (AlterPropertyVisibility apv : alterPropertyVisibilities) {
-            Property property = element.getProperty(apv.getKey(), apv.getName(), apv.getExistingVisibility());
-            if (property == null) {
-                throw new SecureGraphException("Could not find property " + apv.getKey() + ":" + apv.getName());
-            }
-            Object value = property.getValue();
-            Map<String, Object> metadata = property.getMetadata();
+    void alterVertexPropertyVisibilities(String vertexId, List<AlterPropertyVisibility> alterPropertyVisibilities) {
+        alterElementPropertyVisibilities(this.vertices, vertexId, alterPropertyVisibilities);
+    }
 
-            element.removeProperty(apv.getKey(), apv.getName(), authorizations);
-            element.addPropertyValue(apv.getKey(), apv.getName(), value, metadata, apv.getVisibility(), authorizations);
+    private void alterElementPropertyVisibilities(Map<String, ? extends InMemoryElement> elements, String elementId, List<AlterPropertyVisibility> alterPropertyVisibilities) {
+        if (alterPropertyVisibilities.size() == 0) {
+            return;
+        }
+        List<ReentrantLock> locks = lockElements(elementId);
+        try {
+            InMemoryElement element = getStoredElement(elements, elementId);
+            element = copyStoredElement(element, element.getVisibility(), element.getProperties());
+            for (AlterPropertyVisibility apv : alterPropertyVisibilities) {
+                Property property = element.getProperty(apv.getKey(), apv.getName(), apv.getExistingVisibility());
+                if (property == null) {
+                    throw new SecureGraphException("Could not find property " + apv.getKey() + ":" + apv.getName());
+                }
+                element.removePropertyInternal(apv.getKey(), apv.getName());
+                Property newProperty = new MutablePropertyImpl(apv.getKey(), apv.getName(), property.getValue(), new HashMap<String, Object>(property.getMetadata()), apv.getVisibility());
+                element.updatePropertiesInternal(Collections.singletonList(newProperty));
+            }
+            storeElement(element);
+        } finally {
+            unlock(locks);
         }
     }
 
     public void alterEdgePropertyMetadata(String edgeId, List<AlterPropertyMetadata> alterPropertyMetadatas) {
-        alterElementPropertyMetadata(this.edges.get(edgeId), alterPropertyMetadatas);
+        alterElementPropertyMetadata(this.edges, edgeId, alterPropertyMetadatas);
     }
 
     public void alterVertexPropertyMetadata(String vertexId, List<AlterPropertyMetadata> alterPropertyMetadatas) {
-        alterElementPropertyMetadata(this.vertices.get(vertexId), alterPropertyMetadatas);
+        alterElementPropertyMetadata(this.vertices, vertexId, alterPropertyMetadatas);
     }
 
-    private void alterElementPropertyMetadata(Element element, List<AlterPropertyMetadata> alterPropertyMetadatas) {
-        for (AlterPropertyMetadata apm : alterPropertyMetadatas) {
-            Property property = element.getProperty(apm.getPropertyKey(), apm.getPropertyName(), apm.getPropertyVisibility());
-            if (property == null) {
-                throw new SecureGraphException("Could not find property " + apm.getPropertyKey() + ":" + apm.getPropertyName());
-            }
+    private void alterElementPropertyMetadata(Map<String, ? extends InMemoryElement> elements, String elementId, List<AlterPropertyMetadata> alterPropertyMetadatas) {
+        if (alterPropertyMetadatas.size() == 0) {
+            return;
+        }
+        List<ReentrantLock> locks = lockElements(elementId);
+        try {
+            InMemoryElement element = getStoredElement(elements, elementId);
+            element = copyStoredElement(element, element.getVisibility(), element.getProperties());
+            element.alterPropertyMetadataInternal(alterPropertyMetadatas);
+            storeElement(element);
+        } finally {
+            unlock(locks);
+        }
+    }
 
-            property.getMetadata().put(apm.getMetadataName(), apm.getNewValue());
+    private static InMemoryElement getStoredElement(Map<String, ? extends InMemoryElement> elements, String elementId) {
+        InMemoryElement element = elements.get(elementId);
+        if (element == null) {
+            throw new SecureGraphException("Could not find element " + elementId);
         }
+        return element;
     }
 
     @Override
@@ -336,6 +632,7 @@ public class InMemoryGraph extends GraphBaseWithSearchIndex {
     public void clearData() {
         this.vertices.clear();
         this.edges.clear();
+        this.adjacencyIndex.clear();
         getSearchIndex().clearData();
     }
 }
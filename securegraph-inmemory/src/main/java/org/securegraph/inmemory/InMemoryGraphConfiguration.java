@@ -5,7 +5,15 @@ import org.securegraph.GraphConfiguration;
 import java.util.Map;
 
 public class InMemoryGraphConfiguration extends GraphConfiguration {
+    public static final String CONCURRENT = "concurrent";
+
+    public static final boolean DEFAULT_CONCURRENT = false;
+
     public InMemoryGraphConfiguration(Map config) {
         super(config);
     }
+
+    public boolean isConcurrent() {
+        return getConfigBoolean(CONCURRENT, DEFAULT_CONCURRENT);
+    }
 }
@@ -24,25 +24,13 @@ public class InMemoryVertex extends InMemoryElement<Vertex> implements Vertex {
     }
 
     @Override
-    public Iterable<Edge> getEdges(final Direction direction, EnumSet<FetchHint> fetchHints, Authorizations authorizations) {
-        return new FilterIterable<Edge>(getGraph().getEdgesFromVertex(getId(), authorizations)) {
-            @Override
-            protected boolean isIncluded(Edge edge) {
-                switch (direction) {
-                    case IN:
-                        return edge.getVertexId(Direction.IN).equals(getId());
-                    case OUT:
-                        return edge.getVertexId(Direction.OUT).equals(getId());
-                    default:
-                        return true;
-                }
-            }
-        };
+    public Iterable<Edge> getEdges(Direction direction, EnumSet<FetchHint> fetchHints, Authorizations authorizations) {
+        return getGraph().getEdgesFromVertex(getId(), direction, null, authorizations);
     }
 
     @Override
     public Iterable<String> getEdgeIds(Direction direction, Authorizations authorizations) {
-        return new EdgeToEdgeIdIterable(getEdges(direction, authorizations));
+        return getGraph().getEdgeIdsFromVertex(getId(), direction, null, authorizations);
     }
 
     @Override
@@ -57,7 +45,7 @@ public class InMemoryVertex extends InMemoryElement<Vertex> implements Vertex {
 
     @Override
     public Iterable<String> getEdgeIds(Direction direction, String label, Authorizations authorizations) {
-        return new EdgeToEdgeIdIterable(getEdges(direction, label, authorizations));
+        return getGraph().getEdgeIdsFromVertex(getId(), direction, new String[]{label}, authorizations);
     }
 
     @Override
@@ -66,23 +54,13 @@ public class InMemoryVertex extends InMemoryElement<Vertex> implements Vertex {
     }
 
     @Override
-    public Iterable<Edge> getEdges(Direction direction, final String[] labels, EnumSet<FetchHint> fetchHints, Authorizations authorizations) {
-        return new FilterIterable<Edge>(getEdges(direction, authorizations)) {
-            @Override
-            protected boolean isIncluded(Edge edge) {
-                for (String label : labels) {
-                    if (label.equals(edge.getLabel())) {
-                        return true;
-                    }
-                }
-                return false;
-            }
-        };
+    public Iterable<Edge> getEdges(Direction direction, String[] labels, EnumSet<FetchHint> fetchHints, Authorizations authorizations) {
+        return getGraph().getEdgesFromVertex(getId(), direction, labels, authorizations);
     }
 
     @Override
     public Iterable<String> getEdgeIds(Direction direction, String[] labels, Authorizations authorizations) {
-        return new EdgeToEdgeIdIterable(getEdges(direction, labels, authorizations));
+        return getGraph().getEdgeIdsFromVertex(getId(), direction, labels, authorizations);
     }
 
     @Override
@@ -0,0 +1,169 @@
+package org.securegraph.inmemory;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A map whose iterators see it as it was when they were created, without blocking writers or being blocked by them.
+ * <p/>
+ * The entries are split into segments, each an immutable map. A write replaces its segment with an updated copy and
+ * publishes a new array of segments, so a write costs a copy of one segment and readers only ever read a published
+ * array. Writes to different segments are prepared in parallel and only retry the publish if they race.
+ */
+class SnapshotMap<V> extends AbstractMap<String, V> {
+    private static final int DEFAULT_SEGMENT_COUNT = 1024;
+    private final AtomicReference<Map<String, V>[]> segments;
+    private final ReentrantLock[] segmentLocks;
+
+    SnapshotMap() {
+        this(DEFAULT_SEGMENT_COUNT);
+    }
+
+    @SuppressWarnings("unchecked")
+    SnapshotMap(int segmentCount) {
+        Map<String, V>[] emptySegments = new Map[segmentCount];
+        Arrays.fill(emptySegments, Collections.<String, V>emptyMap());
+        this.segments = new AtomicReference<Map<String, V>[]>(emptySegments);
+        this.segmentLocks = new ReentrantLock[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            this.segmentLocks[i] = new ReentrantLock();
+        }
+    }
+
+    private int getSegmentIndex(Object key) {
+        return (key.hashCode() & 0x7fffffff) % segmentLocks.length;
+    }
+
+    @Override
+    public V get(Object key) {
+        return segments.get()[getSegmentIndex(key)].get(key);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return segments.get()[getSegmentIndex(key)].containsKey(key);
+    }
+
+    @Override
+    public V put(String key, V value) {
+        int segmentIndex = getSegmentIndex(key);
+        segmentLocks[segmentIndex].lock();
+        try {
+            Map<String, V> segment = new HashMap<String, V>(segments.get()[segmentIndex]);
+            V previousValue = segment.put(key, value);
+            publish(segmentIndex, segment);
+            return previousValue;
+        } finally {
+            segmentLocks[segmentIndex].unlock();
+        }
+    }
+
+    @Override
+    public V remove(Object key) {
+        int segmentIndex = getSegmentIndex(key);
+        segmentLocks[segmentIndex].lock();
+        try {
+            Map<String, V> segment = segments.get()[segmentIndex];
+            if (!segment.containsKey(key)) {
+                return null;
+            }
+            segment = new HashMap<String, V>(segment);
+            V previousValue = segment.remove(key);
+            publish(segmentIndex, segment);
+            return previousValue;
+        } finally {
+            segmentLocks[segmentIndex].unlock();
+        }
+    }
+
+    /**
+     * Only the holder of a segment's lock replaces that segment, other segments may be replaced concurrently.
+     */
+    private void publish(int segmentIndex, Map<String, V> segment) {
+        Map<String, V> unmodifiableSegment = Collections.unmodifiableMap(segment);
+        while (true) {
+            Map<String, V>[] current = segments.get();
+            Map<String, V>[] updated = current.clone();
+            updated[segmentIndex] = unmodifiableSegment;
+            if (segments.compareAndSet(current, updated)) {
+                return;
+            }
+        }
+    }
+
+    @Override
+    public void clear() {
+        for (ReentrantLock segmentLock : segmentLocks) {
+            segmentLock.lock();
+        }
+        try {
+            for (int i = 0; i < segmentLocks.length; i++) {
+                publish(i, Collections.<String, V>emptyMap());
+            }
+        } finally {
+            for (ReentrantLock segmentLock : segmentLocks) {
+                segmentLock.unlock();
+            }
+        }
+    }
+
+    @Override
+    public int size() {
+        int size = 0;
+        for (Map<String, V> segment : segments.get()) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    /**
+     * A snapshot of the entries, later writes are not reflected in it.
+     */
+    @Override
+    public Set<Entry<String, V>> entrySet() {
+        final Map<String, V>[] snapshot = segments.get();
+        return new AbstractSet<Entry<String, V>>() {
+            @Override
+            public Iterator<Entry<String, V>> iterator() {
+                return new Iterator<Entry<String, V>>() {
+                    private int segmentIndex = 0;
+                    private Iterator<Entry<String, V>> segmentIterator = Collections.<Entry<String, V>>emptyList().iterator();
+
+                    @Override
+                    public boolean hasNext() {
+                        while (!segmentIterator.hasNext()) {
+                            if (segmentIndex >= snapshot.length) {
+                                return false;
+                            }
+                            segmentIterator = snapshot[segmentIndex++].entrySet().iterator();
+                        }
+                        return true;
+                    }
+
+                    @Override
+                    public Entry<String, V> next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        return segmentIterator.next();
+                    }
+
+                    @Override
+                    public void remove() {
+                        throw new UnsupportedOperationException();
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                int size = 0;
+                for (Map<String, V> segment : snapshot) {
+                    size += segment.size();
+                }
+                return size;
+            }
+        };
+    }
+}
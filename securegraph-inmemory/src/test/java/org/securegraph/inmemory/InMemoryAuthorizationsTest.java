@@ -0,0 +1,36 @@
+package org.securegraph.inmemory;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.securegraph.Visibility;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(JUnit4.class)
+public class InMemoryAuthorizationsTest {
+    @Test
+    public void testCanReadIsCached() {
+        InMemoryAuthorizations authorizations = new InMemoryAuthorizations("a", "b");
+        assertTrue(authorizations.canRead(new Visibility("a&b")));
+        assertFalse(authorizations.canRead(new Visibility("a&c")));
+        assertTrue(authorizations.canRead(new Visibility("a&b")));
+        assertFalse(authorizations.canRead(new Visibility("a&c")));
+        assertEquals(2, authorizations.getCanReadCacheHitCount());
+        assertEquals(2, authorizations.getCanReadCacheMissCount());
+    }
+
+    @Test
+    public void testCanReadIsCachedPerAuthorizations() {
+        InMemoryAuthorizations authorizations = new InMemoryAuthorizations("a", "b");
+        InMemoryAuthorizations otherAuthorizations = new InMemoryAuthorizations("c");
+        assertTrue(authorizations.canRead(new Visibility("a&b")));
+        assertFalse(otherAuthorizations.canRead(new Visibility("a&b")));
+        assertTrue(otherAuthorizations.canRead(new Visibility("c|d")));
+        assertFalse(authorizations.canRead(new Visibility("c|d")));
+        assertEquals(0, otherAuthorizations.getCanReadCacheHitCount());
+        assertEquals(2, otherAuthorizations.getCanReadCacheMissCount());
+    }
+}
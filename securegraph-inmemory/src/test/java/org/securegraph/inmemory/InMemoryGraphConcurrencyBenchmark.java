@@ -0,0 +1,84 @@
+package org.securegraph.inmemory;
+
+import org.securegraph.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.securegraph.util.IterableUtils.count;
+
+/**
+ * Measures operations/sec of a concurrent InMemoryGraph with 1 to 64 threads, each doing one write for every
+ * nine reads.
+ * This is not part of the test suite, run it with: java org.securegraph.inmemory.InMemoryGraphConcurrencyBenchmark [vertexCount] [secondsPerRun]
+ */
+public class InMemoryGraphConcurrencyBenchmark {
+    public static void main(String[] args) throws InterruptedException {
+        int vertexCount = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        long millisPerRun = (args.length > 1 ? Long.parseLong(args[1]) : 5) * 1000;
+
+        for (int threadCount = 1; threadCount <= 64; threadCount *= 2) {
+            Map config = new HashMap();
+            config.put(InMemoryGraphConfiguration.CONCURRENT, "true");
+            InMemoryGraph graph = InMemoryGraph.create(config);
+            Authorizations authorizations = new InMemoryAuthorizations("a");
+            Visibility visibility = new Visibility("a");
+            List<Vertex> vertices = new ArrayList<Vertex>();
+            for (int i = 0; i < vertexCount; i++) {
+                vertices.add(graph.addVertex("v" + i, visibility, authorizations));
+            }
+
+            AtomicLong operationCount = new AtomicLong();
+            long endTime = System.currentTimeMillis() + millisPerRun;
+            List<Thread> threads = new ArrayList<Thread>();
+            for (int t = 0; t < threadCount; t++) {
+                Thread thread = new Thread(new Worker(graph, vertices, authorizations, visibility, t, endTime, operationCount));
+                threads.add(thread);
+                thread.start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            System.out.println(String.format("%d threads: %.0f operations/sec", threadCount, operationCount.get() * 1000.0 / millisPerRun));
+        }
+    }
+
+    private static class Worker implements Runnable {
+        private final Graph graph;
+        private final List<Vertex> vertices;
+        private final Authorizations authorizations;
+        private final Visibility visibility;
+        private final int threadNumber;
+        private final long endTime;
+        private final AtomicLong operationCount;
+
+        private Worker(Graph graph, List<Vertex> vertices, Authorizations authorizations, Visibility visibility, int threadNumber, long endTime, AtomicLong operationCount) {
+            this.graph = graph;
+            this.vertices = vertices;
+            this.authorizations = authorizations;
+            this.visibility = visibility;
+            this.threadNumber = threadNumber;
+            this.endTime = endTime;
+            this.operationCount = operationCount;
+        }
+
+        @Override
+        public void run() {
+            long i = 0;
+            while (System.currentTimeMillis() < endTime) {
+                Vertex v1 = vertices.get((int) ((i * 31 + threadNumber) % vertices.size()));
+                if (i % 10 == 0) {
+                    Vertex v2 = vertices.get((int) ((i * 17 + threadNumber) % vertices.size()));
+                    graph.addEdge("e" + threadNumber + "_" + i, v1, v2, "label" + (i % 3), visibility, authorizations);
+                } else {
+                    count(v1.getVertices(Direction.BOTH, authorizations));
+                }
+                operationCount.incrementAndGet();
+                i++;
+            }
+        }
+    }
+}
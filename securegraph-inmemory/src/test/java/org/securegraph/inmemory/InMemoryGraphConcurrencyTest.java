@@ -0,0 +1,200 @@
+package org.securegraph.inmemory;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.securegraph.*;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import static org.securegraph.util.IterableUtils.count;
+
+@RunWith(JUnit4.class)
+public class InMemoryGraphConcurrencyTest {
+    private static final int WRITER_COUNT = 8;
+    private static final int READER_COUNT = 4;
+    private static final int VERTICES_PER_WRITER = 200;
+
+    @Test
+    public void testConcurrentWritesAndReads() throws InterruptedException {
+        Map config = new HashMap();
+        config.put(InMemoryGraphConfiguration.CONCURRENT, "true");
+        final InMemoryGraph graph = InMemoryGraph.create(config);
+        final Authorizations authorizations = new InMemoryAuthorizations("a");
+        final Visibility visibility = new Visibility("a");
+        final List<Throwable> errors = Collections.synchronizedList(new ArrayList<Throwable>());
+        final AtomicBoolean writing = new AtomicBoolean(true);
+        Vertex hub = graph.addVertex("hub", visibility, authorizations);
+
+        List<Thread> writers = new ArrayList<Thread>();
+        for (int w = 0; w < WRITER_COUNT; w++) {
+            final int writer = w;
+            final Vertex hubVertex = hub;
+            writers.add(new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        for (int i = 0; i < VERTICES_PER_WRITER; i++) {
+                            Vertex v = graph.prepareVertex("v" + writer + "_" + i, visibility)
+                                    .setProperty("prop1", "value" + i, visibility)
+                                    .save(authorizations);
+                            graph.addEdge("e" + writer + "_" + i, hubVertex, v, "label" + (i % 3), visibility, authorizations);
+                            if (i % 10 == 0) {
+                                graph.removeEdge(graph.getEdge("e" + writer + "_" + i, authorizations), authorizations);
+                            }
+                        }
+                    } catch (Throwable ex) {
+                        errors.add(ex);
+                    }
+                }
+            }));
+        }
+
+        List<Thread> readers = new ArrayList<Thread>();
+        for (int r = 0; r < READER_COUNT; r++) {
+            readers.add(new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        while (writing.get()) {
+                            count(graph.getVertices(authorizations));
+                            count(graph.getEdges(authorizations));
+                            Vertex hubVertex = graph.getVertex("hub", authorizations);
+                            count(hubVertex.getVertices(Direction.OUT, authorizations));
+                            hubVertex.getEdgeCount(Direction.BOTH, authorizations);
+                        }
+                    } catch (Throwable ex) {
+                        errors.add(ex);
+                    }
+                }
+            }));
+        }
+
+        for (Thread reader : readers) {
+            reader.start();
+        }
+        for (Thread writer : writers) {
+            writer.start();
+        }
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        writing.set(false);
+        for (Thread reader : readers) {
+            reader.join();
+        }
+
+        assertEquals(Collections.<Throwable>emptyList(), errors);
+        assertEquals(WRITER_COUNT * VERTICES_PER_WRITER + 1, count(graph.getVertices(authorizations)));
+        int expectedEdgeCount = WRITER_COUNT * (VERTICES_PER_WRITER - VERTICES_PER_WRITER / 10);
+        assertEquals(expectedEdgeCount, count(graph.getEdges(authorizations)));
+        assertEquals(expectedEdgeCount, graph.getVertex("hub", authorizations).getEdgeCount(Direction.OUT, authorizations));
+    }
+
+    @Test
+    public void testIterationSeesSnapshot() {
+        InMemoryGraph graph = createConcurrentGraph();
+        Authorizations authorizations = new InMemoryAuthorizations("a");
+        Visibility visibility = new Visibility("a");
+        graph.prepareVertex("v1", visibility).setProperty("prop1", "old", visibility).save(authorizations);
+        graph.addVertex("v3", visibility, authorizations);
+
+        Iterator<Vertex> vertices = graph.getVertices(authorizations).iterator();
+        graph.getVertex("v1", authorizations).setProperty("prop1", "new", visibility, authorizations);
+        graph.addVertex("v2", visibility, authorizations);
+        graph.removeVertex(graph.getVertex("v3", authorizations), authorizations);
+
+        Map<String, Vertex> verticesById = new HashMap<String, Vertex>();
+        while (vertices.hasNext()) {
+            Vertex vertex = vertices.next();
+            verticesById.put(vertex.getId(), vertex);
+        }
+        assertEquals(new HashSet<String>(Arrays.asList("v1", "v3")), verticesById.keySet());
+        assertEquals("old", verticesById.get("v1").getPropertyValue("prop1"));
+        assertEquals("new", graph.getVertex("v1", authorizations).getPropertyValue("prop1"));
+    }
+
+    @Test
+    public void testRemoveVertexWhileAddingEdges() throws InterruptedException {
+        final InMemoryGraph graph = createConcurrentGraph();
+        final Authorizations authorizations = new InMemoryAuthorizations("a");
+        final Visibility visibility = new Visibility("a");
+        final List<Throwable> errors = Collections.synchronizedList(new ArrayList<Throwable>());
+        final Vertex hub = graph.addVertex("hub", visibility, authorizations);
+        for (int i = 0; i < VERTICES_PER_WRITER; i++) {
+            graph.addVertex("v" + i, visibility, authorizations);
+        }
+
+        Thread edgeWriter = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < VERTICES_PER_WRITER; i++) {
+                    try {
+                        Vertex v = graph.getVertex("v" + i, authorizations);
+                        if (v != null) {
+                            graph.addEdge("e" + i, hub, v, "label1", visibility, authorizations);
+                        }
+                    } catch (SecureGraphException ex) {
+                        // the vertex was removed after it was read
+                    } catch (Throwable ex) {
+                        errors.add(ex);
+                    }
+                }
+            }
+        });
+        Thread vertexRemover = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    for (int i = 0; i < VERTICES_PER_WRITER; i++) {
+                        graph.removeVertex(graph.getVertex("v" + i, authorizations), authorizations);
+                    }
+                } catch (Throwable ex) {
+                    errors.add(ex);
+                }
+            }
+        });
+        edgeWriter.start();
+        vertexRemover.start();
+        edgeWriter.join();
+        vertexRemover.join();
+
+        assertEquals(Collections.<Throwable>emptyList(), errors);
+        // every edge to a removed vertex was removed with it
+        assertEquals(0, count(graph.getEdges(authorizations)));
+        assertEquals(0, count(graph.getEdgeIdsFromVertex("hub", Direction.BOTH, null, authorizations)));
+        assertEquals(1, count(graph.getVertices(authorizations)));
+    }
+
+    @Test
+    public void testEdgeToMissingVertexOnlyFailsInConcurrentMode() {
+        Authorizations authorizations = new InMemoryAuthorizations("a");
+        Visibility visibility = new Visibility("a");
+        InMemoryGraph otherGraph = InMemoryGraph.create(new HashMap());
+        Vertex missing = otherGraph.addVertex("missing", visibility, authorizations);
+
+        InMemoryGraph graph = InMemoryGraph.create(new HashMap());
+        Vertex v1 = graph.addVertex("v1", visibility, authorizations);
+        graph.addEdge("e1", v1, missing, "label1", visibility, authorizations);
+        assertEquals(1, count(graph.getEdges(authorizations)));
+
+        InMemoryGraph concurrentGraph = createConcurrentGraph();
+        v1 = concurrentGraph.addVertex("v1", visibility, authorizations);
+        try {
+            concurrentGraph.addEdge("e1", v1, missing, "label1", visibility, authorizations);
+            fail("expected the missing in vertex to be rejected");
+        } catch (SecureGraphException ex) {
+            // expected
+        }
+        assertEquals(0, count(concurrentGraph.getEdges(authorizations)));
+    }
+
+    private static InMemoryGraph createConcurrentGraph() {
+        Map config = new HashMap();
+        config.put(InMemoryGraphConfiguration.CONCURRENT, "true");
+        return InMemoryGraph.create(config);
+    }
+}
@@ -1,20 +1,23 @@
 package org.securegraph.inmemory;
 
-import org.securegraph.Authorizations;
-import org.securegraph.Graph;
-import org.securegraph.GraphConfiguration;
-import org.securegraph.GraphFactory;
+import org.securegraph.*;
 import org.securegraph.id.UUIDIdGenerator;
 import org.securegraph.search.DefaultSearchIndex;
 import org.securegraph.test.GraphTestBase;
 import org.junit.After;
 import org.junit.Before;
+import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.securegraph.util.IterableUtils.count;
+
 @RunWith(JUnit4.class)
 public class InMemoryGraphTest extends GraphTestBase {
     @Override
@@ -46,4 +49,39 @@ public class InMemoryGraphTest extends GraphTestBase {
     public void after() throws Exception {
         super.after();
     }
+
+    @Test
+    public void testAdjacencyIndexFollowsEdgeChanges() {
+        Vertex v1 = graph.addVertex("v1", VISIBILITY_A, AUTHORIZATIONS_A);
+        Vertex v2 = graph.addVertex("v2", VISIBILITY_A, AUTHORIZATIONS_A);
+        graph.addEdge("e1", v1, v2, "label1", VISIBILITY_A, AUTHORIZATIONS_A);
+        graph.addEdge("e1", v1, v2, "label1", VISIBILITY_A, AUTHORIZATIONS_A);
+        graph.addEdge("e2", v1, v1, "label2", VISIBILITY_A, AUTHORIZATIONS_A);
+
+        v1 = graph.getVertex("v1", AUTHORIZATIONS_A);
+        assertEquals(2, v1.getEdgeCount(Direction.OUT, AUTHORIZATIONS_A));
+        assertEquals(1, v1.getEdgeCount(Direction.IN, AUTHORIZATIONS_A));
+        assertEquals(2, v1.getEdgeCount(Direction.BOTH, AUTHORIZATIONS_A));
+        assertEquals(1, count(v1.getEdges(Direction.OUT, "label1", AUTHORIZATIONS_A)));
+
+        graph.removeEdge(graph.getEdge("e1", AUTHORIZATIONS_A), AUTHORIZATIONS_A);
+        assertEquals(0, graph.getVertex("v2", AUTHORIZATIONS_A).getEdgeCount(Direction.BOTH, AUTHORIZATIONS_A));
+        assertEquals(0, count(graph.getVertex("v1", AUTHORIZATIONS_A).getEdges(Direction.OUT, "label1", AUTHORIZATIONS_A)));
+        assertEquals(1, graph.getVertex("v1", AUTHORIZATIONS_A).getEdgeCount(Direction.BOTH, AUTHORIZATIONS_A));
+    }
+
+    @Test
+    public void testLookupByIdWithoutFullScan() {
+        Vertex v1 = graph.addVertex("v1", VISIBILITY_A, AUTHORIZATIONS_A);
+        Vertex v2 = graph.addVertex("v2", VISIBILITY_B, AUTHORIZATIONS_B);
+        graph.addEdge("e1", v1, v2, "label1", VISIBILITY_A, AUTHORIZATIONS_A);
+
+        assertEquals("v1", graph.getVertex("v1", AUTHORIZATIONS_A).getId());
+        assertNull(graph.getVertex("v2", AUTHORIZATIONS_A));
+        assertNull(graph.getVertex("missing", AUTHORIZATIONS_A));
+        assertEquals(1, count(graph.getVertices(Arrays.asList("v1", "v2", "missing"), AUTHORIZATIONS_A)));
+        assertEquals("e1", graph.getEdge("e1", AUTHORIZATIONS_A).getId());
+        assertEquals(1, count(graph.getEdges(Arrays.asList("e1", "missing"), AUTHORIZATIONS_A)));
+        assertEquals(0, getGraph().getFullScanCount());
+    }
 }
@@ -0,0 +1,92 @@
+package org.securegraph.inmemory;
+
+import org.securegraph.*;
+import org.securegraph.query.Compare;
+import org.securegraph.query.QueryBase;
+import org.securegraph.query.TextPredicate;
+
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.List;
+
+import static org.securegraph.util.IterableUtils.count;
+import static org.securegraph.util.IterableUtils.toList;
+
+/**
+ * Compares elements/sec and bytes allocated per element of the compiled query evaluator used by
+ * DefaultGraphQueryIterable against the previous per has container evaluation.
+ * This is not part of the test suite, run it with: java org.securegraph.inmemory.QueryEvaluatorBenchmark [vertexCount] [iterations]
+ */
+public class QueryEvaluatorBenchmark {
+    public static void main(String[] args) {
+        int vertexCount = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+
+        InMemoryGraph graph = InMemoryGraph.create(new HashMap());
+        Authorizations authorizations = new InMemoryAuthorizations();
+        Visibility visibility = new Visibility("");
+        for (int i = 0; i < vertexCount; i++) {
+            VertexBuilder vertexBuilder = graph.prepareVertex("v" + i, visibility);
+            for (int p = 0; p < 20; p++) {
+                vertexBuilder.setProperty("prop" + p, "Value " + p + " of vertex " + i, visibility);
+            }
+            vertexBuilder.setProperty("age", i % 100, visibility);
+            vertexBuilder.save(authorizations);
+        }
+        graph.flush();
+        List<Vertex> vertices = toList(graph.getVertices(authorizations));
+
+        com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        for (int iteration = 0; iteration < iterations; iteration++) {
+            long startBytes = threadMXBean.getThreadAllocatedBytes(threadId);
+            long startTime = System.nanoTime();
+            QueryBase query = createQuery(graph, authorizations, vertexCount);
+            long compiledCount = count(query.vertices());
+            long compiledTime = System.nanoTime() - startTime;
+            long compiledBytes = threadMXBean.getThreadAllocatedBytes(threadId) - startBytes;
+
+            startBytes = threadMXBean.getThreadAllocatedBytes(threadId);
+            startTime = System.nanoTime();
+            long previousCount = countWithPreviousEvaluator(createQuery(graph, authorizations, vertexCount).getParameters(), vertices);
+            long previousTime = System.nanoTime() - startTime;
+            long previousBytes = threadMXBean.getThreadAllocatedBytes(threadId) - startBytes;
+
+            System.out.println(String.format("iteration %d: compiled %.0f elements/sec %d bytes/element (%d matches), previous %.0f elements/sec %d bytes/element (%d matches)",
+                    iteration,
+                    vertexCount * 1000000000.0 / compiledTime, compiledBytes / vertexCount, compiledCount,
+                    vertexCount * 1000000000.0 / previousTime, previousBytes / vertexCount, previousCount));
+        }
+    }
+
+    private static QueryBase createQuery(Graph graph, Authorizations authorizations, int vertexCount) {
+        QueryBase query = (QueryBase) graph.query("VERTEX 1", authorizations);
+        query.has("age", Compare.GREATER_THAN, 50);
+        query.has("prop19", TextPredicate.CONTAINS, "value 19");
+        query.limit(vertexCount);
+        return query;
+    }
+
+    private static long countWithPreviousEvaluator(QueryBase.Parameters parameters, List<Vertex> vertices) {
+        long count = 0;
+        for (Vertex vertex : vertices) {
+            boolean match = true;
+            for (QueryBase.HasContainer has : parameters.getHasContainers()) {
+                if (!has.isMatch(vertex)) {
+                    match = false;
+                    break;
+                }
+            }
+            if (!match) {
+                continue;
+            }
+            for (Property property : vertex.getProperties()) {
+                if (property.getValue() != null && property.getValue().toString().toLowerCase().contains(parameters.getQueryString().toLowerCase())) {
+                    count++;
+                    break;
+                }
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,48 @@
+package org.securegraph.inmemory;
+
+import org.securegraph.Authorizations;
+import org.securegraph.Visibility;
+import org.securegraph.Vertex;
+
+import java.util.HashMap;
+
+/**
+ * Measures elements/sec when scanning vertices and properties with mixed visibilities, along with the canRead
+ * cache hit rate.
+ * This is not part of the test suite, run it with: java org.securegraph.inmemory.VisibilityEvaluationBenchmark [vertexCount] [iterations]
+ */
+public class VisibilityEvaluationBenchmark {
+    private static final String[] VISIBILITIES = new String[]{"", "a", "a|b", "(a&b)|c", "a&d", "(a|b)&(c|d)"};
+
+    public static void main(String[] args) {
+        int vertexCount = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+
+        InMemoryGraph graph = InMemoryGraph.create(new HashMap());
+        Authorizations writeAuthorizations = new InMemoryAuthorizations("a", "b", "c", "d");
+        for (int i = 0; i < vertexCount; i++) {
+            Visibility visibility = new Visibility(VISIBILITIES[i % VISIBILITIES.length]);
+            graph.prepareVertex("v" + i, visibility)
+                    .setProperty("prop1", "value1", new Visibility(VISIBILITIES[(i + 1) % VISIBILITIES.length]))
+                    .setProperty("prop2", "value2", new Visibility(VISIBILITIES[(i + 2) % VISIBILITIES.length]))
+                    .save(writeAuthorizations);
+        }
+        graph.flush();
+
+        InMemoryAuthorizations authorizations = new InMemoryAuthorizations("a", "c");
+        for (int iteration = 0; iteration < iterations; iteration++) {
+            long startTime = System.nanoTime();
+            long propertyCount = 0;
+            for (Vertex vertex : graph.getVertices(authorizations)) {
+                for (Object ignored : vertex.getProperties()) {
+                    propertyCount++;
+                }
+            }
+            long time = System.nanoTime() - startTime;
+            long hits = authorizations.getCanReadCacheHitCount();
+            long misses = authorizations.getCanReadCacheMissCount();
+            System.out.println(String.format("iteration %d: %.0f vertices/sec, %d properties read, canRead cache hit rate %.4f",
+                    iteration, vertexCount * 1000000000.0 / time, propertyCount, hits / (double) Math.max(1, hits + misses)));
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package org.securegraph.inmemory;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.securegraph.*;
+import org.securegraph.search.DefaultSearchIndex;
+import org.securegraph.search.WriteBehindSearchIndex;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.securegraph.util.IterableUtils.toList;
+
+@RunWith(JUnit4.class)
+public class WriteBehindSearchIndexTest {
+    private static final Authorizations AUTHORIZATIONS = new InMemoryAuthorizations();
+    private static final InMemoryGraph GRAPH = InMemoryGraph.create(new HashMap());
+
+    @Test
+    public void testFlushWaitsForQueuedElements() {
+        RecordingSearchIndex recordingSearchIndex = new RecordingSearchIndex(null);
+        WriteBehindSearchIndex searchIndex = new WriteBehindSearchIndex(recordingSearchIndex, 10, 3);
+        for (int i = 0; i < 25; i++) {
+            searchIndex.addElement(GRAPH, createElement("v" + i), AUTHORIZATIONS);
+        }
+        searchIndex.flush();
+
+        assertEquals(0, searchIndex.getQueueDepth());
+        assertEquals(0, searchIndex.getLagMillis());
+        assertEquals(25, searchIndex.getIndexedCount());
+        assertEquals(25, recordingSearchIndex.addedElementIds.size());
+        // queued elements may be partial, addElements would index them without merging the stored element
+        assertEquals(0, recordingSearchIndex.addElementsCount);
+        assertEquals(1, recordingSearchIndex.flushCount);
+        searchIndex.shutdown();
+    }
+
+    @Test
+    public void testCoalesceQueuedElements() throws InterruptedException {
+        CountDownLatch blockWriter = new CountDownLatch(1);
+        RecordingSearchIndex recordingSearchIndex = new RecordingSearchIndex(blockWriter);
+        WriteBehindSearchIndex searchIndex = new WriteBehindSearchIndex(recordingSearchIndex, 100, 100);
+
+        // the writer picks up v0 and blocks, everything after it stays queued
+        searchIndex.addElement(GRAPH, createElement("v0"), AUTHORIZATIONS);
+        recordingSearchIndex.writerStarted.await();
+        for (int i = 0; i < 50; i++) {
+            searchIndex.addElement(GRAPH, createElement("v1"), AUTHORIZATIONS);
+            searchIndex.addElement(GRAPH, createElement("e" + i), AUTHORIZATIONS);
+        }
+        assertEquals(51, searchIndex.getQueueDepth());
+        assertEquals(49, searchIndex.getCoalescedCount());
+
+        blockWriter.countDown();
+        searchIndex.flush();
+        assertEquals(52, recordingSearchIndex.addedElementIds.size());
+        assertEquals(1, Collections.frequency(recordingSearchIndex.addedElementIds, "v1"));
+        searchIndex.shutdown();
+    }
+
+    @Test
+    public void testQueueAddedProperties() throws InterruptedException {
+        CountDownLatch blockWriter = new CountDownLatch(1);
+        RecordingSearchIndex recordingSearchIndex = new RecordingSearchIndex(blockWriter);
+        WriteBehindSearchIndex searchIndex = new WriteBehindSearchIndex(recordingSearchIndex, 100, 100);
+        searchIndex.addElement(GRAPH, createElement("v0"), AUTHORIZATIONS);
+        recordingSearchIndex.writerStarted.await();
+
+        Vertex v1 = GRAPH.prepareVertex("v1", new Visibility(""))
+                .setProperty("prop1", "value1", new Visibility(""))
+                .setProperty("prop2", "value2", new Visibility(""))
+                .save(AUTHORIZATIONS);
+        searchIndex.addElementProperties(GRAPH, v1, toList(v1.getProperties("prop1")), AUTHORIZATIONS);
+        searchIndex.addElementProperties(GRAPH, v1, toList(v1.getProperties("prop2")), AUTHORIZATIONS);
+        searchIndex.addElementProperties(GRAPH, v1, toList(v1.getProperties("prop1")), AUTHORIZATIONS);
+
+        // an element added whole is not also updated
+        Vertex v2 = createElement("v2");
+        searchIndex.addElementProperties(GRAPH, v2, toList(v2.getProperties()), AUTHORIZATIONS);
+        searchIndex.addElement(GRAPH, v2, AUTHORIZATIONS);
+        searchIndex.addElementProperties(GRAPH, v2, toList(v2.getProperties()), AUTHORIZATIONS);
+
+        blockWriter.countDown();
+        searchIndex.flush();
+        assertEquals(2, recordingSearchIndex.addedElementIds.size());
+        assertEquals(1, recordingSearchIndex.addedProperties.size());
+        assertEquals(Arrays.asList("prop2", "prop1"), recordingSearchIndex.addedProperties.get("v1"));
+        searchIndex.shutdown();
+    }
+
+    @Test
+    public void testFlushDoesNotWaitForLaterElements() throws InterruptedException {
+        final BlockingSearchIndex blockingSearchIndex = new BlockingSearchIndex("v1", "v3");
+        final WriteBehindSearchIndex searchIndex = new WriteBehindSearchIndex(blockingSearchIndex, 100, 1);
+        searchIndex.addElement(GRAPH, createElement("v0"), AUTHORIZATIONS);
+        searchIndex.addElement(GRAPH, createElement("v1"), AUTHORIZATIONS);
+        blockingSearchIndex.started.get("v1").await();
+
+        Thread flushThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                searchIndex.flush();
+            }
+        });
+        flushThread.start();
+        while (flushThread.getState() != Thread.State.WAITING) {
+            Thread.sleep(10);
+        }
+
+        // v3 is queued after the flush and is still being written when the flush returns
+        searchIndex.addElement(GRAPH, createElement("v2"), AUTHORIZATIONS);
+        searchIndex.addElement(GRAPH, createElement("v3"), AUTHORIZATIONS);
+        blockingSearchIndex.blocks.get("v1").countDown();
+        blockingSearchIndex.started.get("v3").await();
+        flushThread.join(10000);
+        assertFalse(flushThread.isAlive());
+        assertEquals(Arrays.asList("v0", "v1", "v2"), blockingSearchIndex.addedElementIds);
+
+        blockingSearchIndex.blocks.get("v3").countDown();
+        searchIndex.shutdown();
+    }
+
+    private static Vertex createElement(String id) {
+        return GRAPH.addVertex(id, new Visibility(""), AUTHORIZATIONS);
+    }
+
+    private static class BlockingSearchIndex extends DefaultSearchIndex {
+        private final Map<String, CountDownLatch> blocks = new HashMap<String, CountDownLatch>();
+        private final Map<String, CountDownLatch> started = new HashMap<String, CountDownLatch>();
+        private final List<String> addedElementIds = Collections.synchronizedList(new ArrayList<String>());
+
+        private BlockingSearchIndex(String... blockedIds) {
+            super(new HashMap());
+            for (String id : blockedIds) {
+                blocks.put(id, new CountDownLatch(1));
+                started.put(id, new CountDownLatch(1));
+            }
+        }
+
+        @Override
+        public void addElement(Graph graph, Element element, Authorizations authorizations) {
+            CountDownLatch block = blocks.get(element.getId());
+            if (block != null) {
+                started.get(element.getId()).countDown();
+                try {
+                    block.await();
+                } catch (InterruptedException e) {
+                    throw new SecureGraphException("interrupted", e);
+                }
+            }
+            addedElementIds.add(element.getId());
+        }
+    }
+
+    private static class RecordingSearchIndex extends DefaultSearchIndex {
+        private final CountDownLatch blockWriter;
+        private final CountDownLatch writerStarted = new CountDownLatch(1);
+        private final List<String> addedElementIds = Collections.synchronizedList(new ArrayList<String>());
+        private final Map<String, List<String>> addedProperties = new ConcurrentHashMap<String, List<String>>();
+        private volatile int addElementsCount;
+        private volatile int flushCount;
+
+        private RecordingSearchIndex(CountDownLatch blockWriter) {
+            super(new HashMap());
+            this.blockWriter = blockWriter;
+        }
+
+        @Override
+        public void addElement(Graph graph, Element element, Authorizations authorizations) {
+            writerStarted.countDown();
+            if (blockWriter != null) {
+                try {
+                    blockWriter.await();
+                } catch (InterruptedException e) {
+                    throw new SecureGraphException("interrupted", e);
+                }
+            }
+            addedElementIds.add(element.getId());
+        }
+
+        @Override
+        public void addElementProperties(Graph graph, Element element, Iterable<Property> properties, Authorizations authorizations) {
+            List<String> propertyNames = new ArrayList<String>();
+            for (Property property : properties) {
+                propertyNames.add(property.getName());
+            }
+            addedProperties.put(element.getId(), propertyNames);
+        }
+
+        @Override
+        public void addElements(Graph graph, Iterable<Element> elements, Authorizations authorizations) {
+            addElementsCount++;
+            super.addElements(graph, elements, authorizations);
+        }
+
+        @Override
+        public void flush() {
+            flushCount++;
+        }
+    }
+}
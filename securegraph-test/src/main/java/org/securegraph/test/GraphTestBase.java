@@ -9,6 +9,7 @@ import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
 import org.securegraph.*;
 import org.securegraph.mutation.ElementMutation;
+import org.securegraph.path.BidirectionalPathFindingAlgorithm;
 import org.securegraph.property.PropertyValue;
 import org.securegraph.property.StreamingPropertyValue;
 import org.securegraph.query.Compare;
@@ -446,6 +447,41 @@ public abstract class GraphTestBase {
         assertEquals("v1", verticesInOrder.get(1).getId());
     }
 
+    @Test
+    public void testGetElementsInOrder() {
+        Vertex v1 = graph.addVertex("v1", VISIBILITY_A, AUTHORIZATIONS_A);
+        Vertex v2 = graph.addVertex("v2", VISIBILITY_A, AUTHORIZATIONS_A);
+        Vertex v3 = graph.addVertex("v3", VISIBILITY_A, AUTHORIZATIONS_A);
+        graph.addEdge("e1", v1, v2, "label1", VISIBILITY_A, AUTHORIZATIONS_A);
+        graph.addEdge("e2", v2, v3, "label1", VISIBILITY_A, AUTHORIZATIONS_A);
+        graph.flush();
+
+        // duplicates are returned once at their first position, missing ids are skipped
+        List<String> vertexIds = Arrays.asList("v3", "missing", "v1", "v3", "v2");
+        List<Vertex> vertices = graph.getVerticesInOrder(vertexIds, AUTHORIZATIONS_A);
+        assertEquals(3, vertices.size());
+        assertEquals("v3", vertices.get(0).getId());
+        assertEquals("v1", vertices.get(1).getId());
+        assertEquals("v2", vertices.get(2).getId());
+
+        vertices = toList(graph.getVerticesInOrderStreaming(vertexIds, FetchHint.ALL, AUTHORIZATIONS_A));
+        assertEquals(3, vertices.size());
+        assertEquals("v3", vertices.get(0).getId());
+        assertEquals("v1", vertices.get(1).getId());
+        assertEquals("v2", vertices.get(2).getId());
+
+        List<String> edgeIds = Arrays.asList("e2", "e1", "missing");
+        List<Edge> edges = graph.getEdgesInOrder(edgeIds, AUTHORIZATIONS_A);
+        assertEquals(2, edges.size());
+        assertEquals("e2", edges.get(0).getId());
+        assertEquals("e1", edges.get(1).getId());
+
+        edges = toList(graph.getEdgesInOrderStreaming(edgeIds, FetchHint.ALL, AUTHORIZATIONS_A));
+        assertEquals(2, edges.size());
+        assertEquals("e2", edges.get(0).getId());
+        assertEquals("e1", edges.get(1).getId());
+    }
+
     @Test
     public void testGetEdgesWithIds() {
         Vertex v1 = graph.addVertex("v1", VISIBILITY_A, AUTHORIZATIONS_A);
@@ -1298,6 +1334,43 @@ public abstract class GraphTestBase {
         assertTrue("v4 not found in path", found4);
     }
 
+    @Test
+    public void testFindPathsLimits() {
+        Vertex v1 = graph.addVertex("v1", VISIBILITY_A, AUTHORIZATIONS_A);
+        Vertex v5 = graph.addVertex("v5", VISIBILITY_A, AUTHORIZATIONS_A);
+        for (int i = 0; i < 3; i++) {
+            Vertex v = graph.addVertex("v" + (i + 2), VISIBILITY_A, AUTHORIZATIONS_A);
+            graph.addEdge(v1, v, "knows", VISIBILITY_A, AUTHORIZATIONS_A);
+            graph.addEdge(v, v5, "knows", VISIBILITY_A, AUTHORIZATIONS_A);
+        }
+        v1 = graph.getVertex("v1", AUTHORIZATIONS_A);
+        v5 = graph.getVertex("v5", AUTHORIZATIONS_A);
+
+        assertEquals(3, count(new BidirectionalPathFindingAlgorithm().findPaths(graph, v1, v5, 4, AUTHORIZATIONS_A)));
+        assertEquals(2, count(new BidirectionalPathFindingAlgorithm(2, 100, 1).findPaths(graph, v1, v5, 4, AUTHORIZATIONS_A)));
+
+        try {
+            count(new BidirectionalPathFindingAlgorithm(10, 2, 1).findPaths(graph, v1, v5, 4, AUTHORIZATIONS_A));
+            fail("expected the visited node limit to be exceeded");
+        } catch (SecureGraphException ex) {
+            // expected
+        }
+
+        // the direct edge is found before the destination end grows, which would exceed the visited node limit
+        graph.addEdge(v1, v5, "knows", VISIBILITY_A, AUTHORIZATIONS_A);
+        v1 = graph.getVertex("v1", AUTHORIZATIONS_A);
+        v5 = graph.getVertex("v5", AUTHORIZATIONS_A);
+        List<Path> paths = toList(new BidirectionalPathFindingAlgorithm(1, 4, 1).findPaths(graph, v1, v5, 4, AUTHORIZATIONS_A));
+        assertEquals(1, paths.size());
+        assertEquals("[v1, v5]", paths.get(0).toString());
+        try {
+            count(new BidirectionalPathFindingAlgorithm(10, 4, 1).findPaths(graph, v1, v5, 4, AUTHORIZATIONS_A));
+            fail("expected the visited node limit to be exceeded");
+        } catch (SecureGraphException ex) {
+            // expected
+        }
+    }
+
     @Test
     public void testGetVerticesFromVertex() {
         Vertex v1 = graph.addVertex("v1", VISIBILITY_A, AUTHORIZATIONS_A);
@@ -1330,6 +1403,41 @@ public abstract class GraphTestBase {
         assertEquals(1, count(v4.getVertices(Direction.IN, AUTHORIZATIONS_A)));
     }
 
+    @Test
+    public void testGetVerticesOfVertices() {
+        Vertex v1 = graph.addVertex("v1", VISIBILITY_A, AUTHORIZATIONS_A);
+        Vertex v2 = graph.addVertex("v2", VISIBILITY_A, AUTHORIZATIONS_A);
+        Vertex v3 = graph.addVertex("v3", VISIBILITY_A, AUTHORIZATIONS_A);
+        Vertex v4 = graph.addVertex("v4", VISIBILITY_A, AUTHORIZATIONS_A);
+        graph.addEdge(v1, v2, "knows", VISIBILITY_A, AUTHORIZATIONS_A);
+        graph.addEdge(v1, v3, "likes", VISIBILITY_A, AUTHORIZATIONS_A);
+        graph.addEdge(v4, v1, "knows", VISIBILITY_A, AUTHORIZATIONS_A);
+        graph.addEdge(v2, v3, "knows", VISIBILITY_A, AUTHORIZATIONS_A);
+        Vertex v5 = graph.addVertex("v5", VISIBILITY_B, AUTHORIZATIONS_B);
+        graph.addEdge(v1, v5, "knows", VISIBILITY_A, AUTHORIZATIONS_A);
+        Vertex v6 = graph.addVertex("v6", VISIBILITY_A, AUTHORIZATIONS_A);
+        graph.addEdge(v6, v1, "knows", VISIBILITY_B, AUTHORIZATIONS_B);
+        graph.flush();
+
+        Map<String, Set<String>> vertexIds = graph.getVertexIdsOfVertices(Arrays.asList("v1", "v2", "vMissing"), Direction.OUT, null, AUTHORIZATIONS_A);
+        assertEquals(2, vertexIds.size());
+        assertEquals(toSet(Arrays.asList("v2", "v3")), vertexIds.get("v1"));
+        assertEquals(toSet(Arrays.asList("v3")), vertexIds.get("v2"));
+
+        vertexIds = graph.getVertexIdsOfVertices(Arrays.asList("v1", "v2"), Direction.BOTH, new String[]{"knows"}, AUTHORIZATIONS_A);
+        assertEquals(toSet(Arrays.asList("v2", "v4")), vertexIds.get("v1"));
+        assertEquals(toSet(Arrays.asList("v1", "v3")), vertexIds.get("v2"));
+
+        vertexIds = graph.getVertexIdsOfVertices(Arrays.asList("v3"), Direction.IN, null, AUTHORIZATIONS_A);
+        assertEquals(toSet(Arrays.asList("v1", "v2")), vertexIds.get("v3"));
+
+        Set<String> adjacentVertexIds = new HashSet<String>();
+        for (Vertex vertex : graph.getVerticesOfVertices(Arrays.asList("v1", "v2"), Direction.OUT, null, AUTHORIZATIONS_A)) {
+            assertTrue("duplicate vertex " + vertex.getId(), adjacentVertexIds.add(vertex.getId()));
+        }
+        assertEquals(toSet(Arrays.asList("v2", "v3")), adjacentVertexIds);
+    }
+
     @Test
     public void testBlankVisibilityString() {
         Vertex v = graph.addVertex("v1", VISIBILITY_EMPTY, AUTHORIZATIONS_EMPTY);
@@ -1,6 +1,29 @@
 package org.securegraph.tools;
 
+import com.beust.jcommander.Parameter;
+import org.securegraph.ElementType;
+import org.securegraph.accumulo.AccumuloGraph;
+import org.securegraph.accumulo.AccumuloReindexer;
+
+import java.io.File;
+import java.util.EnumSet;
+
 public class GraphReindex extends GraphToolBase {
+    @Parameter(names = {"--threads"}, description = "Number of partitions to reindex in parallel")
+    private int threads = 1;
+
+    @Parameter(names = {"--checkpoint"}, description = "File to record progress in so the reindex can be resumed")
+    private String checkpointFileName = "reindex.checkpoint";
+
+    @Parameter(names = {"--resume"}, description = "Resume from the checkpoint file instead of starting over")
+    private boolean resume = false;
+
+    @Parameter(names = {"--only"}, description = "Only reindex vertices or edges")
+    private String only = null;
+
+    @Parameter(names = {"--batchSize"}, description = "Number of elements sent to the search index at a time")
+    private int batchSize = AccumuloReindexer.DEFAULT_BATCH_SIZE;
+
     public static void main(String[] args) throws Exception {
         GraphReindex graphReindex = new GraphReindex();
         graphReindex.run(args);
@@ -11,8 +34,30 @@ public class GraphReindex extends GraphToolBase {
 
         System.out.println("Starting reindex");
         long startTime = System.currentTimeMillis();
-        getGraph().reindex(getAuthorizations());
+        if (getGraph() instanceof AccumuloGraph) {
+            AccumuloReindexer reindexer = new AccumuloReindexer((AccumuloGraph) getGraph(), threads, new File(checkpointFileName), batchSize);
+            reindexer.reindex(getElementTypes(), resume, getAuthorizations());
+            System.out.println(reindexer.getProgress());
+        } else {
+            if (resume || only != null || threads != 1) {
+                throw new RuntimeException("--threads, --resume and --only are only supported by " + AccumuloGraph.class.getSimpleName());
+            }
+            getGraph().reindex(getAuthorizations());
+        }
         long endTime = System.currentTimeMillis();
         System.out.println("Reindexing complete (" + (endTime - startTime) + "ms)");
     }
+
+    private EnumSet<ElementType> getElementTypes() {
+        if (only == null) {
+            return EnumSet.allOf(ElementType.class);
+        }
+        if (only.equals("vertices")) {
+            return EnumSet.of(ElementType.VERTEX);
+        }
+        if (only.equals("edges")) {
+            return EnumSet.of(ElementType.EDGE);
+        }
+        throw new RuntimeException("--only must be vertices or edges");
+    }
 }